@@ -0,0 +1,30 @@
+package com.bankinc.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del jar de benchmarks. Acepta las mismas opciones que org.openjdk.jmh.Main
+ * y agrega siempre el perfilador de GC, que reporta gc.alloc.rate.norm (bytes por operacion).
+ */
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        if (opciones.shouldHelp()) {
+            opciones.showHelp();
+            return;
+        }
+        Runner runner = new Runner(new OptionsBuilder()
+                .parent(opciones)
+                .addProfiler(GCProfiler.class)
+                .build());
+        if (opciones.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+}
@@ -0,0 +1,192 @@
+package com.bankinc.benchmarks;
+
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.AutorizacionCompra;
+import com.bankinc.repository.GastoDiarioRepository;
+import com.bankinc.repository.MovimientoRepository;
+import com.bankinc.repository.NumeracionProductoRepository;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repositorios respaldados por mapas, para medir el servicio sin base de datos. Solo
+ * implementan los metodos que usan los caminos medidos; el resto lanza
+ * UnsupportedOperationException para que un benchmark nuevo no mida un stub vacio. Las
+ * transacciones solo reciben id: guardarlas haria crecer el heap y el GC contaminaria la medicion.
+ */
+final class RepositoriosEnMemoria {
+
+    private final Map<String, Tarjeta> tarjetas = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> numeracion = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    void agregarTarjeta(Tarjeta tarjeta) {
+        tarjetas.put(tarjeta.getId(), tarjeta);
+    }
+
+    TarjetaRepository tarjetaRepository() {
+        return proxy(TarjetaRepository.class, (metodo, args) -> switch (metodo) {
+            case "findById" -> Optional.ofNullable(tarjetas.get((String) args[0])).map(RepositoriosEnMemoria::copiar);
+            case "save" -> guardar((Tarjeta) args[0]);
+            case "findAllById" -> buscarTodas((Iterable<?>) args[0]);
+            default -> null;
+        });
+    }
+
+    Transaccionrepository transaccionrepository() {
+        return proxy(Transaccionrepository.class, (metodo, args) -> switch (metodo) {
+            case "autorizarCompra" -> autorizarCompra((String) args[0], (BigDecimal) args[1], (Integer) args[3])
+                    .map(this::conTransaccion);
+            case "saveAll" -> {
+                List<Transaccion> guardadas = new ArrayList<>();
+                for (Object t : (Iterable<?>) args[0]) {
+                    guardadas.add(registrar((Transaccion) t));
+                }
+                yield guardadas;
+            }
+            default -> null;
+        });
+    }
+
+    /**
+     * Los agregados diarios no se consultan en los benchmarks: sumarCompras solo cuenta filas.
+     */
+    GastoDiarioRepository gastoDiarioRepository() {
+        return proxy(GastoDiarioRepository.class, (metodo, args) -> switch (metodo) {
+            case "sumarCompras" -> ((String[]) args[0]).length;
+            default -> null;
+        });
+    }
+
+    /**
+     * El libro mayor solo se escribe: los asientos se descartan.
+     */
+    MovimientoRepository movimientoRepository() {
+        return proxy(MovimientoRepository.class, (metodo, args) -> switch (metodo) {
+            case "registrar" -> 1;
+            case "registrarTodos" -> ((String[]) args[0]).length;
+            default -> null;
+        });
+    }
+
+    NumeracionProductoRepository numeracionProductoRepository() {
+        return proxy(NumeracionProductoRepository.class, (metodo, args) -> switch (metodo) {
+            case "reservarBloque" -> numeracion.computeIfAbsent((String) args[0], p -> new AtomicLong())
+                    .getAndAdd((Long) args[1]);
+            default -> null;
+        });
+    }
+
+    /**
+     * Equivalente en memoria del CTE de Transaccionrepository.autorizarCompra: debita solo si
+     * la tarjeta cumple todas las reglas y devuelve el estado resultante. Las mutaciones de una
+     * tarjeta ya llegan en serie por SerializadorTarjetas.
+     */
+    private Optional<Compra> autorizarCompra(String idTarjeta, BigDecimal monto, int mesActual) {
+        Tarjeta tarjeta = tarjetas.get(idTarjeta);
+        if (tarjeta == null) {
+            return Optional.empty();
+        }
+        boolean aplica = !tarjeta.getExpirada() && tarjeta.getActiva() && !tarjeta.getBloqueada()
+                && MesExpiracionConverter.aMes(tarjeta.getFechaExpiracion()) >= mesActual
+                && monto.signum() > 0
+                && tarjeta.getBalance().compareTo(monto) >= 0;
+        if (aplica) {
+            tarjeta.setBalance(tarjeta.getBalance().subtract(monto));
+            tarjeta.setVersion(tarjeta.getVersion() + 1);
+            tarjeta.setSecuencia(tarjeta.getSecuencia() + 1);
+        }
+        return Optional.of(new Compra(aplica ? new Transaccion(null, idTarjeta, monto, null, false) : null,
+                copiar(tarjeta)));
+    }
+
+    private Transaccion registrar(Transaccion transaccion) {
+        transaccion.setId(secuencia.incrementAndGet());
+        return transaccion;
+    }
+
+    private AutorizacionCompra conTransaccion(Compra compra) {
+        Long id = compra.transaccion() == null ? null : registrar(compra.transaccion()).getId();
+        Tarjeta t = compra.tarjeta();
+        return new Autorizacion(id, t.getIdProducto(), t.getNombreTitular(), t.getActiva(), t.getBloqueada(),
+                MesExpiracionConverter.aMes(t.getFechaExpiracion()), t.getExpirada(), t.getBalance(), t.getVersion(),
+                t.getSecuencia());
+    }
+
+    private Tarjeta guardar(Tarjeta tarjeta) {
+        Tarjeta guardada = copiar(tarjeta);
+        guardada.setVersion(tarjeta.getVersion() == null ? 0 : tarjeta.getVersion() + 1);
+        tarjetas.put(tarjeta.getId(), guardada);
+        tarjeta.setVersion(guardada.getVersion());
+        return tarjeta;
+    }
+
+    private List<Tarjeta> buscarTodas(Iterable<?> ids) {
+        List<Tarjeta> encontradas = new ArrayList<>();
+        for (Object id : ids) {
+            Tarjeta tarjeta = tarjetas.get((String) id);
+            if (tarjeta != null) {
+                encontradas.add(copiar(tarjeta));
+            }
+        }
+        return encontradas;
+    }
+
+    private static Tarjeta copiar(Tarjeta tarjeta) {
+        return Tarjeta.builder()
+                .id(tarjeta.getId())
+                .idProducto(tarjeta.getIdProducto())
+                .nombreTitular(tarjeta.getNombreTitular())
+                .fechaExpiracion(tarjeta.getFechaExpiracion())
+                .expirada(tarjeta.getExpirada())
+                .activa(tarjeta.getActiva())
+                .bloqueada(tarjeta.getBloqueada())
+                .balance(tarjeta.getBalance())
+                .version(tarjeta.getVersion())
+                .secuencia(tarjeta.getSecuencia())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R proxy(Class<R> tipo, Metodo implementacion) {
+        return (R) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            if (metodo.getDeclaringClass() == Object.class) {
+                return switch (metodo.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> tipo.getSimpleName() + "EnMemoria";
+                };
+            }
+            Object resultado = implementacion.invocar(metodo.getName(), args);
+            if (resultado == null) {
+                throw new UnsupportedOperationException(tipo.getSimpleName() + "." + metodo.getName());
+            }
+            return resultado;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Metodo {
+        Object invocar(String nombre, Object[] args);
+    }
+
+    private record Compra(Transaccion transaccion, Tarjeta tarjeta) {
+    }
+
+    private record Autorizacion(Long getIdTransaccion, String getIdProducto, String getNombreTitular,
+                                Boolean getActiva, Boolean getBloqueada, Integer getMesExpiracion, Boolean getExpirada,
+                                BigDecimal getBalance, Long getVersion, Long getSecuencia)
+            implements AutorizacionCompra {
+    }
+}
@@ -0,0 +1,69 @@
+package com.bankinc.benchmarks;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializacion JSON de las respuestas de los controladores, con un ObjectMapper configurado
+ * como el de Spring MVC (modulos de java.time, fechas como texto).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    private ObjectWriter escritor;
+    private ApiResponse<Tarjeta> respuestaTarjeta;
+    private ApiResponse<Transaccion> respuestaTransaccion;
+
+    @Setup
+    public void preparar() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        escritor = mapper.writer();
+        respuestaTarjeta = new ApiResponse<>("SUCCESS", "Balance obtenido correctamente", Tarjeta.builder()
+                .id("1020301234567890")
+                .idProducto("102030")
+                .nombreTitular("Ana Perez")
+                .fechaExpiracion("10/2029")
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("1520.75"))
+                .version(3L)
+                .build());
+        respuestaTransaccion = new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente",
+                new Transaccion(42L, "1020301234567890", new BigDecimal("99.90"),
+                        LocalDateTime.of(2026, 10, 17, 12, 30, 5), false));
+    }
+
+    @Benchmark
+    public byte[] apiResponseTarjeta() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(respuestaTarjeta);
+    }
+
+    @Benchmark
+    public byte[] apiResponseTransaccion() throws JsonProcessingException {
+        return escritor.writeValueAsBytes(respuestaTransaccion);
+    }
+}
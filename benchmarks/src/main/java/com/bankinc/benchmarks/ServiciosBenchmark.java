@@ -0,0 +1,115 @@
+package com.bankinc.benchmarks;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.service.AsignadorNumerosTarjeta;
+import com.bankinc.service.CacheTarjetas;
+import com.bankinc.service.LecturaPropia;
+import com.bankinc.service.LibroMayor;
+import com.bankinc.service.MotorMemoria;
+import com.bankinc.service.ReintentoOptimista;
+import com.bankinc.service.RelojMes;
+import com.bankinc.service.SerializadorTarjetas;
+import com.bankinc.service.TarjetaServiceImpl;
+import com.bankinc.service.TransaccionServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminos calientes de TarjetaServiceImpl y TransaccionServiceImpl con repositorios en memoria:
+ * mide el costo propio del servicio (validaciones, cache, serializacion por tarjeta,
+ * reintentos) sin la base de datos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiciosBenchmark {
+
+    private static final String TARJETA_COMPRAS = "1020300000000001";
+    private static final String TARJETA_RECARGAS = "1020300000000002";
+    private static final BigDecimal MONTO = new BigDecimal("1.00");
+
+    private RepositoriosEnMemoria repositorios;
+    private TransaccionServiceImpl transaccionService;
+    private TarjetaServiceImpl tarjetaService;
+    private YearMonth vencimiento;
+
+    @Setup
+    public void preparar() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repositorios = new RepositoriosEnMemoria();
+        SerializadorTarjetas serializador = new SerializadorTarjetas(256, registry);
+        ReintentoOptimista reintento = new ReintentoOptimista(TransactionOperations.withoutTransaction(), registry, 5, 5, 200);
+        CacheTarjetas cache = new CacheTarjetas(100_000, Duration.ofSeconds(60), registry);
+        AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(
+                repositorios.numeracionProductoRepository(), 1000, 7046029254386353131L);
+
+        LibroMayor libroMayor = new LibroMayor(repositorios.movimientoRepository());
+        transaccionService = new TransaccionServiceImpl(repositorios.transaccionrepository(),
+                repositorios.tarjetaRepository(), repositorios.gastoDiarioRepository(), libroMayor, serializador,
+                reintento, cache, new RelojMes(), MotorMemoria.deshabilitado(), LecturaPropia.deshabilitada());
+        tarjetaService = new TarjetaServiceImpl(repositorios.tarjetaRepository(), serializador, reintento, cache, asignador,
+                libroMayor, MotorMemoria.deshabilitado(), LecturaPropia.deshabilitada());
+        vencimiento = tarjetaService.calcularFechaExpiracion();
+
+        repositorios.agregarTarjeta(tarjeta(TARJETA_COMPRAS));
+        repositorios.agregarTarjeta(tarjeta(TARJETA_RECARGAS));
+    }
+
+    @Benchmark
+    public boolean validarFechaExpiracion() {
+        return transaccionService.validarFechaExpiracion(vencimiento);
+    }
+
+    @Benchmark
+    public String generarNumeroTarjeta() {
+        return tarjetaService.generarNumeroTarjeta("102030");
+    }
+
+    @Benchmark
+    public YearMonth calcularFechaExpiracion() {
+        return tarjetaService.calcularFechaExpiracion();
+    }
+
+    @Benchmark
+    public ApiResponse<Transaccion> crearTransaccion() {
+        return transaccionService.crearTransaccion(TARJETA_COMPRAS, MONTO);
+    }
+
+    @Benchmark
+    public ApiResponse<Tarjeta> recargarTarjeta() {
+        return tarjetaService.recargarTarjeta(TARJETA_RECARGAS, MONTO);
+    }
+
+    private Tarjeta tarjeta(String id) {
+        return Tarjeta.builder()
+                .id(id)
+                .idProducto(id.substring(0, 6))
+                .nombreTitular("Benchmark Servicio")
+                .fechaExpiracion(vencimiento)
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("1000000000000.00"))
+                .version(0L)
+                .build();
+    }
+}
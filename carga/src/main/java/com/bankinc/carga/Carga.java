@@ -0,0 +1,143 @@
+package com.bankinc.carga;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Una corrida: prepara las tarjetas, calienta, mide y arma el reporte.
+ * <p>
+ * En el modelo abierto las peticiones salen a la tasa pedida aunque el servidor se atrase, cada
+ * una en su hilo virtual, y la latencia se mide desde el instante en que debia salir: una pausa
+ * del servidor aparece en los percentiles en vez de frenar al generador (omision coordinada).
+ * En el modelo cerrado cada usuario espera su respuesta antes de la siguiente, como un pool de
+ * terminales; el throughput es el que el servidor alcanza a dar.
+ */
+public final class Carga {
+
+    private final Configuracion configuracion;
+    private final Medicion medicion;
+    private final ClienteApi api;
+
+    public Carga(Configuracion configuracion) {
+        this.configuracion = configuracion;
+        this.medicion = new Medicion();
+        this.api = new ClienteApi(configuracion, medicion);
+    }
+
+    public Reporte ejecutar() throws InterruptedException {
+        preparar();
+        correr(configuracion.calentamiento());
+        medicion.reiniciar();
+        long inicio = System.nanoTime();
+        correr(configuracion.duracion());
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Map<String, Reporte.Endpoint> operaciones = new LinkedHashMap<>();
+        for (Operacion operacion : Operacion.values()) {
+            operaciones.put(operacion.clave(), medicion.resumen(operacion, segundos));
+        }
+        return new Reporte(configuracion.etiqueta(), OffsetDateTime.now().toString(),
+                configuracion.url().toString(), configuracion.modelo().name(), configuracion.tasa(),
+                configuracion.usuarios(), configuracion.mezcla().toString(), segundos, operaciones);
+    }
+
+    /**
+     * Tarjetas activas y con saldo para que compras, recargas y consultas no dependan de las
+     * emisiones de la propia corrida.
+     */
+    private void preparar() throws InterruptedException {
+        AtomicInteger fallidas = new AtomicInteger();
+        Semaphore concurrentes = new Semaphore(32);
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < configuracion.tarjetas(); i++) {
+                concurrentes.acquire();
+                ejecutor.execute(() -> {
+                    try {
+                        if (!api.prepararTarjeta()) {
+                            fallidas.incrementAndGet();
+                        }
+                    } finally {
+                        concurrentes.release();
+                    }
+                });
+            }
+        }
+        if (api.tarjetasActivas() == 0) {
+            throw new IllegalStateException("No se pudo preparar ninguna tarjeta en " + configuracion.url());
+        }
+        if (fallidas.get() > 0) {
+            System.err.printf("%d de %d tarjetas no se pudieron preparar%n", fallidas.get(), configuracion.tarjetas());
+        }
+    }
+
+    private void correr(Duration duracion) throws InterruptedException {
+        if (duracion.isZero()) {
+            return;
+        }
+        if (configuracion.modelo() == Configuracion.Modelo.ABIERTO) {
+            abierto(duracion);
+        } else {
+            cerrado(duracion);
+        }
+    }
+
+    private void abierto(Duration duracion) {
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / configuracion.tasa());
+        Semaphore enVuelo = new Semaphore(configuracion.maxEnVuelo());
+        long inicio = System.nanoTime();
+        long fin = inicio + duracion.toNanos();
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long programado = inicio + i * intervalo;
+                if (programado - fin >= 0) {
+                    break;
+                }
+                esperarHasta(programado);
+                Operacion operacion = configuracion.mezcla().siguiente();
+                if (!enVuelo.tryAcquire()) {
+                    medicion.descartar(operacion, "Generador saturado (max-en-vuelo)");
+                    continue;
+                }
+                ejecutor.execute(() -> {
+                    try {
+                        api.ejecutar(operacion, programado);
+                    } finally {
+                        enVuelo.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void cerrado(Duration duracion) {
+        long fin = System.nanoTime() + duracion.toNanos();
+        long pausa = configuracion.pausa().toNanos();
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < configuracion.usuarios(); u++) {
+                ejecutor.execute(() -> {
+                    while (System.nanoTime() - fin < 0 && !Thread.currentThread().isInterrupted()) {
+                        api.ejecutar(configuracion.mezcla().siguiente(), System.nanoTime());
+                        if (pausa > 0) {
+                            LockSupport.parkNanos(pausa);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private static void esperarHasta(long instante) {
+        long falta;
+        while ((falta = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(falta);
+        }
+    }
+}
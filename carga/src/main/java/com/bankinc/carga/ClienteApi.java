@@ -0,0 +1,221 @@
+package com.bankinc.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ejecuta cada operacion contra la API y guarda lo que las siguientes necesitan: las tarjetas
+ * emitidas esperan activacion, las activas reciben recargas, compras y consultas, y las compras
+ * recientes se anulan. Una activacion sin tarjetas pendientes emite una, y una anulacion sin
+ * compras recientes compra, para que la mezcla no se quede sin datos.
+ */
+public final class ClienteApi {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int MAX_TARJETAS = 1 << 20;
+    private static final int MAX_COMPRAS = 10_000;
+
+    private final Configuracion configuracion;
+    private final Medicion medicion;
+    private final HttpClient http;
+    private final String corrida = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong titulares = new AtomicLong();
+    private final Queue<String> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicReferenceArray<String> activas = new AtomicReferenceArray<>(MAX_TARJETAS);
+    private final AtomicInteger cantidadActivas = new AtomicInteger();
+    private final ConcurrentLinkedDeque<Compra> compras = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger cantidadCompras = new AtomicInteger();
+
+    private record Compra(String tarjeta, long id) {
+    }
+
+    public ClienteApi(Configuracion configuracion, Medicion medicion) {
+        this.configuracion = configuracion;
+        this.medicion = medicion;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(configuracion.timeout())
+                .build();
+    }
+
+    public int tarjetasActivas() {
+        return Math.min(cantidadActivas.get(), MAX_TARJETAS);
+    }
+
+    /**
+     * Emite, activa y recarga una tarjeta sin medir; false si alguno de los pasos fallo.
+     */
+    public boolean prepararTarjeta() {
+        try {
+            String tarjeta = emitir();
+            return tarjeta != null
+                    && exito(enviar(post("/card/enroll", "{\"cardId\":\"" + tarjeta + "\"}")))
+                    && exito(enviar(post("/card/balance", "{\"cardId\":\"" + tarjeta + "\",\"balance\":100000}")))
+                    && agregarActiva(tarjeta);
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param programado instante (nanoTime) desde el que se mide la latencia
+     */
+    public void ejecutar(Operacion operacion, long programado) {
+        String tarjeta = null;
+        HttpRequest peticion;
+        switch (operacion) {
+            case EMISION -> peticion = emision();
+            case ACTIVACION -> {
+                tarjeta = pendientes.poll();
+                if (tarjeta == null) {
+                    ejecutar(Operacion.EMISION, programado);
+                    return;
+                }
+                peticion = post("/card/enroll", "{\"cardId\":\"" + tarjeta + "\"}");
+            }
+            case RECARGA -> {
+                tarjeta = activa();
+                peticion = post("/card/balance", "{\"cardId\":\"" + tarjeta + "\",\"balance\":"
+                        + ThreadLocalRandom.current().nextInt(50, 500) + "}");
+            }
+            case COMPRA -> {
+                tarjeta = activa();
+                peticion = post("/transaction/create", "{\"cardId\":\"" + tarjeta + "\",\"price\":"
+                        + ThreadLocalRandom.current().nextInt(1, 100) + "}");
+            }
+            case ANULACION -> {
+                Compra compra = compras.pollFirst();
+                if (compra == null) {
+                    ejecutar(Operacion.COMPRA, programado);
+                    return;
+                }
+                cantidadCompras.decrementAndGet();
+                peticion = post("/transaction/anulation",
+                        "{\"cardId\":\"" + compra.tarjeta() + "\",\"transactionId\":" + compra.id() + "}");
+            }
+            default -> {
+                tarjeta = activa();
+                peticion = get("/transaction/allTransactionsByCard/" + tarjeta + "/page?size=20");
+            }
+        }
+        try {
+            HttpResponse<byte[]> respuesta = enviar(peticion);
+            String error = error(respuesta);
+            medicion.registrar(operacion, System.nanoTime() - programado, error);
+            if (error == null) {
+                despues(operacion, tarjeta, respuesta);
+            }
+        } catch (IOException e) {
+            medicion.registrar(operacion, System.nanoTime() - programado, e.getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void despues(Operacion operacion, String tarjeta, HttpResponse<byte[]> respuesta) throws IOException {
+        switch (operacion) {
+            case EMISION -> pendientes.add(JSON.readTree(respuesta.body()).path("data").path("id").asText());
+            case ACTIVACION -> agregarActiva(tarjeta);
+            case COMPRA -> {
+                compras.addFirst(new Compra(tarjeta, JSON.readTree(respuesta.body()).path("data").path("id").asLong()));
+                if (cantidadCompras.incrementAndGet() > MAX_COMPRAS && compras.pollLast() != null) {
+                    cantidadCompras.decrementAndGet();
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String emitir() throws IOException, InterruptedException {
+        HttpResponse<byte[]> respuesta = enviar(emision());
+        return exito(respuesta) ? JSON.readTree(respuesta.body()).path("data").path("id").asText() : null;
+    }
+
+    private HttpRequest emision() {
+        // Titular distinto por emision: el servicio rechaza producto y titular repetidos
+        String apellido = URLEncoder.encode(corrida + "-" + titulares.incrementAndGet(), StandardCharsets.UTF_8);
+        return get("/card/" + configuracion.producto() + "/number?firstName=Carga&lastName=" + apellido);
+    }
+
+    private boolean agregarActiva(String tarjeta) {
+        int indice = cantidadActivas.getAndIncrement();
+        if (indice < MAX_TARJETAS) {
+            activas.set(indice, tarjeta);
+        }
+        return true;
+    }
+
+    private String activa() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        while (true) {
+            // Una posicion reservada puede no estar escrita todavia
+            String tarjeta = activas.get(aleatorio.nextInt(tarjetasActivas()));
+            if (tarjeta != null) {
+                return tarjeta;
+            }
+        }
+    }
+
+    private HttpResponse<byte[]> enviar(HttpRequest peticion) throws IOException, InterruptedException {
+        return http.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static boolean exito(HttpResponse<byte[]> respuesta) {
+        return error(respuesta) == null;
+    }
+
+    /**
+     * Mensaje de ApiResponse si no fue SUCCESS; sin cuerpo JSON, el codigo HTTP.
+     */
+    static String error(HttpResponse<byte[]> respuesta) {
+        JsonNode cuerpo;
+        try {
+            cuerpo = JSON.readTree(respuesta.body());
+        } catch (IOException e) {
+            cuerpo = null;
+        }
+        if (cuerpo == null || !cuerpo.has("status")) {
+            return respuesta.statusCode() == 200 ? "Respuesta sin ApiResponse" : "HTTP " + respuesta.statusCode();
+        }
+        if (respuesta.statusCode() == 200 && "SUCCESS".equals(cuerpo.path("status").asText())) {
+            return null;
+        }
+        return cuerpo.path("message").asText("HTTP " + respuesta.statusCode());
+    }
+
+    private HttpRequest get(String ruta) {
+        return base(ruta).GET().build();
+    }
+
+    private HttpRequest post(String ruta, String cuerpo) {
+        return base(ruta)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+    }
+
+    private HttpRequest.Builder base(String ruta) {
+        return HttpRequest.newBuilder(URI.create(configuracion.url() + ruta))
+                .timeout(configuracion.timeout())
+                .header("X-Api-Client", configuracion.cliente());
+    }
+}
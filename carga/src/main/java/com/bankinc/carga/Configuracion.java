@@ -0,0 +1,84 @@
+package com.bankinc.carga;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opciones de una corrida, de la linea de comandos como --opcion=valor.
+ *
+ * @param modelo      abierto: llegadas a tasa fija sin importar cuanto tarda el servidor;
+ *                    cerrado: usuarios fijos que esperan cada respuesta
+ * @param tasa        peticiones por segundo del modelo abierto
+ * @param usuarios    usuarios concurrentes del modelo cerrado
+ * @param pausa       espera de cada usuario entre peticiones (modelo cerrado)
+ * @param tarjetas    tarjetas que se emiten, activan y recargan antes de medir
+ * @param producto    producto de las tarjetas de la corrida; conviene uno reservado para carga
+ * @param cliente     valor de X-Api-Client, para el limite por cliente
+ * @param maxEnVuelo  peticiones abiertas maximas del modelo abierto; las que no entran se
+ *                    cuentan como error en vez de esperar
+ */
+public record Configuracion(URI url,
+                            Modelo modelo,
+                            double tasa,
+                            int usuarios,
+                            Duration pausa,
+                            Duration duracion,
+                            Duration calentamiento,
+                            Mezcla mezcla,
+                            int tarjetas,
+                            String producto,
+                            String cliente,
+                            int maxEnVuelo,
+                            Duration timeout,
+                            String etiqueta,
+                            Path salida,
+                            Path comparar) {
+
+    public enum Modelo {ABIERTO, CERRADO}
+
+    public static Configuracion desdeArgumentos(String... args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Opcion invalida (--opcion=valor): " + arg);
+            }
+            int igual = arg.indexOf('=');
+            opciones.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        Configuracion configuracion = new Configuracion(
+                URI.create(quitar(opciones, "url", "http://localhost:8080")),
+                Modelo.valueOf(quitar(opciones, "modelo", "abierto").toUpperCase()),
+                Double.parseDouble(quitar(opciones, "tasa", "200")),
+                Integer.parseInt(quitar(opciones, "usuarios", "50")),
+                Duration.ofMillis(Long.parseLong(quitar(opciones, "pausa-ms", "0"))),
+                Duration.ofSeconds(Long.parseLong(quitar(opciones, "duracion", "60"))),
+                Duration.ofSeconds(Long.parseLong(quitar(opciones, "calentamiento", "15"))),
+                Mezcla.desdeTexto(quitar(opciones, "mezcla", Mezcla.POR_DEFECTO)),
+                Integer.parseInt(quitar(opciones, "tarjetas", "500")),
+                quitar(opciones, "producto", "777777"),
+                quitar(opciones, "cliente", "carga"),
+                Integer.parseInt(quitar(opciones, "max-en-vuelo", "2000")),
+                Duration.ofMillis(Long.parseLong(quitar(opciones, "timeout-ms", "10000"))),
+                quitar(opciones, "etiqueta", "local"),
+                Path.of(quitar(opciones, "salida", "target/reporte-carga.json")),
+                opciones.containsKey("comparar") ? Path.of(opciones.remove("comparar")) : null);
+        if (!opciones.isEmpty()) {
+            throw new IllegalArgumentException("Opciones desconocidas: " + opciones.keySet());
+        }
+        if (configuracion.tasa <= 0 || configuracion.usuarios <= 0 || configuracion.tarjetas <= 0) {
+            throw new IllegalArgumentException("tasa, usuarios y tarjetas deben ser mayores a cero");
+        }
+        if (!configuracion.producto.matches("\\d{6}")) {
+            throw new IllegalArgumentException("El producto debe tener 6 digitos");
+        }
+        return configuracion;
+    }
+
+    private static String quitar(Map<String, String> opciones, String clave, String porDefecto) {
+        String valor = opciones.remove(clave);
+        return valor != null ? valor : porDefecto;
+    }
+}
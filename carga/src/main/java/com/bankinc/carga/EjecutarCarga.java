@@ -0,0 +1,26 @@
+package com.bankinc.carga;
+
+/**
+ * Punto de entrada del jar de carga. Ejemplos:
+ * <pre>
+ * java -jar target/carga.jar --modelo=abierto --tasa=300 --duracion=120 --etiqueta=$(git rev-parse --short HEAD)
+ * java -jar target/carga.jar --modelo=cerrado --usuarios=100 --comparar=reportes/anterior.json
+ * </pre>
+ * Opciones: url, modelo, tasa, usuarios, pausa-ms, duracion y calentamiento (segundos), mezcla,
+ * tarjetas, producto, cliente, max-en-vuelo, timeout-ms, etiqueta, salida y comparar.
+ */
+public class EjecutarCarga {
+
+    public static void main(String[] args) throws Exception {
+        Configuracion configuracion = Configuracion.desdeArgumentos(args);
+        Reporte reporte = new Carga(configuracion).ejecutar();
+
+        System.out.print(reporte.texto());
+        reporte.escribir(configuracion.salida());
+        System.out.println("Reporte en " + configuracion.salida().toAbsolutePath());
+        if (configuracion.comparar() != null) {
+            System.out.println();
+            System.out.print(reporte.comparar(Reporte.leer(configuracion.comparar())));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.bankinc.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias y resultados por operacion, registrados desde muchos hilos a la vez. Cada operacion
+ * tiene un Recorder de HdrHistogram (registro sin bloqueos) con todas sus respuestas, exitosas o
+ * no; los errores se cuentan por mensaje de ApiResponse.
+ */
+public final class Medicion {
+
+    /**
+     * Latencias mayores se guardan como este maximo.
+     */
+    private static final long MAXIMO = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<Operacion, Recorder> latencias = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, LongAdder> exitos = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, ConcurrentHashMap<String, LongAdder>> errores = new EnumMap<>(Operacion.class);
+
+    public Medicion() {
+        for (Operacion operacion : Operacion.values()) {
+            latencias.put(operacion, new Recorder(MAXIMO, 3));
+            exitos.put(operacion, new LongAdder());
+            errores.put(operacion, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @param error mensaje de ApiResponse (o "HTTP 503", o la excepcion del cliente); null si
+     *              la respuesta fue SUCCESS
+     */
+    public void registrar(Operacion operacion, long nanos, String error) {
+        latencias.get(operacion).recordValue(Math.min(Math.max(nanos, 0), MAXIMO));
+        if (error == null) {
+            exitos.get(operacion).increment();
+        } else {
+            errores.get(operacion).computeIfAbsent(error, m -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Peticion que el generador no llego a enviar; no tiene latencia.
+     */
+    public void descartar(Operacion operacion, String motivo) {
+        errores.get(operacion).computeIfAbsent(motivo, m -> new LongAdder()).increment();
+    }
+
+    /**
+     * Descarta lo registrado hasta ahora, al terminar el calentamiento.
+     */
+    public void reiniciar() {
+        for (Operacion operacion : Operacion.values()) {
+            latencias.get(operacion).reset();
+            exitos.get(operacion).reset();
+            errores.get(operacion).clear();
+        }
+    }
+
+    public Reporte.Endpoint resumen(Operacion operacion, double segundos) {
+        Histogram histograma = latencias.get(operacion).getIntervalHistogram();
+        Map<String, Long> porMensaje = new TreeMap<>();
+        errores.get(operacion).forEach((mensaje, cuenta) -> porMensaje.put(mensaje, cuenta.sum()));
+        long ok = exitos.get(operacion).sum();
+        long fallidas = porMensaje.values().stream().mapToLong(Long::longValue).sum();
+        long total = ok + fallidas;
+        return new Reporte.Endpoint(
+                operacion.endpoint(),
+                total,
+                ok,
+                total / segundos,
+                total == 0 ? 0 : (double) fallidas / total,
+                milis(histograma.getMean()),
+                milis(histograma.getValueAtPercentile(50)),
+                milis(histograma.getValueAtPercentile(90)),
+                milis(histograma.getValueAtPercentile(99)),
+                milis(histograma.getValueAtPercentile(99.9)),
+                milis(histograma.getMaxValue()),
+                porMensaje);
+    }
+
+    private static double milis(double nanos) {
+        return Math.round(nanos / 1_000) / 1_000.0;
+    }
+}
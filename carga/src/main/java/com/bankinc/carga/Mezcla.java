@@ -0,0 +1,78 @@
+package com.bankinc.carga;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Proporcion de cada operacion en la carga, como pesos enteros: "compra=55,historial=25,..."
+ * La operacion de cada peticion se sortea con esos pesos.
+ */
+public final class Mezcla {
+
+    /**
+     * Un dia de terminales: sobre todo compras y consultas de historial, pocas altas.
+     */
+    public static final String POR_DEFECTO = "emision=2,activacion=2,recarga=10,compra=55,anulacion=6,historial=25";
+
+    private final Operacion[] operaciones;
+    private final int[] acumulados;
+    private final Map<Operacion, Integer> pesos;
+
+    private Mezcla(Map<Operacion, Integer> pesos) {
+        this.pesos = pesos;
+        this.operaciones = pesos.keySet().toArray(new Operacion[0]);
+        this.acumulados = new int[operaciones.length];
+        int total = 0;
+        for (int i = 0; i < operaciones.length; i++) {
+            total += pesos.get(operaciones[i]);
+            acumulados[i] = total;
+        }
+    }
+
+    public static Mezcla desdeTexto(String texto) {
+        Map<Operacion, Integer> pesos = new EnumMap<>(Operacion.class);
+        for (String parte : texto.split(",")) {
+            if (parte.isBlank()) {
+                continue;
+            }
+            String[] claveValor = parte.split("=");
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Mezcla invalida (operacion=peso): " + parte);
+            }
+            int peso = Integer.parseInt(claveValor[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("Peso negativo en la mezcla: " + parte);
+            }
+            if (peso > 0) {
+                pesos.put(Operacion.desdeClave(claveValor[0]), peso);
+            }
+        }
+        if (pesos.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla no tiene operaciones");
+        }
+        return new Mezcla(pesos);
+    }
+
+    public Operacion siguiente() {
+        int sorteo = ThreadLocalRandom.current().nextInt(acumulados[acumulados.length - 1]);
+        for (int i = 0; i < acumulados.length; i++) {
+            if (sorteo < acumulados[i]) {
+                return operaciones[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        pesos.forEach((operacion, peso) -> {
+            if (!texto.isEmpty()) {
+                texto.append(',');
+            }
+            texto.append(operacion.clave()).append('=').append(peso);
+        });
+        return texto.toString();
+    }
+}
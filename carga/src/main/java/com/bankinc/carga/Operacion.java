@@ -0,0 +1,40 @@
+package com.bankinc.carga;
+
+/**
+ * Operaciones de la mezcla, cada una con el endpoint con el que aparece en el reporte.
+ */
+public enum Operacion {
+
+    EMISION("GET /card/{productId}/number"),
+    ACTIVACION("POST /card/enroll"),
+    RECARGA("POST /card/balance"),
+    COMPRA("POST /transaction/create"),
+    ANULACION("POST /transaction/anulation"),
+    HISTORIAL("GET /transaction/allTransactionsByCard/{cardId}/page");
+
+    private final String endpoint;
+
+    Operacion(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Nombre en las opciones de linea de comandos, p. ej. compra.
+     */
+    public String clave() {
+        return name().toLowerCase();
+    }
+
+    public static Operacion desdeClave(String clave) {
+        for (Operacion operacion : values()) {
+            if (operacion.clave().equals(clave.trim())) {
+                return operacion;
+            }
+        }
+        throw new IllegalArgumentException("Operacion desconocida: " + clave);
+    }
+}
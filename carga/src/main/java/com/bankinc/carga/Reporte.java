@@ -0,0 +1,109 @@
+package com.bankinc.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resultado de una corrida, en JSON para compararlo con el de otra build con la misma
+ * configuracion. Las latencias van en milisegundos desde el instante en que la peticion debia
+ * salir (en el modelo abierto una cola del lado del cliente tambien cuenta).
+ */
+public record Reporte(String etiqueta,
+                      String fecha,
+                      String url,
+                      String modelo,
+                      double tasa,
+                      int usuarios,
+                      String mezcla,
+                      double segundos,
+                      Map<String, Endpoint> operaciones) {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * @param porSegundo  respuestas por segundo, exitosas o no
+     * @param tasaErrores fraccion de peticiones con ERROR, HTTP distinto de 200 o sin respuesta
+     * @param errores     cuenta por mensaje
+     */
+    public record Endpoint(String endpoint,
+                           long peticiones,
+                           long exitosas,
+                           double porSegundo,
+                           double tasaErrores,
+                           double media,
+                           double p50,
+                           double p90,
+                           double p99,
+                           double p999,
+                           double maximo,
+                           Map<String, Long> errores) {
+    }
+
+    public void escribir(Path archivo) throws IOException {
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        JSON.writeValue(archivo.toFile(), this);
+    }
+
+    public static Reporte leer(Path archivo) throws IOException {
+        return JSON.readValue(archivo.toFile(), Reporte.class);
+    }
+
+    public String texto() {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format(Locale.ROOT, "%s (%s) %s, %.0f s%n", etiqueta, fecha, modelo.equals("ABIERTO")
+                ? String.format(Locale.ROOT, "abierto a %.0f/s", tasa)
+                : "cerrado con " + usuarios + " usuarios", segundos));
+        texto.append(String.format(Locale.ROOT, "%-12s %10s %9s %8s %8s %8s %8s %8s %8s%n",
+                "operacion", "peticiones", "por seg", "errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        operaciones.forEach((operacion, e) -> {
+            texto.append(String.format(Locale.ROOT, "%-12s %10d %9.1f %7.2f%% %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                    operacion, e.peticiones(), e.porSegundo(), e.tasaErrores() * 100,
+                    e.p50(), e.p90(), e.p99(), e.p999(), e.maximo()));
+            e.errores().forEach((mensaje, cuenta) ->
+                    texto.append(String.format(Locale.ROOT, "%14s%d x %s%n", "", cuenta, mensaje)));
+        });
+        return texto.toString();
+    }
+
+    /**
+     * Diferencia relativa con otra corrida en throughput y percentiles, por operacion.
+     */
+    public String comparar(Reporte anterior) {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format(Locale.ROOT, "%s contra %s%n", etiqueta, anterior.etiqueta()));
+        if (!modelo.equals(anterior.modelo()) || tasa != anterior.tasa() || usuarios != anterior.usuarios()
+                || !mezcla.equals(anterior.mezcla())) {
+            texto.append("Atencion: las corridas no usan la misma carga\n");
+        }
+        texto.append(String.format(Locale.ROOT, "%-12s %9s %9s %9s %9s %12s%n",
+                "operacion", "por seg", "p50", "p99", "p99.9", "errores"));
+        operaciones.forEach((operacion, actual) -> {
+            Endpoint antes = anterior.operaciones().get(operacion);
+            if (antes == null) {
+                return;
+            }
+            texto.append(String.format(Locale.ROOT, "%-12s %9s %9s %9s %9s %+10.2fpp%n", operacion,
+                    variacion(actual.porSegundo(), antes.porSegundo()),
+                    variacion(actual.p50(), antes.p50()),
+                    variacion(actual.p99(), antes.p99()),
+                    variacion(actual.p999(), antes.p999()),
+                    (actual.tasaErrores() - antes.tasaErrores()) * 100));
+        });
+        return texto.toString();
+    }
+
+    static String variacion(double actual, double anterior) {
+        if (anterior == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (actual - anterior) / anterior * 100);
+    }
+}
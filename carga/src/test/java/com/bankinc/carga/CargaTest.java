@@ -0,0 +1,124 @@
+package com.bankinc.carga;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * El generador contra una API simulada en el mismo proceso: recorre la mezcla, clasifica los
+ * errores por mensaje y el reporte se puede releer y comparar.
+ */
+class CargaTest {
+
+    private HttpServer servidor;
+    private final AtomicLong secuencia = new AtomicLong(4_000_000_000_000_000L);
+
+    @BeforeEach
+    void levantar() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        servidor.createContext("/", this::responder);
+        servidor.start();
+    }
+
+    @AfterEach
+    void detener() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void modeloAbierto_cubreLaMezclaYCuentaErroresPorMensaje(@TempDir Path directorio) throws Exception {
+        Configuracion configuracion = configuracion("--modelo=abierto", "--tasa=400", "--duracion=2",
+                "--salida=" + directorio.resolve("reporte.json"));
+
+        Reporte reporte = new Carga(configuracion).ejecutar();
+
+        long peticiones = reporte.operaciones().values().stream().mapToLong(Reporte.Endpoint::peticiones).sum();
+        assertThat(peticiones).isBetween(700L, 800L);
+        assertThat(reporte.operaciones().get("compra").errores()).containsOnlyKeys("Fondos insuficientes");
+        assertThat(reporte.operaciones().get("compra").tasaErrores()).isBetween(0.05, 0.5);
+        assertThat(reporte.operaciones().get("historial").errores()).isEmpty();
+        assertThat(reporte.operaciones().get("anulacion").peticiones()).isPositive();
+        assertThat(reporte.operaciones().get("historial").p99()).isPositive();
+    }
+
+    @Test
+    void modeloCerrado_yReporteComparable(@TempDir Path directorio) throws Exception {
+        Path archivo = directorio.resolve("reporte.json");
+        Configuracion configuracion = configuracion("--modelo=cerrado", "--usuarios=4", "--duracion=1",
+                "--etiqueta=abc123", "--salida=" + archivo);
+
+        Reporte reporte = new Carga(configuracion).ejecutar();
+        reporte.escribir(archivo);
+        Reporte leido = Reporte.leer(archivo);
+
+        assertThat(leido).isEqualTo(reporte);
+        assertThat(leido.operaciones().get("compra").peticiones()).isPositive();
+        assertThat(reporte.comparar(leido))
+                .contains("abc123 contra abc123")
+                .doesNotContain("Atencion")
+                .contains("compra");
+    }
+
+    @Test
+    void opcionesInvalidas_fallan() {
+        assertThatThrownBy(() -> Configuracion.desdeArgumentos("--tasas=10"))
+                .hasMessageContaining("tasas");
+        assertThatThrownBy(() -> Configuracion.desdeArgumentos("--mezcla=compra=1,transferencia=2"))
+                .hasMessageContaining("transferencia");
+        assertThatThrownBy(() -> Configuracion.desdeArgumentos("--producto=12"))
+                .hasMessageContaining("6 digitos");
+    }
+
+    @Test
+    void variacion_relativaAlAnterior() {
+        assertThat(Reporte.variacion(110, 100)).isEqualTo("+10.0%");
+        assertThat(Reporte.variacion(5, 0)).isEqualTo("-");
+    }
+
+    private Configuracion configuracion(String... extra) {
+        String[] args = new String[extra.length + 3];
+        args[0] = "--url=http://localhost:" + servidor.getAddress().getPort();
+        args[1] = "--calentamiento=0";
+        args[2] = "--tarjetas=5";
+        System.arraycopy(extra, 0, args, 3, extra.length);
+        return Configuracion.desdeArgumentos(args);
+    }
+
+    /**
+     * Respuestas con la forma de ApiResponse; una de cada cuatro compras sin fondos.
+     */
+    private void responder(HttpExchange intercambio) throws IOException {
+        String ruta = intercambio.getRequestURI().getPath();
+        long id = secuencia.incrementAndGet();
+        String cuerpo;
+        int codigo = 200;
+        if (ruta.equals("/transaction/create") && id % 4 == 0) {
+            codigo = 400;
+            cuerpo = "{\"status\":\"ERROR\",\"message\":\"Fondos insuficientes\",\"data\":null}";
+        } else if (ruta.startsWith("/card/") && ruta.endsWith("/number") || ruta.equals("/transaction/create")) {
+            cuerpo = "{\"status\":\"SUCCESS\",\"message\":\"ok\",\"data\":{\"id\":\"" + id + "\"}}";
+        } else {
+            cuerpo = "{\"status\":\"SUCCESS\",\"message\":\"ok\",\"data\":null}";
+        }
+        intercambio.getRequestBody().readAllBytes();
+        byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json");
+        intercambio.sendResponseHeaders(codigo, bytes.length);
+        intercambio.getResponseBody().write(bytes);
+        intercambio.close();
+    }
+}
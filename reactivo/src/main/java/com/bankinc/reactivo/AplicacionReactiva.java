@@ -0,0 +1,23 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.service.RelojMes;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Las rutas /card y /transaction sobre WebFlux (Netty) y R2DBC. Usa la misma base que la
+ * aplicacion MVC, que es quien aplica las migraciones, y las mismas reglas (ReglasTarjeta).
+ */
+@SpringBootApplication
+public class AplicacionReactiva {
+
+    public static void main(String[] args) {
+        SpringApplication.run(AplicacionReactiva.class, args);
+    }
+
+    @Bean
+    RelojMes relojMes() {
+        return new RelojMes();
+    }
+}
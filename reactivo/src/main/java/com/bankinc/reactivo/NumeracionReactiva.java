@@ -0,0 +1,83 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.service.AsignadorNumerosTarjeta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AsignadorNumerosTarjeta sin bloquear: los bloques de secuenciales se reservan con R2DBC del
+ * mismo contador y el numero sale de la misma permutacion, asi las dos aplicaciones pueden
+ * emitir tarjetas del mismo producto sin chocar. Quienes agotan el bloque a la vez esperan una
+ * sola reserva.
+ */
+@Component
+public class NumeracionReactiva {
+
+    private final RepositorioReactivo repositorio;
+    private final int tamanioBloque;
+    private final long clave;
+    private final ConcurrentHashMap<String, Bloque> bloques = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Mono<Bloque>> recargas = new ConcurrentHashMap<>();
+
+    public NumeracionReactiva(RepositorioReactivo repositorio,
+                              @Value("${bankinc.numeracion.tamanio-bloque:1000}") int tamanioBloque,
+                              @Value("${bankinc.numeracion.clave:7046029254386353131}") long clave) {
+        if (tamanioBloque <= 0) {
+            throw new IllegalArgumentException("bankinc.numeracion.tamanio-bloque debe ser mayor a cero");
+        }
+        this.repositorio = repositorio;
+        this.tamanioBloque = tamanioBloque;
+        this.clave = clave;
+    }
+
+    public Mono<String> asignar(String idProducto) {
+        return siguiente(idProducto).map(secuencial -> AsignadorNumerosTarjeta.numero(idProducto, secuencial, clave));
+    }
+
+    private Mono<Long> siguiente(String idProducto) {
+        return Mono.defer(() -> {
+            Bloque actual = bloques.get(idProducto);
+            if (actual != null) {
+                long secuencial = actual.cursor.getAndIncrement();
+                if (secuencial < actual.fin) {
+                    return Mono.just(secuencial);
+                }
+            }
+            return recargar(idProducto, actual).then(siguiente(idProducto));
+        });
+    }
+
+    private Mono<Bloque> recargar(String idProducto, Bloque agotado) {
+        return recargas.computeIfAbsent(idProducto, producto -> Mono.defer(() -> {
+                    Bloque vigente = bloques.get(producto);
+                    if (vigente != agotado) {
+                        return Mono.justOrEmpty(vigente);
+                    }
+                    return repositorio.reservarBloque(producto, tamanioBloque).map(inicio -> {
+                        if (inicio >= AsignadorNumerosTarjeta.ESPACIO) {
+                            throw new IllegalStateException("Numeracion agotada para el producto " + producto);
+                        }
+                        Bloque nuevo = new Bloque(inicio, Math.min(inicio + tamanioBloque, AsignadorNumerosTarjeta.ESPACIO));
+                        bloques.put(producto, nuevo);
+                        return nuevo;
+                    });
+                })
+                .doFinally(senal -> recargas.remove(producto))
+                .cache());
+    }
+
+    private static final class Bloque {
+
+        private final AtomicLong cursor;
+        private final long fin;
+
+        Bloque(long inicio, long fin) {
+            this.cursor = new AtomicLong(inicio);
+            this.fin = fin;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.Transaccionrepository;
+import com.bankinc.service.CursorTransacciones;
+import com.bankinc.service.LibroMayor;
+import io.r2dbc.spi.Readable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Acceso a tarjeta, transaccion y movimiento con R2DBC. Las sentencias son las de los
+ * repositorios JPA; la compra y la marca de anulacion son literalmente las mismas
+ * (Transaccionrepository).
+ */
+@Repository
+public class RepositorioReactivo {
+
+    private static final String COLUMNAS_TARJETA = """
+            id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada, balance, version, secuencia
+            """;
+    private static final String COLUMNAS_TRANSACCION = "id, id_tarjeta, monto, fecha_transaccion, anulada";
+
+    private final DatabaseClient db;
+
+    public RepositorioReactivo(DatabaseClient db) {
+        this.db = db;
+    }
+
+    public Mono<Tarjeta> tarjeta(String id) {
+        return db.sql("SELECT " + COLUMNAS_TARJETA + " FROM tarjeta WHERE id = :id")
+                .bind("id", id)
+                .map(RepositorioReactivo::tarjetaDesde)
+                .one();
+    }
+
+    /**
+     * Como TarjetaRepository.saldo: solo las columnas de ix_tarjeta_saldo.
+     */
+    public Mono<SaldoTarjeta> saldo(String id) {
+        return db.sql("SELECT id, balance, secuencia, activa, bloqueada FROM tarjeta WHERE id = :id")
+                .bind("id", id)
+                .map(fila -> new SaldoTarjeta(fila.get("id", String.class), fila.get("balance", BigDecimal.class),
+                        fila.get("secuencia", Long.class), fila.get("activa", Boolean.class),
+                        fila.get("bloqueada", Boolean.class)))
+                .one();
+    }
+
+    public Mono<Boolean> existeTitular(String idProducto, String nombreTitular) {
+        return db.sql("SELECT 1 FROM tarjeta WHERE id_producto = :idProducto AND nombre_titular = :nombreTitular LIMIT 1")
+                .bind("idProducto", idProducto)
+                .bind("nombreTitular", nombreTitular)
+                .map(fila -> true)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Tarjeta> insertar(Tarjeta tarjeta) {
+        return db.sql("""
+                        INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada,
+                                             balance, version, secuencia)
+                        VALUES (:id, :idProducto, :nombreTitular, :mesExpiracion, false, :activa, :bloqueada,
+                                :balance, 0, 0)
+                        """)
+                .bind("id", tarjeta.getId())
+                .bind("idProducto", tarjeta.getIdProducto())
+                .bind("nombreTitular", tarjeta.getNombreTitular())
+                .bind("mesExpiracion", MesExpiracionConverter.aMes(tarjeta.getFechaExpiracion()))
+                .bind("activa", tarjeta.getActiva())
+                .bind("bloqueada", tarjeta.getBloqueada())
+                .bind("balance", tarjeta.getBalance())
+                .then()
+                .then(Mono.fromSupplier(() -> {
+                    tarjeta.setVersion(0L);
+                    return tarjeta;
+                }));
+    }
+
+    /**
+     * Guarda estado, balance y secuencia si nadie cambio la tarjeta desde que se leyo, como el
+     * save() con @Version del lado JPA. Si la version no coincide falla con
+     * OptimisticLockingFailureException y quien llama vuelve a leer.
+     */
+    public Mono<Tarjeta> guardar(Tarjeta tarjeta) {
+        return db.sql("""
+                        UPDATE tarjeta SET activa = :activa, bloqueada = :bloqueada, balance = :balance,
+                                           secuencia = :secuencia, version = version + 1
+                        WHERE id = :id AND version = :version
+                        """)
+                .bind("activa", tarjeta.getActiva())
+                .bind("bloqueada", tarjeta.getBloqueada())
+                .bind("balance", tarjeta.getBalance())
+                .bind("secuencia", tarjeta.getSecuencia())
+                .bind("id", tarjeta.getId())
+                .bind("version", tarjeta.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(filas -> {
+                    if (filas == 0) {
+                        return Mono.error(new OptimisticLockingFailureException(
+                                "La tarjeta " + tarjeta.getId() + " cambio desde que se leyo"));
+                    }
+                    tarjeta.setVersion(tarjeta.getVersion() + 1);
+                    return Mono.just(tarjeta);
+                });
+    }
+
+    public Mono<Void> registrar(LibroMayor.Asiento asiento) {
+        DatabaseClient.GenericExecuteSpec sentencia = db.sql("""
+                        INSERT INTO movimiento (id_tarjeta, secuencia, tipo, monto, id_transaccion, fecha)
+                        VALUES (:idTarjeta, :secuencia, :tipo, :monto, :idTransaccion, :fecha)
+                        """)
+                .bind("idTarjeta", asiento.idTarjeta())
+                .bind("secuencia", asiento.secuencia())
+                .bind("tipo", asiento.tipo().name())
+                .bind("monto", asiento.monto())
+                .bind("fecha", asiento.fecha());
+        sentencia = asiento.transaccion() == null
+                ? sentencia.bindNull("idTransaccion", Long.class)
+                : sentencia.bind("idTransaccion", asiento.transaccion().getId());
+        return sentencia.then();
+    }
+
+    /**
+     * Reserva cantidad secuenciales de numeracion del producto y devuelve el primero; el mismo
+     * contador que usa AsignadorNumerosTarjeta.
+     */
+    public Mono<Long> reservarBloque(String idProducto, long cantidad) {
+        return db.sql("""
+                        INSERT INTO numeracion_producto (id_producto, siguiente) VALUES (:idProducto, :cantidad)
+                        ON CONFLICT (id_producto) DO UPDATE SET siguiente = numeracion_producto.siguiente + EXCLUDED.siguiente
+                        RETURNING siguiente - :cantidad
+                        """)
+                .bind("idProducto", idProducto)
+                .bind("cantidad", cantidad)
+                .map(fila -> fila.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * La compra en una sentencia; vacio si la tarjeta no existe.
+     */
+    public Mono<Autorizacion> autorizarCompra(String idTarjeta, BigDecimal monto, LocalDateTime fecha, int mesActual) {
+        return db.sql(Transaccionrepository.AUTORIZAR_COMPRA)
+                .bind("idTarjeta", idTarjeta)
+                .bind("monto", monto)
+                .bind("fecha", fecha)
+                .bind("mesActual", mesActual)
+                .map(fila -> new Autorizacion(fila.get("idTransaccion", Long.class), Tarjeta.builder()
+                        .id(idTarjeta)
+                        .idProducto(fila.get("idProducto", String.class))
+                        .nombreTitular(fila.get("nombreTitular", String.class))
+                        .fechaExpiracion(mes(fila.get("mesExpiracion", Integer.class)))
+                        .expirada(fila.get("expirada", Boolean.class))
+                        .activa(fila.get("activa", Boolean.class))
+                        .bloqueada(fila.get("bloqueada", Boolean.class))
+                        .balance(fila.get("balance", BigDecimal.class))
+                        .version(fila.get("version", Long.class))
+                        .secuencia(fila.get("secuencia", Long.class))
+                        .build()))
+                .one();
+    }
+
+    public Mono<Long> marcarAnulada(Long id, LocalDateTime fecha) {
+        return db.sql(Transaccionrepository.MARCAR_ANULADA)
+                .bind("id", id)
+                .bind("fecha", fecha)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Transaccion> transaccion(Long id) {
+        return db.sql("SELECT " + COLUMNAS_TRANSACCION + " FROM transaccion_historial WHERE id = :id")
+                .bind("id", id)
+                .map(RepositorioReactivo::transaccionDesde)
+                .first();
+    }
+
+    public Mono<Transaccion> transaccion(Long id, String idTarjeta) {
+        return db.sql("SELECT " + COLUMNAS_TRANSACCION
+                        + " FROM transaccion_historial WHERE id = :id AND id_tarjeta = :idTarjeta")
+                .bind("id", id)
+                .bind("idTarjeta", idTarjeta)
+                .map(RepositorioReactivo::transaccionDesde)
+                .first();
+    }
+
+    /**
+     * Acotada por fecha para leer solo las particiones del rango.
+     */
+    public Mono<Transaccion> transaccion(Long id, String idTarjeta, LocalDateTime desde, LocalDateTime hasta) {
+        return db.sql("SELECT " + COLUMNAS_TRANSACCION + """
+                         FROM transaccion
+                        WHERE id = :id AND id_tarjeta = :idTarjeta AND fecha_transaccion BETWEEN :desde AND :hasta
+                        """)
+                .bind("id", id)
+                .bind("idTarjeta", idTarjeta)
+                .bind("desde", desde)
+                .bind("hasta", hasta)
+                .map(RepositorioReactivo::transaccionDesde)
+                .first();
+    }
+
+    public Flux<Transaccion> transacciones(String idTarjeta) {
+        return db.sql("SELECT " + COLUMNAS_TRANSACCION
+                        + " FROM transaccion_historial WHERE id_tarjeta = :idTarjeta ORDER BY fecha_transaccion, id")
+                .bind("idTarjeta", idTarjeta)
+                .map(RepositorioReactivo::transaccionDesde)
+                .all();
+    }
+
+    /**
+     * Pagina por llave (fecha_transaccion, id), sin OFFSET; desde null es la primera pagina.
+     */
+    public Flux<Transaccion> pagina(String idTarjeta, CursorTransacciones desde, int limite) {
+        if (desde == null) {
+            return db.sql("SELECT " + COLUMNAS_TRANSACCION + """
+                             FROM transaccion_historial WHERE id_tarjeta = :idTarjeta
+                            ORDER BY fecha_transaccion, id LIMIT :limite
+                            """)
+                    .bind("idTarjeta", idTarjeta)
+                    .bind("limite", limite)
+                    .map(RepositorioReactivo::transaccionDesde)
+                    .all();
+        }
+        return db.sql("SELECT " + COLUMNAS_TRANSACCION + """
+                         FROM transaccion_historial
+                        WHERE id_tarjeta = :idTarjeta AND (fecha_transaccion, id) > (:fecha, :id)
+                        ORDER BY fecha_transaccion, id LIMIT :limite
+                        """)
+                .bind("idTarjeta", idTarjeta)
+                .bind("fecha", desde.fecha())
+                .bind("id", desde.id())
+                .bind("limite", limite)
+                .map(RepositorioReactivo::transaccionDesde)
+                .all();
+    }
+
+    private static Tarjeta tarjetaDesde(Readable fila) {
+        return Tarjeta.builder()
+                .id(fila.get("id", String.class))
+                .idProducto(fila.get("id_producto", String.class))
+                .nombreTitular(fila.get("nombre_titular", String.class))
+                .fechaExpiracion(mes(fila.get("mes_expiracion", Integer.class)))
+                .expirada(fila.get("expirada", Boolean.class))
+                .activa(fila.get("activa", Boolean.class))
+                .bloqueada(fila.get("bloqueada", Boolean.class))
+                .balance(fila.get("balance", BigDecimal.class))
+                .version(fila.get("version", Long.class))
+                .secuencia(fila.get("secuencia", Long.class))
+                .build();
+    }
+
+    private static Transaccion transaccionDesde(Readable fila) {
+        return new Transaccion(fila.get("id", Long.class), fila.get("id_tarjeta", String.class),
+                fila.get("monto", BigDecimal.class), fila.get("fecha_transaccion", LocalDateTime.class),
+                fila.get("anulada", Boolean.class));
+    }
+
+    private static YearMonth mes(Integer mes) {
+        return mes == null ? null : MesExpiracionConverter.desdeMes(mes);
+    }
+
+    /**
+     * idTransaccion null si la compra no se aplico; estado es la tarjeta leida en la misma
+     * sentencia, para explicar el rechazo.
+     */
+    public record Autorizacion(Long idTransaccion, Tarjeta estado) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.ApiResponse;
+import org.springframework.http.ResponseEntity;
+
+final class Respuestas {
+
+    private Respuestas() {
+    }
+
+    static <T> ResponseEntity<ApiResponse<T>> responder(ApiResponse<T> response) {
+        return "ERROR".equals(response.getStatus())
+                ? ResponseEntity.badRequest().body(response)
+                : ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,53 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.ActivarTarjetaRequest;
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.BalanceRequest;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Tarjeta;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mismas rutas y respuestas que TarjetaController.
+ */
+@RestController
+@RequestMapping("/card")
+public class TarjetaControllerReactivo {
+
+    private final TarjetaServiceReactivo tarjetaService;
+
+    public TarjetaControllerReactivo(TarjetaServiceReactivo tarjetaService) {
+        this.tarjetaService = tarjetaService;
+    }
+
+    @GetMapping("/{productId}/number")
+    public Mono<ResponseEntity<ApiResponse<Tarjeta>>> generarTarjeta(
+            @PathVariable String productId,
+            @RequestParam String firstName,
+            @RequestParam String lastName) {
+        return tarjetaService.generarTarjeta(productId, firstName, lastName).map(Respuestas::responder);
+    }
+
+    @PostMapping("/enroll")
+    public Mono<ResponseEntity<ApiResponse<Tarjeta>>> activarTarjeta(@RequestBody ActivarTarjetaRequest activarTarjeta) {
+        return tarjetaService.activarTarjeta(activarTarjeta.getCardId()).map(Respuestas::responder);
+    }
+
+    @DeleteMapping()
+    public Mono<ResponseEntity<ApiResponse<Tarjeta>>> bloquearTarjeta(@RequestParam String cardId) {
+        return tarjetaService.bloquearTarjeta(cardId).map(Respuestas::responder);
+    }
+
+    @PostMapping("/balance")
+    public Mono<ResponseEntity<ApiResponse<Tarjeta>>> cargarTarjeta(@RequestBody BalanceRequest balanceRequest) {
+        return tarjetaService.recargarTarjeta(balanceRequest.getCardId(), balanceRequest.getBalance())
+                .map(Respuestas::responder);
+    }
+
+    @GetMapping("/balance/{cardId}")
+    public Mono<ResponseEntity<ApiResponse<SaldoTarjeta>>> obtenerBalance(@PathVariable String cardId) {
+        return tarjetaService.obtenerBalance(cardId).map(Respuestas::responder);
+    }
+}
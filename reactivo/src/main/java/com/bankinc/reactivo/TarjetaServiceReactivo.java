@@ -0,0 +1,141 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Movimiento;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.service.AsignadorNumerosTarjeta;
+import com.bankinc.service.LibroMayor;
+import com.bankinc.service.ReglasTarjeta;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.function.Function;
+
+/**
+ * TarjetaServiceImpl sobre R2DBC: mismas reglas y mensajes. En vez de serializar por tarjeta
+ * con candados, cada mutacion es un UPDATE condicionado a la version leida; si otra la cambio
+ * se vuelve a leer y a evaluar.
+ */
+@Service
+public class TarjetaServiceReactivo {
+
+    static final int INTENTOS = 5;
+    private static final int INTENTOS_NUMERO = 3;
+
+    private final RepositorioReactivo repositorio;
+    private final NumeracionReactiva numeracion;
+    private final TransactionalOperator transaccion;
+
+    public TarjetaServiceReactivo(RepositorioReactivo repositorio, NumeracionReactiva numeracion,
+                                  TransactionalOperator transaccion) {
+        this.repositorio = repositorio;
+        this.numeracion = numeracion;
+        this.transaccion = transaccion;
+    }
+
+    public Mono<ApiResponse<Tarjeta>> generarTarjeta(String idProducto, String primerNombre, String segundoNombre) {
+        if (!AsignadorNumerosTarjeta.esProductoValido(idProducto)) {
+            return Mono.just(new ApiResponse<>("ERROR", "El idProducto debe tener exactamente 6 digitos", null));
+        }
+        String titular = primerNombre + " " + segundoNombre;
+        return repositorio.existeTitular(idProducto, titular).flatMap(existe -> existe
+                ? Mono.just(new ApiResponse<>("ERROR", "Tarjeta ya existe con el idProducto y titular", null))
+                : emitir(idProducto, titular)
+                        // Solo puede chocar con numeros aleatorios emitidos antes del asignador
+                        .retryWhen(Retry.max(INTENTOS_NUMERO - 1)
+                                .filter(DataIntegrityViolationException.class::isInstance)
+                                .onRetryExhaustedThrow((spec, senal) -> senal.failure())));
+    }
+
+    private Mono<ApiResponse<Tarjeta>> emitir(String idProducto, String titular) {
+        return numeracion.asignar(idProducto)
+                .flatMap(numero -> repositorio.insertar(Tarjeta.builder()
+                        .id(numero)
+                        .idProducto(idProducto)
+                        .nombreTitular(titular)
+                        .fechaExpiracion(YearMonth.now().plusYears(3))
+                        .activa(false)
+                        .bloqueada(false)
+                        .balance(new BigDecimal(0))
+                        .build()))
+                .map(tarjeta -> new ApiResponse<>("SUCCESS", "Tarjeta Generada Correctamente", tarjeta));
+    }
+
+    public Mono<ApiResponse<Tarjeta>> activarTarjeta(String tarjetaId) {
+        return mutar(tarjetaId, tarjeta -> {
+            String rechazo = ReglasTarjeta.rechazoActivacion(tarjeta);
+            if (rechazo != null) {
+                return Mono.just(new ApiResponse<>("ERROR", rechazo, null));
+            }
+            tarjeta.setActiva(true);
+            tarjeta.setBloqueada(false);
+            return repositorio.guardar(tarjeta)
+                    .map(guardada -> new ApiResponse<>("SUCCESS", "Tarjeta activada correctamente", guardada));
+        });
+    }
+
+    public Mono<ApiResponse<Tarjeta>> bloquearTarjeta(String tarjetaId) {
+        return mutar(tarjetaId, tarjeta -> {
+            String rechazo = ReglasTarjeta.rechazoBloqueo(tarjeta);
+            if (rechazo != null) {
+                return Mono.just(new ApiResponse<>("ERROR", rechazo, null));
+            }
+            tarjeta.setActiva(false);
+            tarjeta.setBloqueada(true);
+            return repositorio.guardar(tarjeta)
+                    .map(guardada -> new ApiResponse<>("SUCCESS", "Tarjeta bloqueada correctamente", guardada));
+        });
+    }
+
+    public Mono<ApiResponse<Tarjeta>> recargarTarjeta(String tarjetaId, BigDecimal monto) {
+        return mutar(tarjetaId, tarjeta -> {
+            String rechazo = ReglasTarjeta.rechazoRecarga(tarjeta, monto);
+            if (rechazo != null) {
+                return Mono.just(new ApiResponse<>("ERROR", rechazo, null));
+            }
+            LibroMayor.Asiento asiento = LibroMayor.aplicar(tarjeta, Movimiento.Tipo.RECARGA, monto, null,
+                    LocalDateTime.now());
+            return repositorio.guardar(tarjeta)
+                    .flatMap(guardada -> repositorio.registrar(asiento).thenReturn(guardada))
+                    .map(guardada -> new ApiResponse<>("SUCCESS", "Tarjeta recargada correctamente", guardada));
+        });
+    }
+
+    public Mono<ApiResponse<SaldoTarjeta>> obtenerBalance(String tarjetaId) {
+        return repositorio.saldo(tarjetaId)
+                .map(saldo -> {
+                    String rechazo = ReglasTarjeta.rechazoConsulta(saldo);
+                    return rechazo != null
+                            ? new ApiResponse<>("ERROR", rechazo, (SaldoTarjeta) null)
+                            : new ApiResponse<>("SUCCESS", "Balance obtenido correctamente", saldo);
+                })
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Tarjeta no encontrada", null));
+    }
+
+    /**
+     * Lee la tarjeta y aplica la mutacion en una transaccion; si guardar encuentra otra version
+     * se repite desde la lectura.
+     */
+    private Mono<ApiResponse<Tarjeta>> mutar(String tarjetaId, Function<Tarjeta, Mono<ApiResponse<Tarjeta>>> mutacion) {
+        return conReintento(transaccion.transactional(repositorio.tarjeta(tarjetaId)
+                .flatMap(mutacion)
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Tarjeta no encontrada", null))));
+    }
+
+    static <T> Mono<ApiResponse<T>> conReintento(Mono<ApiResponse<T>> intento) {
+        return intento
+                .retryWhen(Retry.max(INTENTOS - 1).filter(OptimisticLockingFailureException.class::isInstance))
+                .onErrorResume(e -> e instanceof OptimisticLockingFailureException
+                                || e.getCause() instanceof OptimisticLockingFailureException,
+                        e -> Mono.just(new ApiResponse<>("ERROR",
+                                "La tarjeta esta siendo modificada, intente nuevamente", null)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.AnularTransaccionRequest;
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Transaccion;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Mismas rutas y respuestas que TransaccionController, salvo el lote y el historial NDJSON.
+ */
+@RestController
+@RequestMapping("/transaction")
+public class TransaccionControllerReactivo {
+
+    private final TransaccionServiceReactivo transaccionService;
+
+    public TransaccionControllerReactivo(TransaccionServiceReactivo transaccionService) {
+        this.transaccionService = transaccionService;
+    }
+
+    @PostMapping("/create")
+    public Mono<ResponseEntity<ApiResponse<Transaccion>>> realizarTransaccion(@RequestBody TransaccionRequest request) {
+        return transaccionService.crearTransaccion(request.getCardId(), request.getPrice()).map(Respuestas::responder);
+    }
+
+    @GetMapping("/{transactionId}")
+    public Mono<ResponseEntity<ApiResponse<Transaccion>>> obtenerTransaccion(@PathVariable Long transactionId) {
+        return transaccionService.obtenerTransaccion(transactionId).map(Respuestas::responder);
+    }
+
+    @PostMapping("/anulation")
+    public Mono<ResponseEntity<ApiResponse<Transaccion>>> anularTransaccion(@RequestBody AnularTransaccionRequest request) {
+        return transaccionService.anularTransaccion(request.getCardId(), request.getTransactionId())
+                .map(Respuestas::responder);
+    }
+
+    @GetMapping("/allTransactionsByCard/{cardId}")
+    public Mono<ResponseEntity<ApiResponse<List<Transaccion>>>> obtenerTransaccionesPorTarjeta(@PathVariable String cardId) {
+        return transaccionService.obtenerTransaccionesPorTarjeta(cardId).map(Respuestas::responder);
+    }
+
+    @GetMapping("/allTransactionsByCard/{cardId}/page")
+    public Mono<ResponseEntity<ApiResponse<PaginaTransacciones>>> obtenerPaginaTransacciones(
+            @PathVariable String cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return transaccionService.obtenerPaginaTransacciones(cardId, cursor, size).map(Respuestas::responder);
+    }
+}
@@ -0,0 +1,138 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.entity.Movimiento;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.service.CursorTransacciones;
+import com.bankinc.service.LibroMayor;
+import com.bankinc.service.ReglasTarjeta;
+import com.bankinc.service.RelojMes;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * TransaccionServiceImpl sobre R2DBC. La compra es la misma sentencia (debito, transaccion,
+ * movimiento y gasto_diario) y no necesita reintentos; la anulacion lee, valida y guarda la
+ * tarjeta con la version leida, como las mutaciones de TarjetaServiceReactivo.
+ */
+@Service
+public class TransaccionServiceReactivo {
+
+    static final int TAMANIO_PAGINA_DEFECTO = 50;
+    static final int TAMANIO_PAGINA_MAXIMO = 500;
+
+    private final RepositorioReactivo repositorio;
+    private final TransactionalOperator transaccion;
+    private final RelojMes reloj;
+
+    public TransaccionServiceReactivo(RepositorioReactivo repositorio, TransactionalOperator transaccion,
+                                      RelojMes reloj) {
+        this.repositorio = repositorio;
+        this.transaccion = transaccion;
+        this.reloj = reloj;
+    }
+
+    public Mono<ApiResponse<Transaccion>> crearTransaccion(String idTarjeta, BigDecimal precio) {
+        LocalDateTime fecha = LocalDateTime.now();
+        return repositorio.autorizarCompra(idTarjeta, precio, fecha, reloj.mesActual())
+                .map(autorizacion -> {
+                    if (autorizacion.idTransaccion() == null) {
+                        return new ApiResponse<>("ERROR", motivoRechazo(autorizacion.estado(), precio), (Transaccion) null);
+                    }
+                    Transaccion compra = new Transaccion(autorizacion.idTransaccion(), idTarjeta, precio, fecha, false);
+                    return new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", compra);
+                })
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Tarjeta no encontrada", null));
+    }
+
+    /**
+     * Con el estado leido en la misma sentencia: si cumplia todas las reglas, otra compra
+     * concurrente consumio el saldo.
+     */
+    private String motivoRechazo(Tarjeta estado, BigDecimal precio) {
+        String rechazo = ReglasTarjeta.rechazoCompra(estado, precio, reloj);
+        return rechazo != null ? rechazo : "Fondos insuficientes";
+    }
+
+    public Mono<ApiResponse<Transaccion>> obtenerTransaccion(Long id) {
+        return repositorio.transaccion(id)
+                .map(encontrada -> new ApiResponse<>("SUCCESS", "Transaccion encontrada", encontrada))
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Transaccion no encontrada", null));
+    }
+
+    public Mono<ApiResponse<Transaccion>> anularTransaccion(String idTarjeta, Long idTransaccion) {
+        return TarjetaServiceReactivo.conReintento(transaccion.transactional(repositorio.tarjeta(idTarjeta)
+                .flatMap(tarjeta -> anular(tarjeta, idTransaccion))
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Tarjeta no encontrada", null))));
+    }
+
+    private Mono<ApiResponse<Transaccion>> anular(Tarjeta tarjeta, Long idTransaccion) {
+        String rechazo = ReglasTarjeta.rechazoAnulacion(tarjeta);
+        if (rechazo != null) {
+            return Mono.just(new ApiResponse<>("ERROR", rechazo, null));
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        return repositorio.transaccion(idTransaccion, tarjeta.getId(),
+                        ahora.minusHours(ReglasTarjeta.HORAS_PARA_ANULAR), ahora)
+                // Fuera de la ventana: solo para distinguir caducada de inexistente
+                .switchIfEmpty(Mono.defer(() -> repositorio.transaccion(idTransaccion, tarjeta.getId())))
+                .flatMap(trx -> {
+                    String motivo = ReglasTarjeta.rechazoAnulacion(trx, ahora);
+                    if (motivo != null) {
+                        return Mono.just(new ApiResponse<>("ERROR", motivo, (Transaccion) null));
+                    }
+                    return repositorio.marcarAnulada(trx.getId(), trx.getFechaTransaccion()).flatMap(filas -> {
+                        if (filas == 0) {
+                            return Mono.just(new ApiResponse<>("ERROR", "Transaccion ya anulada", (Transaccion) null));
+                        }
+                        trx.setAnulada(true);
+                        LibroMayor.Asiento asiento = LibroMayor.aplicar(tarjeta, Movimiento.Tipo.ANULACION,
+                                trx.getMonto(), trx, ahora);
+                        return repositorio.guardar(tarjeta)
+                                .then(repositorio.registrar(asiento))
+                                .thenReturn(new ApiResponse<>("SUCCESS", "Transaccion anulada correctamente", trx));
+                    });
+                })
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Transaccion no encontrada para la tarjeta proporcionada", null));
+    }
+
+    public Mono<ApiResponse<List<Transaccion>>> obtenerTransaccionesPorTarjeta(String cardId) {
+        return repositorio.tarjeta(cardId)
+                .flatMap(tarjeta -> repositorio.transacciones(cardId).collectList())
+                .map(transacciones -> transacciones.isEmpty()
+                        ? new ApiResponse<>("ERROR", "No se encontraron transacciones para esta tarjeta", (List<Transaccion>) null)
+                        : new ApiResponse<>("SUCCESS", "Transacciones encontradas", transacciones))
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Tarjeta no encontrada", null));
+    }
+
+    public Mono<ApiResponse<PaginaTransacciones>> obtenerPaginaTransacciones(String cardId, String cursor, Integer tamanio) {
+        int limite = tamanio == null ? TAMANIO_PAGINA_DEFECTO : Math.min(tamanio, TAMANIO_PAGINA_MAXIMO);
+        CursorTransacciones posicion = cursor == null || cursor.isBlank() ? null : CursorTransacciones.decodificar(cursor);
+        return repositorio.tarjeta(cardId)
+                .flatMap(tarjeta -> {
+                    if (limite <= 0) {
+                        return Mono.just(new ApiResponse<>("ERROR", "El tamanio de pagina debe ser mayor a cero",
+                                (PaginaTransacciones) null));
+                    } else if (posicion == null && cursor != null && !cursor.isBlank()) {
+                        return Mono.just(new ApiResponse<>("ERROR", "Cursor invalido", (PaginaTransacciones) null));
+                    }
+                    return repositorio.pagina(cardId, posicion, limite + 1).collectList().map(filas -> {
+                        String siguienteCursor = null;
+                        if (filas.size() > limite) {
+                            filas = filas.subList(0, limite);
+                            siguienteCursor = CursorTransacciones.despuesDe(filas.get(limite - 1)).codificar();
+                        }
+                        return new ApiResponse<>("SUCCESS", "Transacciones encontradas",
+                                new PaginaTransacciones(filas, siguienteCursor));
+                    });
+                })
+                .defaultIfEmpty(new ApiResponse<>("ERROR", "Tarjeta no encontrada", null));
+    }
+}
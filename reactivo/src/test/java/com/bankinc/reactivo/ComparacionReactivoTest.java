@@ -0,0 +1,202 @@
+package com.bankinc.reactivo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La misma carga que ComparacionHilos (80% consultas de saldo, 20% compras, 1000 clientes con
+ * una conexion cada uno) contra cada aplicacion de bankinc.comparacion.urls, levantadas aparte
+ * sobre la misma base (la MVC con o sin el perfil virtual y esta):
+ *
+ * -Dbankinc.benchmark=true -Dbankinc.comparacion.urls=http://localhost:8080,http://localhost:8081
+ *
+ * Ademas de p50/p99/p999 reporta la memoria y los hilos que agrega cada conexion abierta: la
+ * diferencia entre el maximo de jvm.memory.used y jvm.threads.live durante la carga y el valor
+ * en reposo, dividida por los clientes. Es una aproximacion (incluye la basura aun no
+ * recolectada) pero sirve para comparar un hilo por peticion con el event loop. Sin urls se
+ * mide la aplicacion de la prueba, en el mismo proceso que los clientes: latencias validas,
+ * memoria e hilos no.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "server.shutdown=immediate")
+@EnabledIfSystemProperty(named = "bankinc.benchmark", matches = "true")
+class ComparacionReactivoTest {
+
+    private static final int CLIENTES = 1000;
+    private static final int PETICIONES_POR_CLIENTE = 20;
+    private static final int TARJETAS = 200;
+    private static final String PREFIJO = "9999875";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private DatabaseClient db;
+
+    private final List<String> tarjetas = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        db.sql("""
+                        INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada,
+                                             balance, version, secuencia)
+                        SELECT :prefijo || lpad(g::text, 9, '0'), left(:prefijo, 6), 'Prueba Carga', 1559, false, true,
+                               false, 1000000.00, 0, 0
+                        FROM generate_series(0, :tarjetas - 1) g
+                        """)
+                .bind("prefijo", PREFIJO)
+                .bind("tarjetas", TARJETAS)
+                .then()
+                .block();
+        for (int i = 0; i < TARJETAS; i++) {
+            tarjetas.add(PREFIJO + String.format("%09d", i));
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        for (String tabla : List.of("movimiento", "gasto_diario", "transaccion")) {
+            db.sql("DELETE FROM " + tabla + " WHERE id_tarjeta LIKE :prefijo").bind("prefijo", PREFIJO + "%").then().block();
+        }
+        db.sql("DELETE FROM tarjeta WHERE id LIKE :prefijo").bind("prefijo", PREFIJO + "%").then().block();
+    }
+
+    @Test
+    void cargaMixta() throws Exception {
+        String urls = System.getProperty("bankinc.comparacion.urls", "");
+        List<String> objetivos = urls.isBlank()
+                ? List.of("http://localhost:" + puerto)
+                : Arrays.stream(urls.split(",")).map(String::trim).toList();
+        for (String base : objetivos) {
+            ejecutar(base, CLIENTES / 10, 5);
+            Resultado resultado = ejecutar(base, CLIENTES, PETICIONES_POR_CLIENTE);
+
+            System.out.printf("%s: %d clientes, %.0f peticiones/s, p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, "
+                            + "%.1f KB y %.2f hilos por conexion, %d errores%n",
+                    base, CLIENTES, resultado.porSegundo(), resultado.percentil(0.50), resultado.percentil(0.99),
+                    resultado.percentil(0.999), resultado.memoriaPorCliente / 1024.0, resultado.hilosPorCliente,
+                    resultado.errores);
+            assertThat(resultado.errores).isZero();
+        }
+    }
+
+    private Resultado ejecutar(String base, int clientes, int peticiones) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        HttpClient metricas = HttpClient.newHttpClient();
+        double memoriaReposo = metrica(metricas, base, "jvm.memory.used");
+        double hilosReposo = metrica(metricas, base, "jvm.threads.live");
+        AtomicLong memoriaMaxima = new AtomicLong((long) memoriaReposo);
+        AtomicLong hilosMaximo = new AtomicLong((long) hilosReposo);
+        long[] latencias = new long[clientes * peticiones];
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+        CountDownLatch inicio = new CountDownLatch(1);
+        long t0;
+        try (ScheduledExecutorService muestreo = Executors.newSingleThreadScheduledExecutor();
+             ExecutorService executor = Executors.newFixedThreadPool(clientes)) {
+            muestreo.scheduleAtFixedRate(() -> {
+                try {
+                    memoriaMaxima.accumulateAndGet((long) metrica(metricas, base, "jvm.memory.used"), Math::max);
+                    hilosMaximo.accumulateAndGet((long) metrica(metricas, base, "jvm.threads.live"), Math::max);
+                } catch (Exception e) {
+                    // Una muestra perdida no invalida la medicion
+                }
+            }, 0, 200, TimeUnit.MILLISECONDS);
+            for (int c = 0; c < clientes; c++) {
+                executor.submit(() -> {
+                    inicio.await();
+                    for (int p = 0; p < peticiones; p++) {
+                        long antes = System.nanoTime();
+                        try {
+                            HttpResponse<Void> respuesta = http.send(peticion(base), HttpResponse.BodyHandlers.discarding());
+                            if (respuesta.statusCode() != 200) {
+                                errores.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errores.incrementAndGet();
+                        }
+                        latencias[siguiente.getAndIncrement()] = System.nanoTime() - antes;
+                    }
+                    return null;
+                });
+            }
+            t0 = System.nanoTime();
+            inicio.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+            muestreo.shutdownNow();
+        }
+        return new Resultado(latencias, errores.get(), System.nanoTime() - t0,
+                (memoriaMaxima.get() - memoriaReposo) / clientes, (hilosMaximo.get() - hilosReposo) / clientes);
+    }
+
+    private HttpRequest peticion(String base) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        String tarjeta = tarjetas.get(aleatorio.nextInt(tarjetas.size()));
+        if (aleatorio.nextInt(5) == 0) {
+            return HttpRequest.newBuilder(URI.create(base + "/transaction/create"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"cardId\":\"" + tarjeta + "\",\"price\":1.00}"))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(base + "/card/balance/" + tarjeta))
+                .GET()
+                .build();
+    }
+
+    /**
+     * Valor total de la metrica segun /actuator/metrics (suma de todas sus etiquetas).
+     */
+    private double metrica(HttpClient http, String base, String nombre) throws Exception {
+        HttpResponse<String> respuesta = http.send(
+                HttpRequest.newBuilder(URI.create(base + "/actuator/metrics/" + nombre)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode medidas = objectMapper.readTree(respuesta.body()).path("measurements");
+        return medidas.isEmpty() ? 0 : medidas.get(0).path("value").asDouble();
+    }
+
+    private record Resultado(long[] latencias, int errores, long nanos, double memoriaPorCliente,
+                             double hilosPorCliente) {
+        double porSegundo() {
+            return latencias.length / (nanos / 1_000_000_000.0);
+        }
+
+        double percentil(double p) {
+            long[] ordenadas = latencias.clone();
+            Arrays.sort(ordenadas);
+            return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
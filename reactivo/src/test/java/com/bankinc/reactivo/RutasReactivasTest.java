@@ -0,0 +1,186 @@
+package com.bankinc.reactivo;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "server.shutdown=immediate")
+class RutasReactivasTest {
+
+    private static final String TARJETA = "9999890000000001";
+    private static final String BLOQUEADA = "9999890000000002";
+    private static final String PRODUCTO_EMISION = "999988";
+    private static final ParameterizedTypeReference<ApiResponse<Tarjeta>> RESPUESTA_TARJETA =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ApiResponse<Transaccion>> RESPUESTA_TRANSACCION =
+            new ParameterizedTypeReference<>() {
+            };
+
+    @Autowired
+    private WebTestClient cliente;
+
+    @Autowired
+    private DatabaseClient db;
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        insertar(TARJETA, false);
+        insertar(BLOQUEADA, true);
+    }
+
+    @AfterEach
+    void limpiar() {
+        for (String tabla : List.of("movimiento", "gasto_diario", "transaccion")) {
+            db.sql("DELETE FROM " + tabla + " WHERE id_tarjeta LIKE '999989%' OR id_tarjeta LIKE '999988%'").then().block();
+        }
+        db.sql("DELETE FROM tarjeta WHERE id LIKE '999989%' OR id LIKE '999988%'").then().block();
+    }
+
+    @Test
+    void recargaCompraYAnulacion_mueveSaldoYLibro() {
+        Tarjeta recargada = cliente.post().uri("/card/balance")
+                .bodyValue(Map.of("cardId", TARJETA, "balance", new BigDecimal("50.00")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(RESPUESTA_TARJETA).returnResult().getResponseBody().getData();
+        assertThat(recargada.getBalance()).isEqualByComparingTo("150.00");
+
+        Transaccion compra = comprar(TARJETA, "30.00").getData();
+        assertThat(compra.getId()).isNotNull();
+
+        cliente.post().uri("/transaction/anulation")
+                .bodyValue(Map.of("cardId", TARJETA, "transactionId", compra.getId()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data.anulada").isEqualTo(true);
+
+        cliente.get().uri("/card/balance/{id}", TARJETA)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data.balance").isEqualTo(150.0)
+                .jsonPath("$.data.secuencia").isEqualTo(3);
+        cliente.get().uri("/transaction/allTransactionsByCard/{id}/page?size=10", TARJETA)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data.transacciones.length()").isEqualTo(1);
+        assertThat(db.sql("SELECT count(*) FROM movimiento WHERE id_tarjeta = :id").bind("id", TARJETA)
+                .map(fila -> fila.get(0, Long.class)).one().block()).isEqualTo(3);
+    }
+
+    /**
+     * Los rechazos salen de ReglasTarjeta: mismos mensajes y codigos que la aplicacion MVC.
+     */
+    @Test
+    void rechazos_mismosMensajes() {
+        assertThat(comprarConError(BLOQUEADA, "10.00")).isEqualTo("Tarjeta bloqueada");
+        assertThat(comprarConError(TARJETA, "500.00")).isEqualTo("Fondos insuficientes");
+        assertThat(comprarConError(TARJETA, "0")).isEqualTo("El monto de la transaccion debe ser mayor a cero");
+        assertThat(comprarConError("9999899999999999", "10.00")).isEqualTo("Tarjeta no encontrada");
+
+        cliente.post().uri("/card/balance")
+                .bodyValue(Map.of("cardId", BLOQUEADA, "balance", new BigDecimal("10.00")))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("La tarjeta está bloqueada");
+        cliente.post().uri("/transaction/anulation")
+                .bodyValue(Map.of("cardId", TARJETA, "transactionId", -1))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Transaccion no encontrada para la tarjeta proporcionada");
+    }
+
+    @Test
+    void emisionYActivacion() {
+        Tarjeta emitida = cliente.get()
+                .uri("/card/{producto}/number?firstName=Prueba&lastName=Reactiva", PRODUCTO_EMISION)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(RESPUESTA_TARJETA).returnResult().getResponseBody().getData();
+        assertThat(emitida.getId()).hasSize(16).startsWith(PRODUCTO_EMISION);
+        assertThat(emitida.getActiva()).isFalse();
+
+        cliente.post().uri("/card/enroll")
+                .bodyValue(Map.of("cardId", emitida.getId()))
+                .exchange()
+                .expectStatus().isOk();
+        cliente.post().uri("/card/enroll")
+                .bodyValue(Map.of("cardId", emitida.getId()))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("La tarjeta ya está activa");
+        cliente.get()
+                .uri("/card/{producto}/number?firstName=Prueba&lastName=Reactiva", PRODUCTO_EMISION)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Las recargas concurrentes compiten por la version: las que se aplican quedan todas en el
+     * saldo y en el libro, sin perder ninguna.
+     */
+    @Test
+    void recargasConcurrentes_noPierdenActualizaciones() {
+        List<ApiResponse<Tarjeta>> respuestas = Flux.range(0, 20)
+                .flatMap(i -> cliente.post().uri("/card/balance")
+                        .bodyValue(Map.of("cardId", TARJETA, "balance", BigDecimal.ONE))
+                        .exchange()
+                        .returnResult(RESPUESTA_TARJETA)
+                        .getResponseBody())
+                .collectList()
+                .block();
+
+        long aplicadas = respuestas.stream().filter(r -> "SUCCESS".equals(r.getStatus())).count();
+        assertThat(aplicadas).isPositive();
+        cliente.get().uri("/card/balance/{id}", TARJETA)
+                .exchange()
+                .expectBody().jsonPath("$.data.balance").isEqualTo(100.0 + aplicadas)
+                .jsonPath("$.data.secuencia").isEqualTo((int) aplicadas);
+    }
+
+    private ApiResponse<Transaccion> comprar(String tarjeta, String monto) {
+        return cliente.post().uri("/transaction/create")
+                .bodyValue(Map.of("cardId", tarjeta, "price", new BigDecimal(monto)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(RESPUESTA_TRANSACCION).returnResult().getResponseBody();
+    }
+
+    private String comprarConError(String tarjeta, String monto) {
+        return cliente.post().uri("/transaction/create")
+                .bodyValue(Map.of("cardId", tarjeta, "price", new BigDecimal(monto)))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(RESPUESTA_TRANSACCION).returnResult().getResponseBody().getMessage();
+    }
+
+    private void insertar(String id, boolean bloqueada) {
+        db.sql("""
+                        INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada,
+                                             balance, version, secuencia)
+                        VALUES (:id, :producto, 'Prueba Reactiva', 1559, false, :activa, :bloqueada, 100.00, 0, 0)
+                        """)
+                .bind("id", id)
+                .bind("producto", id.substring(0, 6))
+                .bind("activa", !bloqueada)
+                .bind("bloqueada", bloqueada)
+                .then()
+                .block();
+    }
+}
@@ -0,0 +1,40 @@
+package com.bankinc.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ConexionesConfig {
+
+    /**
+     * Con hilos virtuales no hay pool de hilos que limite cuantas peticiones llegan a la base:
+     * el DataSource queda detras de una fila FIFO del tamanio del pool de conexiones.
+     */
+    @Bean
+    public static BeanPostProcessor colaConexiones(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int conexiones,
+                                                   @Value("${spring.datasource.hikari.connection-timeout:30000}") long esperaMaximaMs,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ColaConexionesDataSource) {
+                    return bean;
+                }
+                ColaConexionesDataSource cola = new ColaConexionesDataSource(dataSource, conexiones, esperaMaximaMs);
+                meterRegistry.ifAvailable(registry -> Gauge.builder("bankinc.conexiones.cola", cola, ColaConexionesDataSource::enEspera)
+                        .description("Hilos esperando turno para pedir una conexion")
+                        .register(registry));
+                return cola;
+            }
+        };
+    }
+}
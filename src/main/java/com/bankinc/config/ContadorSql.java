@@ -0,0 +1,115 @@
+package com.bankinc.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Contabilidad de sentencias SQL del hilo actual. {@link ContadorSqlDataSource} registra cada
+ * ejecucion en la medicion abierta (y en las que la contienen); sin medicion abierta no se
+ * registra nada.
+ *
+ * <pre>
+ * try (ContadorSql.Medicion medicion = ContadorSql.iniciar()) {
+ *     servicio.crearTransaccion(...);
+ *     medicion.sentencias();
+ * }
+ * </pre>
+ */
+public final class ContadorSql {
+
+    private static final ThreadLocal<Medicion> ACTUAL = new ThreadLocal<>();
+
+    private ContadorSql() {
+    }
+
+    public static Medicion iniciar() {
+        Medicion medicion = new Medicion(ACTUAL.get());
+        ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    /**
+     * Medicion abierta en el hilo, o null.
+     */
+    public static Medicion actual() {
+        return ACTUAL.get();
+    }
+
+    static boolean activo() {
+        return ACTUAL.get() != null;
+    }
+
+    static void registrar(String sql, long filas, long nanos) {
+        for (Medicion m = ACTUAL.get(); m != null; m = m.padre) {
+            m.sentencias++;
+            m.filas += filas;
+            m.nanos += nanos;
+            m.porSql.merge(sql == null ? "?" : sql, 1, Integer::sum);
+        }
+    }
+
+    static void registrarFilas(long filas) {
+        for (Medicion m = ACTUAL.get(); m != null; m = m.padre) {
+            m.filas += filas;
+        }
+    }
+
+    public static final class Medicion implements AutoCloseable {
+
+        private final Medicion padre;
+        private final Map<String, Integer> porSql = new LinkedHashMap<>();
+        private int sentencias;
+        private long filas;
+        private long nanos;
+        private boolean cerrada;
+
+        private Medicion(Medicion padre) {
+            this.padre = padre;
+        }
+
+        public int sentencias() {
+            return sentencias;
+        }
+
+        /**
+         * Filas leidas (next() de los ResultSet) mas filas afectadas por INSERT/UPDATE/DELETE.
+         */
+        public long filas() {
+            return filas;
+        }
+
+        /**
+         * Tiempo en los execute* del driver; no incluye recorrer los resultados.
+         */
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * Ejecuciones por texto de sentencia, en orden de primera aparicion.
+         */
+        public Map<String, Integer> porSql() {
+            return Collections.unmodifiableMap(porSql);
+        }
+
+        /**
+         * Mayor numero de veces que se repitio una misma sentencia: la firma de un N+1.
+         */
+        public int maximaRepeticion() {
+            int maxima = 0;
+            for (int veces : porSql.values()) {
+                maxima = Math.max(maxima, veces);
+            }
+            return maxima;
+        }
+
+        @Override
+        public void close() {
+            if (!cerrada) {
+                cerrada = true;
+                ACTUAL.set(padre);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bankinc.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Envuelve las conexiones para contar en {@link ContadorSql} cada ida a la base: sentencias
+ * ejecutadas, filas y tiempo del driver. Un executeBatch cuenta como una sola sentencia.
+ */
+public class ContadorSqlDataSource extends DelegatingDataSource {
+
+    public ContadorSqlDataSource(DataSource destino) {
+        super(destino);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conexion(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        return conexion(obtainTargetDataSource().getConnection(usuario, clave));
+    }
+
+    private static Connection conexion(Connection conexion) {
+        return proxy(Connection.class, conexion, (proxy, metodo, args) -> {
+            Object resultado = invocar(conexion, metodo, args);
+            return switch (metodo.getName()) {
+                case "createStatement" -> sentencia(Statement.class, (Statement) resultado, null, proxy);
+                case "prepareStatement" -> sentencia(PreparedStatement.class, (Statement) resultado, (String) args[0], proxy);
+                case "prepareCall" -> sentencia(CallableStatement.class, (Statement) resultado, (String) args[0], proxy);
+                default -> resultado;
+            };
+        });
+    }
+
+    private static <S extends Statement> S sentencia(Class<S> tipo, Statement sentencia, String sqlPreparado,
+                                                     Object conexion) {
+        return proxy(tipo, sentencia, (proxy, metodo, args) -> {
+            String nombre = metodo.getName();
+            if ("getConnection".equals(nombre)) {
+                return conexion;
+            }
+            if (!nombre.startsWith("execute") || !ContadorSql.activo()) {
+                Object resultado = invocar(sentencia, metodo, args);
+                return resultado instanceof ResultSet rs && ContadorSql.activo() ? resultados(rs, proxy) : resultado;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String texto ? texto : sqlPreparado;
+            long inicio = System.nanoTime();
+            Object resultado = invocar(sentencia, metodo, args);
+            ContadorSql.registrar(sql, filasAfectadas(resultado), System.nanoTime() - inicio);
+            return resultado instanceof ResultSet rs ? resultados(rs, proxy) : resultado;
+        });
+    }
+
+    private static ResultSet resultados(ResultSet resultados, Object sentencia) {
+        return proxy(ResultSet.class, resultados, (proxy, metodo, args) -> {
+            if ("getStatement".equals(metodo.getName())) {
+                return sentencia;
+            }
+            Object resultado = invocar(resultados, metodo, args);
+            if ("next".equals(metodo.getName()) && Boolean.TRUE.equals(resultado)) {
+                ContadorSql.registrarFilas(1);
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Filas de executeUpdate/executeBatch; los lotes reescritos por el driver informan
+     * SUCCESS_NO_INFO (-2) y no suman.
+     */
+    private static long filasAfectadas(Object resultado) {
+        if (resultado instanceof Integer filas) {
+            return Math.max(filas, 0);
+        } else if (resultado instanceof Long filas) {
+            return Math.max(filas, 0);
+        } else if (resultado instanceof int[] lote) {
+            long total = 0;
+            for (int filas : lote) {
+                total += Math.max(filas, 0);
+            }
+            return total;
+        } else if (resultado instanceof long[] lote) {
+            long total = 0;
+            for (long filas : lote) {
+                total += Math.max(filas, 0);
+            }
+            return total;
+        }
+        return 0;
+    }
+
+    /**
+     * equals/hashCode son los del proxy: Hibernate registra sentencias y resultados en mapas y
+     * compara contra el objeto que recibio, no contra el del driver.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, Object destino, InvocationHandler manejador) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) ->
+                switch (metodo.getName()) {
+                    case "equals" -> args[0] == proxy;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> destino.toString();
+                    default -> manejador.invoke(proxy, metodo, args);
+                });
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
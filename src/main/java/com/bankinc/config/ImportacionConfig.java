@@ -0,0 +1,29 @@
+package com.bankinc.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportacionConfig {
+
+    /**
+     * Hilos propios para las importaciones masivas, separados de los de las peticiones. Con la
+     * cola llena se rechazan importaciones nuevas en vez de acumular archivos.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importacionesExecutor(@Value("${bankinc.importacion.hilos:2}") int hilos,
+                                                        @Value("${bankinc.importacion.cola:10}") int cola,
+                                                        @Value("${spring.threads.virtual.enabled:false}") boolean virtuales) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(virtuales);
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("importacion-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bankinc.config;
+
+import com.bankinc.service.LimiteSolicitudes;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Limite por cliente de la API, antes de leer el cuerpo o llegar a un controlador. El cliente
+ * es la cabecera configurada (bankinc.limite.cliente.cabecera); sin ella la peticion no se
+ * limita, salvo con bankinc.limite.cliente.por-direccion, que usa la direccion remota. Detras
+ * de un balanceador esa direccion es la del balanceador (todos los clientes en una cubeta) a
+ * menos que server.forward-headers-strategy la tome de X-Forwarded-For. El rechazo es un 429
+ * con un cuerpo fijo.
+ */
+public class LimiteClientesFiltro extends OncePerRequestFilter {
+
+    private static final byte[] RECHAZO = """
+            {"status":"ERROR","message":"Demasiadas solicitudes del cliente, intente mas tarde","data":null}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final LimiteSolicitudes limite;
+    private final String cabecera;
+    private final boolean porDireccion;
+
+    public LimiteClientesFiltro(LimiteSolicitudes limite, String cabecera, boolean porDireccion) {
+        this.limite = limite;
+        this.cabecera = cabecera;
+        this.porDireccion = porDireccion;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest peticion) {
+        return peticion.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest peticion, HttpServletResponse respuesta, FilterChain cadena)
+            throws ServletException, IOException {
+        String cliente = peticion.getHeader(cabecera);
+        if (cliente == null && porDireccion) {
+            cliente = peticion.getRemoteAddr();
+        }
+        long espera = cliente == null ? 0 : limite.esperaCliente(cliente);
+        if (espera > 0) {
+            respuesta.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            respuesta.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(LimiteSolicitudes.segundos(espera)));
+            respuesta.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            respuesta.setContentLength(RECHAZO.length);
+            respuesta.getOutputStream().write(RECHAZO);
+            return;
+        }
+        cadena.doFilter(peticion, respuesta);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bankinc.config;
+
+import com.bankinc.service.LimiteSolicitudes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnProperty(name = "bankinc.limite.habilitado", havingValue = "true", matchIfMissing = true)
+public class LimiteConfig {
+
+    /**
+     * Despues de la observacion HTTP de Spring Boot (HIGHEST_PRECEDENCE + 2), para que los 429
+     * tambien queden en http.server.requests.
+     */
+    @Bean
+    public FilterRegistrationBean<LimiteClientesFiltro> limiteClientesFiltro(
+            LimiteSolicitudes limite,
+            @Value("${bankinc.limite.cliente.cabecera:X-Api-Client}") String cabecera,
+            @Value("${bankinc.limite.cliente.por-direccion:false}") boolean porDireccion) {
+        FilterRegistrationBean<LimiteClientesFiltro> registro =
+                new FilterRegistrationBean<>(new LimiteClientesFiltro(limite, cabecera, porDireccion));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registro;
+    }
+}
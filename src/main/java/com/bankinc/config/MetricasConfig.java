@@ -0,0 +1,52 @@
+package com.bankinc.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Tope de series para el contador de respuestas: un mensaje con datos variables no debe
+     * abrir una serie nueva por peticion.
+     */
+    @Bean
+    public MeterFilter limiteMensajesRespuesta() {
+        return MeterFilter.maximumAllowableTags("bankinc.respuestas", "mensaje", 200, MeterFilter.deny());
+    }
+
+    /**
+     * Convertidor JSON de Spring MVC que mide cuanto tarda en escribir cada respuesta, para
+     * separar la serializacion del tiempo de servicio y de base de datos.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                 MeterRegistry meterRegistry) {
+        Timer serializacion = Timer.builder("bankinc.http.serializacion")
+                .description("Escritura del cuerpo JSON de las respuestas")
+                .register(meterRegistry);
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object objeto, Type tipo, HttpOutputMessage salida)
+                    throws IOException, HttpMessageNotWritableException {
+                long inicio = System.nanoTime();
+                try {
+                    super.writeInternal(objeto, tipo, salida);
+                } finally {
+                    serializacion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                }
+            }
+        };
+    }
+}
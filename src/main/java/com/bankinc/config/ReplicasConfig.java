@@ -0,0 +1,156 @@
+package com.bankinc.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnExpression("!'${bankinc.replicas.urls:}'.isBlank()")
+public class ReplicasConfig {
+
+    /**
+     * Las transacciones readOnly (las lecturas de los repositorios y los servicios de consulta)
+     * toman la conexion de las replicas; el resto del trafico no cambia. La conexion se pide
+     * recien en la primera sentencia, cuando ya se sabe si la transaccion es de solo lectura.
+     */
+    @Bean
+    public static Replicas replicasLectura(@Value("${bankinc.replicas.urls}") List<String> urls,
+                                           @Value("${spring.datasource.username:}") String usuario,
+                                           @Value("${spring.datasource.password:}") String clave,
+                                           @Value("${spring.datasource.hikari.maximum-pool-size:10}") int conexiones,
+                                           @Value("${bankinc.replicas.espera-conexion:2s}") Duration esperaConexion,
+                                           @Value("${bankinc.replicas.retraso-maximo:5s}") Duration retrasoMaximo,
+                                           @Value("${bankinc.replicas.chequeo:5s}") Duration chequeo,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        return new Replicas(urls, usuario, clave, conexiones, esperaConexion, retrasoMaximo, chequeo, meterRegistry);
+    }
+
+    /**
+     * Envuelve el pool del primario antes que los demas BeanPostProcessor de DataSource, para
+     * que el conteo de sentencias y la cola de conexiones cubran tambien las replicas.
+     */
+    public static class Replicas implements BeanPostProcessor, Ordered, DisposableBean {
+
+        private final List<String> urls;
+        private final String usuario;
+        private final String clave;
+        private final int conexiones;
+        private final Duration esperaConexion;
+        private final Duration retrasoMaximo;
+        private final Duration chequeo;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final List<HikariDataSource> pools = new ArrayList<>();
+        private ScheduledExecutorService verificador;
+
+        Replicas(List<String> urls, String usuario, String clave, int conexiones, Duration esperaConexion,
+                 Duration retrasoMaximo, Duration chequeo, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.urls = urls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+            this.usuario = usuario;
+            this.clave = clave;
+            this.conexiones = conexiones;
+            this.esperaConexion = esperaConexion;
+            this.retrasoMaximo = retrasoMaximo;
+            this.chequeo = chequeo;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String nombre) {
+            if (!(bean instanceof HikariDataSource primario) || verificador != null) {
+                return bean;
+            }
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            for (int i = 0; i < urls.size(); i++) {
+                pools.add(pool(i, registry));
+            }
+            ReplicasDataSource lecturas = new ReplicasDataSource(primario, List.copyOf(pools), retrasoMaximo);
+            if (registry != null) {
+                registrarMetricas(lecturas, registry);
+            }
+            verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "bankinc-replicas");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            verificador.scheduleWithFixedDelay(lecturas::verificar, 0, chequeo.toMillis(), TimeUnit.MILLISECONDS);
+
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primario);
+            proxy.setReadOnlyDataSource(lecturas);
+            return proxy;
+        }
+
+        private HikariDataSource pool(int indice, MeterRegistry registry) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + indice);
+            pool.setJdbcUrl(urls.get(indice));
+            pool.setUsername(usuario);
+            pool.setPassword(clave);
+            pool.setMaximumPoolSize(conexiones);
+            pool.setConnectionTimeout(esperaConexion.toMillis());
+            pool.setReadOnly(true);
+            // Una replica caida al arrancar no impide levantar la aplicacion
+            pool.setInitializationFailTimeout(-1);
+            if (registry != null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            return pool;
+        }
+
+        private void registrarMetricas(ReplicasDataSource lecturas, MeterRegistry registry) {
+            List<ReplicasDataSource.Replica> replicas = lecturas.replicas();
+            for (int i = 0; i < replicas.size(); i++) {
+                ReplicasDataSource.Replica replica = replicas.get(i);
+                String etiqueta = "replica-" + i;
+                Gauge.builder("bankinc.replicas.sana", replica, r -> r.sana() ? 1 : 0)
+                        .description("1 si la replica recibe lecturas")
+                        .tag("replica", etiqueta)
+                        .register(registry);
+                Gauge.builder("bankinc.replicas.retraso", replica, ReplicasDataSource.Replica::retrasoSegundos)
+                        .description("Atraso de la replica en el ultimo chequeo")
+                        .baseUnit("seconds")
+                        .tag("replica", etiqueta)
+                        .register(registry);
+                FunctionCounter.builder("bankinc.replicas.lecturas", replica, ReplicasDataSource.Replica::lecturas)
+                        .description("Conexiones de solo lectura entregadas por destino")
+                        .tag("destino", etiqueta)
+                        .register(registry);
+            }
+            FunctionCounter.builder("bankinc.replicas.lecturas", lecturas, ReplicasDataSource::lecturasPrimario)
+                    .description("Conexiones de solo lectura entregadas por destino")
+                    .tag("destino", "primario")
+                    .register(registry);
+        }
+
+        @Override
+        public void destroy() {
+            if (verificador != null) {
+                verificador.shutdownNow();
+            }
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.bankinc.config;
+
+import com.bankinc.service.LecturaPropia;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conexiones para las transacciones de solo lectura: reparte entre las replicas sanas por
+ * turnos y usa el primario (el destino) si ninguna responde o si la lectura debe ver las
+ * propias escrituras (LecturaPropia). Una replica que falla al dar una conexion o que se
+ * atrasa mas de retrasoMaximo queda fuera hasta que el chequeo la vuelva a ver bien.
+ */
+@Slf4j
+public class ReplicasDataSource extends DelegatingDataSource {
+
+    /**
+     * Segundos de atraso de la replica; 0 si ya aplico todo lo recibido o si no es una replica.
+     */
+    static final String RETRASO_SQL = """
+            SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                                 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)
+            """;
+
+    private final List<Replica> replicas;
+    private final double retrasoMaximoSegundos;
+    private final AtomicInteger turno = new AtomicInteger();
+    private final AtomicLong lecturasPrimario = new AtomicLong();
+
+    public ReplicasDataSource(DataSource primario, List<DataSource> replicas, Duration retrasoMaximo) {
+        super(primario);
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.retrasoMaximoSegundos = retrasoMaximo.toMillis() / 1000.0;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!LecturaPropia.enPrimario()) {
+            int total = replicas.size();
+            int inicio = Math.floorMod(turno.getAndIncrement(), total);
+            for (int i = 0; i < total; i++) {
+                Replica replica = replicas.get((inicio + i) % total);
+                if (!replica.sana) {
+                    continue;
+                }
+                try {
+                    Connection conexion = replica.dataSource.getConnection();
+                    replica.lecturas.incrementAndGet();
+                    return conexion;
+                } catch (SQLException e) {
+                    replica.marcar(false, "sin conexion: " + e.getMessage());
+                }
+            }
+        }
+        lecturasPrimario.incrementAndGet();
+        return obtainTargetDataSource().getConnection();
+    }
+
+    /**
+     * Consulta el atraso de cada replica y actualiza cuales reciben lecturas.
+     */
+    public void verificar() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.dataSource.getConnection();
+                 Statement sentencia = conexion.createStatement();
+                 ResultSet fila = sentencia.executeQuery(RETRASO_SQL)) {
+                fila.next();
+                replica.retrasoSegundos = fila.getDouble(1);
+                replica.marcar(replica.retrasoSegundos <= retrasoMaximoSegundos,
+                        "atraso de " + replica.retrasoSegundos + " s");
+            } catch (SQLException e) {
+                replica.marcar(false, "sin conexion: " + e.getMessage());
+            }
+        }
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    public long lecturasPrimario() {
+        return lecturasPrimario.get();
+    }
+
+    public static final class Replica {
+
+        private final DataSource dataSource;
+        private final AtomicLong lecturas = new AtomicLong();
+        private volatile boolean sana = true;
+        private volatile double retrasoSegundos;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean sana() {
+            return sana;
+        }
+
+        public double retrasoSegundos() {
+            return retrasoSegundos;
+        }
+
+        public long lecturas() {
+            return lecturas.get();
+        }
+
+        private void marcar(boolean ahora, String motivo) {
+            if (sana && !ahora) {
+                log.warn("Replica fuera de las lecturas ({})", motivo);
+            } else if (!sana && ahora) {
+                log.info("Replica de vuelta en las lecturas");
+            }
+            sana = ahora;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bankinc.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "bankinc.sql.contador.habilitado", havingValue = "true", matchIfMissing = true)
+public class SentenciasSqlConfig {
+
+    /**
+     * Cuenta sentencias en el DataSource en lugar de show-sql: no escribe nada por sentencia y
+     * deja el numero de idas a la base de cada peticion en metricas y cabeceras.
+     */
+    @Bean
+    public static BeanPostProcessor contadorSql() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ContadorSqlDataSource) {
+                    return bean;
+                }
+                return new ContadorSqlDataSource(dataSource);
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SentenciasSqlFiltro> sentenciasSqlFiltro(
+            MeterRegistry meterRegistry,
+            @Value("${bankinc.sql.contador.repeticiones-alerta:10}") int repeticionesAlerta) {
+        FilterRegistrationBean<SentenciasSqlFiltro> registro =
+                new FilterRegistrationBean<>(new SentenciasSqlFiltro(meterRegistry, repeticionesAlerta));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registro;
+    }
+}
@@ -0,0 +1,84 @@
+package com.bankinc.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abre una medicion de {@link ContadorSql} por peticion y al terminar registra, por endpoint,
+ * sentencias, filas y tiempo en la base. Si una misma sentencia se repite mas de
+ * repeticionesAlerta veces en la peticion (un N+1) lo deja en el log y en un contador.
+ */
+public class SentenciasSqlFiltro extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SentenciasSqlFiltro.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int repeticionesAlerta;
+
+    public SentenciasSqlFiltro(MeterRegistry meterRegistry, int repeticionesAlerta) {
+        this.meterRegistry = meterRegistry;
+        this.repeticionesAlerta = repeticionesAlerta;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest peticion, HttpServletResponse respuesta, FilterChain cadena)
+            throws ServletException, IOException {
+        try (ContadorSql.Medicion medicion = ContadorSql.iniciar()) {
+            try {
+                cadena.doFilter(peticion, respuesta);
+            } finally {
+                registrar(endpoint(peticion), medicion);
+            }
+        }
+    }
+
+    private void registrar(String endpoint, ContadorSql.Medicion medicion) {
+        DistributionSummary.builder("bankinc.sql.sentencias")
+                .description("Sentencias SQL por peticion")
+                .baseUnit("sentencias")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(medicion.sentencias());
+        DistributionSummary.builder("bankinc.sql.filas")
+                .description("Filas leidas o modificadas por peticion")
+                .baseUnit("filas")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(medicion.filas());
+        Timer.builder("bankinc.sql.tiempo")
+                .description("Tiempo en la base por peticion")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(medicion.nanos(), TimeUnit.NANOSECONDS);
+        if (medicion.maximaRepeticion() > repeticionesAlerta) {
+            meterRegistry.counter("bankinc.sql.repeticiones", "endpoint", endpoint).increment();
+            log.warn("Posible N+1 en {}: {} sentencias, la mas repetida {} veces: {}", endpoint,
+                    medicion.sentencias(), medicion.maximaRepeticion(), masRepetida(medicion));
+        }
+    }
+
+    private static String masRepetida(ContadorSql.Medicion medicion) {
+        return medicion.porSql().entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse("");
+    }
+
+    private static String endpoint(HttpServletRequest peticion) {
+        Object patron = peticion.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return patron == null ? "desconocido" : peticion.getMethod() + " " + patron;
+    }
+}
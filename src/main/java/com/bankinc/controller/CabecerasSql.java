@@ -0,0 +1,44 @@
+package com.bankinc.controller;
+
+import com.bankinc.config.ContadorSql;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * Copia a la respuesta lo que la peticion lleva gastado en la base hasta escribir el cuerpo:
+ * X-Sql-Sentencias, X-Sql-Filas y X-Sql-Tiempo-Ms.
+ */
+@RestControllerAdvice
+public class CabecerasSql implements ResponseBodyAdvice<Object> {
+
+    static final String SENTENCIAS = "X-Sql-Sentencias";
+    static final String FILAS = "X-Sql-Filas";
+    static final String TIEMPO = "X-Sql-Tiempo-Ms";
+
+    @Override
+    public boolean supports(MethodParameter tipoRetorno, Class<? extends HttpMessageConverter<?>> convertidor) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object cuerpo, MethodParameter tipoRetorno, MediaType tipo,
+                                  Class<? extends HttpMessageConverter<?>> convertidor,
+                                  ServerHttpRequest peticion, ServerHttpResponse respuesta) {
+        ContadorSql.Medicion medicion = ContadorSql.actual();
+        if (medicion != null) {
+            HttpHeaders cabeceras = respuesta.getHeaders();
+            cabeceras.set(SENTENCIAS, String.valueOf(medicion.sentencias()));
+            cabeceras.set(FILAS, String.valueOf(medicion.filas()));
+            cabeceras.set(TIEMPO, String.format(Locale.ROOT, "%.3f", medicion.nanos() / 1_000_000.0));
+        }
+        return cuerpo;
+    }
+}
@@ -0,0 +1,48 @@
+package com.bankinc.controller;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cupo tomado en el hilo de la peticion para una respuesta que se escribe despues
+ * (StreamingResponseBody). Se libera una sola vez: al terminar de escribir o, si la escritura
+ * nunca llega a correr (executor que la rechaza, timeout, apagado), al completarse la peticion
+ * asincrona.
+ */
+final class CupoAsincrono {
+
+    private final Runnable liberacion;
+    private final AtomicBoolean liberado = new AtomicBoolean();
+
+    private CupoAsincrono(Runnable liberacion) {
+        this.liberacion = liberacion;
+    }
+
+    static CupoAsincrono tomado(Runnable liberacion) {
+        CupoAsincrono cupo = new CupoAsincrono(liberacion);
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (atributos instanceof ServletRequestAttributes servlet) {
+            WebAsyncUtils.getAsyncManager(servlet.getRequest()).registerCallableInterceptor(cupo,
+                    new CallableProcessingInterceptor() {
+                        @Override
+                        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                            cupo.liberar();
+                        }
+                    });
+        }
+        return cupo;
+    }
+
+    void liberar() {
+        if (liberado.compareAndSet(false, true)) {
+            liberacion.run();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.service.ExportacionTransacciones;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/transaction/export")
+public class ExportacionController {
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+    private static final String RETRY_AFTER = "30";
+
+    private final ExportacionTransacciones exportacion;
+    private final ObjectMapper objectMapper;
+
+    public ExportacionController(ExportacionTransacciones exportacion, ObjectMapper objectMapper) {
+        this.exportacion = exportacion;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Transacciones del producto entre from y to (dias incluidos) como CSV con gzip, escrito a
+     * medida que se lee. Con las conexiones de exportacion ocupadas responde 503 con Retry-After.
+     * La conexion se reserva aca y se libera al escribir o, si la escritura no llega a correr,
+     * al completarse la peticion asincrona.
+     */
+    @GetMapping("/{productId}")
+    public ResponseEntity<StreamingResponseBody> exportarTransacciones(
+            @PathVariable String productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        ApiResponse<ExportacionTransacciones.Exportacion> response = exportacion.preparar(productId, from, to);
+        if ("ERROR".equals(response.getStatus())) {
+            ApiResponse<Void> error = new ApiResponse<>("ERROR", response.getMessage(), null);
+            ResponseEntity.BodyBuilder respuesta = ExportacionTransacciones.EN_CURSO.equals(response.getMessage())
+                    ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+                    : ResponseEntity.badRequest();
+            return respuesta
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(salida -> salida.write(objectMapper.writeValueAsBytes(error)));
+        }
+        ExportacionTransacciones.Exportacion extracto = response.getData();
+        CupoAsincrono.tomado(extracto::liberar);
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(extracto.nombreArchivo()).build().toString())
+                .body(extracto::escribir);
+    }
+}
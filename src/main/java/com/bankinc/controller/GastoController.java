@@ -0,0 +1,44 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.ResumenGasto;
+import com.bankinc.service.GastoService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Gasto por tarjeta o por producto desde los agregados diarios. from y to (AAAA-MM-DD,
+ * inclusive) son opcionales: por defecto el mes en curso.
+ */
+@RestController
+@RequestMapping("/spend")
+public class GastoController {
+
+    private final GastoService gastoService;
+
+    public GastoController(GastoService gastoService) {
+        this.gastoService = gastoService;
+    }
+
+    @GetMapping("/card/{cardId}")
+    public ResponseEntity<ApiResponse<ResumenGasto>> gastoTarjeta(@PathVariable String cardId,
+                                                                  @RequestParam(required = false) String from,
+                                                                  @RequestParam(required = false) String to) {
+        return responder(gastoService.resumenTarjeta(cardId, from, to));
+    }
+
+    @GetMapping("/product/{productId}")
+    public ResponseEntity<ApiResponse<ResumenGasto>> gastoProducto(@PathVariable String productId,
+                                                                   @RequestParam(required = false) String from,
+                                                                   @RequestParam(required = false) String to) {
+        return responder(gastoService.resumenProducto(productId, from, to));
+    }
+
+    private static ResponseEntity<ApiResponse<ResumenGasto>> responder(ApiResponse<ResumenGasto> response) {
+        if ("ERROR".equals(response.getStatus())) {
+            return ResponseEntity.badRequest().body(response);
+        } else {
+            return ResponseEntity.ok(response);
+        }
+    }
+}
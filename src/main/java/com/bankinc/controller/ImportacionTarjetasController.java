@@ -0,0 +1,64 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.EstadoImportacion;
+import com.bankinc.service.ImportacionTarjetasService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/card/import")
+public class ImportacionTarjetasController {
+
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final ImportacionTarjetasService importacionService;
+
+    public ImportacionTarjetasController(ImportacionTarjetasService importacionService) {
+        this.importacionService = importacionService;
+    }
+
+    /**
+     * Emision masiva: recibe un CSV "nombre,apellido" y devuelve la importacion en curso.
+     */
+    @PostMapping(value = "/{productId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<EstadoImportacion>> importarTarjetas(@PathVariable String productId,
+                                                                           @RequestParam("file") MultipartFile archivo) {
+        ApiResponse<EstadoImportacion> response = importacionService.iniciarImportacion(productId, archivo);
+        if ("ERROR".equals(response.getStatus())) {
+            return ResponseEntity.badRequest().body(response);
+        } else {
+            return ResponseEntity.accepted().body(response);
+        }
+    }
+
+    @GetMapping("/{importId}")
+    public ResponseEntity<ApiResponse<EstadoImportacion>> obtenerImportacion(@PathVariable String importId) {
+        ApiResponse<EstadoImportacion> response = importacionService.obtenerImportacion(importId);
+        if ("ERROR".equals(response.getStatus())) {
+            return ResponseEntity.badRequest().body(response);
+        } else {
+            return ResponseEntity.ok(response);
+        }
+    }
+
+    /**
+     * Todas las filas rechazadas como CSV "linea,titular,motivo".
+     */
+    @GetMapping("/{importId}/rejections")
+    public ResponseEntity<StreamingResponseBody> obtenerRechazos(@PathVariable String importId) {
+        if (!importacionService.existeImportacion(importId)) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(salida -> salida.write("Importacion no encontrada".getBytes(StandardCharsets.UTF_8)));
+        }
+        return ResponseEntity.ok()
+                .contentType(CSV)
+                .body(salida -> importacionService.escribirRechazos(importId, salida));
+    }
+}
@@ -0,0 +1,35 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.service.LimiteSolicitudes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ManejadorErrores {
+
+    /**
+     * Sin conexion libre dentro de connection-timeout: el pool esta saturado. Se responde 503
+     * para que el cliente reintente en vez de un 500.
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public ResponseEntity<ApiResponse<Void>> sinConexion(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiResponse<>("ERROR", "Servicio saturado, intente nuevamente", null));
+    }
+
+    /**
+     * Rechazo por LimiteSolicitudes: 429 con el tiempo de espera en Retry-After.
+     */
+    static <T> ResponseEntity<ApiResponse<T>> demasiadasSolicitudes(long esperaNanos) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(LimiteSolicitudes.segundos(esperaNanos)))
+                .body(new ApiResponse<>("ERROR", "Demasiadas solicitudes para la tarjeta, intente mas tarde", null));
+    }
+}
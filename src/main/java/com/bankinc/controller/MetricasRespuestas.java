@@ -0,0 +1,81 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.regex.Pattern;
+
+/**
+ * Cuenta cada ApiResponse que sale por los controladores, por endpoint, estado y mensaje. En
+ * las compras en lote tambien se cuenta el resultado de cada item.
+ */
+@RestControllerAdvice
+public class MetricasRespuestas implements ResponseBodyAdvice<Object> {
+
+    static final String METRICA = "bankinc.respuestas";
+    private static final Pattern NUMEROS = Pattern.compile("\\d+");
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricasRespuestas(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean supports(MethodParameter tipoRetorno, Class<? extends HttpMessageConverter<?>> convertidor) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object cuerpo, MethodParameter tipoRetorno, MediaType tipo,
+                                  Class<? extends HttpMessageConverter<?>> convertidor,
+                                  ServerHttpRequest peticion, ServerHttpResponse respuesta) {
+        if (cuerpo instanceof ApiResponse<?> api) {
+            String endpoint = endpoint(peticion);
+            contar(endpoint, api);
+            if (api.getData() instanceof Iterable<?> items) {
+                for (Object item : items) {
+                    if (item instanceof ApiResponse<?> resultado) {
+                        contar(endpoint + "[]", resultado);
+                    }
+                }
+            }
+        }
+        return cuerpo;
+    }
+
+    private void contar(String endpoint, ApiResponse<?> api) {
+        meterRegistry.counter(METRICA,
+                        "endpoint", endpoint,
+                        "status", String.valueOf(api.getStatus()),
+                        "mensaje", mensaje(api.getMessage()))
+                .increment();
+    }
+
+    /**
+     * Los mensajes son textos fijos salvo los que llevan cantidades ("Lote procesado: 3
+     * aprobadas..."); los numeros se reemplazan para no abrir una serie por valor.
+     */
+    static String mensaje(String mensaje) {
+        return mensaje == null ? "" : NUMEROS.matcher(mensaje).replaceAll("#");
+    }
+
+    private static String endpoint(ServerHttpRequest peticion) {
+        if (peticion instanceof ServletServerHttpRequest servlet) {
+            Object patron = servlet.getServletRequest().getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (patron != null) {
+                return peticion.getMethod() + " " + patron;
+            }
+        }
+        return "desconocido";
+    }
+}
@@ -3,19 +3,30 @@ package com.bankinc.controller;
 import com.bankinc.dto.ActivarTarjetaRequest;
 import com.bankinc.dto.ApiResponse;
 import com.bankinc.dto.BalanceRequest;
+import com.bankinc.dto.SaldoReconstruido;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Movimiento;
 import com.bankinc.entity.Tarjeta;
+import com.bankinc.service.Idempotencia;
+import com.bankinc.service.LimiteSolicitudes;
 import com.bankinc.service.TarjetaService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/card")
 public class TarjetaController {
 
     private final TarjetaService tarjetaService;
+    private final Idempotencia idempotencia;
+    private final LimiteSolicitudes limite;
 
-    public TarjetaController(TarjetaService tarjetaService) {
+    public TarjetaController(TarjetaService tarjetaService, Idempotencia idempotencia, LimiteSolicitudes limite) {
         this.tarjetaService = tarjetaService;
+        this.idempotencia = idempotencia;
+        this.limite = limite;
     }
 
     /**
@@ -55,19 +66,33 @@ public class TarjetaController {
         }
     }
 
+    /**
+     * Con Idempotency-Key un reintento devuelve la recarga original en vez de acreditar otra vez,
+     * aunque la tarjeta este pasada de su limite de solicitudes.
+     */
     @PostMapping("/balance")
-    public ResponseEntity<ApiResponse<Tarjeta>> cargarTarjeta(@RequestBody BalanceRequest balanceRequest){
-        ApiResponse<Tarjeta> response = tarjetaService.recargarTarjeta(balanceRequest.getCardId(), balanceRequest.getBalance());
-        if("ERROR".equals(response.getStatus())){
-            return ResponseEntity.badRequest().body(response);
-        } else {
-            return ResponseEntity.ok(response);
+    public ResponseEntity<ApiResponse<Tarjeta>> cargarTarjeta(
+            @RequestBody BalanceRequest balanceRequest,
+            @RequestHeader(value = Idempotencia.CABECERA, required = false) String claveIdempotencia){
+        String huella = Idempotencia.huella(balanceRequest.getCardId(), balanceRequest.getBalance());
+        long espera = limite.esperaTarjeta(balanceRequest.getCardId());
+        if (espera > 0) {
+            return idempotencia.repeticion("recarga", claveIdempotencia, huella, Tarjeta.class)
+                    .map(guardada -> responder(guardada, true))
+                    .orElseGet(() -> ManejadorErrores.demasiadasSolicitudes(espera));
         }
+        if (claveIdempotencia == null) {
+            return responder(tarjetaService.recargarTarjeta(balanceRequest.getCardId(), balanceRequest.getBalance()), false);
+        }
+        Idempotencia.Resultado<Tarjeta> resultado = idempotencia.ejecutar("recarga", claveIdempotencia,
+                huella, Tarjeta.class,
+                () -> tarjetaService.recargarTarjeta(balanceRequest.getCardId(), balanceRequest.getBalance()));
+        return responder(resultado.respuesta(), resultado.repetida());
     }
 
     @GetMapping("/balance/{cardId}")
-    public ResponseEntity<ApiResponse<Tarjeta>> obtenerBalance(@PathVariable String cardId){
-        ApiResponse<Tarjeta> response = tarjetaService.obtenerBalance(cardId);
+    public ResponseEntity<ApiResponse<SaldoTarjeta>> obtenerBalance(@PathVariable String cardId){
+        ApiResponse<SaldoTarjeta> response = tarjetaService.obtenerBalance(cardId);
         if("ERROR".equals(response.getStatus())){
             return ResponseEntity.badRequest().body(response);
         } else {
@@ -75,7 +100,30 @@ public class TarjetaController {
         }
     }
 
+    /**
+     * Libro mayor de la tarjeta por secuencia; after es la ultima secuencia ya recibida.
+     */
+    @GetMapping("/ledger/{cardId}")
+    public ResponseEntity<ApiResponse<List<Movimiento>>> obtenerMovimientos(@PathVariable String cardId,
+                                                                           @RequestParam(required = false) Long after,
+                                                                           @RequestParam(required = false) Integer size) {
+        return responder(tarjetaService.obtenerMovimientos(cardId, after, size), false);
+    }
 
+    /**
+     * Recalcula el balance desde la ultima instantanea y lo compara con el guardado.
+     */
+    @GetMapping("/ledger/{cardId}/rebuild")
+    public ResponseEntity<ApiResponse<SaldoReconstruido>> reconstruirBalance(@PathVariable String cardId) {
+        return responder(tarjetaService.reconstruirBalance(cardId), false);
+    }
 
-
+    private static <T> ResponseEntity<ApiResponse<T>> responder(ApiResponse<T> response, boolean repetida) {
+        ResponseEntity.BodyBuilder builder = "ERROR".equals(response.getStatus())
+                ? ResponseEntity.badRequest() : ResponseEntity.ok();
+        if (repetida) {
+            builder.header(Idempotencia.CABECERA_REPETIDA, "true");
+        }
+        return builder.body(response);
+    }
 }
@@ -2,26 +2,95 @@ package com.bankinc.controller;
 
 import com.bankinc.dto.AnularTransaccionRequest;
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
 import com.bankinc.dto.TransaccionRequest;
 import com.bankinc.entity.Transaccion;
+import com.bankinc.service.Idempotencia;
+import com.bankinc.service.LimiteSolicitudes;
 import com.bankinc.service.TransaccionService;
+import com.bankinc.service.TransmisionesHistorial;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/transaction")
 public class TransaccionController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final TransaccionService transaccionService;
+    private final ObjectMapper objectMapper;
+    private final Idempotencia idempotencia;
+    private final LimiteSolicitudes limite;
+    private final TransmisionesHistorial transmisiones;
 
-    public TransaccionController(TransaccionService transaccionService) {
+    public TransaccionController(TransaccionService transaccionService, ObjectMapper objectMapper,
+                                 Idempotencia idempotencia, LimiteSolicitudes limite,
+                                 TransmisionesHistorial transmisiones) {
         this.transaccionService = transaccionService;
+        this.objectMapper = objectMapper;
+        this.idempotencia = idempotencia;
+        this.limite = limite;
+        this.transmisiones = transmisiones;
     }
 
 
+    /**
+     * Con Idempotency-Key los reintentos de la pasarela devuelven la compra original en vez de
+     * debitar otra vez. Pasado el limite de la tarjeta responde 429 sin llegar al servicio, salvo
+     * que la clave ya tenga una compra guardada: esa se devuelve igual.
+     */
     @PostMapping("/create")
-    public ResponseEntity<ApiResponse<Transaccion>> realizarTransaccion(@RequestBody TransaccionRequest request) {
-        ApiResponse<Transaccion> response = transaccionService.crearTransaccion(request.getCardId(), request.getPrice());
+    public ResponseEntity<ApiResponse<Transaccion>> realizarTransaccion(
+            @RequestBody TransaccionRequest request,
+            @RequestHeader(value = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        String huella = Idempotencia.huella(request.getCardId(), request.getPrice());
+        long espera = limite.esperaTarjeta(request.getCardId());
+        if (espera > 0) {
+            return idempotencia.repeticion("compra", claveIdempotencia, huella, Transaccion.class)
+                    .map(guardada -> responder(guardada, true))
+                    .orElseGet(() -> ManejadorErrores.demasiadasSolicitudes(espera));
+        }
+        if (claveIdempotencia == null) {
+            return responder(transaccionService.crearTransaccion(request.getCardId(), request.getPrice()), false);
+        }
+        Idempotencia.Resultado<Transaccion> resultado = idempotencia.ejecutar("compra", claveIdempotencia,
+                huella, Transaccion.class,
+                () -> transaccionService.crearTransaccion(request.getCardId(), request.getPrice()));
+        return responder(resultado.respuesta(), resultado.repetida());
+    }
+
+    /**
+     * Compras en lote: un resultado por compra, en el mismo orden del pedido. Cada compra cuenta
+     * para el limite de su tarjeta; si alguna lo pasa, el lote entero responde 429 sin llegar al
+     * servicio.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<ApiResponse<Transaccion>>>> realizarTransacciones(
+            @RequestBody List<TransaccionRequest> request) {
+        if (request != null) {
+            for (TransaccionRequest compra : request) {
+                if (compra == null || compra.getCardId() == null) {
+                    continue;
+                }
+                long espera = limite.esperaTarjeta(compra.getCardId());
+                if (espera > 0) {
+                    return ManejadorErrores.demasiadasSolicitudes(espera);
+                }
+            }
+        }
+        ApiResponse<List<ApiResponse<Transaccion>>> response = transaccionService.crearTransacciones(request);
         if ("ERROR".equals(response.getStatus())) {
             return ResponseEntity.badRequest().body(response);
         } else {
@@ -41,6 +110,10 @@ public class TransaccionController {
 
     @PostMapping("/anulation")
     public ResponseEntity<ApiResponse<Transaccion>> anularTransaccion(@RequestBody AnularTransaccionRequest request){
+        long espera = limite.esperaTarjeta(request.getCardId());
+        if (espera > 0) {
+            return ManejadorErrores.demasiadasSolicitudes(espera);
+        }
         ApiResponse<Transaccion> response = transaccionService.anularTransaccion(request.getCardId(), request.getTransactionId());
         if ("ERROR".equals(response.getStatus())) {
             return ResponseEntity.badRequest().body(response);
@@ -59,5 +132,73 @@ public class TransaccionController {
         }
     }
 
+    /**
+     * Historial paginado por llave; siguienteCursor viene null en la ultima pagina.
+     */
+    @GetMapping("/allTransactionsByCard/{cardId}/page")
+    public ResponseEntity<ApiResponse<PaginaTransacciones>> obtenerPaginaTransacciones(
+            @PathVariable String cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ApiResponse<PaginaTransacciones> response = transaccionService.obtenerPaginaTransacciones(cardId, cursor, size);
+        if ("ERROR".equals(response.getStatus())) {
+            return ResponseEntity.badRequest().body(response);
+        } else {
+            return ResponseEntity.ok(response);
+        }
+    }
+
+    /**
+     * Historial completo como NDJSON, una transaccion por linea, escrito a medida que se lee.
+     * Con todos los cupos de transmision ocupados responde 503 en vez de tomar otra conexion.
+     */
+    @GetMapping(value = "/allTransactionsByCard/{cardId}/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitirTransaccionesPorTarjeta(@PathVariable String cardId) {
+        if (!transaccionService.existeTarjeta(cardId)) {
+            ApiResponse<Void> error = new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .body(salida -> escribirLinea(salida, error));
+        }
+        if (!transmisiones.tomar()) {
+            ApiResponse<Void> error = new ApiResponse<>("ERROR",
+                    "Hay demasiados historiales en transmision, intente mas tarde", null);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .body(salida -> escribirLinea(salida, error));
+        }
+        CupoAsincrono cupo = CupoAsincrono.tomado(transmisiones::liberar);
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                transaccionService.recorrerTransacciones(cardId, transaccion -> {
+                    try {
+                        objectMapper.writeValue(generador, transaccion);
+                        generador.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                cupo.liberar();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(cuerpo);
+    }
+
+    private static <T> ResponseEntity<ApiResponse<T>> responder(ApiResponse<T> response, boolean repetida) {
+        ResponseEntity.BodyBuilder builder = "ERROR".equals(response.getStatus())
+                ? ResponseEntity.badRequest() : ResponseEntity.ok();
+        if (repetida) {
+            builder.header(Idempotencia.CABECERA_REPETIDA, "true");
+        }
+        return builder.body(response);
+    }
+
+    private void escribirLinea(OutputStream salida, Object valor) throws IOException {
+        salida.write(objectMapper.writeValueAsBytes(valor));
+        salida.write('\n');
+    }
 
 }
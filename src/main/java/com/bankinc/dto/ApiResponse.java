@@ -1,5 +1,7 @@
 package com.bankinc.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,7 +13,10 @@ public class ApiResponse<T> {
     private String message;
     private T data;
 
-    public ApiResponse(String status, String message, T data) {
+    @JsonCreator
+    public ApiResponse(@JsonProperty("status") String status,
+                       @JsonProperty("message") String message,
+                       @JsonProperty("data") T data) {
         this.status = status;
         this.message = message;
         this.data = data;
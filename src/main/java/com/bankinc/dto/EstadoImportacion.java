@@ -0,0 +1,27 @@
+package com.bankinc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class EstadoImportacion {
+
+    private String id;
+    private String idProducto;
+    /** EN_CURSO, COMPLETADA o FALLIDA */
+    private String estado;
+    private long filasLeidas;
+    private long tarjetasEmitidas;
+    private long filasRechazadas;
+    /** Primeros rechazos; el detalle completo se descarga aparte */
+    private List<RechazoImportacion> rechazos;
+    private String mensaje;
+    private LocalDateTime inicio;
+    private LocalDateTime fin;
+}
@@ -0,0 +1,33 @@
+package com.bankinc.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+public class GastoDia {
+
+    private LocalDate dia;
+    private long compras;
+    private BigDecimal monto;
+    private long anulaciones;
+    private BigDecimal anulado;
+
+    public GastoDia(LocalDate dia, Long compras, BigDecimal monto, Long anulaciones, BigDecimal anulado) {
+        this.dia = dia;
+        this.compras = compras == null ? 0 : compras;
+        this.monto = monto == null ? BigDecimal.ZERO : monto;
+        this.anulaciones = anulaciones == null ? 0 : anulaciones;
+        this.anulado = anulado == null ? BigDecimal.ZERO : anulado;
+    }
+
+    /**
+     * Monto comprado menos lo anulado.
+     */
+    public BigDecimal getNeto() {
+        return monto.subtract(anulado);
+    }
+}
@@ -0,0 +1,21 @@
+package com.bankinc.dto;
+
+import com.bankinc.entity.Transaccion;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class PaginaTransacciones {
+
+    private List<Transaccion> transacciones;
+    private String siguienteCursor;
+
+    public PaginaTransacciones(List<Transaccion> transacciones, String siguienteCursor) {
+        this.transacciones = transacciones;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+}
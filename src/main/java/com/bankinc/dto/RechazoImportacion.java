@@ -0,0 +1,15 @@
+package com.bankinc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class RechazoImportacion {
+
+    private long linea;
+    private String titular;
+    private String motivo;
+}
@@ -0,0 +1,41 @@
+package com.bankinc.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Gasto de una tarjeta o de un producto entre dos fechas (inclusive), con el detalle de los
+ * dias que tuvieron movimiento.
+ */
+@Getter
+@Setter
+public class ResumenGasto {
+
+    private LocalDate desde;
+    private LocalDate hasta;
+    private long compras;
+    private BigDecimal monto = BigDecimal.ZERO;
+    private long anulaciones;
+    private BigDecimal anulado = BigDecimal.ZERO;
+    private List<GastoDia> dias;
+
+    public ResumenGasto(LocalDate desde, LocalDate hasta, List<GastoDia> dias) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.dias = dias;
+        for (GastoDia dia : dias) {
+            compras += dia.getCompras();
+            monto = monto.add(dia.getMonto());
+            anulaciones += dia.getAnulaciones();
+            anulado = anulado.add(dia.getAnulado());
+        }
+    }
+
+    public BigDecimal getNeto() {
+        return monto.subtract(anulado);
+    }
+}
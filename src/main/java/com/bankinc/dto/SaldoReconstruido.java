@@ -0,0 +1,41 @@
+package com.bankinc.dto;
+
+import com.bankinc.repository.ReconstruccionSaldo;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Saldo recalculado desde el libro mayor frente a la proyeccion (tarjeta.balance). consistente
+ * es false si algun cambio de saldo no quedo asentado o al reves.
+ */
+@Getter
+@Setter
+public class SaldoReconstruido {
+
+    private String idTarjeta;
+    private long secuenciaInstantanea;
+    private BigDecimal balanceInstantanea;
+    private long movimientosAplicados;
+    private long secuencia;
+    private BigDecimal balance;
+    private long secuenciaProyeccion;
+    private BigDecimal balanceProyeccion;
+
+    public SaldoReconstruido(String idTarjeta, ReconstruccionSaldo reconstruccion) {
+        this.idTarjeta = idTarjeta;
+        this.secuenciaInstantanea = reconstruccion.getSecuenciaInstantanea();
+        this.balanceInstantanea = reconstruccion.getBalanceInstantanea();
+        this.movimientosAplicados = reconstruccion.getMovimientos();
+        this.secuencia = reconstruccion.getSecuencia();
+        this.balance = reconstruccion.getBalance();
+        this.secuenciaProyeccion = reconstruccion.getSecuenciaProyeccion();
+        this.balanceProyeccion = reconstruccion.getBalanceProyeccion();
+    }
+
+    public boolean isConsistente() {
+        return secuencia == secuenciaProyeccion && balanceProyeccion != null
+                && balance.compareTo(balanceProyeccion) == 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.bankinc.dto;
+
+import com.bankinc.entity.Tarjeta;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Respuesta de la consulta de saldo: solo el saldo y el estado, sin titular ni vencimiento. Se
+ * arma directo desde la consulta (TarjetaRepository.saldo) o desde una tarjeta ya en memoria.
+ */
+@Getter
+public class SaldoTarjeta {
+
+    private final String id;
+    private final BigDecimal balance;
+    private final Long secuencia;
+    private final Boolean activa;
+    private final Boolean bloqueada;
+
+    public SaldoTarjeta(String id, BigDecimal balance, Long secuencia, Boolean activa, Boolean bloqueada) {
+        this.id = id;
+        this.balance = balance;
+        this.secuencia = secuencia;
+        this.activa = activa;
+        this.bloqueada = bloqueada;
+    }
+
+    public static SaldoTarjeta de(Tarjeta tarjeta) {
+        return new SaldoTarjeta(tarjeta.getId(), tarjeta.getBalance(), tarjeta.getSecuencia(), tarjeta.getActiva(),
+                tarjeta.getBloqueada());
+    }
+}
@@ -0,0 +1,57 @@
+package com.bankinc.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Gasto de una tarjeta en un dia. Lo mantienen las sentencias de compra y anulacion; no se
+ * escribe por JPA.
+ */
+@Entity
+@Table(name = "gasto_diario")
+@IdClass(GastoDiario.Llave.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class GastoDiario {
+
+    @Id
+    @Column(name = "id_tarjeta", length = 16)
+    private String idTarjeta;
+
+    @Id
+    @Column(name = "dia")
+    private LocalDate dia;
+
+    @Column(name = "id_producto", length = 6)
+    private String idProducto;
+
+    @Column(name = "compras")
+    private Integer compras;
+
+    @Column(name = "monto")
+    private BigDecimal monto;
+
+    @Column(name = "anulaciones")
+    private Integer anulaciones;
+
+    @Column(name = "anulado")
+    private BigDecimal anulado;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Llave implements Serializable {
+        private String idTarjeta;
+        private LocalDate dia;
+    }
+}
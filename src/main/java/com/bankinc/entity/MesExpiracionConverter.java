@@ -0,0 +1,44 @@
+package com.bankinc.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Guarda el vencimiento como mes desde epoch (enero de 1970 = 0) en una columna integer.
+ * El formato de la API sigue siendo MM/yyyy.
+ */
+@Converter
+public class MesExpiracionConverter implements AttributeConverter<YearMonth, Integer> {
+
+    public static final String FORMATO = "MM/yyyy";
+    private static final DateTimeFormatter FORMATEADOR = DateTimeFormatter.ofPattern(FORMATO);
+
+    @Override
+    public Integer convertToDatabaseColumn(YearMonth mes) {
+        return mes == null ? null : aMes(mes);
+    }
+
+    @Override
+    public YearMonth convertToEntityAttribute(Integer mes) {
+        return mes == null ? null : desdeMes(mes);
+    }
+
+    public static int aMes(YearMonth mes) {
+        return (mes.getYear() - 1970) * 12 + mes.getMonthValue() - 1;
+    }
+
+    public static YearMonth desdeMes(int mes) {
+        return YearMonth.of(1970 + Math.floorDiv(mes, 12), Math.floorMod(mes, 12) + 1);
+    }
+
+    public static YearMonth parsear(String mmAaaa) {
+        return mmAaaa == null ? null : YearMonth.parse(mmAaaa, FORMATEADOR);
+    }
+
+    public static String formatear(YearMonth mes) {
+        return mes == null ? null : mes.format(FORMATEADOR);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bankinc.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Asiento del libro mayor de una tarjeta. Solo se inserta (MovimientoRepository); monto lleva
+ * signo, positivo para creditos y negativo para debitos.
+ */
+@Entity
+@Table(name = "movimiento")
+@IdClass(Movimiento.Llave.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class Movimiento {
+
+    @Id
+    @Column(name = "id_tarjeta", length = 16)
+    private String idTarjeta;
+
+    @Id
+    @Column(name = "secuencia")
+    private Long secuencia;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", length = 10)
+    private Tipo tipo;
+
+    @Column(name = "monto")
+    private BigDecimal monto;
+
+    @Column(name = "id_transaccion")
+    private Long idTransaccion;
+
+    @Column(name = "fecha")
+    private LocalDateTime fecha;
+
+    public enum Tipo {
+        APERTURA, RECARGA, COMPRA, ANULACION
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Llave implements Serializable {
+        private String idTarjeta;
+        private Long secuencia;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bankinc.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+/**
+ * Contador de numeracion de tarjetas por producto: siguiente es el primer secuencial aun no
+ * reservado por ninguna instancia.
+ */
+@Entity
+@Table(name = "numeracion_producto")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class NumeracionProducto {
+
+    @Id
+    @Column(name = "id_producto", length = 6)
+    private String idProducto;
+
+    @Column(name = "siguiente")
+    private Long siguiente;
+}
@@ -1,12 +1,16 @@
 package com.bankinc.entity;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.util.Date;
 
 @Entity
@@ -26,8 +30,17 @@ public class Tarjeta {
     @Column(name = "nombre_titular")
     private String nombreTitular;
 
-    @Column(name = "fecha_expiracion")
-    private String fechaExpiracion;
+    @Column(name = "mes_expiracion")
+    @Convert(converter = MesExpiracionConverter.class)
+    @JsonFormat(pattern = MesExpiracionConverter.FORMATO)
+    private YearMonth fechaExpiracion;
+
+    /**
+     * Marcada por el barrido de vencimientos; la compra la rechaza antes de mirar el saldo.
+     */
+    @Column(name = "expirada", nullable = false)
+    @Builder.Default
+    private Boolean expirada = false;
 
     @Column(name = "activa")
     private Boolean activa;
@@ -38,6 +51,17 @@ public class Tarjeta {
     @Column(name = "balance")
     private BigDecimal balance;
 
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private Long version;
+
+    /**
+     * Ultimo movimiento del libro mayor aplicado a balance.
+     */
+    @Column(name = "secuencia", nullable = false)
+    @Builder.Default
+    private Long secuencia = 0L;
+
     public String getId() {
         return id;
     }
@@ -62,14 +86,26 @@ public class Tarjeta {
         this.nombreTitular = nombreTitular;
     }
 
-    public String getFechaExpiracion() {
+    public YearMonth getFechaExpiracion() {
         return fechaExpiracion;
     }
 
-    public void setFechaExpiracion(String fechaExpiracion) {
+    public void setFechaExpiracion(YearMonth fechaExpiracion) {
         this.fechaExpiracion = fechaExpiracion;
     }
 
+    public void setFechaExpiracion(String fechaExpiracion) {
+        this.fechaExpiracion = MesExpiracionConverter.parsear(fechaExpiracion);
+    }
+
+    public Boolean getExpirada() {
+        return expirada;
+    }
+
+    public void setExpirada(Boolean expirada) {
+        this.expirada = expirada;
+    }
+
     public Boolean getActiva() {
         return activa;
     }
@@ -93,4 +129,35 @@ public class Tarjeta {
     public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(Long secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    public static class TarjetaBuilder {
+
+        public TarjetaBuilder fechaExpiracion(YearMonth fechaExpiracion) {
+            this.fechaExpiracion = fechaExpiracion;
+            return this;
+        }
+
+        /**
+         * Acepta el formato de la API, MM/yyyy.
+         */
+        public TarjetaBuilder fechaExpiracion(String fechaExpiracion) {
+            return fechaExpiracion(MesExpiracionConverter.parsear(fechaExpiracion));
+        }
+    }
 }
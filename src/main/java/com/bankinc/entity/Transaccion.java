@@ -17,7 +17,8 @@ public class Transaccion {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaccion_seq")
+    @SequenceGenerator(name = "transaccion_seq", sequenceName = "transaccion_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "id_tarjeta", length = 16)
@@ -0,0 +1,40 @@
+package com.bankinc.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Transacciones de la tabla caliente y del archivo (vista transaccion_historial), solo para
+ * las consultas; las escrituras van por Transaccion.
+ */
+@Entity
+@Immutable
+@Table(name = "transaccion_historial")
+@NoArgsConstructor
+@Getter
+public class TransaccionHistorica {
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "id_tarjeta", length = 16)
+    private String idTarjeta;
+
+    @Column(name = "monto")
+    private BigDecimal monto;
+
+    @Column(name = "fecha_transaccion")
+    private LocalDateTime fechaTransaccion;
+
+    @Column(name = "anulada")
+    private Boolean anulada;
+}
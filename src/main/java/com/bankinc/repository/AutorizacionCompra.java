@@ -0,0 +1,30 @@
+package com.bankinc.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Resultado de la autorizacion atomica de una compra: el id de la transaccion creada
+ * (null si alguna regla fallo) y el estado de la tarjeta tras la sentencia.
+ */
+public interface AutorizacionCompra {
+
+    Long getIdTransaccion();
+
+    String getIdProducto();
+
+    String getNombreTitular();
+
+    Boolean getActiva();
+
+    Boolean getBloqueada();
+
+    Integer getMesExpiracion();
+
+    Boolean getExpirada();
+
+    BigDecimal getBalance();
+
+    Long getVersion();
+
+    Long getSecuencia();
+}
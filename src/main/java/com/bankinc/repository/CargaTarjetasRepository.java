@@ -0,0 +1,116 @@
+package com.bankinc.repository;
+
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Tarjeta;
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Alta masiva de tarjetas con el protocolo COPY de Postgres. Los metodos deben llamarse dentro
+ * de una transaccion: la tabla de carga se vacia al confirmar.
+ */
+@Repository
+@Timed(value = "bankinc.repositorio", description = "Tiempo de las operaciones JDBC de carga masiva")
+public class CargaTarjetasRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CargaTarjetasRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Serializa las cargas de un mismo producto hasta el fin de la transaccion, para que dos
+     * importaciones no emitan al mismo titular.
+     */
+    public void bloquearProducto(String idProducto) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, idProducto);
+    }
+
+    /**
+     * Titulares del producto, de entre los recibidos, que ya tienen tarjeta. Una sola consulta
+     * por bloque.
+     */
+    public Set<String> titularesExistentes(String idProducto, Collection<String> titulares) {
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) con -> {
+            Set<String> existentes = new HashSet<>();
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT nombre_titular FROM tarjeta WHERE id_producto = ? AND nombre_titular = ANY (?)")) {
+                Array arreglo = con.createArrayOf("varchar", titulares.toArray());
+                ps.setString(1, idProducto);
+                ps.setArray(2, arreglo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        existentes.add(rs.getString(1));
+                    }
+                }
+                arreglo.free();
+            }
+            return existentes;
+        });
+    }
+
+    /**
+     * Copia las tarjetas a una tabla temporal con COPY y de ahi a tarjeta. Devuelve los ids
+     * insertados; un id que ya existia queda fuera en vez de fallar el bloque completo.
+     */
+    public Set<String> copiar(List<Tarjeta> tarjetas) {
+        StringBuilder csv = new StringBuilder(tarjetas.size() * 64);
+        // Secuencia 0: las tarjetas se emiten sin movimientos en el libro mayor
+        for (Tarjeta t : tarjetas) {
+            csv.append(t.getId()).append(',')
+                    .append(t.getIdProducto()).append(',')
+                    .append(campo(t.getNombreTitular())).append(',')
+                    .append(MesExpiracionConverter.aMes(t.getFechaExpiracion())).append(',')
+                    .append(t.getActiva()).append(',')
+                    .append(t.getBloqueada()).append(',')
+                    .append(t.getBalance().toPlainString()).append(",false,0,0\n");
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE TEMP TABLE IF NOT EXISTS tarjeta_carga (LIKE tarjeta) ON COMMIT DELETE ROWS");
+            }
+            try {
+                con.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY tarjeta_carga (id, id_producto, nombre_titular, mes_expiracion, activa, bloqueada, balance, expirada, version, secuencia)"
+                                + " FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("No se pudo enviar el bloque por COPY", e);
+            }
+            Set<String> insertadas = new HashSet<>();
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("""
+                         INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, activa, bloqueada, balance, expirada, version, secuencia)
+                         SELECT id, id_producto, nombre_titular, mes_expiracion, activa, bloqueada, balance, expirada, version, secuencia
+                         FROM tarjeta_carga
+                         ON CONFLICT (id) DO NOTHING
+                         RETURNING id
+                         """)) {
+                while (rs.next()) {
+                    insertadas.add(rs.getString(1));
+                }
+            }
+            return insertadas;
+        });
+    }
+
+    private static String campo(String valor) {
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,61 @@
+package com.bankinc.repository;
+
+import com.bankinc.dto.GastoDia;
+import com.bankinc.entity.GastoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface GastoDiarioRepository extends JpaRepository<GastoDiario, GastoDiario.Llave> {
+
+    /**
+     * Suma compras aprobadas en lote: una fila por tarjeta y dia (sin repetir) en los arreglos
+     * paralelos, todo en una sentencia. Debe llamarse dentro de la transaccion de las compras.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO gasto_diario (id_tarjeta, dia, id_producto, compras, monto)
+            SELECT * FROM unnest(CAST(:tarjetas AS varchar[]), CAST(:dias AS date[]), CAST(:productos AS varchar[]),
+                                 CAST(:compras AS integer[]), CAST(:montos AS numeric[]))
+            ON CONFLICT (id_tarjeta, dia) DO UPDATE
+            SET compras = gasto_diario.compras + EXCLUDED.compras, monto = gasto_diario.monto + EXCLUDED.monto
+            """, nativeQuery = true)
+    int sumarCompras(@Param("tarjetas") String[] tarjetas,
+                     @Param("dias") String[] dias,
+                     @Param("productos") String[] productos,
+                     @Param("compras") Integer[] compras,
+                     @Param("montos") BigDecimal[] montos);
+
+    @Query("""
+            select new com.bankinc.dto.GastoDia(g.dia, cast(g.compras as long), g.monto,
+                                                cast(g.anulaciones as long), g.anulado)
+            from GastoDiario g
+            where g.idTarjeta = :idTarjeta and g.dia between :desde and :hasta
+            order by g.dia
+            """)
+    List<GastoDia> porTarjeta(@Param("idTarjeta") String idTarjeta,
+                              @Param("desde") LocalDate desde,
+                              @Param("hasta") LocalDate hasta);
+
+    /**
+     * Suma por dia las filas de las tarjetas del producto (indice por producto y dia).
+     */
+    @Query("""
+            select new com.bankinc.dto.GastoDia(g.dia, sum(g.compras), sum(g.monto),
+                                                sum(g.anulaciones), sum(g.anulado))
+            from GastoDiario g
+            where g.idProducto = :idProducto and g.dia between :desde and :hasta
+            group by g.dia
+            order by g.dia
+            """)
+    List<GastoDia> porProducto(@Param("idProducto") String idProducto,
+                               @Param("desde") LocalDate desde,
+                               @Param("hasta") LocalDate hasta);
+}
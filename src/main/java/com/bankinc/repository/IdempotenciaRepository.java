@@ -0,0 +1,55 @@
+package com.bankinc.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Tabla idempotencia: una fila por operacion y clave. Cada metodo es una sola sentencia en
+ * autocommit, fuera de la transaccion de la operacion.
+ */
+@Repository
+public class IdempotenciaRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotenciaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Toma la clave para esta ejecucion; false si ya existia (en curso o terminada).
+     */
+    public boolean reclamar(String clave, String huella) {
+        return jdbcTemplate.update("""
+                INSERT INTO idempotencia (clave, huella) VALUES (?, ?)
+                ON CONFLICT (clave) DO NOTHING
+                """, clave, huella) == 1;
+    }
+
+    public Optional<Registro> buscar(String clave) {
+        return jdbcTemplate.query("SELECT huella, respuesta FROM idempotencia WHERE clave = ?",
+                (rs, i) -> new Registro(rs.getString(1), rs.getString(2)), clave).stream().findFirst();
+    }
+
+    public void completar(String clave, String respuesta) {
+        jdbcTemplate.update("UPDATE idempotencia SET respuesta = ? WHERE clave = ?", respuesta, clave);
+    }
+
+    public void liberar(String clave) {
+        jdbcTemplate.update("DELETE FROM idempotencia WHERE clave = ?", clave);
+    }
+
+    public int purgar(Instant antesDe) {
+        return jdbcTemplate.update("DELETE FROM idempotencia WHERE creada < ?", Timestamp.from(antesDe));
+    }
+
+    /**
+     * respuesta null: otra ejecucion la reclamo y no termino (o se cayo antes de guardarla).
+     */
+    public record Registro(String huella, String respuesta) {
+    }
+}
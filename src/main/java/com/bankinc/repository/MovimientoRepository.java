@@ -0,0 +1,87 @@
+package com.bankinc.repository;
+
+import com.bankinc.entity.Movimiento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Escritura del libro mayor solo por INSERT: no hay save() (el merge de una llave asignada
+ * haria un SELECT previo) ni UPDATE/DELETE de movimientos. Deben llamarse en la transaccion que
+ * actualiza balance y secuencia de la tarjeta.
+ */
+@Repository
+public interface MovimientoRepository extends JpaRepository<Movimiento, Movimiento.Llave> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO movimiento (id_tarjeta, secuencia, tipo, monto, id_transaccion, fecha)
+            VALUES (:idTarjeta, :secuencia, :tipo, :monto, :idTransaccion, :fecha)
+            """, nativeQuery = true)
+    int registrar(@Param("idTarjeta") String idTarjeta,
+                  @Param("secuencia") Long secuencia,
+                  @Param("tipo") String tipo,
+                  @Param("monto") BigDecimal monto,
+                  @Param("idTransaccion") Long idTransaccion,
+                  @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Varios movimientos con la misma fecha en una sentencia, en arreglos paralelos.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO movimiento (id_tarjeta, secuencia, tipo, monto, id_transaccion, fecha)
+            SELECT m.id_tarjeta, m.secuencia, m.tipo, m.monto, m.id_transaccion, CAST(:fecha AS timestamp)
+            FROM unnest(CAST(:tarjetas AS varchar[]), CAST(:secuencias AS bigint[]), CAST(:tipos AS varchar[]),
+                        CAST(:montos AS numeric[]), CAST(:transacciones AS bigint[]))
+                 AS m (id_tarjeta, secuencia, tipo, monto, id_transaccion)
+            """, nativeQuery = true)
+    int registrarTodos(@Param("tarjetas") String[] tarjetas,
+                       @Param("secuencias") Long[] secuencias,
+                       @Param("tipos") String[] tipos,
+                       @Param("montos") BigDecimal[] montos,
+                       @Param("transacciones") Long[] transacciones,
+                       @Param("fecha") LocalDateTime fecha);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("""
+            select m from Movimiento m
+            where m.idTarjeta = :idTarjeta and m.secuencia > :despuesDe
+            order by m.secuencia
+            """)
+    List<Movimiento> pagina(@Param("idTarjeta") String idTarjeta, @Param("despuesDe") Long despuesDe, Limit limite);
+
+    /**
+     * Recalcula desde la ultima instantanea y lee la proyeccion de la tarjeta en la misma
+     * sentencia, para compararlas sobre el mismo estado. Vacio si la tarjeta no existe.
+     */
+    @Query(value = """
+            SELECT t.secuencia AS "secuenciaProyeccion", t.balance AS "balanceProyeccion",
+                   COALESCE(s.secuencia, 0) AS "secuenciaInstantanea",
+                   COALESCE(s.balance, 0) AS "balanceInstantanea",
+                   count(m.secuencia) AS "movimientos",
+                   COALESCE(max(m.secuencia), s.secuencia, 0) AS "secuencia",
+                   COALESCE(s.balance, 0) + COALESCE(sum(m.monto), 0) AS "balance"
+            FROM tarjeta t
+            LEFT JOIN LATERAL (
+                SELECT secuencia, balance FROM saldo_instantanea
+                WHERE id_tarjeta = t.id
+                ORDER BY secuencia DESC LIMIT 1
+            ) s ON true
+            LEFT JOIN movimiento m ON m.id_tarjeta = t.id AND m.secuencia > COALESCE(s.secuencia, 0)
+            WHERE t.id = :idTarjeta
+            GROUP BY t.secuencia, t.balance, s.secuencia, s.balance
+            """, nativeQuery = true)
+    Optional<ReconstruccionSaldo> reconstruir(@Param("idTarjeta") String idTarjeta);
+}
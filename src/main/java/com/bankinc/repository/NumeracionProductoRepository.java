@@ -0,0 +1,25 @@
+package com.bankinc.repository;
+
+import com.bankinc.entity.NumeracionProducto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface NumeracionProductoRepository extends JpaRepository<NumeracionProducto, String> {
+
+    /**
+     * Reserva cantidad secuenciales del producto y devuelve el primero. Se confirma en su
+     * propia transaccion: un bloque reservado no se devuelve aunque quien lo pidio falle.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+            INSERT INTO numeracion_producto (id_producto, siguiente) VALUES (:idProducto, :cantidad)
+            ON CONFLICT (id_producto) DO UPDATE SET siguiente = numeracion_producto.siguiente + EXCLUDED.siguiente
+            RETURNING siguiente - :cantidad
+            """, nativeQuery = true)
+    long reservarBloque(@Param("idProducto") String idProducto, @Param("cantidad") long cantidad);
+}
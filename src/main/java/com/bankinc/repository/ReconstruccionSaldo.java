@@ -0,0 +1,27 @@
+package com.bankinc.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Saldo de una tarjeta recalculado desde el libro (la ultima instantanea, o cero, mas los
+ * movimientos posteriores) junto a la proyeccion guardada en tarjeta.
+ */
+public interface ReconstruccionSaldo {
+
+    Long getSecuenciaProyeccion();
+
+    BigDecimal getBalanceProyeccion();
+
+    Long getSecuenciaInstantanea();
+
+    BigDecimal getBalanceInstantanea();
+
+    /**
+     * Movimientos aplicados sobre la instantanea.
+     */
+    Long getMovimientos();
+
+    Long getSecuencia();
+
+    BigDecimal getBalance();
+}
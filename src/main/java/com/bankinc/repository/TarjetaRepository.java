@@ -1,12 +1,35 @@
 package com.bankinc.repository;
 
+import com.bankinc.dto.SaldoTarjeta;
 import com.bankinc.entity.Tarjeta;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
 public interface TarjetaRepository extends JpaRepository<Tarjeta, String> {
     Optional<Tarjeta> findByIdProductoAndNombreTitular(String idProducto, String s);
+
+    /**
+     * Saldo y estado sin cargar la entidad: no entra al contexto de persistencia y las columnas
+     * estan todas en ix_tarjeta_saldo (index-only scan).
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("""
+            select new com.bankinc.dto.SaldoTarjeta(t.id, t.balance, t.secuencia, t.activa, t.bloqueada)
+            from Tarjeta t
+            where t.id = :id
+            """)
+    Optional<SaldoTarjeta> saldo(@Param("id") String id);
 }
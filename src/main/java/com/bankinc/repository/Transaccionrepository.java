@@ -1,14 +1,204 @@
 package com.bankinc.repository;
 
 import com.bankinc.entity.Transaccion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 @Repository
 public interface Transaccionrepository extends JpaRepository<Transaccion, Long> {
 
-    Optional<Transaccion> findByIdAndIdTarjeta(Long id, String cardId);
+    /**
+     * Sentencias nativas compartidas con el modulo reactivo (R2DBC), que las ejecuta con los
+     * mismos parametros con nombre.
+     */
+    String MARCAR_ANULADA = """
+            WITH anulada AS (
+                UPDATE transaccion SET anulada = true
+                WHERE id = :id AND fecha_transaccion = :fecha AND NOT anulada
+                RETURNING id_tarjeta, monto, fecha_transaccion
+            )
+            INSERT INTO gasto_diario (id_tarjeta, dia, id_producto, anulaciones, anulado)
+            SELECT a.id_tarjeta, CAST(a.fecha_transaccion AS date),
+                   COALESCE((SELECT id_producto FROM tarjeta WHERE id = a.id_tarjeta), left(a.id_tarjeta, 6)),
+                   1, COALESCE(a.monto, 0)
+            FROM anulada a
+            ON CONFLICT (id_tarjeta, dia) DO UPDATE
+            SET anulaciones = gasto_diario.anulaciones + 1, anulado = gasto_diario.anulado + EXCLUDED.anulado
+            """;
 
-    Iterable<Transaccion> findAllByIdTarjeta(String cardId);
+    String AUTORIZAR_COMPRA = """
+            WITH tarjeta_actual AS (
+                SELECT id, id_producto, nombre_titular, activa, bloqueada, mes_expiracion, expirada, balance, version,
+                       secuencia
+                FROM tarjeta WHERE id = :idTarjeta
+            ), debito AS (
+                UPDATE tarjeta SET balance = balance - CAST(:monto AS numeric), version = version + 1,
+                                   secuencia = secuencia + 1
+                WHERE id = :idTarjeta
+                  AND NOT expirada AND activa AND NOT bloqueada
+                  AND mes_expiracion >= :mesActual
+                  AND CAST(:monto AS numeric) > 0
+                  AND balance >= CAST(:monto AS numeric)
+                RETURNING id, balance, version, secuencia
+            ), compra AS (
+                INSERT INTO transaccion (id_tarjeta, monto, fecha_transaccion, anulada)
+                SELECT id, CAST(:monto AS numeric), CAST(:fecha AS timestamp), false FROM debito
+                RETURNING id
+            ), asiento AS (
+                INSERT INTO movimiento (id_tarjeta, secuencia, tipo, monto, id_transaccion, fecha)
+                SELECT d.id, d.secuencia, 'COMPRA', -CAST(:monto AS numeric), c.id, CAST(:fecha AS timestamp)
+                FROM debito d CROSS JOIN compra c
+            ), gasto AS (
+                INSERT INTO gasto_diario (id_tarjeta, dia, id_producto, compras, monto)
+                SELECT d.id, CAST(CAST(:fecha AS timestamp) AS date), COALESCE(t.id_producto, left(d.id, 6)),
+                       1, CAST(:monto AS numeric)
+                FROM debito d JOIN tarjeta_actual t ON t.id = d.id
+                ON CONFLICT (id_tarjeta, dia) DO UPDATE
+                SET compras = gasto_diario.compras + 1, monto = gasto_diario.monto + EXCLUDED.monto
+            )
+            SELECT (SELECT id FROM compra) AS "idTransaccion", t.id_producto AS "idProducto",
+                   t.nombre_titular AS "nombreTitular", t.activa AS "activa", t.bloqueada AS "bloqueada",
+                   t.mes_expiracion AS "mesExpiracion", t.expirada AS "expirada",
+                   COALESCE(d.balance, t.balance) AS "balance",
+                   COALESCE(d.version, t.version) AS "version",
+                   COALESCE(d.secuencia, t.secuencia) AS "secuencia"
+            FROM tarjeta_actual t LEFT JOIN debito d ON d.id = t.id
+            """;
+
+    /**
+     * Busca tambien en el archivo: fuera de la ventana de anulacion solo sirve para distinguir
+     * una transaccion caducada de una inexistente.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("""
+            select new com.bankinc.entity.Transaccion(t.id, t.idTarjeta, t.monto, t.fechaTransaccion, t.anulada)
+            from TransaccionHistorica t
+            where t.id = :id and t.idTarjeta = :idTarjeta
+            """)
+    Optional<Transaccion> findByIdAndIdTarjeta(@Param("id") Long id, @Param("idTarjeta") String cardId);
+
+    /**
+     * Busqueda acotada por fecha: con la tabla particionada por mes solo se leen las
+     * particiones que cubren el rango (la del mes en curso para la ventana de anulacion).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Optional<Transaccion> findByIdAndIdTarjetaAndFechaTransaccionBetween(Long id, String cardId,
+                                                                          LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * Marca la transaccion como anulada y suma el monto a lo anulado en gasto_diario, del dia de
+     * la compra. Filtrar por fecha_transaccion limita el UPDATE a la particion de la transaccion;
+     * devuelve 0 si ya estaba anulada.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = MARCAR_ANULADA, nativeQuery = true)
+    int marcarAnulada(@Param("id") Long id, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Consultas de los endpoints de lectura: construyen las transacciones fuera del contexto de
+     * persistencia (sin copia para dirty checking) en una transaccion de solo lectura, que con
+     * replicas configuradas va a una replica. Leen la tabla caliente y el archivo.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("""
+            select new com.bankinc.entity.Transaccion(t.id, t.idTarjeta, t.monto, t.fechaTransaccion, t.anulada)
+            from TransaccionHistorica t
+            where t.id = :id
+            """)
+    Optional<Transaccion> resumen(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("""
+            select new com.bankinc.entity.Transaccion(t.id, t.idTarjeta, t.monto, t.fechaTransaccion, t.anulada)
+            from TransaccionHistorica t
+            where t.idTarjeta = :idTarjeta
+            order by t.fechaTransaccion, t.id
+            """)
+    List<Transaccion> historial(@Param("idTarjeta") String idTarjeta);
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("""
+            select new com.bankinc.entity.Transaccion(t.id, t.idTarjeta, t.monto, t.fechaTransaccion, t.anulada)
+            from TransaccionHistorica t
+            where t.idTarjeta = :idTarjeta
+            order by t.fechaTransaccion, t.id
+            """)
+    List<Transaccion> primeraPagina(@Param("idTarjeta") String idTarjeta, Limit limite);
+
+    /**
+     * Pagina por llave (fecha_transaccion, id): continua estrictamente despues del ultimo
+     * registro entregado, sin OFFSET.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("""
+            select new com.bankinc.entity.Transaccion(t.id, t.idTarjeta, t.monto, t.fechaTransaccion, t.anulada)
+            from TransaccionHistorica t
+            where t.idTarjeta = :idTarjeta
+              and (t.fechaTransaccion, t.id) > (:fecha, :id)
+            order by t.fechaTransaccion, t.id
+            """)
+    List<Transaccion> paginaDespuesDe(@Param("idTarjeta") String idTarjeta,
+                                      @Param("fecha") LocalDateTime fecha,
+                                      @Param("id") Long id,
+                                      Limit limite);
+
+    /**
+     * Recorre el historial con un cursor del servidor. Las filas se construyen fuera del
+     * contexto de persistencia para que la memoria no crezca con el historial.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.bankinc.entity.Transaccion(t.id, t.idTarjeta, t.monto, t.fechaTransaccion, t.anulada)
+            from TransaccionHistorica t
+            where t.idTarjeta = :idTarjeta
+            order by t.fechaTransaccion, t.id
+            """)
+    Stream<Transaccion> recorrerPorTarjeta(@Param("idTarjeta") String idTarjeta);
+
+    /**
+     * Debita el balance, registra la transaccion, su movimiento en el libro mayor (con la
+     * secuencia siguiente de la tarjeta) y la suma al gasto_diario de la tarjeta en una sola
+     * sentencia. El UPDATE solo aplica si la tarjeta no esta expirada, esta activa, no
+     * bloqueada, vigente (mesActual es el mes en curso desde epoch) y con fondos; si no aplica,
+     * idTransaccion viene null y el estado leido permite saber que regla fallo.
+     */
+    @Transactional
+    @Query(value = AUTORIZAR_COMPRA, nativeQuery = true)
+    Optional<AutorizacionCompra> autorizarCompra(@Param("idTarjeta") String idTarjeta,
+                                                 @Param("monto") BigDecimal monto,
+                                                 @Param("fecha") LocalDateTime fecha,
+                                                 @Param("mesActual") Integer mesActual);
 }
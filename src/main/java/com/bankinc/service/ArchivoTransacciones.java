@@ -0,0 +1,99 @@
+package com.bankinc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Mueve a transaccion_archivo, por bloques, las transacciones que ya no se pueden anular
+ * (mas de HORAS_PARA_ANULAR horas, mas un margen para las anulaciones en curso y el volcado del
+ * motor). Cada bloque es una sola sentencia: borra de transaccion, inserta en el archivo y
+ * avanza la marca de agua, asi que repetir una pasada no duplica ni pierde filas. Al final
+ * elimina las particiones mensuales que quedaron vacias, para que la tabla caliente y sus
+ * indices solo guarden los ultimos dias.
+ * <p>
+ * Cada pasada sigue desde la marca: una fila que llegue con fecha anterior a ella queda en la
+ * tabla caliente (y se sigue leyendo por transaccion_historial).
+ */
+@Component
+public class ArchivoTransacciones {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoTransacciones.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration margen;
+    private final int tamanioBloque;
+    private final Counter archivadas;
+
+    public ArchivoTransacciones(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                @Value("${bankinc.archivo.margen:1h}") Duration margen,
+                                @Value("${bankinc.archivo.tamanio-bloque:5000}") int tamanioBloque) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.margen = margen;
+        this.tamanioBloque = tamanioBloque;
+        this.archivadas = Counter.builder("bankinc.archivo.transacciones")
+                .description("Transacciones movidas al archivo")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${bankinc.archivo.cron:0 45 * * * *}")
+    public int archivar() {
+        Timestamp corte = Timestamp.valueOf(
+                LocalDateTime.now().minusHours(ReglasTarjeta.HORAS_PARA_ANULAR).minus(margen));
+        int total = 0;
+        int movidas;
+        do {
+            Integer bloque = jdbcTemplate.queryForObject("""
+                    WITH marca AS (
+                        SELECT fecha_transaccion, id_transaccion FROM archivo_transaccion_marca
+                        WHERE id = 1
+                        FOR UPDATE
+                    ), lote AS (
+                        SELECT t.id, t.fecha_transaccion
+                        FROM transaccion t CROSS JOIN marca m
+                        WHERE t.fecha_transaccion >= m.fecha_transaccion
+                          AND (t.fecha_transaccion, t.id) > (m.fecha_transaccion, m.id_transaccion)
+                          AND t.fecha_transaccion < ?
+                        ORDER BY t.fecha_transaccion, t.id
+                        LIMIT ?
+                    ), movidas AS (
+                        DELETE FROM transaccion t USING lote l
+                        WHERE t.id = l.id AND t.fecha_transaccion = l.fecha_transaccion
+                        RETURNING t.id, t.id_tarjeta, t.monto, t.fecha_transaccion, t.anulada
+                    ), archivadas AS (
+                        INSERT INTO transaccion_archivo (id, id_tarjeta, monto, fecha_transaccion, anulada)
+                        SELECT id, id_tarjeta, monto, fecha_transaccion, anulada FROM movidas
+                        ON CONFLICT (id) DO NOTHING
+                    ), avance AS (
+                        UPDATE archivo_transaccion_marca m
+                        SET fecha_transaccion = u.fecha_transaccion, id_transaccion = u.id, actualizado = now()
+                        FROM (SELECT fecha_transaccion, id FROM lote
+                              ORDER BY fecha_transaccion DESC, id DESC LIMIT 1) u
+                        WHERE m.id = 1
+                    )
+                    SELECT count(*) FROM movidas
+                    """, Integer.class, corte, tamanioBloque);
+            movidas = bloque == null ? 0 : bloque;
+            archivadas.increment(movidas);
+            total += movidas;
+        } while (movidas == tamanioBloque);
+
+        Integer eliminadas = jdbcTemplate.queryForObject("""
+                SELECT eliminar_particiones_archivadas(fecha_transaccion)
+                FROM archivo_transaccion_marca WHERE id = 1
+                """, Integer.class);
+        if (total > 0 || (eliminadas != null && eliminadas > 0)) {
+            log.info("Transacciones archivadas: {}, particiones eliminadas: {}", total, eliminadas);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,183 @@
+package com.bankinc.service;
+
+import com.bankinc.repository.NumeracionProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asigna numeros de tarjeta (PAN) de 16 digitos: idProducto + 9 digitos + verificador Luhn.
+ * Cada producto toma bloques de secuenciales del contador en base de datos y los reparte en
+ * memoria con un AtomicLong; solo la recarga de bloque toma un candado. El secuencial pasa por
+ * una permutacion con clave sobre [0, 10^9) (Feistel con cycle walking), asi los numeros no
+ * son consecutivos pero nunca se repiten mientras el contador no se repita.
+ */
+@Component
+public class AsignadorNumerosTarjeta {
+
+    public static final long ESPACIO = 1_000_000_000L;
+    private static final int MITAD = 31_623; // MITAD * MITAD >= ESPACIO
+    private static final int RONDAS = 8;
+
+    private final NumeracionProductoRepository numeracionRepository;
+    private final int tamanioBloque;
+    private final long clave;
+    private final ConcurrentHashMap<String, Producto> productos = new ConcurrentHashMap<>();
+
+    public AsignadorNumerosTarjeta(NumeracionProductoRepository numeracionRepository,
+                                   @Value("${bankinc.numeracion.tamanio-bloque:1000}") int tamanioBloque,
+                                   @Value("${bankinc.numeracion.clave:7046029254386353131}") long clave) {
+        if (tamanioBloque <= 0) {
+            throw new IllegalArgumentException("bankinc.numeracion.tamanio-bloque debe ser mayor a cero");
+        }
+        this.numeracionRepository = numeracionRepository;
+        this.tamanioBloque = tamanioBloque;
+        this.clave = clave;
+    }
+
+    public String asignar(String idProducto) {
+        if (!esProductoValido(idProducto)) {
+            throw new IllegalArgumentException("productId must be 6 digits");
+        }
+        Producto producto = productos.computeIfAbsent(idProducto, Producto::new);
+        return componer(idProducto, permutar(producto.siguiente(), producto.clave));
+    }
+
+    /**
+     * Numero que corresponde al secuencial con la clave dada: el mismo que daria asignar. Lo usa
+     * el modulo reactivo, que reserva sus bloques del mismo contador sin bloquear.
+     */
+    public static String numero(String idProducto, long secuencial, long clave) {
+        return componer(idProducto, permutar(secuencial, claveProducto(clave, idProducto)));
+    }
+
+    private static String componer(String idProducto, long numero) {
+        char[] pan = new char[16];
+        idProducto.getChars(0, 6, pan, 0);
+        for (int i = 14; i >= 6; i--) {
+            pan[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+        pan[15] = (char) ('0' + digitoLuhn(pan, 15));
+        return new String(pan);
+    }
+
+    public static boolean esProductoValido(String idProducto) {
+        if (idProducto == null || idProducto.length() != 6) {
+            return false;
+        }
+        for (int i = 0; i < 6; i++) {
+            if (idProducto.charAt(i) < '0' || idProducto.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Digito que completa los primeros longitud digitos de forma que el numero cumpla Luhn.
+     */
+    static int digitoLuhn(char[] digitos, int longitud) {
+        int suma = 0;
+        boolean doblar = true;
+        for (int i = longitud - 1; i >= 0; i--) {
+            int d = digitos[i] - '0';
+            if (doblar) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            suma += d;
+            doblar = !doblar;
+        }
+        return (10 - suma % 10) % 10;
+    }
+
+    /**
+     * Biyeccion de [0, ESPACIO) en si mismo: Feistel sobre [0, MITAD^2) repetido hasta caer
+     * dentro del espacio.
+     */
+    static long permutar(long secuencial, long clave) {
+        long valor = secuencial;
+        do {
+            valor = feistel(valor, clave);
+        } while (valor >= ESPACIO);
+        return valor;
+    }
+
+    private static long feistel(long valor, long clave) {
+        long izquierda = valor / MITAD;
+        long derecha = valor % MITAD;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long nueva = (izquierda + Math.floorMod(mezclar(clave + ronda * 0x9E3779B97F4A7C15L + derecha), MITAD)) % MITAD;
+            izquierda = derecha;
+            derecha = nueva;
+        }
+        return izquierda * MITAD + derecha;
+    }
+
+    private static long claveProducto(long clave, String idProducto) {
+        return mezclar(clave ^ Long.parseLong(idProducto));
+    }
+
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private final class Producto {
+
+        private final String id;
+        private final long clave;
+        private final ReentrantLock recarga = new ReentrantLock();
+        private volatile Bloque bloque = new Bloque(0, 0);
+
+        Producto(String id) {
+            this.id = id;
+            this.clave = claveProducto(AsignadorNumerosTarjeta.this.clave, id);
+        }
+
+        long siguiente() {
+            while (true) {
+                Bloque actual = bloque;
+                long secuencial = actual.cursor.getAndIncrement();
+                if (secuencial < actual.fin) {
+                    return secuencial;
+                }
+                recargar(actual);
+            }
+        }
+
+        private void recargar(Bloque agotado) {
+            recarga.lock();
+            try {
+                if (bloque != agotado) {
+                    return;
+                }
+                long inicio = numeracionRepository.reservarBloque(id, tamanioBloque);
+                if (inicio >= ESPACIO) {
+                    throw new IllegalStateException("Numeracion agotada para el producto " + id);
+                }
+                bloque = new Bloque(inicio, Math.min(inicio + tamanioBloque, ESPACIO));
+            } finally {
+                recarga.unlock();
+            }
+        }
+    }
+
+    private static final class Bloque {
+
+        private final AtomicLong cursor;
+        private final long fin;
+
+        Bloque(long inicio, long fin) {
+            this.cursor = new AtomicLong(inicio);
+            this.fin = fin;
+        }
+    }
+}
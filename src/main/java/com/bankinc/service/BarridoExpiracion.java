@@ -0,0 +1,61 @@
+package com.bankinc.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Marca como expiradas, por bloques, las tarjetas cuyo mes de vencimiento ya paso. Cada bloque
+ * es su propia sentencia y salta filas bloqueadas por compras en curso; esas quedan para la
+ * siguiente pasada.
+ */
+@Component
+public class BarridoExpiracion {
+
+    private static final Logger log = LoggerFactory.getLogger(BarridoExpiracion.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheTarjetas cache;
+    private final RelojMes reloj;
+    private final int tamanioBloque;
+
+    public BarridoExpiracion(JdbcTemplate jdbcTemplate, CacheTarjetas cache, RelojMes reloj,
+                             @Value("${bankinc.expiracion.tamanio-bloque:5000}") int tamanioBloque) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = cache;
+        this.reloj = reloj;
+        this.tamanioBloque = tamanioBloque;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${bankinc.expiracion.cron:0 5 0 * * *}")
+    public int marcarExpiradas() {
+        int mesActual = reloj.mesActual();
+        int total = 0;
+        List<String> marcadas;
+        do {
+            marcadas = jdbcTemplate.queryForList("""
+                    UPDATE tarjeta SET expirada = true, version = version + 1
+                    WHERE id IN (
+                        SELECT id FROM tarjeta
+                        WHERE NOT expirada AND mes_expiracion < ?
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED)
+                    RETURNING id
+                    """, String.class, mesActual, tamanioBloque);
+            marcadas.forEach(cache::invalidar);
+            total += marcadas.size();
+        } while (marcadas.size() == tamanioBloque);
+        if (total > 0) {
+            log.info("Tarjetas marcadas como expiradas: {}", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,191 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Tarjeta;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Cache acotada (tamanio y TTL) del estado de las tarjetas delante de TarjetaRepository.findById.
+ * Guarda copias desacopladas: quien lee recibe su propia instancia y las escrituras del servicio
+ * reemplazan la entrada una vez confirmada la transaccion.
+ *
+ * Cargar y guardar no son atomicos (la consulta no corre dentro de la cache, asi no retiene
+ * candados de Caffeine durante un viaje a la base). Cada cambio de una tarjeta avanza el sello de
+ * su franja; una carga que ve el sello cambiado entre que empezo y guardo descarta lo guardado,
+ * porque pudo leer el estado anterior a ese cambio.
+ */
+@Component
+public class CacheTarjetas {
+
+    private static final int FRANJAS_SELLO = 1024;
+
+    private final Cache<String, Tarjeta> tarjetas;
+    private final Cache<String, SaldoTarjeta> saldos;
+    private final AtomicLongArray sellos = new AtomicLongArray(FRANJAS_SELLO);
+
+    public CacheTarjetas(@Value("${bankinc.cache.tarjetas.tamanio-maximo:100000}") long tamanioMaximo,
+                         @Value("${bankinc.cache.tarjetas.ttl:60s}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.tarjetas = Caffeine.newBuilder()
+                .maximumSize(tamanioMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.saldos = Caffeine.newBuilder()
+                .maximumSize(tamanioMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tarjetas, "tarjetas");
+        CaffeineCacheMetrics.monitor(meterRegistry, saldos, "saldos");
+    }
+
+    /**
+     * Devuelve la tarjeta desde memoria o, si no esta, la carga y la deja en cache. En la carga se
+     * devuelve la misma instancia leida y se guarda una copia.
+     */
+    public Optional<Tarjeta> buscar(String tarjetaId, Function<String, Optional<Tarjeta>> cargador) {
+        Tarjeta enCache = tarjetaId == null ? null : tarjetas.getIfPresent(tarjetaId);
+        if (enCache != null) {
+            return Optional.of(copiar(enCache));
+        }
+        long sello = sello(tarjetaId);
+        Optional<Tarjeta> cargada = cargador.apply(tarjetaId);
+        cargada.ifPresent(t -> {
+            tarjetas.put(t.getId(), copiar(t));
+            saldos.invalidate(t.getId());
+            if (sello(t.getId()) != sello) {
+                tarjetas.invalidate(t.getId());
+            }
+        });
+        return cargada;
+    }
+
+    /**
+     * Saldo desde la tarjeta en cache o, si no esta, desde la consulta de saldo, que se guarda
+     * aparte hasta que la tarjeta cambie.
+     */
+    public Optional<SaldoTarjeta> saldo(String tarjetaId, Function<String, Optional<SaldoTarjeta>> cargador) {
+        if (tarjetaId == null) {
+            return cargador.apply(null);
+        }
+        Tarjeta enCache = tarjetas.getIfPresent(tarjetaId);
+        if (enCache != null) {
+            return Optional.of(SaldoTarjeta.de(enCache));
+        }
+        SaldoTarjeta saldo = saldos.getIfPresent(tarjetaId);
+        if (saldo != null) {
+            return Optional.of(saldo);
+        }
+        long sello = sello(tarjetaId);
+        Optional<SaldoTarjeta> cargado = cargador.apply(tarjetaId);
+        cargado.ifPresent(s -> {
+            saldos.put(tarjetaId, s);
+            if (sello(tarjetaId) != sello) {
+                saldos.invalidate(tarjetaId);
+            }
+        });
+        return cargado;
+    }
+
+    /**
+     * Solo consulta memoria; no va a la base de datos.
+     */
+    public Optional<Tarjeta> siPresente(String tarjetaId) {
+        Tarjeta enCache = tarjetaId == null ? null : tarjetas.getIfPresent(tarjetaId);
+        return enCache == null ? Optional.empty() : Optional.of(copiar(enCache));
+    }
+
+    /**
+     * Reemplaza la entrada con el estado guardado. Dentro de una transaccion espera al commit para
+     * que la version cacheada sea la que quedo en la base.
+     */
+    public void actualizar(String tarjetaId, Tarjeta guardada) {
+        if (guardada == null) {
+            invalidar(tarjetaId);
+            return;
+        }
+        Tarjeta copia = copiar(guardada);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    avanzarSello(tarjetaId);
+                    if (estado == STATUS_COMMITTED) {
+                        tarjetas.put(tarjetaId, copiarConVersion(copia, guardada.getVersion()));
+                    } else {
+                        tarjetas.invalidate(tarjetaId);
+                    }
+                    saldos.invalidate(tarjetaId);
+                }
+            });
+        } else {
+            avanzarSello(tarjetaId);
+            tarjetas.put(tarjetaId, copia);
+            saldos.invalidate(tarjetaId);
+        }
+    }
+
+    public void invalidar(String tarjetaId) {
+        if (tarjetaId != null) {
+            avanzarSello(tarjetaId);
+            tarjetas.invalidate(tarjetaId);
+            saldos.invalidate(tarjetaId);
+        }
+    }
+
+    private long sello(String tarjetaId) {
+        return sellos.get(franjaSello(tarjetaId));
+    }
+
+    /**
+     * Antes de tocar las entradas: una carga en curso o lo ve al guardar, o guarda antes y la
+     * invalidacion que sigue la borra.
+     */
+    private void avanzarSello(String tarjetaId) {
+        sellos.incrementAndGet(franjaSello(tarjetaId));
+    }
+
+    private static int franjaSello(String tarjetaId) {
+        int h = tarjetaId.hashCode();
+        return (h ^ (h >>> 16)) & (FRANJAS_SELLO - 1);
+    }
+
+    long tamanio() {
+        tarjetas.cleanUp();
+        return tarjetas.estimatedSize();
+    }
+
+    private static Tarjeta copiarConVersion(Tarjeta tarjeta, Long version) {
+        Tarjeta copia = copiar(tarjeta);
+        copia.setVersion(version);
+        return copia;
+    }
+
+    static Tarjeta copiar(Tarjeta tarjeta) {
+        return Tarjeta.builder()
+                .id(tarjeta.getId())
+                .idProducto(tarjeta.getIdProducto())
+                .nombreTitular(tarjeta.getNombreTitular())
+                .fechaExpiracion(tarjeta.getFechaExpiracion())
+                .expirada(tarjeta.getExpirada())
+                .activa(tarjeta.getActiva())
+                .bloqueada(tarjeta.getBloqueada())
+                .balance(tarjeta.getBalance())
+                .version(tarjeta.getVersion())
+                .secuencia(tarjeta.getSecuencia())
+                .build();
+    }
+}
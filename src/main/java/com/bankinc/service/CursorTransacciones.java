@@ -0,0 +1,41 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.Transaccion;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posicion en el historial de una tarjeta: la llave (fecha_transaccion, id) del ultimo
+ * registro entregado, codificada como token opaco para el cliente.
+ */
+public record CursorTransacciones(LocalDateTime fecha, long id) {
+
+    public static CursorTransacciones despuesDe(Transaccion transaccion) {
+        return new CursorTransacciones(transaccion.getFechaTransaccion(), transaccion.getId());
+    }
+
+    public String codificar() {
+        String llave = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(llave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null si el token no es un cursor valido
+     */
+    public static CursorTransacciones decodificar(String token) {
+        try {
+            String llave = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = llave.indexOf('|');
+            if (separador < 0) {
+                return null;
+            }
+            return new CursorTransacciones(LocalDateTime.parse(llave.substring(0, separador)),
+                    Long.parseLong(llave.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.bankinc.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de escritura (WAL) del motor en memoria: segmentos de tamanio fijo mapeados en memoria
+ * con registros de {@link RegistroDiario#TAMANIO} bytes. Las posiciones son globales (numero de
+ * segmento por tamanio mas el desplazamiento) y solo crecen.
+ *
+ * agregar() copia el registro al mapeo y devuelve la posicion hasta la que hay que esperar;
+ * esperar() hace el commit en grupo: el primer hilo que llega fuerza a disco todo lo escrito
+ * hasta ese momento y los que llegan mientras tanto se suman al siguiente force(). Sin
+ * forzarDisco lo escrito cuenta como confirmado (sobrevive a la caida del proceso, no del
+ * sistema operativo).
+ */
+final class DiarioEscritura implements AutoCloseable {
+
+    private static final String PREFIJO = "diario-";
+    private static final String SUFIJO = ".wal";
+
+    private final Path directorio;
+    private final long tamanioSegmento;
+    private final boolean forzarDisco;
+    private final Map<Long, MappedByteBuffer> segmentos = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock escritura = new ReentrantLock();
+    private final ByteBuffer temporal = ByteBuffer.allocate(RegistroDiario.TAMANIO).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crcEscritura = new CRC32C();
+    private MappedByteBuffer actual;
+    private volatile long numeroActual;
+    private long siguiente;
+    private volatile long escrito;
+
+    // Con un Condition y no con wait/notify: un hilo virtual que espera el force() no fija su portador
+    private final ReentrantLock confirmacion = new ReentrantLock();
+    private final Condition confirmado = confirmacion.newCondition();
+    private volatile long durable;
+    private boolean forzando;
+
+    private DiarioEscritura(Path directorio, long tamanioSegmento, boolean forzarDisco) {
+        this.directorio = directorio;
+        this.tamanioSegmento = tamanioSegmento;
+        this.forzarDisco = forzarDisco;
+    }
+
+    /**
+     * Abre el diario y entrega en orden los registros validos posteriores a desde (lo ya volcado
+     * a la base). El primer registro incompleto o con CRC invalido marca el fin: el resto de su
+     * segmento se pone en cero y los segmentos siguientes se descartan.
+     */
+    static DiarioEscritura abrir(Path directorio, long tamanioSegmento, boolean forzarDisco, long desde,
+                                 Consumer<RegistroDiario> recuperado) {
+        if (tamanioSegmento <= 0 || tamanioSegmento % RegistroDiario.TAMANIO != 0
+                || tamanioSegmento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("El tamanio de segmento debe ser multiplo de "
+                    + RegistroDiario.TAMANIO + " y menor a 2GB");
+        }
+        DiarioEscritura diario = new DiarioEscritura(directorio, tamanioSegmento, forzarDisco);
+        try {
+            Files.createDirectories(directorio);
+            diario.recuperar(desde, recuperado);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario en " + directorio, e);
+        }
+        return diario;
+    }
+
+    /**
+     * Devuelve la posicion final del registro: lo que hay que pasar a esperar().
+     */
+    long agregar(RegistroDiario registro) {
+        escritura.lock();
+        try {
+            int desplazamiento = desplazamiento(siguiente);
+            if (segmento(siguiente) != numeroActual) {
+                numeroActual = segmento(siguiente);
+                actual = mapear(numeroActual);
+            }
+            registro.escribir(temporal);
+            crcEscritura.reset();
+            crcEscritura.update(temporal.slice(4, RegistroDiario.TAMANIO - 4));
+            temporal.putInt(0, (int) crcEscritura.getValue());
+            actual.put(desplazamiento, temporal, 0, RegistroDiario.TAMANIO);
+            siguiente += RegistroDiario.TAMANIO;
+            escrito = siguiente;
+            return siguiente;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Bloquea hasta que todo lo escrito hasta la posicion este en disco.
+     */
+    void esperar(long hasta) {
+        if (!forzarDisco) {
+            return;
+        }
+        while (true) {
+            long objetivo;
+            confirmacion.lock();
+            try {
+                while (durable < hasta && forzando) {
+                    try {
+                        confirmado.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrumpido esperando la escritura del diario", e);
+                    }
+                }
+                if (durable >= hasta) {
+                    return;
+                }
+                forzando = true;
+                objetivo = escrito;
+            } finally {
+                confirmacion.unlock();
+            }
+            boolean forzado = false;
+            try {
+                forzar(durable, objetivo);
+                forzado = true;
+            } finally {
+                confirmacion.lock();
+                try {
+                    forzando = false;
+                    if (forzado) {
+                        durable = Math.max(durable, objetivo);
+                    }
+                    confirmado.signalAll();
+                } finally {
+                    confirmacion.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hasta donde el diario esta confirmado: lo que el volcado puede llevar a la base.
+     */
+    long durable() {
+        return forzarDisco ? durable : escrito;
+    }
+
+    /**
+     * Lee hasta maximo registros desde la posicion, sin pasar de hasta.
+     */
+    List<RegistroDiario> leer(long desde, long hasta, int maximo) {
+        List<RegistroDiario> registros = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        for (long posicion = desde; posicion < hasta && registros.size() < maximo; posicion += RegistroDiario.TAMANIO) {
+            MappedByteBuffer segmento = segmentos.get(segmento(posicion));
+            RegistroDiario registro = segmento == null ? null : RegistroDiario.leer(segmento, desplazamiento(posicion), crc);
+            if (registro == null) {
+                throw new IllegalStateException("Registro ilegible en la posicion " + posicion + " del diario");
+            }
+            registros.add(registro);
+        }
+        return registros;
+    }
+
+    /**
+     * Borra los segmentos que terminan antes de la posicion (ya volcados), salvo el actual.
+     */
+    void liberarHasta(long posicion) {
+        long limite = segmento(posicion);
+        for (Long numero : List.copyOf(segmentos.keySet())) {
+            if (numero < limite && numero != numeroActual) {
+                segmentos.remove(numero);
+                try {
+                    Files.deleteIfExists(ruta(numero));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (forzarDisco) {
+            esperar(escrito);
+        }
+        segmentos.clear();
+    }
+
+    private void recuperar(long desde, Consumer<RegistroDiario> recuperado) throws IOException {
+        List<Long> numeros;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            numeros = archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIJO) && n.endsWith(SUFIJO))
+                    .map(n -> Long.parseLong(n.substring(PREFIJO.length(), n.length() - SUFIJO.length())))
+                    .sorted()
+                    .toList();
+        }
+        long posicion = desde;
+        boolean fin = false;
+        CRC32C crc = new CRC32C();
+        for (long numero : numeros) {
+            if (fin || numero != segmento(posicion)) {
+                // Anteriores a lo volcado, o posteriores al fin del diario (no se pueden reproducir en orden)
+                Files.deleteIfExists(ruta(numero));
+                fin = fin || numero > segmento(posicion);
+                continue;
+            }
+            MappedByteBuffer segmento = mapear(numero);
+            do {
+                RegistroDiario registro = RegistroDiario.leer(segmento, desplazamiento(posicion), crc);
+                if (registro == null) {
+                    limpiar(segmento, desplazamiento(posicion));
+                    fin = true;
+                    break;
+                }
+                recuperado.accept(registro);
+                posicion += RegistroDiario.TAMANIO;
+            } while (desplazamiento(posicion) != 0);
+        }
+        siguiente = posicion;
+        escrito = posicion;
+        durable = posicion;
+        numeroActual = segmento(posicion);
+        actual = segmentos.containsKey(numeroActual) ? segmentos.get(numeroActual) : mapear(numeroActual);
+        if (forzarDisco) {
+            actual.force();
+        }
+    }
+
+    private static void limpiar(MappedByteBuffer segmento, int desde) {
+        for (int i = desde; i < segmento.capacity(); i++) {
+            segmento.put(i, (byte) 0);
+        }
+    }
+
+    private void forzar(long desde, long hasta) {
+        for (long numero = segmento(desde); numero <= segmento(hasta - 1); numero++) {
+            MappedByteBuffer segmento = segmentos.get(numero);
+            if (segmento != null) {
+                segmento.force();
+            }
+        }
+    }
+
+    private MappedByteBuffer mapear(long numero) {
+        try (FileChannel canal = FileChannel.open(ruta(numero), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanioSegmento);
+            segmento.order(ByteOrder.LITTLE_ENDIAN);
+            segmentos.put(numero, segmento);
+            return segmento;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear el segmento " + numero + " del diario", e);
+        }
+    }
+
+    private Path ruta(long numero) {
+        return directorio.resolve(String.format("%s%016d%s", PREFIJO, numero, SUFIJO));
+    }
+
+    private long segmento(long posicion) {
+        return Math.floorDiv(posicion, tamanioSegmento);
+    }
+
+    private int desplazamiento(long posicion) {
+        return (int) Math.floorMod(posicion, tamanioSegmento);
+    }
+}
@@ -0,0 +1,280 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Extractos de transacciones de un producto en un rango de dias como CSV comprimido con gzip,
+ * para que finanzas no consulte la base de produccion. Las filas salen de un cursor del
+ * servidor (fetch size acotado) y se escriben a medida que llegan: si el cliente HTTP o el
+ * disco van lentos, el cursor espera. Usa un pool propio de pocas conexiones (apuntable a una
+ * replica), asi una exportacion nunca ocupa las conexiones de las compras; si estan todas en
+ * uso la exportacion se rechaza en vez de esperar.
+ */
+@Component
+public class ExportacionTransacciones implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacionTransacciones.class);
+
+    static final String CABECERA = "id,id_tarjeta,monto,fecha_transaccion,anulada";
+
+    /**
+     * Rechazo por falta de conexiones libres (no es un error del pedido).
+     */
+    public static final String EN_CURSO = "Hay exportaciones en curso, intente mas tarde";
+
+    /**
+     * El producto son los seis primeros digitos del numero de tarjeta: el rango de ids recorre
+     * ix_transaccion_tarjeta_fecha (y el de archivo) sin leer tarjeta. Sin ORDER BY, para que
+     * las filas empiecen a salir sin esperar un ordenamiento del extracto completo.
+     */
+    private static final String CONSULTA = """
+            SELECT id, id_tarjeta, monto, fecha_transaccion, anulada
+            FROM transaccion_historial
+            WHERE id_tarjeta BETWEEN ? AND ?
+              AND fecha_transaccion >= ? AND fecha_transaccion < ?
+            """;
+
+    private final HikariDataSource pool;
+    private final Semaphore cupos;
+    private final int tamanioFetch;
+    private final Path directorio;
+    private final List<String> productosDiarios;
+    private final Duration esperaDiaria;
+    private final Counter filasExportadas;
+
+    public ExportacionTransacciones(@Value("${bankinc.exportacion.url:${spring.datasource.url}}") String url,
+                                    @Value("${spring.datasource.username:}") String usuario,
+                                    @Value("${spring.datasource.password:}") String clave,
+                                    @Value("${bankinc.exportacion.conexiones:1}") int conexiones,
+                                    @Value("${bankinc.exportacion.tamanio-fetch:1000}") int tamanioFetch,
+                                    @Value("${bankinc.exportacion.directorio:./exportaciones}") Path directorio,
+                                    @Value("${bankinc.exportacion.productos-diarios:}") List<String> productosDiarios,
+                                    @Value("${bankinc.exportacion.espera-diaria:1m}") Duration esperaDiaria,
+                                    MeterRegistry meterRegistry) {
+        // El pool se conecta recien con la primera exportacion
+        this.pool = new HikariDataSource();
+        pool.setPoolName("exportacion");
+        pool.setJdbcUrl(url);
+        pool.setUsername(usuario);
+        pool.setPassword(clave);
+        pool.setMaximumPoolSize(conexiones);
+        pool.setMinimumIdle(0);
+        pool.setReadOnly(true);
+        // El cursor del servidor solo existe dentro de una transaccion
+        pool.setAutoCommit(false);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        this.cupos = new Semaphore(conexiones);
+        this.tamanioFetch = tamanioFetch;
+        this.directorio = directorio;
+        this.productosDiarios = productosDiarios.stream().map(String::trim).filter(p -> !p.isEmpty()).toList();
+        this.esperaDiaria = esperaDiaria;
+        this.filasExportadas = Counter.builder("bankinc.exportacion.filas")
+                .description("Transacciones escritas en extractos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Valida el pedido y reserva una conexion del pool de exportacion. La Exportacion devuelta
+     * libera la reserva al terminar de escribir; si no llega a escribirse hay que liberarla.
+     */
+    public ApiResponse<Exportacion> preparar(String idProducto, LocalDate desde, LocalDate hasta) {
+        if (idProducto == null || !idProducto.matches("\\d{6}")) {
+            return new ApiResponse<>("ERROR", "El producto debe tener 6 digitos", null);
+        }
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            return new ApiResponse<>("ERROR", "Rango de fechas invalido", null);
+        }
+        if (!cupos.tryAcquire()) {
+            return new ApiResponse<>("ERROR", EN_CURSO, null);
+        }
+        return new ApiResponse<>("SUCCESS", "Exportacion iniciada", new Exportacion(idProducto, desde, hasta));
+    }
+
+    /**
+     * Extracto del dia anterior de cada producto de bankinc.exportacion.productos-diarios, en
+     * el directorio de exportaciones. Si hay exportaciones HTTP en curso espera a lo sumo
+     * bankinc.exportacion.espera-diaria por producto y lo salta: el hilo de @Scheduled es
+     * compartido con las demas tareas y no puede quedar bloqueado detras de un cliente lento.
+     */
+    @Scheduled(cron = "${bankinc.exportacion.cron:0 30 1 * * *}")
+    public List<Path> exportarDiario() throws InterruptedException {
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        List<Path> archivos = new ArrayList<>();
+        for (String producto : productosDiarios) {
+            try {
+                exportarArchivo(producto, ayer, ayer).ifPresentOrElse(archivos::add, () ->
+                        log.warn("Exportacion diaria del producto {} del {} omitida: sin conexion libre tras {}",
+                                producto, ayer, esperaDiaria));
+            } catch (UncheckedIOException e) {
+                log.error("No se pudo exportar el producto {} del {}", producto, ayer, e);
+            }
+        }
+        return archivos;
+    }
+
+    /**
+     * Escribe el extracto en el directorio de exportaciones. Se escribe a un temporal y se
+     * renombra al terminar, asi nunca queda a la vista un archivo a medias. Vacio si ninguna
+     * conexion del pool de exportacion se libero dentro de bankinc.exportacion.espera-diaria.
+     */
+    Optional<Path> exportarArchivo(String idProducto, LocalDate desde, LocalDate hasta) throws InterruptedException {
+        if (!cupos.tryAcquire(esperaDiaria.toNanos(), TimeUnit.NANOSECONDS)) {
+            return Optional.empty();
+        }
+        Exportacion exportacion = new Exportacion(idProducto, desde, hasta);
+        Path destino = directorio.resolve(exportacion.nombreArchivo());
+        try {
+            Files.createDirectories(directorio);
+            Path temporal = Files.createTempFile(directorio, "exportacion-", ".parcial");
+            try {
+                try (OutputStream salida = Files.newOutputStream(temporal)) {
+                    exportacion.escribir(salida);
+                }
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            exportacion.liberar();
+        }
+        return Optional.of(destino);
+    }
+
+    private long escribir(Exportacion exportacion, OutputStream salida) throws IOException {
+        long filas = 0;
+        long inicio = System.nanoTime();
+        GZIPOutputStream gzip = new GZIPOutputStream(salida, 64 * 1024);
+        BufferedWriter escritor = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+        try (Connection conexion = pool.getConnection();
+             PreparedStatement sentencia = conexion.prepareStatement(CONSULTA,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            sentencia.setFetchSize(tamanioFetch);
+            sentencia.setString(1, exportacion.idProducto() + "0000000000");
+            sentencia.setString(2, exportacion.idProducto() + "9999999999");
+            sentencia.setTimestamp(3, Timestamp.valueOf(exportacion.desde().atStartOfDay()));
+            sentencia.setTimestamp(4, Timestamp.valueOf(exportacion.hasta().plusDays(1).atStartOfDay()));
+            escritor.write(CABECERA);
+            escritor.write('\n');
+            try (ResultSet fila = sentencia.executeQuery()) {
+                while (fila.next()) {
+                    escritor.write(Long.toString(fila.getLong(1)));
+                    escritor.write(',');
+                    escritor.write(fila.getString(2));
+                    escritor.write(',');
+                    escritor.write(fila.getBigDecimal(3).toPlainString());
+                    escritor.write(',');
+                    escritor.write(fila.getTimestamp(4).toLocalDateTime().toString());
+                    escritor.write(',');
+                    escritor.write(Boolean.toString(fila.getBoolean(5)));
+                    escritor.write('\n');
+                    filas++;
+                }
+            }
+            conexion.commit();
+        } catch (SQLException e) {
+            throw new IOException("Fallo la exportacion de transacciones", e);
+        } finally {
+            filasExportadas.increment(filas);
+        }
+        escritor.flush();
+        gzip.finish();
+        log.info("Exportacion de {} ({} a {}): {} transacciones en {} ms", exportacion.idProducto(),
+                exportacion.desde(), exportacion.hasta(), filas, Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+        return filas;
+    }
+
+    @Override
+    public void destroy() {
+        pool.close();
+    }
+
+    /**
+     * Exportacion con la conexion ya reservada; se escribe una sola vez.
+     */
+    public final class Exportacion {
+
+        private final String idProducto;
+        private final LocalDate desde;
+        private final LocalDate hasta;
+        private final AtomicBoolean liberada = new AtomicBoolean();
+
+        private Exportacion(String idProducto, LocalDate desde, LocalDate hasta) {
+            this.idProducto = idProducto;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        public String idProducto() {
+            return idProducto;
+        }
+
+        public LocalDate desde() {
+            return desde;
+        }
+
+        public LocalDate hasta() {
+            return hasta;
+        }
+
+        public String nombreArchivo() {
+            return "transacciones-" + idProducto + "-" + desde + "-" + hasta + ".csv.gz";
+        }
+
+        /**
+         * Escribe el CSV comprimido en salida y libera la conexion reservada; devuelve las filas.
+         */
+        public long escribir(OutputStream salida) throws IOException {
+            try {
+                return ExportacionTransacciones.this.escribir(this, salida);
+            } finally {
+                liberar();
+            }
+        }
+
+        /**
+         * Devuelve la conexion reservada sin escribir (por ejemplo si la respuesta nunca llega a
+         * escribirse); despues de escribir no hace nada.
+         */
+        public void liberar() {
+            if (liberada.compareAndSet(false, true)) {
+                cupos.release();
+            }
+        }
+    }
+}
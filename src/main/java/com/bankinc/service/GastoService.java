@@ -0,0 +1,11 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.ResumenGasto;
+
+public interface GastoService {
+
+    ApiResponse<ResumenGasto> resumenTarjeta(String cardId, String desde, String hasta);
+
+    ApiResponse<ResumenGasto> resumenProducto(String productId, String desde, String hasta);
+}
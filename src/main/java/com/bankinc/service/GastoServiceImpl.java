@@ -0,0 +1,78 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.GastoDia;
+import com.bankinc.dto.ResumenGasto;
+import com.bankinc.repository.GastoDiarioRepository;
+import com.bankinc.repository.TarjetaRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Resumenes de gasto leidos de gasto_diario: una fila por tarjeta y dia con movimiento, sin
+ * recorrer las transacciones. Sin fechas el rango es el mes en curso hasta hoy.
+ */
+@Service
+@Timed(value = "bankinc.servicio", description = "Tiempo de los metodos de servicio, incluida la base de datos")
+public class GastoServiceImpl implements GastoService {
+
+    static final int MAXIMO_DIAS = 366;
+
+    private final GastoDiarioRepository gastoDiarioRepository;
+    private final TarjetaRepository tarjetaRepository;
+    private final CacheTarjetas cache;
+
+    public GastoServiceImpl(GastoDiarioRepository gastoDiarioRepository, TarjetaRepository tarjetaRepository,
+                            CacheTarjetas cache) {
+        this.gastoDiarioRepository = gastoDiarioRepository;
+        this.tarjetaRepository = tarjetaRepository;
+        this.cache = cache;
+    }
+
+    @Override
+    public ApiResponse<ResumenGasto> resumenTarjeta(String cardId, String desde, String hasta) {
+        if (cache.buscar(cardId, tarjetaRepository::findById).isEmpty()) {
+            return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
+        }
+        return resumen(desde, hasta, rango -> gastoDiarioRepository.porTarjeta(cardId, rango[0], rango[1]));
+    }
+
+    /**
+     * Suma las filas diarias de las tarjetas del producto: el costo crece con tarjetas por dia
+     * activas, no con las compras. No hay una fila por producto porque seria un punto de
+     * contencion en cada compra.
+     */
+    @Override
+    public ApiResponse<ResumenGasto> resumenProducto(String productId, String desde, String hasta) {
+        if (!AsignadorNumerosTarjeta.esProductoValido(productId)) {
+            return new ApiResponse<>("ERROR", "El idProducto debe tener exactamente 6 digitos", null);
+        }
+        return resumen(desde, hasta, rango -> gastoDiarioRepository.porProducto(productId, rango[0], rango[1]));
+    }
+
+    private ApiResponse<ResumenGasto> resumen(String desde, String hasta, Function<LocalDate[], List<GastoDia>> consulta) {
+        LocalDate hoy = LocalDate.now();
+        LocalDate inicio;
+        LocalDate fin;
+        try {
+            inicio = desde == null || desde.isBlank() ? hoy.withDayOfMonth(1) : LocalDate.parse(desde);
+            fin = hasta == null || hasta.isBlank() ? hoy : LocalDate.parse(hasta);
+        } catch (DateTimeParseException e) {
+            return new ApiResponse<>("ERROR", "Las fechas deben tener el formato AAAA-MM-DD", null);
+        }
+        if (inicio.isAfter(fin)) {
+            return new ApiResponse<>("ERROR", "La fecha inicial no puede ser posterior a la final", null);
+        }
+        if (ChronoUnit.DAYS.between(inicio, fin) >= MAXIMO_DIAS) {
+            return new ApiResponse<>("ERROR", "El rango no puede superar " + MAXIMO_DIAS + " dias", null);
+        }
+        List<GastoDia> dias = consulta.apply(new LocalDate[]{inicio, fin});
+        return new ApiResponse<>("SUCCESS", "Resumen de gasto", new ResumenGasto(inicio, fin, dias));
+    }
+}
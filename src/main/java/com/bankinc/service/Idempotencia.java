@@ -0,0 +1,244 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.repository.IdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Resultados por Idempotency-Key en memoria (acotados por tamanio y TTL). La primera peticion
+ * con una clave ejecuta la operacion; las que llegan mientras tanto esperan su resultado y las
+ * posteriores lo reciben sin tocar la base. Solo se retienen respuestas exitosas: un error no
+ * movio saldo y el reintento vuelve a evaluarse.
+ *
+ * Con bankinc.idempotencia.persistente la clave ademas se reclama en la tabla idempotencia
+ * antes de ejecutar, para que un reintento tras un reinicio o en otra instancia no repita la
+ * operacion.
+ */
+@Component
+public class Idempotencia {
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+    static final int LARGO_MAXIMO_CLAVE = 200;
+
+    private final Cache<String, Entrada> entradas;
+    private final IdempotenciaRepository repositorio;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean persistente;
+    private final Duration ttl;
+    private final long esperaMaximaMs;
+
+    public Idempotencia(@Value("${bankinc.idempotencia.tamanio-maximo:100000}") long tamanioMaximo,
+                        @Value("${bankinc.idempotencia.ttl:24h}") Duration ttl,
+                        @Value("${bankinc.idempotencia.espera-maxima:30s}") Duration esperaMaxima,
+                        @Value("${bankinc.idempotencia.persistente:false}") boolean persistente,
+                        IdempotenciaRepository repositorio,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry) {
+        this.entradas = Caffeine.newBuilder()
+                .maximumSize(tamanioMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.repositorio = repositorio;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.persistente = persistente;
+        this.ttl = ttl;
+        this.esperaMaximaMs = esperaMaxima.toMillis();
+        CaffeineCacheMetrics.monitor(meterRegistry, entradas, "idempotencia");
+    }
+
+    /**
+     * Ejecuta la accion una sola vez por operacion y clave. La huella resume el cuerpo de la
+     * peticion: la misma clave con otra huella se rechaza sin ejecutar.
+     */
+    public <T> Resultado<T> ejecutar(String operacion, String clave, String huella, Class<T> tipoDato,
+                                     Supplier<ApiResponse<T>> accion) {
+        if (clave == null || clave.isBlank() || clave.length() > LARGO_MAXIMO_CLAVE) {
+            return new Resultado<>(new ApiResponse<>("ERROR",
+                    "Idempotency-Key invalida: de 1 a " + LARGO_MAXIMO_CLAVE + " caracteres", null), false);
+        }
+        String llave = operacion + ":" + clave;
+        Entrada propia = new Entrada(huella, new CompletableFuture<>());
+        Entrada existente = entradas.asMap().putIfAbsent(llave, propia);
+        if (existente != null) {
+            return repetir(operacion, existente, huella);
+        }
+        try {
+            Resultado<T> resultado = primeraVez(llave, huella, tipoDato, accion);
+            propia.respuesta().complete(resultado.respuesta());
+            if (!exitosa(resultado.respuesta())) {
+                entradas.asMap().remove(llave, propia);
+            }
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            entradas.asMap().remove(llave, propia);
+            propia.respuesta().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Respuesta exitosa ya guardada para la operacion y clave con la misma huella, sin ejecutar ni
+     * esperar a una ejecucion en curso. Permite devolver un reintento aunque un control previo
+     * (el limite de solicitudes) rechazaria una ejecucion nueva. Con persistente consulta la
+     * tabla si la clave no esta en memoria.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<ApiResponse<T>> repeticion(String operacion, String clave, String huella, Class<T> tipoDato) {
+        if (clave == null || clave.isBlank() || clave.length() > LARGO_MAXIMO_CLAVE) {
+            return Optional.empty();
+        }
+        String llave = operacion + ":" + clave;
+        Entrada entrada = entradas.getIfPresent(llave);
+        ApiResponse<T> respuesta = null;
+        if (entrada != null) {
+            CompletableFuture<ApiResponse<?>> futuro = entrada.respuesta();
+            if (entrada.huella().equals(huella) && futuro.isDone() && !futuro.isCompletedExceptionally()) {
+                respuesta = (ApiResponse<T>) futuro.getNow(null);
+            }
+        } else if (persistente) {
+            respuesta = repositorio.buscar(llave)
+                    .filter(registro -> registro.huella().equals(huella) && registro.respuesta() != null)
+                    .map(registro -> leer(registro.respuesta(), tipoDato))
+                    .orElse(null);
+        }
+        if (!exitosa(respuesta)) {
+            return Optional.empty();
+        }
+        meterRegistry.counter("bankinc.idempotencia.repeticiones", "operacion", operacion).increment();
+        return Optional.of(respuesta);
+    }
+
+    public static String huella(String tarjetaId, BigDecimal monto) {
+        return tarjetaId + "|" + (monto == null ? "" : monto.stripTrailingZeros().toPlainString());
+    }
+
+    @Scheduled(cron = "${bankinc.idempotencia.cron:0 15 * * * *}")
+    public int purgar() {
+        return persistente ? repositorio.purgar(Instant.now().minus(ttl)) : 0;
+    }
+
+    long enMemoria() {
+        entradas.cleanUp();
+        return entradas.estimatedSize();
+    }
+
+    private <T> Resultado<T> primeraVez(String llave, String huella, Class<T> tipoDato,
+                                        Supplier<ApiResponse<T>> accion) {
+        if (!persistente) {
+            return new Resultado<>(accion.get(), false);
+        }
+        if (!repositorio.reclamar(llave, huella)) {
+            return guardada(llave, huella, tipoDato);
+        }
+        ApiResponse<T> respuesta;
+        try {
+            respuesta = accion.get();
+        } catch (RuntimeException | Error e) {
+            repositorio.liberar(llave);
+            throw e;
+        }
+        if (exitosa(respuesta)) {
+            repositorio.completar(llave, escribir(respuesta));
+        } else {
+            repositorio.liberar(llave);
+        }
+        return new Resultado<>(respuesta, false);
+    }
+
+    /**
+     * La clave ya estaba reclamada en la base: por otra instancia, o antes de un reinicio.
+     */
+    private <T> Resultado<T> guardada(String llave, String huella, Class<T> tipoDato) {
+        Optional<IdempotenciaRepository.Registro> registro = repositorio.buscar(llave);
+        if (registro.isPresent() && !registro.get().huella().equals(huella)) {
+            return new Resultado<>(otraSolicitud(), false);
+        } else if (registro.isEmpty() || registro.get().respuesta() == null) {
+            return new Resultado<>(enCurso(), false);
+        }
+        return new Resultado<>(leer(registro.get().respuesta(), tipoDato), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Resultado<T> repetir(String operacion, Entrada existente, String huella) {
+        if (!existente.huella().equals(huella)) {
+            return new Resultado<>(otraSolicitud(), false);
+        }
+        try {
+            ApiResponse<T> respuesta = (ApiResponse<T>) existente.respuesta().get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+            meterRegistry.counter("bankinc.idempotencia.repeticiones", "operacion", operacion).increment();
+            return new Resultado<>(respuesta, true);
+        } catch (TimeoutException e) {
+            return new Resultado<>(enCurso(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Resultado<>(enCurso(), false);
+        } catch (ExecutionException e) {
+            // La primera ejecucion fallo: quien espera ve el mismo error
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String escribir(ApiResponse<?> respuesta) {
+        try {
+            return objectMapper.writeValueAsString(respuesta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo guardar la respuesta idempotente", e);
+        }
+    }
+
+    private <T> ApiResponse<T> leer(String json, Class<T> tipoDato) {
+        JavaType tipo = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, tipoDato);
+        try {
+            return objectMapper.readValue(json, tipo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo leer la respuesta idempotente", e);
+        }
+    }
+
+    private static boolean exitosa(ApiResponse<?> respuesta) {
+        return respuesta != null && "SUCCESS".equals(respuesta.getStatus());
+    }
+
+    private static <T> ApiResponse<T> otraSolicitud() {
+        return new ApiResponse<>("ERROR", "La Idempotency-Key ya se uso con otra solicitud", null);
+    }
+
+    private static <T> ApiResponse<T> enCurso() {
+        return new ApiResponse<>("ERROR", "Hay una solicitud en curso con la misma Idempotency-Key", null);
+    }
+
+    private record Entrada(String huella, CompletableFuture<ApiResponse<?>> respuesta) {
+    }
+
+    /**
+     * repetida: la respuesta es la de una ejecucion anterior con la misma clave.
+     */
+    public record Resultado<T>(ApiResponse<T> respuesta, boolean repetida) {
+    }
+}
@@ -0,0 +1,99 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.EstadoImportacion;
+import com.bankinc.dto.RechazoImportacion;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progreso de una importacion masiva. Solo el hilo de la importacion la modifica; las
+ * consultas de estado leen una foto. Los rechazos completos van a un archivo temporal y en
+ * memoria solo se guardan los primeros.
+ */
+final class Importacion {
+
+    static final int RECHAZOS_EN_ESTADO = 100;
+
+    private final String id;
+    private final String idProducto;
+    private final Path archivoRechazos;
+    private final LocalDateTime inicio = LocalDateTime.now();
+    private final AtomicLong filasLeidas = new AtomicLong();
+    private final AtomicLong emitidas = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final List<RechazoImportacion> primerosRechazos = new ArrayList<>();
+    private volatile String estado = "EN_CURSO";
+    private volatile String mensaje = "Importacion en curso";
+    private volatile LocalDateTime fin;
+
+    Importacion(String id, String idProducto, Path archivoRechazos) {
+        this.id = id;
+        this.idProducto = idProducto;
+        this.archivoRechazos = archivoRechazos;
+    }
+
+    String id() {
+        return id;
+    }
+
+    String idProducto() {
+        return idProducto;
+    }
+
+    Path archivoRechazos() {
+        return archivoRechazos;
+    }
+
+    void filaLeida() {
+        filasLeidas.incrementAndGet();
+    }
+
+    void tarjetasEmitidas(int cantidad) {
+        emitidas.addAndGet(cantidad);
+    }
+
+    void rechazo(RechazoImportacion rechazo) {
+        rechazadas.incrementAndGet();
+        synchronized (primerosRechazos) {
+            if (primerosRechazos.size() < RECHAZOS_EN_ESTADO) {
+                primerosRechazos.add(rechazo);
+            }
+        }
+    }
+
+    void completar() {
+        mensaje = "Importacion completada";
+        fin = LocalDateTime.now();
+        estado = "COMPLETADA";
+    }
+
+    void fallar(String causa) {
+        mensaje = "Importacion interrumpida: " + causa;
+        fin = LocalDateTime.now();
+        estado = "FALLIDA";
+    }
+
+    void descartar() {
+        try {
+            Files.deleteIfExists(archivoRechazos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    EstadoImportacion estado() {
+        List<RechazoImportacion> rechazos;
+        synchronized (primerosRechazos) {
+            rechazos = List.copyOf(primerosRechazos);
+        }
+        return new EstadoImportacion(id, idProducto, estado, filasLeidas.get(), emitidas.get(), rechazadas.get(),
+                rechazos, mensaje, inicio, fin);
+    }
+}
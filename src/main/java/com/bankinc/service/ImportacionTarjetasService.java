@@ -0,0 +1,18 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.EstadoImportacion;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ImportacionTarjetasService {
+
+    ApiResponse<EstadoImportacion> iniciarImportacion(String idProducto, MultipartFile archivo);
+    ApiResponse<EstadoImportacion> obtenerImportacion(String id);
+
+    boolean existeImportacion(String id);
+
+    void escribirRechazos(String id, OutputStream salida) throws IOException;
+}
@@ -0,0 +1,291 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.EstadoImportacion;
+import com.bankinc.dto.RechazoImportacion;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.CargaTarjetasRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Emision masiva de tarjetas desde un CSV "nombre,apellido". El archivo se guarda en disco y
+ * se procesa en segundo plano por bloques: una consulta de duplicados por bloque, numeros del
+ * asignador y carga con COPY. La memoria depende del tamanio de bloque, no del archivo.
+ */
+@Service
+public class ImportacionTarjetasServiceImpl implements ImportacionTarjetasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionTarjetasServiceImpl.class);
+    private static final int LARGO_MAXIMO_TITULAR = 255;
+
+    private final CargaTarjetasRepository cargaRepository;
+    private final AsignadorNumerosTarjeta asignador;
+    private final TarjetaService tarjetaService;
+    private final TransactionOperations transacciones;
+    private final TaskExecutor executor;
+    private final int tamanioBloque;
+    private final Cache<String, Importacion> importaciones = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(Duration.ofHours(24))
+            .<String, Importacion>removalListener((id, importacion, causa) -> {
+                if (importacion != null) {
+                    importacion.descartar();
+                }
+            })
+            .build();
+
+    public ImportacionTarjetasServiceImpl(CargaTarjetasRepository cargaRepository,
+                                          AsignadorNumerosTarjeta asignador,
+                                          TarjetaService tarjetaService,
+                                          TransactionOperations transacciones,
+                                          @Qualifier("importacionesExecutor") TaskExecutor executor,
+                                          @Value("${bankinc.importacion.tamanio-bloque:5000}") int tamanioBloque) {
+        this.cargaRepository = cargaRepository;
+        this.asignador = asignador;
+        this.tarjetaService = tarjetaService;
+        this.transacciones = transacciones;
+        this.executor = executor;
+        this.tamanioBloque = tamanioBloque;
+    }
+
+    @Override
+    public ApiResponse<EstadoImportacion> iniciarImportacion(String idProducto, MultipartFile archivo) {
+        if (!AsignadorNumerosTarjeta.esProductoValido(idProducto)) {
+            return new ApiResponse<>("ERROR", "El idProducto debe tener exactamente 6 digitos", null);
+        }
+        if (archivo == null || archivo.isEmpty()) {
+            return new ApiResponse<>("ERROR", "El archivo esta vacio", null);
+        }
+        Path csv = null;
+        Importacion importacion;
+        try {
+            csv = Files.createTempFile("bankinc-importacion-", ".csv");
+            archivo.transferTo(csv);
+            importacion = new Importacion(UUID.randomUUID().toString(), idProducto,
+                    Files.createTempFile("bankinc-rechazos-", ".csv"));
+        } catch (IOException e) {
+            borrar(csv);
+            return new ApiResponse<>("ERROR", "No se pudo recibir el archivo", null);
+        }
+        importaciones.put(importacion.id(), importacion);
+        Path recibido = csv;
+        try {
+            executor.execute(() -> procesar(importacion, recibido));
+        } catch (RejectedExecutionException e) {
+            importaciones.invalidate(importacion.id());
+            borrar(recibido);
+            return new ApiResponse<>("ERROR", "Hay demasiadas importaciones en curso, intente mas tarde", null);
+        }
+        return new ApiResponse<>("SUCCESS", "Importacion iniciada", importacion.estado());
+    }
+
+    @Override
+    public ApiResponse<EstadoImportacion> obtenerImportacion(String id) {
+        Importacion importacion = id == null ? null : importaciones.getIfPresent(id);
+        if (importacion == null) {
+            return new ApiResponse<>("ERROR", "Importacion no encontrada", null);
+        }
+        return new ApiResponse<>("SUCCESS", "Importacion encontrada", importacion.estado());
+    }
+
+    @Override
+    public boolean existeImportacion(String id) {
+        return id != null && importaciones.getIfPresent(id) != null;
+    }
+
+    @Override
+    public void escribirRechazos(String id, OutputStream salida) throws IOException {
+        Importacion importacion = importaciones.getIfPresent(id);
+        if (importacion != null) {
+            Files.copy(importacion.archivoRechazos(), salida);
+        }
+    }
+
+    void procesar(Importacion importacion, Path csv) {
+        try (BufferedReader lector = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter rechazos = Files.newBufferedWriter(importacion.archivoRechazos(), StandardCharsets.UTF_8)) {
+            rechazos.write("linea,titular,motivo\n");
+            List<Fila> bloque = new ArrayList<>(tamanioBloque);
+            Set<String> titularesDelBloque = new HashSet<>();
+            String linea;
+            long numero = 0;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (numero == 1 && !linea.isEmpty() && linea.charAt(0) == '\uFEFF') {
+                    linea = linea.substring(1);
+                }
+                if (linea.isBlank()) {
+                    continue;
+                }
+                List<String> campos = campos(linea);
+                if (numero == 1 && esEncabezado(campos)) {
+                    continue;
+                }
+                importacion.filaLeida();
+                if (campos.size() != 2 || campos.get(0).isEmpty() || campos.get(1).isEmpty()) {
+                    rechazar(importacion, rechazos, new RechazoImportacion(numero, linea,
+                            "Formato invalido: se esperan nombre y apellido"));
+                    continue;
+                }
+                String titular = campos.get(0) + " " + campos.get(1);
+                if (titular.length() > LARGO_MAXIMO_TITULAR) {
+                    rechazar(importacion, rechazos, new RechazoImportacion(numero, titular, "Nombre de titular demasiado largo"));
+                } else if (!titularesDelBloque.add(titular)) {
+                    rechazar(importacion, rechazos, new RechazoImportacion(numero, titular, "Titular repetido en el archivo"));
+                } else {
+                    bloque.add(new Fila(numero, titular));
+                }
+                if (bloque.size() == tamanioBloque) {
+                    cargarBloque(importacion, bloque, rechazos);
+                    bloque.clear();
+                    titularesDelBloque.clear();
+                }
+            }
+            if (!bloque.isEmpty()) {
+                cargarBloque(importacion, bloque, rechazos);
+            }
+            importacion.completar();
+        } catch (RuntimeException | IOException e) {
+            log.error("Importacion {} interrumpida", importacion.id(), e);
+            importacion.fallar(e.getMessage());
+        } finally {
+            borrar(csv);
+        }
+    }
+
+    /**
+     * Un bloque por transaccion: si falla, no queda ninguna tarjeta del bloque emitida.
+     */
+    private void cargarBloque(Importacion importacion, List<Fila> bloque, BufferedWriter rechazos) throws IOException {
+        String idProducto = importacion.idProducto();
+        List<RechazoImportacion> rechazados = new ArrayList<>();
+        Integer emitidas = transacciones.execute(estado -> {
+            rechazados.clear();
+            cargaRepository.bloquearProducto(idProducto);
+            Set<String> existentes = cargaRepository.titularesExistentes(idProducto,
+                    bloque.stream().map(Fila::titular).toList());
+            YearMonth vencimiento = tarjetaService.calcularFechaExpiracion();
+            List<Tarjeta> nuevas = new ArrayList<>(bloque.size());
+            Map<String, Fila> porNumero = new HashMap<>();
+            for (Fila fila : bloque) {
+                if (existentes.contains(fila.titular())) {
+                    rechazados.add(new RechazoImportacion(fila.linea(), fila.titular(),
+                            "Tarjeta ya existe con el idProducto y titular"));
+                    continue;
+                }
+                Tarjeta tarjeta = Tarjeta.builder()
+                        .id(asignador.asignar(idProducto))
+                        .idProducto(idProducto)
+                        .nombreTitular(fila.titular())
+                        .fechaExpiracion(vencimiento)
+                        .activa(false)
+                        .bloqueada(false)
+                        .balance(BigDecimal.ZERO)
+                        .build();
+                nuevas.add(tarjeta);
+                porNumero.put(tarjeta.getId(), fila);
+            }
+            Set<String> insertadas = nuevas.isEmpty() ? Set.of() : cargaRepository.copiar(nuevas);
+            porNumero.forEach((numero, fila) -> {
+                if (!insertadas.contains(numero)) {
+                    // Numero emitido antes del asignador; la fila se puede volver a importar
+                    rechazados.add(new RechazoImportacion(fila.linea(), fila.titular(), "Numero de tarjeta en uso"));
+                }
+            });
+            return insertadas.size();
+        });
+        importacion.tarjetasEmitidas(emitidas == null ? 0 : emitidas);
+        rechazados.sort(Comparator.comparingLong(RechazoImportacion::getLinea));
+        for (RechazoImportacion rechazo : rechazados) {
+            rechazar(importacion, rechazos, rechazo);
+        }
+    }
+
+    private static void rechazar(Importacion importacion, BufferedWriter rechazos, RechazoImportacion rechazo) throws IOException {
+        importacion.rechazo(rechazo);
+        rechazos.write(rechazo.getLinea() + "," + campoCsv(rechazo.getTitular()) + "," + campoCsv(rechazo.getMotivo()) + "\n");
+    }
+
+    /**
+     * Separa una linea CSV en campos, con comillas dobles opcionales y "" como comilla escapada.
+     */
+    static List<String> campos(String linea) {
+        List<String> campos = new ArrayList<>(2);
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    actual.append(c);
+                } else if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString().trim());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString().trim());
+        return campos;
+    }
+
+    private static boolean esEncabezado(List<String> campos) {
+        String primero = campos.get(0);
+        return primero.equalsIgnoreCase("firstName") || primero.equalsIgnoreCase("nombre");
+    }
+
+    private static String campoCsv(String valor) {
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private static void borrar(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}", archivo, e);
+        }
+    }
+
+    private record Fila(long linea, String titular) {
+    }
+}
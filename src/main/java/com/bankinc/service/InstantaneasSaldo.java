@@ -0,0 +1,80 @@
+package com.bankinc.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Toma instantaneas del saldo de las tarjetas que acumularon al menos movimientosMinimos desde
+ * la anterior. El saldo sale del libro (instantanea previa mas los movimientos nuevos), no de
+ * tarjeta.balance, y cubre hasta la secuencia que la tarjeta tenia al leerla en la misma
+ * sentencia. Recorre tarjeta por bloques de id; solo inserta.
+ */
+@Component
+public class InstantaneasSaldo {
+
+    private static final Logger log = LoggerFactory.getLogger(InstantaneasSaldo.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int movimientosMinimos;
+    private final int tamanioBloque;
+
+    public InstantaneasSaldo(JdbcTemplate jdbcTemplate,
+                             @Value("${bankinc.libro-mayor.movimientos-por-instantanea:100}") int movimientosMinimos,
+                             @Value("${bankinc.libro-mayor.tamanio-bloque:5000}") int tamanioBloque) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.movimientosMinimos = movimientosMinimos;
+        this.tamanioBloque = tamanioBloque;
+    }
+
+    @Scheduled(cron = "${bankinc.libro-mayor.cron:0 30 2 * * *}")
+    public int tomar() {
+        String ultimo = "";
+        int total = 0;
+        while (true) {
+            Map<String, Object> bloque = jdbcTemplate.queryForMap("""
+                    WITH bloque AS (
+                        SELECT id, secuencia FROM tarjeta
+                        WHERE id > ?
+                        ORDER BY id
+                        LIMIT ?
+                    ), pendientes AS (
+                        SELECT b.id, b.secuencia AS hasta, COALESCE(s.secuencia, 0) AS desde,
+                               COALESCE(s.balance, 0) AS balance
+                        FROM bloque b
+                        LEFT JOIN LATERAL (
+                            SELECT secuencia, balance FROM saldo_instantanea
+                            WHERE id_tarjeta = b.id
+                            ORDER BY secuencia DESC LIMIT 1
+                        ) s ON true
+                        WHERE b.secuencia - COALESCE(s.secuencia, 0) >= ?
+                    ), tomadas AS (
+                        INSERT INTO saldo_instantanea (id_tarjeta, secuencia, balance)
+                        SELECT p.id, max(m.secuencia), p.balance + sum(m.monto)
+                        FROM pendientes p
+                        JOIN movimiento m ON m.id_tarjeta = p.id AND m.secuencia > p.desde AND m.secuencia <= p.hasta
+                        GROUP BY p.id, p.balance
+                        ON CONFLICT (id_tarjeta, secuencia) DO NOTHING
+                        RETURNING 1
+                    )
+                    SELECT (SELECT max(id) FROM bloque) AS ultimo,
+                           (SELECT count(*) FROM bloque) AS leidas,
+                           (SELECT count(*) FROM tomadas) AS tomadas
+                    """, ultimo, tamanioBloque, movimientosMinimos);
+            total += ((Number) bloque.get("tomadas")).intValue();
+            if (((Number) bloque.get("leidas")).intValue() < tamanioBloque) {
+                break;
+            }
+            ultimo = (String) bloque.get("ultimo");
+        }
+        if (total > 0) {
+            log.info("Instantaneas de saldo tomadas: {}", total);
+        }
+        return total;
+    }
+}
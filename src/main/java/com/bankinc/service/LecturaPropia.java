@@ -0,0 +1,85 @@
+package com.bankinc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Lectura de las propias escrituras cuando las consultas van a replicas: las tarjetas mutadas
+ * en los ultimos bankinc.replicas.lectura-propia se leen del primario, y lo que una replica
+ * no encuentra (una tarjeta o transaccion recien creada) se busca otra vez en el primario.
+ * Sin replicas configuradas no hace nada.
+ */
+@Component
+public class LecturaPropia {
+
+    private static final ThreadLocal<Boolean> EN_PRIMARIO = new ThreadLocal<>();
+
+    private final boolean habilitada;
+    private final Cache<String, Boolean> escrituras;
+
+    public LecturaPropia(@Value("${bankinc.replicas.urls:}") List<String> replicas,
+                         @Value("${bankinc.replicas.lectura-propia:10s}") Duration ventana) {
+        this.habilitada = replicas.stream().anyMatch(url -> !url.isBlank());
+        this.escrituras = Caffeine.newBuilder()
+                .maximumSize(1_000_000)
+                .expireAfterWrite(ventana)
+                .build();
+    }
+
+    public static LecturaPropia deshabilitada() {
+        return new LecturaPropia(List.of(), Duration.ofSeconds(10));
+    }
+
+    /**
+     * true mientras el hilo ejecuta una lectura que debe ir al primario.
+     */
+    public static boolean enPrimario() {
+        return EN_PRIMARIO.get() != null;
+    }
+
+    public void escribio(String idTarjeta) {
+        if (habilitada && idTarjeta != null) {
+            escrituras.put(idTarjeta, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Ejecuta la lectura en el primario si la tarjeta se escribio dentro de la ventana.
+     */
+    public <T> T leer(String idTarjeta, Supplier<T> lectura) {
+        if (habilitada && idTarjeta != null && escrituras.getIfPresent(idTarjeta) != null) {
+            return enPrimario(lectura);
+        }
+        return lectura.get();
+    }
+
+    /**
+     * Como leer, pero si la replica no encuentra nada repite la busqueda en el primario.
+     */
+    public <T> Optional<T> buscar(String idTarjeta, Supplier<Optional<T>> lectura) {
+        Optional<T> encontrado = leer(idTarjeta, lectura);
+        if (encontrado.isEmpty() && habilitada && !enPrimario()) {
+            return enPrimario(lectura);
+        }
+        return encontrado;
+    }
+
+    private static <T> T enPrimario(Supplier<T> lectura) {
+        if (enPrimario()) {
+            return lectura.get();
+        }
+        EN_PRIMARIO.set(Boolean.TRUE);
+        try {
+            return lectura.get();
+        } finally {
+            EN_PRIMARIO.remove();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.Movimiento;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.MovimientoRepository;
+import com.bankinc.repository.ReconstruccionSaldo;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Todo cambio de saldo pasa por aqui: {@link #aplicar} avanza la secuencia de la tarjeta y
+ * actualiza balance, su proyeccion; {@link #registrar} inserta el asiento en la misma
+ * transaccion que guarda la tarjeta. Dos escrituras con la misma secuencia chocan con la llave
+ * (id_tarjeta, secuencia) y con la version de la tarjeta.
+ *
+ * La compra individual no pasa por esta clase: su CTE hace lo mismo en una sola sentencia.
+ */
+@Component
+public class LibroMayor {
+
+    private final MovimientoRepository movimientoRepository;
+
+    public LibroMayor(MovimientoRepository movimientoRepository) {
+        this.movimientoRepository = movimientoRepository;
+    }
+
+    /**
+     * Aplica monto (con signo) a la tarjeta y devuelve el asiento pendiente de registrar.
+     * transaccion puede ser null o recibir su id despues, antes de registrar.
+     */
+    public static Asiento aplicar(Tarjeta tarjeta, Movimiento.Tipo tipo, BigDecimal monto,
+                                  Transaccion transaccion, LocalDateTime fecha) {
+        long secuencia = (tarjeta.getSecuencia() == null ? 0 : tarjeta.getSecuencia()) + 1;
+        tarjeta.setSecuencia(secuencia);
+        tarjeta.setBalance(tarjeta.getBalance().add(monto));
+        return new Asiento(tarjeta.getId(), secuencia, tipo, monto, transaccion, fecha);
+    }
+
+    public void registrar(Asiento asiento) {
+        movimientoRepository.registrar(asiento.idTarjeta(), asiento.secuencia(), asiento.tipo().name(),
+                asiento.monto(), asiento.idTransaccion(), asiento.fecha());
+    }
+
+    /**
+     * Asientos de un lote, todos con la misma fecha, en una sola sentencia.
+     */
+    public void registrar(List<Asiento> asientos, LocalDateTime fecha) {
+        if (asientos.isEmpty()) {
+            return;
+        }
+        int filas = asientos.size();
+        String[] tarjetas = new String[filas];
+        Long[] secuencias = new Long[filas];
+        String[] tipos = new String[filas];
+        BigDecimal[] montos = new BigDecimal[filas];
+        Long[] transacciones = new Long[filas];
+        for (int i = 0; i < filas; i++) {
+            Asiento asiento = asientos.get(i);
+            tarjetas[i] = asiento.idTarjeta();
+            secuencias[i] = asiento.secuencia();
+            tipos[i] = asiento.tipo().name();
+            montos[i] = asiento.monto();
+            transacciones[i] = asiento.idTransaccion();
+        }
+        movimientoRepository.registrarTodos(tarjetas, secuencias, tipos, montos, transacciones, fecha);
+    }
+
+    /**
+     * Movimientos de la tarjeta con secuencia mayor a despuesDe, en orden.
+     */
+    public List<Movimiento> movimientos(String idTarjeta, long despuesDe, int limite) {
+        return movimientoRepository.pagina(idTarjeta, despuesDe, Limit.of(limite));
+    }
+
+    public Optional<ReconstruccionSaldo> reconstruir(String idTarjeta) {
+        return movimientoRepository.reconstruir(idTarjeta);
+    }
+
+    public record Asiento(String idTarjeta, long secuencia, Movimiento.Tipo tipo, BigDecimal monto,
+                          Transaccion transaccion, LocalDateTime fecha) {
+
+        Long idTransaccion() {
+            return transaccion == null ? null : transaccion.getId();
+        }
+    }
+}
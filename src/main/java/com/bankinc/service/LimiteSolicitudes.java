@@ -0,0 +1,196 @@
+package com.bankinc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Limite de solicitudes por tarjeta y por cliente de la API, en memoria, delante de los
+ * servicios: una terminal que repite compras sobre una tarjeta se rechaza sin ir a la base.
+ * <p>
+ * Cada clave tiene una cubeta GCRA (el token bucket expresado como el instante teorico de la
+ * proxima llegada): un solo AtomicLong que se avanza con CAS, sin bloqueos. Las cubetas viven
+ * en una cache acotada que descarta las claves sin uso; una cubeta inactiva por mas tiempo del
+ * que tarda en llenarse equivale a una nueva, asi que descartarla no cambia el limite. Con la
+ * cubeta en la cache la verificacion no crea objetos.
+ * <p>
+ * El limite por tarjeta depende del producto (bankinc.limite.productos, "123456=5:10" son 5
+ * por segundo con rafagas de 10); el resto usa bankinc.limite.tarjeta.
+ */
+@Component
+public class LimiteSolicitudes {
+
+    private static final Duration INACTIVIDAD = Duration.ofMinutes(1);
+
+    private final boolean habilitado;
+    private final Limite porTarjeta;
+    private final Limite porCliente;
+    private final Map<String, Limite> porProducto;
+    private final Cache<String, Cubeta> tarjetas;
+    private final Cache<String, Cubeta> clientes;
+    private final Function<String, Cubeta> nuevaTarjeta;
+    private final Function<String, Cubeta> nuevoCliente;
+    private final Counter rechazosTarjeta;
+    private final Counter rechazosCliente;
+
+    public LimiteSolicitudes(@Value("${bankinc.limite.habilitado:true}") boolean habilitado,
+                             @Value("${bankinc.limite.tarjeta.por-segundo:20}") double tarjetaPorSegundo,
+                             @Value("${bankinc.limite.tarjeta.rafaga:40}") int tarjetaRafaga,
+                             @Value("${bankinc.limite.productos:}") List<String> productos,
+                             @Value("${bankinc.limite.cliente.por-segundo:1000}") double clientePorSegundo,
+                             @Value("${bankinc.limite.cliente.rafaga:2000}") int clienteRafaga,
+                             @Value("${bankinc.limite.tamanio-maximo:100000}") long tamanioMaximo,
+                             MeterRegistry meterRegistry) {
+        this.habilitado = habilitado;
+        this.porTarjeta = new Limite(tarjetaPorSegundo, tarjetaRafaga);
+        this.porCliente = new Limite(clientePorSegundo, clienteRafaga);
+        this.porProducto = productos(productos);
+        this.tarjetas = cubetas(tamanioMaximo);
+        this.clientes = cubetas(tamanioMaximo);
+        this.nuevaTarjeta = id -> new Cubeta(limiteTarjeta(id));
+        this.nuevoCliente = cliente -> new Cubeta(porCliente);
+        this.rechazosTarjeta = rechazos(meterRegistry, "tarjeta");
+        this.rechazosCliente = rechazos(meterRegistry, "cliente");
+    }
+
+    /**
+     * Sin limites, para pruebas unitarias de los controladores.
+     */
+    public static LimiteSolicitudes deshabilitado() {
+        return new LimiteSolicitudes(false, 1, 1, List.of(), 1, 1, 1, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Nanosegundos hasta que la tarjeta pueda hacer otra solicitud; 0 si esta se acepta.
+     */
+    public long esperaTarjeta(String idTarjeta) {
+        return esperaTarjeta(idTarjeta, System.nanoTime());
+    }
+
+    /**
+     * Nanosegundos hasta que el cliente pueda hacer otra solicitud; 0 si esta se acepta.
+     */
+    public long esperaCliente(String cliente) {
+        return esperaCliente(cliente, System.nanoTime());
+    }
+
+    long esperaTarjeta(String idTarjeta, long ahora) {
+        if (!habilitado || idTarjeta == null) {
+            return 0;
+        }
+        return registrar(cubeta(tarjetas, idTarjeta, nuevaTarjeta).tomar(ahora), rechazosTarjeta);
+    }
+
+    long esperaCliente(String cliente, long ahora) {
+        if (!habilitado || cliente == null) {
+            return 0;
+        }
+        return registrar(cubeta(clientes, cliente, nuevoCliente).tomar(ahora), rechazosCliente);
+    }
+
+    /**
+     * Segundos enteros para Retry-After, redondeados hacia arriba.
+     */
+    public static long segundos(long esperaNanos) {
+        return Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Cubeta cubeta(Cache<String, Cubeta> cubetas, String clave, Function<String, Cubeta> nueva) {
+        Cubeta cubeta = cubetas.getIfPresent(clave);
+        return cubeta != null ? cubeta : cubetas.get(clave, nueva);
+    }
+
+    private static long registrar(long espera, Counter rechazos) {
+        if (espera > 0) {
+            rechazos.increment();
+        }
+        return espera;
+    }
+
+    private Limite limiteTarjeta(String idTarjeta) {
+        if (porProducto.isEmpty() || idTarjeta.length() < 6) {
+            return porTarjeta;
+        }
+        return porProducto.getOrDefault(idTarjeta.substring(0, 6), porTarjeta);
+    }
+
+    private static Map<String, Limite> productos(List<String> productos) {
+        Map<String, Limite> limites = new HashMap<>();
+        for (String producto : productos) {
+            if (producto.isBlank()) {
+                continue;
+            }
+            String[] partes = producto.trim().split("[=:]");
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Limite de producto invalido (producto=porSegundo:rafaga): " + producto);
+            }
+            limites.put(partes[0], new Limite(Double.parseDouble(partes[1]), Integer.parseInt(partes[2])));
+        }
+        return Map.copyOf(limites);
+    }
+
+    private static Cache<String, Cubeta> cubetas(long tamanioMaximo) {
+        return Caffeine.newBuilder()
+                .maximumSize(tamanioMaximo)
+                .expireAfterAccess(INACTIVIDAD)
+                .build();
+    }
+
+    private static Counter rechazos(MeterRegistry meterRegistry, String clave) {
+        return Counter.builder("bankinc.limite.rechazos")
+                .description("Solicitudes rechazadas por limite (HTTP 429)")
+                .tag("clave", clave)
+                .register(meterRegistry);
+    }
+
+    /**
+     * intervalo: nanosegundos entre solicitudes a la tasa sostenida; tolerancia: cuanto puede
+     * adelantarse el instante teorico, (rafaga - 1) intervalos.
+     */
+    record Limite(long intervalo, long tolerancia) {
+
+        Limite(double porSegundo, int rafaga) {
+            this(Math.round(TimeUnit.SECONDS.toNanos(1) / porSegundo),
+                    Math.round(TimeUnit.SECONDS.toNanos(1) / porSegundo) * (Math.max(rafaga, 1) - 1));
+        }
+    }
+
+    /**
+     * El valor es el instante teorico de la proxima llegada (nanoTime).
+     */
+    static final class Cubeta extends AtomicLong {
+
+        private final Limite limite;
+
+        Cubeta(Limite limite) {
+            super(Long.MIN_VALUE);
+            this.limite = limite;
+        }
+
+        long tomar(long ahora) {
+            while (true) {
+                long teorico = get();
+                long base = Math.max(teorico, ahora);
+                long espera = base - ahora - limite.tolerancia();
+                if (espera > 0) {
+                    return espera;
+                }
+                if (compareAndSet(teorico, base + limite.intervalo())) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.bankinc.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mantiene creadas por adelantado las particiones mensuales de transaccion, para que las
+ * compras nuevas no caigan en la particion por defecto. Todas las instancias lo corren; la
+ * funcion toma un candado de asesoramiento, asi que las llamadas simultaneas van de a una.
+ */
+@Component
+public class MantenimientoParticiones {
+
+    private static final Logger log = LoggerFactory.getLogger(MantenimientoParticiones.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelante;
+
+    public MantenimientoParticiones(JdbcTemplate jdbcTemplate,
+                                    @Value("${bankinc.particiones.meses-adelante:3}") int mesesAdelante) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelante = mesesAdelante;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${bankinc.particiones.cron:0 0 3 * * *}")
+    public void crearParticiones() {
+        Integer creadas = jdbcTemplate.queryForObject(
+                "SELECT crear_particiones_transaccion(current_date, (current_date + make_interval(months => ?))::date)",
+                Integer.class, mesesAdelante);
+        if (creadas != null && creadas > 0) {
+            log.info("Particiones de transaccion creadas: {}", creadas);
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Motor en memoria para las tarjetas de los productos en bankinc.motor.productos. El saldo, la
+ * secuencia y el estado viven en {@link TablaTarjetasMemoria}; cada mutacion se escribe primero
+ * en el {@link DiarioEscritura} y despues se aplica a la tabla, con la franja de la tarjeta
+ * tomada. La respuesta sale cuando el diario confirma lo escrito (commit en grupo). Un hilo
+ * vuelca lo confirmado a las tablas de siempre ({@link VolcadoMotor}); las lecturas que van a
+ * la base (historial, libro, gasto) ven las mutaciones con ese retraso.
+ *
+ * Al arrancar carga las tarjetas de los productos y las transacciones de la ventana de
+ * anulacion, y reproduce el diario posterior al checkpoint. Supone una sola instancia escribiendo
+ * las tarjetas de esos productos. Sin productos configurados no hace nada y gestiona() es false.
+ */
+@Component
+public class MotorMemoria implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorMemoria.class);
+
+    /**
+     * INCREMENT BY de transaccion_seq: cada nextval es el tope de un bloque, como en Hibernate.
+     */
+    static final int INCREMENTO_SECUENCIA = 50;
+    private static final int BLOQUES_POR_RESERVA = 20;
+    private static final int TARJETAS_POR_CARGA = 10_000;
+    private static final Duration RETENCION_RECIENTES = Duration.ofHours(ReglasTarjeta.HORAS_PARA_ANULAR + 1);
+
+    private final Set<String> productos;
+    private final String nombre;
+    private final Path directorio;
+    private final long tamanioSegmento;
+    private final boolean forzarDisco;
+    private final long intervaloMs;
+    private final int lote;
+    private final JdbcTemplate jdbcTemplate;
+    private final SerializadorTarjetas serializador;
+    private final VolcadoMotor volcado;
+    private final Timer espera;
+    private final Timer tiempoVolcado;
+
+    private final TablaTarjetasMemoria tabla = new TablaTarjetasMemoria(1024);
+    private final Map<Long, Reciente> recientes = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> pendiente = ThreadLocal.withInitial(() -> new long[1]);
+    private final ConcurrentLinkedDeque<Long> bloquesIds = new ConcurrentLinkedDeque<>();
+    private final ReentrantLock cambioBloqueIds = new ReentrantLock();
+    private volatile BloqueIds bloqueIds = new BloqueIds(1, 0);
+
+    private volatile DiarioEscritura diario;
+    private volatile boolean corriendo;
+    private volatile long volcadoHasta;
+    private Thread hiloVolcado;
+
+    public MotorMemoria(@Value("${bankinc.motor.productos:}") List<String> productos,
+                        @Value("${bankinc.motor.nombre:principal}") String nombre,
+                        @Value("${bankinc.motor.directorio:./diario}") String directorio,
+                        @Value("${bankinc.motor.tamanio-segmento:64MB}") DataSize tamanioSegmento,
+                        @Value("${bankinc.motor.forzar-disco:true}") boolean forzarDisco,
+                        @Value("${bankinc.motor.volcado.intervalo:20ms}") Duration intervalo,
+                        @Value("${bankinc.motor.volcado.lote:5000}") int lote,
+                        JdbcTemplate jdbcTemplate,
+                        TransactionOperations transacciones,
+                        SerializadorTarjetas serializador,
+                        MeterRegistry meterRegistry) {
+        this.productos = productos.stream().map(String::trim).filter(p -> !p.isEmpty()).collect(Collectors.toSet());
+        this.nombre = nombre;
+        this.directorio = Path.of(directorio);
+        this.tamanioSegmento = tamanioSegmento.toBytes();
+        this.forzarDisco = forzarDisco;
+        this.intervaloMs = Math.max(1, intervalo.toMillis());
+        this.lote = lote;
+        this.jdbcTemplate = jdbcTemplate;
+        this.serializador = serializador;
+        this.volcado = new VolcadoMotor(jdbcTemplate, transacciones, nombre);
+        this.espera = Timer.builder("bankinc.motor.espera")
+                .description("Espera del commit en grupo del diario")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.tiempoVolcado = Timer.builder("bankinc.motor.volcado")
+                .description("Volcado de un tramo del diario a la base")
+                .register(meterRegistry);
+        Gauge.builder("bankinc.motor.pendientes", this, MotorMemoria::pendientes)
+                .description("Registros del diario confirmados y aun no volcados")
+                .register(meterRegistry);
+        Gauge.builder("bankinc.motor.tarjetas", tabla, TablaTarjetasMemoria::tamanio)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Motor sin productos, para armar los servicios fuera de Spring.
+     */
+    public static MotorMemoria deshabilitado() {
+        return new MotorMemoria(List.of(), "principal", "./diario", DataSize.ofMegabytes(64), false,
+                Duration.ofMillis(20), 5000, null, null, null, new SimpleMeterRegistry());
+    }
+
+    public boolean habilitado() {
+        return !productos.isEmpty();
+    }
+
+    public boolean gestionaProducto(String idProducto) {
+        return productos.contains(idProducto);
+    }
+
+    public boolean gestiona(String idTarjeta) {
+        return habilitado() && tabla.contiene(TablaTarjetasMemoria.clave(idTarjeta));
+    }
+
+    /**
+     * Suma una tarjeta recien emitida (ya insertada en la base) al motor.
+     */
+    public void registrar(Tarjeta tarjeta) {
+        if (habilitado() && gestionaProducto(tarjeta.getIdProducto())) {
+            tabla.poner(tarjeta);
+        }
+    }
+
+    /**
+     * Copia del estado actual de la tarjeta; modificarla no cambia el motor.
+     */
+    public Optional<Tarjeta> tarjeta(String idTarjeta) {
+        return Optional.ofNullable(tabla.leer(TablaTarjetasMemoria.clave(idTarjeta)));
+    }
+
+    /**
+     * Ejecuta la mutacion con la franja de la tarjeta tomada y espera, ya sin la franja, a que
+     * el diario confirme lo que escribio.
+     */
+    public <T> T ejecutar(String idTarjeta, Supplier<T> mutacion) {
+        T resultado = ejecutarSinConfirmar(idTarjeta, mutacion);
+        confirmar();
+        return resultado;
+    }
+
+    /**
+     * Para varias mutaciones seguidas del mismo hilo: se confirma una sola vez al final con
+     * {@link #confirmar()}.
+     */
+    public <T> T ejecutarSinConfirmar(String idTarjeta, Supplier<T> mutacion) {
+        return serializador.ejecutar(idTarjeta, mutacion);
+    }
+
+    /**
+     * Espera a que lo escrito por este hilo quede confirmado en el diario.
+     */
+    public void confirmar() {
+        long[] hasta = pendiente.get();
+        if (hasta[0] == 0) {
+            return;
+        }
+        long posicion = hasta[0];
+        hasta[0] = 0;
+        long inicio = System.nanoTime();
+        diario.esperar(posicion);
+        espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Debita la compra de la tarjeta (ya validada por el servicio, con su franja tomada) y
+     * devuelve la transaccion con su id.
+     */
+    public Transaccion debitar(Tarjeta tarjeta, BigDecimal monto) {
+        LocalDateTime fecha = ahora();
+        long centavos = TablaTarjetasMemoria.centavos(monto);
+        long id = siguienteId();
+        escribir(tarjeta, RegistroDiario.Tipo.COMPRA, -centavos, id, fecha, 0);
+        recientes.put(id, new Reciente(TablaTarjetasMemoria.clave(tarjeta.getId()), centavos, fecha, false));
+        return Transaccion.builder()
+                .id(id)
+                .idTarjeta(tarjeta.getId())
+                .monto(TablaTarjetasMemoria.monto(centavos))
+                .fechaTransaccion(fecha)
+                .anulada(false)
+                .build();
+    }
+
+    public void acreditar(Tarjeta tarjeta, BigDecimal monto) {
+        escribir(tarjeta, RegistroDiario.Tipo.RECARGA, TablaTarjetasMemoria.centavos(monto), 0, ahora(), 0);
+    }
+
+    /**
+     * Devuelve el monto de la transaccion a la tarjeta y la marca anulada.
+     */
+    public void anular(Tarjeta tarjeta, Transaccion transaccion) {
+        long centavos = TablaTarjetasMemoria.centavos(transaccion.getMonto());
+        escribir(tarjeta, RegistroDiario.Tipo.ANULACION, centavos, transaccion.getId(), ahora(),
+                RegistroDiario.micros(transaccion.getFechaTransaccion()));
+        recientes.computeIfPresent(transaccion.getId(), (id, r) -> r.comoAnulada());
+        transaccion.setAnulada(true);
+    }
+
+    /**
+     * Guarda activa/bloqueada de la tarjeta.
+     */
+    public void guardarEstado(Tarjeta tarjeta) {
+        escribir(tarjeta, RegistroDiario.Tipo.ESTADO, 0, 0, ahora(), 0);
+    }
+
+    /**
+     * Transaccion de la tarjeta dentro de la ventana de anulacion (las anteriores solo estan en
+     * la base).
+     */
+    public Optional<Transaccion> transaccion(String idTarjeta, Long idTransaccion) {
+        Reciente reciente = idTransaccion == null ? null : recientes.get(idTransaccion);
+        if (reciente == null || reciente.tarjeta() != TablaTarjetasMemoria.clave(idTarjeta)) {
+            return Optional.empty();
+        }
+        return Optional.of(Transaccion.builder()
+                .id(idTransaccion)
+                .idTarjeta(idTarjeta)
+                .monto(TablaTarjetasMemoria.monto(reciente.monto()))
+                .fechaTransaccion(reciente.fecha())
+                .anulada(reciente.anulada())
+                .build());
+    }
+
+    /**
+     * Escribe el registro con el estado posterior de la tarjeta y solo despues lo aplica: si el
+     * diario falla, ni la tabla ni la copia del servicio cambian.
+     */
+    private void escribir(Tarjeta tarjeta, RegistroDiario.Tipo tipo, long centavos, long idTransaccion,
+                          LocalDateTime fecha, long fechaTransaccion) {
+        long clave = TablaTarjetasMemoria.clave(tarjeta.getId());
+        long saldo = TablaTarjetasMemoria.centavos(tarjeta.getBalance()) + centavos;
+        long secuencia = tipo == RegistroDiario.Tipo.ESTADO ? tarjeta.getSecuencia() : tarjeta.getSecuencia() + 1;
+        RegistroDiario registro = new RegistroDiario(tipo, TablaTarjetasMemoria.estado(tarjeta), clave,
+                Math.abs(centavos), saldo, secuencia, idTransaccion, RegistroDiario.micros(fecha), fechaTransaccion);
+        long[] hasta = pendiente.get();
+        hasta[0] = Math.max(hasta[0], diario.agregar(registro));
+        tabla.aplicar(registro);
+        tarjeta.setBalance(TablaTarjetasMemoria.monto(saldo));
+        tarjeta.setSecuencia(secuencia);
+    }
+
+    @Override
+    public void start() {
+        if (!habilitado()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        long checkpoint = volcado.checkpoint();
+        cargarTarjetas();
+        cargarRecientes();
+        int[] reproducidos = new int[1];
+        diario = DiarioEscritura.abrir(directorio, tamanioSegmento, forzarDisco, checkpoint, registro -> {
+            reproducir(registro);
+            reproducidos[0]++;
+        });
+        volcadoHasta = checkpoint;
+        reservarIds();
+        corriendo = true;
+        hiloVolcado = new Thread(this::volcarContinuamente, "motor-volcado-" + nombre);
+        hiloVolcado.setDaemon(true);
+        hiloVolcado.start();
+        log.info("Motor en memoria {}: {} tarjetas de {}, {} registros del diario reproducidos en {} ms",
+                nombre, tabla.tamanio(), productos, reproducidos[0],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    @Override
+    public void stop() {
+        if (!corriendo) {
+            return;
+        }
+        corriendo = false;
+        hiloVolcado.interrupt();
+        try {
+            hiloVolcado.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            volcarPendiente();
+        } catch (RuntimeException e) {
+            log.warn("Motor en memoria {}: lo pendiente se volcara al reiniciar", nombre, e);
+        }
+        diario.close();
+    }
+
+    /**
+     * Corta el volcado sin bajar nada a la base ni cerrar el diario, como una caida del
+     * proceso. Para las pruebas de recuperacion.
+     */
+    void detenerSinVolcar() throws InterruptedException {
+        corriendo = false;
+        hiloVolcado.interrupt();
+        hiloVolcado.join();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return corriendo;
+    }
+
+    /**
+     * Antes que el servidor web (y se detiene despues): no entran peticiones sin el diario
+     * recuperado.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Vuelca todo lo confirmado hasta ahora. Devuelve los registros volcados.
+     */
+    long volcarPendiente() {
+        long total = 0;
+        while (true) {
+            long desde = volcadoHasta;
+            long hasta = Math.min(diario.durable(), desde + (long) lote * RegistroDiario.TAMANIO);
+            if (hasta <= desde) {
+                return total;
+            }
+            List<RegistroDiario> registros = diario.leer(desde, hasta, lote);
+            long inicio = System.nanoTime();
+            volcadoHasta = volcado.volcar(registros, desde, hasta);
+            tiempoVolcado.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            diario.liberarHasta(volcadoHasta);
+            total += registros.size();
+        }
+    }
+
+    private void volcarContinuamente() {
+        long proximaPoda = System.currentTimeMillis();
+        int fallas = 0;
+        while (corriendo) {
+            try {
+                if (volcarPendiente() == 0) {
+                    Thread.sleep(intervaloMs);
+                }
+                reponerIds();
+                if (System.currentTimeMillis() >= proximaPoda) {
+                    podarRecientes();
+                    proximaPoda = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+                }
+                fallas = 0;
+            } catch (InterruptedException e) {
+                if (corriendo) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            } catch (RuntimeException e) {
+                fallas++;
+                log.warn("Motor en memoria {}: fallo el volcado a la base (intento {})", nombre, fallas, e);
+                try {
+                    Thread.sleep(Math.min(intervaloMs << Math.min(fallas, 10), TimeUnit.SECONDS.toMillis(5)));
+                } catch (InterruptedException interrumpido) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void cargarTarjetas() {
+        String[] lista = productos.toArray(String[]::new);
+        String ultimo = "";
+        while (true) {
+            String desde = ultimo;
+            List<Tarjeta> bloque = jdbcTemplate.query(con -> {
+                var ps = con.prepareStatement("""
+                        SELECT id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada, balance,
+                               secuencia
+                        FROM tarjeta
+                        WHERE id_producto = ANY (?) AND id > ?
+                        ORDER BY id
+                        LIMIT ?
+                        """);
+                ps.setArray(1, con.createArrayOf("varchar", lista));
+                ps.setString(2, desde);
+                ps.setInt(3, TARJETAS_POR_CARGA);
+                return ps;
+            }, (rs, fila) -> Tarjeta.builder()
+                    .id(rs.getString("id"))
+                    .idProducto(rs.getString("id_producto"))
+                    .nombreTitular(rs.getString("nombre_titular"))
+                    .fechaExpiracion(rs.getObject("mes_expiracion") == null ? null
+                            : MesExpiracionConverter.desdeMes(rs.getInt("mes_expiracion")))
+                    .expirada(rs.getBoolean("expirada"))
+                    .activa(rs.getBoolean("activa"))
+                    .bloqueada(rs.getBoolean("bloqueada"))
+                    .balance(rs.getBigDecimal("balance"))
+                    .secuencia(rs.getLong("secuencia"))
+                    .build());
+            for (Tarjeta tarjeta : bloque) {
+                // Ids que no son 16 digitos siguen por el camino de la base
+                if (TablaTarjetasMemoria.clave(tarjeta.getId()) >= 0) {
+                    tabla.poner(tarjeta);
+                }
+            }
+            if (bloque.size() < TARJETAS_POR_CARGA) {
+                return;
+            }
+            ultimo = bloque.get(bloque.size() - 1).getId();
+        }
+    }
+
+    private void cargarRecientes() {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT t.id, t.id_tarjeta, t.monto, t.fecha_transaccion, t.anulada
+                    FROM transaccion t JOIN tarjeta c ON c.id = t.id_tarjeta
+                    WHERE c.id_producto = ANY (?) AND t.fecha_transaccion >= ?
+                    """);
+            ps.setArray(1, con.createArrayOf("varchar", productos.toArray()));
+            ps.setObject(2, LocalDateTime.now().minus(RETENCION_RECIENTES));
+            return ps;
+        }, rs -> {
+            long clave = TablaTarjetasMemoria.clave(rs.getString("id_tarjeta"));
+            if (clave >= 0) {
+                recientes.put(rs.getLong("id"), new Reciente(clave,
+                        TablaTarjetasMemoria.centavos(rs.getBigDecimal("monto")),
+                        rs.getObject("fecha_transaccion", LocalDateTime.class), rs.getBoolean("anulada")));
+            }
+        });
+    }
+
+    /**
+     * Registros del diario posteriores al checkpoint: la tabla queda en el estado que traen y
+     * las compras y anulaciones vuelven al indice de recientes. Los de tarjetas que ya no estan
+     * en el motor igual se vuelcan.
+     */
+    private void reproducir(RegistroDiario registro) {
+        tabla.aplicar(registro);
+        if (registro.tipo() == RegistroDiario.Tipo.COMPRA) {
+            recientes.put(registro.idTransaccion(), new Reciente(registro.tarjeta(), registro.monto(),
+                    RegistroDiario.fecha(registro.fecha()), false));
+        } else if (registro.tipo() == RegistroDiario.Tipo.ANULACION) {
+            recientes.computeIfPresent(registro.idTransaccion(), (id, r) -> r.comoAnulada());
+        }
+    }
+
+    private void podarRecientes() {
+        LocalDateTime limite = LocalDateTime.now().minus(RETENCION_RECIENTES);
+        recientes.values().removeIf(r -> r.fecha().isBefore(limite));
+    }
+
+    /**
+     * Ids de transaccion de los bloques de transaccion_seq reservados por adelantado, sin
+     * candado: el candado solo se toma para pasar al bloque siguiente. Las compras nunca van a
+     * la base por ids; los repone el hilo de volcado y, si se agotaron (la base no responde),
+     * la compra falla en vez de esperar.
+     */
+    long siguienteId() {
+        while (true) {
+            BloqueIds actual = bloqueIds;
+            long id = actual.cursor.getAndIncrement();
+            if (id <= actual.tope) {
+                return id;
+            }
+            cambiarBloqueIds(actual);
+        }
+    }
+
+    private void cambiarBloqueIds(BloqueIds agotado) {
+        cambioBloqueIds.lock();
+        try {
+            if (bloqueIds != agotado) {
+                return;
+            }
+            Long tope = bloquesIds.pollFirst();
+            if (tope == null) {
+                throw new IllegalStateException("Motor en memoria " + nombre + ": sin ids de transaccion reservados");
+            }
+            bloqueIds = new BloqueIds(tope - INCREMENTO_SECUENCIA + 1, tope);
+        } finally {
+            cambioBloqueIds.unlock();
+        }
+    }
+
+    private void reponerIds() {
+        if (bloquesIds.size() < BLOQUES_POR_RESERVA / 2) {
+            reservarIds();
+        }
+    }
+
+    private void reservarIds() {
+        bloquesIds.addAll(jdbcTemplate.queryForList(
+                "SELECT nextval('transaccion_seq') FROM generate_series(1, ?)", Long.class, BLOQUES_POR_RESERVA));
+    }
+
+    private long pendientes() {
+        DiarioEscritura actual = diario;
+        return actual == null ? 0 : (actual.durable() - volcadoHasta) / RegistroDiario.TAMANIO;
+    }
+
+    /**
+     * Micros como la columna timestamp: la fecha de la respuesta es la que queda en la base.
+     */
+    private static LocalDateTime ahora() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static final class BloqueIds {
+
+        private final AtomicLong cursor;
+        private final long tope;
+
+        BloqueIds(long inicio, long tope) {
+            this.cursor = new AtomicLong(inicio);
+            this.tope = tope;
+        }
+    }
+
+    private record Reciente(long tarjeta, long monto, LocalDateTime fecha, boolean anulada) {
+        Reciente comoAnulada() {
+            return new Reciente(tarjeta, monto, fecha, true);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.bankinc.service;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Registro de largo fijo del diario del motor en memoria. Lleva el estado de la tarjeta despues
+ * de la mutacion (saldo, secuencia, estado), asi reproducirlo es idempotente y el volcado no
+ * necesita el estado anterior. Montos en centavos; fechas en microsegundos de la hora local.
+ *
+ * <pre>
+ *  0 crc32c de los bytes 4..63   4 tipo   5 estado   6 (libre)
+ *  8 tarjeta  16 monto  24 saldo  32 secuencia  40 idTransaccion  48 fecha  56 fechaTransaccion
+ * </pre>
+ */
+record RegistroDiario(Tipo tipo, byte estado, long tarjeta, long monto, long saldo, long secuencia,
+                      long idTransaccion, long fecha, long fechaTransaccion) {
+
+    static final int TAMANIO = 64;
+
+    static final byte ACTIVA = 1;
+    static final byte BLOQUEADA = 2;
+    static final byte EXPIRADA = 4;
+
+    enum Tipo {
+        COMPRA, RECARGA, ANULACION, ESTADO;
+
+        /**
+         * 0 queda para el espacio sin escribir del segmento.
+         */
+        byte codigo() {
+            return (byte) (ordinal() + 1);
+        }
+
+        static Tipo desde(byte codigo) {
+            return codigo >= 1 && codigo <= values().length ? values()[codigo - 1] : null;
+        }
+    }
+
+    void escribir(ByteBuffer destino) {
+        destino.put(4, tipo.codigo());
+        destino.put(5, estado);
+        destino.putShort(6, (short) 0);
+        destino.putLong(8, tarjeta);
+        destino.putLong(16, monto);
+        destino.putLong(24, saldo);
+        destino.putLong(32, secuencia);
+        destino.putLong(40, idTransaccion);
+        destino.putLong(48, fecha);
+        destino.putLong(56, fechaTransaccion);
+    }
+
+    /**
+     * null si en la posicion no hay un registro completo (fin del diario o escritura cortada).
+     */
+    static RegistroDiario leer(ByteBuffer origen, int posicion, java.util.zip.CRC32C crc) {
+        Tipo tipo = Tipo.desde(origen.get(posicion + 4));
+        if (tipo == null) {
+            return null;
+        }
+        crc.reset();
+        crc.update(origen.slice(posicion + 4, TAMANIO - 4));
+        if ((int) crc.getValue() != origen.getInt(posicion)) {
+            return null;
+        }
+        return new RegistroDiario(tipo, origen.get(posicion + 5), origen.getLong(posicion + 8),
+                origen.getLong(posicion + 16), origen.getLong(posicion + 24), origen.getLong(posicion + 32),
+                origen.getLong(posicion + 40), origen.getLong(posicion + 48), origen.getLong(posicion + 56));
+    }
+
+    boolean activa() {
+        return (estado & ACTIVA) != 0;
+    }
+
+    boolean bloqueada() {
+        return (estado & BLOQUEADA) != 0;
+    }
+
+    static long micros(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + fecha.getNano() / 1_000;
+    }
+
+    static LocalDateTime fecha(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
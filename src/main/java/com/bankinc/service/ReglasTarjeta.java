@@ -0,0 +1,99 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Reglas de las operaciones sobre una tarjeta ya leida, sin acceso a datos: cada metodo
+ * devuelve el mensaje del primer rechazo, en el orden en que se informa, o null. Las comparten
+ * los servicios (JPA y motor en memoria) y el modulo reactivo (reactivo/).
+ */
+public final class ReglasTarjeta {
+
+    public static final int HORAS_PARA_ANULAR = 24;
+
+    private ReglasTarjeta() {
+    }
+
+    /**
+     * Reglas de estado que se pueden evaluar con la tarjeta en memoria, sin tocar la base.
+     */
+    public static String rechazoPorEstado(Tarjeta tarjeta, RelojMes reloj) {
+        if (tarjeta.getBloqueada()) {
+            return "Tarjeta bloqueada";
+        } else if (!tarjeta.getActiva()) {
+            return "Tarjeta no activa";
+        } else if (tarjeta.getExpirada() || reloj.vencida(tarjeta.getFechaExpiracion())) {
+            return "Tarjeta expirada";
+        }
+        return null;
+    }
+
+    public static String rechazoCompra(Tarjeta tarjeta, BigDecimal precio, RelojMes reloj) {
+        String rechazo = rechazoPorEstado(tarjeta, reloj);
+        if (rechazo != null) {
+            return rechazo;
+        } else if (precio == null || precio.compareTo(BigDecimal.ZERO) <= 0) {
+            return "El monto de la transaccion debe ser mayor a cero";
+        } else if (tarjeta.getBalance().compareTo(precio) < 0) {
+            return "Fondos insuficientes";
+        }
+        return null;
+    }
+
+    public static String rechazoRecarga(Tarjeta tarjeta, BigDecimal monto) {
+        if (monto == null || monto.compareTo(BigDecimal.ZERO) <= 0) {
+            return "El monto debe ser mayor a cero";
+        }
+        return rechazoConsulta(tarjeta);
+    }
+
+    /**
+     * Consultar el saldo exige la tarjeta activa y sin bloquear, igual que recargarla.
+     */
+    public static String rechazoConsulta(Tarjeta tarjeta) {
+        return rechazoConsulta(tarjeta.getActiva(), tarjeta.getBloqueada());
+    }
+
+    public static String rechazoConsulta(SaldoTarjeta saldo) {
+        return rechazoConsulta(saldo.getActiva(), saldo.getBloqueada());
+    }
+
+    private static String rechazoConsulta(Boolean activa, Boolean bloqueada) {
+        if (bloqueada) {
+            return "La tarjeta está bloqueada";
+        } else if (!activa) {
+            return "La tarjeta no está activa";
+        }
+        return null;
+    }
+
+    public static String rechazoActivacion(Tarjeta tarjeta) {
+        return tarjeta.getActiva() ? "La tarjeta ya está activa" : null;
+    }
+
+    public static String rechazoBloqueo(Tarjeta tarjeta) {
+        return tarjeta.getBloqueada() ? "La tarjeta ya está bloqueada" : null;
+    }
+
+    public static String rechazoAnulacion(Tarjeta tarjeta) {
+        return tarjeta.getBloqueada() ? "Tarjeta bloqueada" : null;
+    }
+
+    public static String rechazoAnulacion(Transaccion transaccion, LocalDateTime ahora) {
+        if (transaccion.getAnulada()) {
+            return "Transaccion ya anulada";
+        } else if (caducada(transaccion.getFechaTransaccion(), ahora)) {
+            return "Transaccion caducada para anular";
+        }
+        return null;
+    }
+
+    public static boolean caducada(LocalDateTime fechaTransaccion, LocalDateTime ahora) {
+        return ahora.isAfter(fechaTransaccion.plusHours(HORAS_PARA_ANULAR));
+    }
+}
@@ -0,0 +1,99 @@
+package com.bankinc.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una mutacion de tarjeta en su propia transaccion y la repite ante conflictos de
+ * concurrencia (version optimista, deadlock), con espera exponencial aleatoria y un maximo
+ * de intentos. Los reintentos y los abandonos se cuentan por producto de la tarjeta.
+ */
+@Component
+public class ReintentoOptimista {
+
+    private final TransactionOperations transacciones;
+    private final MeterRegistry meterRegistry;
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+    private final long esperaMaxMs;
+
+    public ReintentoOptimista(TransactionOperations transacciones,
+                              MeterRegistry meterRegistry,
+                              @Value("${bankinc.reintentos.max-intentos:5}") int maxIntentos,
+                              @Value("${bankinc.reintentos.espera-base-ms:5}") long esperaBaseMs,
+                              @Value("${bankinc.reintentos.espera-max-ms:200}") long esperaMaxMs) {
+        if (maxIntentos < 1) {
+            throw new IllegalArgumentException("bankinc.reintentos.max-intentos debe ser al menos 1");
+        }
+        this.transacciones = transacciones;
+        this.meterRegistry = meterRegistry;
+        this.maxIntentos = maxIntentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaxMs = esperaMaxMs;
+    }
+
+    public <T> T ejecutar(String tarjetaId, Supplier<T> accion) {
+        return ejecutar(tarjetaId, accion, () -> { });
+    }
+
+    /**
+     * Igual que {@link #ejecutar(String, Supplier)}, invocando alConflicto antes de cada reintento
+     * (por ejemplo para descartar estado cacheado que provoco el conflicto).
+     */
+    public <T> T ejecutar(String tarjetaId, Supplier<T> accion, Runnable alConflicto) {
+        return ejecutar(tarjetaId, Supplier::get, accion, alConflicto);
+    }
+
+    /**
+     * Cada intento corre dentro de exclusion (la franja de la tarjeta, por ejemplo), que se toma y
+     * se suelta por intento: la espera entre intentos queda afuera, asi las demas mutaciones de la
+     * franja no esperan a que termine el backoff. alConflicto corre todavia dentro de exclusion.
+     */
+    public <T> T ejecutar(String tarjetaId, Function<Supplier<T>, T> exclusion,
+                          Supplier<T> accion, Runnable alConflicto) {
+        Supplier<T> intento = () -> {
+            try {
+                return transacciones.execute(estado -> accion.get());
+            } catch (ConcurrencyFailureException e) {
+                alConflicto.run();
+                throw e;
+            }
+        };
+        for (int numero = 1; ; numero++) {
+            try {
+                return exclusion.apply(intento);
+            } catch (ConcurrencyFailureException e) {
+                if (numero >= maxIntentos) {
+                    meterRegistry.counter("bankinc.concurrencia.agotados", "producto", producto(tarjetaId)).increment();
+                    throw e;
+                }
+                meterRegistry.counter("bankinc.concurrencia.reintentos", "producto", producto(tarjetaId)).increment();
+                esperar(numero, e);
+            }
+        }
+    }
+
+    private void esperar(int intento, ConcurrencyFailureException causa) {
+        long tope = Math.min(esperaMaxMs, esperaBaseMs << Math.min(intento - 1, 20));
+        if (tope <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw causa;
+        }
+    }
+
+    static String producto(String tarjetaId) {
+        return tarjetaId != null && tarjetaId.length() >= 6 ? tarjetaId.substring(0, 6) : "desconocido";
+    }
+}
@@ -0,0 +1,54 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.MesExpiracionConverter;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+
+/**
+ * Mes en curso como mes desde epoch, recalculado solo cuando el reloj cruza al mes siguiente.
+ * Consultarlo cuesta una lectura del reloj y una comparacion, sin crear objetos.
+ */
+@Component
+public class RelojMes {
+
+    private final Clock reloj;
+    private volatile Mes actual;
+
+    public RelojMes() {
+        this(Clock.systemDefaultZone());
+    }
+
+    RelojMes(Clock reloj) {
+        this.reloj = reloj;
+        this.actual = calcular();
+    }
+
+    public int mesActual() {
+        Mes mes = actual;
+        if (reloj.millis() >= mes.hastaMillis()) {
+            mes = calcular();
+            actual = mes;
+        }
+        return mes.numero();
+    }
+
+    /**
+     * Vencida si su mes ya paso; una tarjeta sin vencimiento se considera vencida, igual que en
+     * la autorizacion en base de datos.
+     */
+    public boolean vencida(YearMonth expiracion) {
+        return expiracion == null || MesExpiracionConverter.aMes(expiracion) < mesActual();
+    }
+
+    private Mes calcular() {
+        YearMonth mes = YearMonth.from(ZonedDateTime.now(reloj));
+        long hasta = mes.plusMonths(1).atDay(1).atStartOfDay(reloj.getZone()).toInstant().toEpochMilli();
+        return new Mes(MesExpiracionConverter.aMes(mes), hasta);
+    }
+
+    private record Mes(int numero, long hastaMillis) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.bankinc.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Tabla de candados por franjas, indexada por el hash del id de tarjeta. Las mutaciones de
+ * una misma tarjeta se ejecutan en orden dentro del proceso; tarjetas de franjas distintas
+ * avanzan en paralelo sin un candado global.
+ */
+@Component
+public class SerializadorTarjetas {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+    private final Timer espera;
+
+    public SerializadorTarjetas(@Value("${bankinc.serializacion.franjas:256}") int franjas, MeterRegistry meterRegistry) {
+        if (franjas <= 0) {
+            throw new IllegalArgumentException("bankinc.serializacion.franjas debe ser mayor a cero");
+        }
+        int tamanio = franjas == 1 ? 1 : Integer.highestOneBit(franjas - 1) << 1;
+        this.franjas = new ReentrantLock[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            this.franjas[i] = new ReentrantLock();
+        }
+        this.mascara = tamanio - 1;
+        this.espera = Timer.builder("bankinc.serializacion.espera")
+                .description("Tiempo de espera por el candado de la tarjeta")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("bankinc.serializacion.cola", this, SerializadorTarjetas::enCola)
+                .description("Hilos esperando por alguna franja")
+                .register(meterRegistry);
+        Gauge.builder("bankinc.serializacion.cola.max", this, SerializadorTarjetas::maximaCola)
+                .description("Hilos esperando en la franja mas congestionada")
+                .register(meterRegistry);
+        Gauge.builder("bankinc.serializacion.franjas", this, s -> s.franjas.length)
+                .register(meterRegistry);
+    }
+
+    public <T> T ejecutar(String tarjetaId, Supplier<T> accion) {
+        ReentrantLock candado = franjas[franja(tarjetaId)];
+        long inicio = System.nanoTime();
+        candado.lock();
+        try {
+            espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            return accion.get();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta la accion con las franjas de todas las tarjetas tomadas. Se adquieren en orden
+     * ascendente de franja, asi dos lotes con tarjetas en comun no se bloquean mutuamente.
+     */
+    public <T> T ejecutarTodas(Collection<String> tarjetaIds, Supplier<T> accion) {
+        int[] indices = tarjetaIds.stream().mapToInt(this::franja).distinct().sorted().toArray();
+        long inicio = System.nanoTime();
+        int tomadas = 0;
+        try {
+            for (int indice : indices) {
+                franjas[indice].lock();
+                tomadas++;
+            }
+            espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            return accion.get();
+        } finally {
+            for (int i = tomadas - 1; i >= 0; i--) {
+                franjas[indices[i]].unlock();
+            }
+        }
+    }
+
+    int franja(String tarjetaId) {
+        if (tarjetaId == null) {
+            return 0;
+        }
+        int h = tarjetaId.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    int numeroFranjas() {
+        return franjas.length;
+    }
+
+    double enCola() {
+        int total = 0;
+        for (ReentrantLock candado : franjas) {
+            total += candado.getQueueLength();
+        }
+        return total;
+    }
+
+    double maximaCola() {
+        int maxima = 0;
+        for (ReentrantLock candado : franjas) {
+            maxima = Math.max(maxima, candado.getQueueLength());
+        }
+        return maxima;
+    }
+}
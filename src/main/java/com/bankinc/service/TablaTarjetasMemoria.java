@@ -0,0 +1,230 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Tarjeta;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Estado de las tarjetas del motor en memoria en arreglos primitivos paralelos, con
+ * direccionamiento abierto sobre el numero de tarjeta como long: sin un objeto por tarjeta ni
+ * boxing en el camino de la compra. Saldos en centavos.
+ *
+ * Los valores de una tarjeta se escriben con su franja de {@link SerializadorTarjetas} tomada;
+ * el candado de lectura solo protege contra el crecimiento de la tabla, que toma el de
+ * escritura.
+ */
+final class TablaTarjetasMemoria {
+
+    private static final long LIBRE = -1;
+    /** Mes de expiracion ausente; el 0 de {@link MesExpiracionConverter} es enero de 1970. */
+    private static final int SIN_MES = Integer.MIN_VALUE;
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private long[] claves;
+    private long[] saldos;
+    private long[] secuencias;
+    private int[] meses;
+    private int[] productos;
+    private byte[] estados;
+    private String[] titulares;
+    private int ocupadas;
+
+    TablaTarjetasMemoria(int capacidadInicial) {
+        crear(Integer.highestOneBit(Math.max(16, (int) (capacidadInicial / CARGA_MAXIMA)) - 1) << 1);
+    }
+
+    /**
+     * -1 si el id no es un numero de tarjeta de 16 digitos.
+     */
+    static long clave(String idTarjeta) {
+        if (idTarjeta == null || idTarjeta.length() != 16) {
+            return LIBRE;
+        }
+        long clave = 0;
+        for (int i = 0; i < 16; i++) {
+            char c = idTarjeta.charAt(i);
+            if (c < '0' || c > '9') {
+                return LIBRE;
+            }
+            clave = clave * 10 + (c - '0');
+        }
+        return clave;
+    }
+
+    static String id(long clave) {
+        return String.format("%016d", clave);
+    }
+
+    static long centavos(BigDecimal monto) {
+        return monto.setScale(2, java.math.RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal monto(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    static byte estado(Tarjeta tarjeta) {
+        byte estado = 0;
+        if (Boolean.TRUE.equals(tarjeta.getActiva())) {
+            estado |= RegistroDiario.ACTIVA;
+        }
+        if (Boolean.TRUE.equals(tarjeta.getBloqueada())) {
+            estado |= RegistroDiario.BLOQUEADA;
+        }
+        if (Boolean.TRUE.equals(tarjeta.getExpirada())) {
+            estado |= RegistroDiario.EXPIRADA;
+        }
+        return estado;
+    }
+
+    boolean contiene(long clave) {
+        candado.readLock().lock();
+        try {
+            return clave >= 0 && claves[posicion(clave)] == clave;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    int tamanio() {
+        candado.readLock().lock();
+        try {
+            return ocupadas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega o reemplaza la tarjeta.
+     */
+    void poner(Tarjeta tarjeta) {
+        long clave = clave(tarjeta.getId());
+        if (clave < 0) {
+            throw new IllegalArgumentException("Id de tarjeta invalido para el motor en memoria: " + tarjeta.getId());
+        }
+        candado.writeLock().lock();
+        try {
+            if (ocupadas + 1 > claves.length * CARGA_MAXIMA) {
+                crecer();
+            }
+            int i = posicion(clave);
+            if (claves[i] == LIBRE) {
+                claves[i] = clave;
+                ocupadas++;
+            }
+            saldos[i] = centavos(tarjeta.getBalance() == null ? BigDecimal.ZERO : tarjeta.getBalance());
+            secuencias[i] = tarjeta.getSecuencia() == null ? 0 : tarjeta.getSecuencia();
+            YearMonth mes = tarjeta.getFechaExpiracion();
+            meses[i] = mes == null ? SIN_MES : MesExpiracionConverter.aMes(mes);
+            productos[i] = Integer.parseInt(tarjeta.getIdProducto());
+            estados[i] = estado(tarjeta);
+            titulares[i] = tarjeta.getNombreTitular();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copia de la tarjeta como entidad (sin version), o null si no esta.
+     */
+    Tarjeta leer(long clave) {
+        if (clave < 0) {
+            return null;
+        }
+        candado.readLock().lock();
+        try {
+            int i = posicion(clave);
+            if (claves[i] != clave) {
+                return null;
+            }
+            byte estado = estados[i];
+            return Tarjeta.builder()
+                    .id(id(clave))
+                    .idProducto(String.format("%06d", productos[i]))
+                    .nombreTitular(titulares[i])
+                    .fechaExpiracion(meses[i] == SIN_MES ? null : MesExpiracionConverter.desdeMes(meses[i]))
+                    .activa((estado & RegistroDiario.ACTIVA) != 0)
+                    .bloqueada((estado & RegistroDiario.BLOQUEADA) != 0)
+                    .expirada((estado & RegistroDiario.EXPIRADA) != 0)
+                    .balance(monto(saldos[i]))
+                    .secuencia(secuencias[i])
+                    .build();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deja la tarjeta en el estado posterior al registro. false si la tarjeta no esta.
+     */
+    boolean aplicar(RegistroDiario registro) {
+        candado.readLock().lock();
+        try {
+            int i = posicion(registro.tarjeta());
+            if (claves[i] != registro.tarjeta()) {
+                return false;
+            }
+            saldos[i] = registro.saldo();
+            secuencias[i] = registro.secuencia();
+            estados[i] = (byte) (registro.estado() | (estados[i] & RegistroDiario.EXPIRADA));
+            return true;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private int posicion(long clave) {
+        int mascara = claves.length - 1;
+        int i = (int) (mezclar(clave) & mascara);
+        while (claves[i] != LIBRE && claves[i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private static long mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private void crecer() {
+        long[] clavesAnteriores = claves;
+        long[] saldosAnteriores = saldos;
+        long[] secuenciasAnteriores = secuencias;
+        int[] mesesAnteriores = meses;
+        int[] productosAnteriores = productos;
+        byte[] estadosAnteriores = estados;
+        String[] titularesAnteriores = titulares;
+        crear(claves.length * 2);
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            if (clavesAnteriores[j] == LIBRE) {
+                continue;
+            }
+            int i = posicion(clavesAnteriores[j]);
+            claves[i] = clavesAnteriores[j];
+            saldos[i] = saldosAnteriores[j];
+            secuencias[i] = secuenciasAnteriores[j];
+            meses[i] = mesesAnteriores[j];
+            productos[i] = productosAnteriores[j];
+            estados[i] = estadosAnteriores[j];
+            titulares[i] = titularesAnteriores[j];
+        }
+    }
+
+    private void crear(int capacidad) {
+        claves = new long[capacidad];
+        Arrays.fill(claves, LIBRE);
+        saldos = new long[capacidad];
+        secuencias = new long[capacidad];
+        meses = new int[capacidad];
+        productos = new int[capacidad];
+        estados = new byte[capacidad];
+        titulares = new String[capacidad];
+    }
+}
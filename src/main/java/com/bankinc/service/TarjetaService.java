@@ -1,10 +1,15 @@
 package com.bankinc.service;
 
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoReconstruido;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Movimiento;
 import com.bankinc.entity.Tarjeta;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
 
 public interface TarjetaService {
 
@@ -12,5 +17,9 @@ public interface TarjetaService {
     ApiResponse<Tarjeta> activarTarjeta(String tarjetaId);
     ApiResponse<Tarjeta> bloquearTarjeta(String tarjetaId);
     ApiResponse<Tarjeta> recargarTarjeta(String tarjetaId, BigDecimal monto);
-    ApiResponse<Tarjeta> obtenerBalance(String tarjetaId);
+    ApiResponse<SaldoTarjeta> obtenerBalance(String tarjetaId);
+    ApiResponse<List<Movimiento>> obtenerMovimientos(String tarjetaId, Long despuesDe, Integer tamanio);
+    ApiResponse<SaldoReconstruido> reconstruirBalance(String tarjetaId);
+
+    YearMonth calcularFechaExpiracion();
 }
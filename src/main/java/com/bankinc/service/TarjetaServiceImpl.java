@@ -1,134 +1,243 @@
 package com.bankinc.service;
 
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoReconstruido;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Movimiento;
 import com.bankinc.entity.Tarjeta;
 import com.bankinc.repository.TarjetaRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.function.Supplier;
 
 @Service
+@Timed(value = "bankinc.servicio", description = "Tiempo de los metodos de servicio, incluida la base de datos")
 public class TarjetaServiceImpl implements TarjetaService {
 
-    private final TarjetaRepository tarjetaRepository;
+    private static final int INTENTOS_NUMERO = 3;
+    static final int TAMANIO_MOVIMIENTOS_DEFECTO = 50;
+    static final int TAMANIO_MOVIMIENTOS_MAXIMO = 500;
 
-    public TarjetaServiceImpl(TarjetaRepository tarjetaRepository) {
+    private final TarjetaRepository tarjetaRepository;
+    private final SerializadorTarjetas serializador;
+    private final ReintentoOptimista reintento;
+    private final CacheTarjetas cache;
+    private final AsignadorNumerosTarjeta asignador;
+    private final LibroMayor libroMayor;
+    private final MotorMemoria motor;
+    private final LecturaPropia lecturaPropia;
+
+    public TarjetaServiceImpl(TarjetaRepository tarjetaRepository, SerializadorTarjetas serializador,
+                              ReintentoOptimista reintento, CacheTarjetas cache,
+                              AsignadorNumerosTarjeta asignador, LibroMayor libroMayor, MotorMemoria motor,
+                              LecturaPropia lecturaPropia) {
         this.tarjetaRepository = tarjetaRepository;
+        this.serializador = serializador;
+        this.reintento = reintento;
+        this.cache = cache;
+        this.asignador = asignador;
+        this.libroMayor = libroMayor;
+        this.motor = motor;
+        this.lecturaPropia = lecturaPropia;
     }
 
 
     @Override
     public ApiResponse<Tarjeta> generarTarjeta(String idProducto, String primerNombre, String segundoNombre) {
-        if(idProducto.length() != 6) {
+        if(!AsignadorNumerosTarjeta.esProductoValido(idProducto)) {
             return new ApiResponse<>("ERROR", "El idProducto debe tener exactamente 6 digitos", null);
         }
         Optional<Tarjeta> existingTarjeta = tarjetaRepository.findByIdProductoAndNombreTitular(idProducto, primerNombre + " " + segundoNombre);
         if (existingTarjeta.isPresent()) {
             return new ApiResponse<>("ERROR", "Tarjeta ya existe con el idProducto y titular", null);
         }
-        String numeroTarjeta = generarNumeroTarjeta(idProducto);
-        Tarjeta tarjeta = new Tarjeta();
-        tarjeta.setId(numeroTarjeta);
-        tarjeta.setIdProducto(idProducto);
-        tarjeta.setNombreTitular(primerNombre + " " + segundoNombre);
-        tarjeta.setFechaExpiracion(calcularFechaExpiracion());
-        tarjeta.setActiva(false);
-        tarjeta.setBloqueada(false);
-        tarjeta.setBalance(new BigDecimal(0));
-        tarjetaRepository.save(tarjeta);
-        return new ApiResponse<>("SUCCESS", "Tarjeta Generada Correctamente", tarjeta);
+        for (int intento = 1; ; intento++) {
+            String numeroTarjeta = generarNumeroTarjeta(idProducto);
+            Tarjeta tarjeta = new Tarjeta();
+            tarjeta.setId(numeroTarjeta);
+            tarjeta.setIdProducto(idProducto);
+            tarjeta.setNombreTitular(primerNombre + " " + segundoNombre);
+            tarjeta.setFechaExpiracion(calcularFechaExpiracion());
+            tarjeta.setActiva(false);
+            tarjeta.setBloqueada(false);
+            tarjeta.setBalance(new BigDecimal(0));
+            try {
+                // Sin version la tarjeta se inserta (persist): un numero ya usado falla en vez de sobrescribir
+                cache.actualizar(numeroTarjeta, tarjetaRepository.save(tarjeta));
+                motor.registrar(tarjeta);
+                return new ApiResponse<>("SUCCESS", "Tarjeta Generada Correctamente", tarjeta);
+            } catch (DataIntegrityViolationException e) {
+                // Solo puede chocar con numeros aleatorios emitidos antes del asignador
+                if (intento >= INTENTOS_NUMERO) {
+                    throw e;
+                }
+            }
+        }
 
     }
 
-    public String calcularFechaExpiracion() {
-        LocalDate fechaActual = LocalDate.now();
-        LocalDate fechaExpiracion = fechaActual.plusYears(3);
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/yyyy");
-        return fechaExpiracion.format(formatter);
+    @Override
+    public YearMonth calcularFechaExpiracion() {
+        return YearMonth.now().plusYears(3);
     }
 
     public String generarNumeroTarjeta(String idProduct){
-        if (idProduct == null || idProduct.length() != 6) throw new IllegalArgumentException("productId must be 6 digits");
-        StringBuilder sb = new StringBuilder(idProduct);
-        Random random = new Random();
-        while (sb.length() < 16) {
-            sb.append(random.nextInt(10));
+        return asignador.asignar(idProduct);
+    }
+
+    /**
+     * Las tarjetas del motor en memoria se mutan ahi (diario en vez de transaccion); las
+     * validaciones son las mismas y buscar/guardar eligen el lugar.
+     */
+    private ApiResponse<Tarjeta> mutar(String tarjetaId, Supplier<ApiResponse<Tarjeta>> mutacion) {
+        if (motor.gestiona(tarjetaId)) {
+            return motor.ejecutar(tarjetaId, mutacion);
+        }
+        try {
+            return reintento.ejecutar(tarjetaId, intento -> serializador.ejecutar(tarjetaId, intento),
+                    mutacion, () -> cache.invalidar(tarjetaId));
+        } catch (ConcurrencyFailureException e) {
+            return new ApiResponse<>("ERROR", "La tarjeta esta siendo modificada, intente nuevamente", null);
+        } finally {
+            lecturaPropia.escribio(tarjetaId);
         }
-        return sb.toString();
     }
 
     @Override
     public ApiResponse<Tarjeta> activarTarjeta(String tarjetaId) {
+        return mutar(tarjetaId, () -> activar(tarjetaId));
+    }
+
+    private ApiResponse<Tarjeta> activar(String tarjetaId) {
 
-        Optional<Tarjeta> tarjetaOpt = tarjetaRepository.findById(tarjetaId);
+        Optional<Tarjeta> tarjetaOpt = buscar(tarjetaId);
         if (tarjetaOpt.isEmpty()) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
         }
         Tarjeta tarjeta = tarjetaOpt.get();
-        if (tarjeta.getActiva()) {
-            return new ApiResponse<>("ERROR", "La tarjeta ya está activa", null);
+        String rechazo = ReglasTarjeta.rechazoActivacion(tarjeta);
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
         }
         tarjeta.setActiva(true);
         tarjeta.setBloqueada(false);
-        tarjetaRepository.save(tarjeta);
+        guardarEstado(tarjetaId, tarjeta);
         return new ApiResponse<>("SUCCESS", "Tarjeta activada correctamente", tarjeta);
 
     }
 
     @Override
     public ApiResponse<Tarjeta> bloquearTarjeta(String tarjetaId) {
-        Optional<Tarjeta> tarjetaOpt = tarjetaRepository.findById(tarjetaId);
+        return mutar(tarjetaId, () -> bloquear(tarjetaId));
+    }
+
+    private ApiResponse<Tarjeta> bloquear(String tarjetaId) {
+        Optional<Tarjeta> tarjetaOpt = buscar(tarjetaId);
         if (tarjetaOpt.isEmpty()) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
         }
         Tarjeta tarjeta = tarjetaOpt.get();
-        if (tarjeta.getBloqueada()) {
-            return new ApiResponse<>("ERROR", "La tarjeta ya está bloqueada", null);
+        String rechazo = ReglasTarjeta.rechazoBloqueo(tarjeta);
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
         }
         tarjeta.setActiva(false);
         tarjeta.setBloqueada(true);
-        tarjetaRepository.save(tarjeta);
+        guardarEstado(tarjetaId, tarjeta);
         return new ApiResponse<>("SUCCESS", "Tarjeta bloqueada correctamente", tarjeta);
     }
 
     @Override
     public ApiResponse<Tarjeta> recargarTarjeta(String tarjetaId, BigDecimal monto) {
-        Optional<Tarjeta> tarjetaOpt = tarjetaRepository.findById(tarjetaId);
+        return mutar(tarjetaId, () -> recargar(tarjetaId, monto));
+    }
+
+    private ApiResponse<Tarjeta> recargar(String tarjetaId, BigDecimal monto) {
+        Optional<Tarjeta> tarjetaOpt = buscar(tarjetaId);
         if (tarjetaOpt.isEmpty()) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
-        }else if(monto.compareTo(BigDecimal.ZERO) <= 0){
-            return new ApiResponse<>("ERROR", "El monto debe ser mayor a cero", null);
-        } else if (tarjetaOpt.get().getBloqueada()) {
-            return new ApiResponse<>("ERROR", "La tarjeta está bloqueada", null);
-        } else if (!tarjetaOpt.get().getActiva()) {
-            return new ApiResponse<>("ERROR", "La tarjeta no está activa", null);
+        }
+        String rechazo = ReglasTarjeta.rechazoRecarga(tarjetaOpt.get(), monto);
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
         } else {
             Tarjeta tarjeta = tarjetaOpt.get();
-            tarjeta.setBalance(tarjeta.getBalance().add(monto));
-            tarjetaRepository.save(tarjeta);
+            if (motor.gestiona(tarjetaId)) {
+                motor.acreditar(tarjeta, monto);
+                return new ApiResponse<>("SUCCESS", "Tarjeta recargada correctamente", tarjeta);
+            }
+            LibroMayor.Asiento asiento = LibroMayor.aplicar(tarjeta, Movimiento.Tipo.RECARGA, monto, null,
+                    LocalDateTime.now());
+            cache.actualizar(tarjetaId, tarjetaRepository.save(tarjeta));
+            libroMayor.registrar(asiento);
             return new ApiResponse<>("SUCCESS", "Tarjeta recargada correctamente", tarjeta);
 
         }
     }
 
+    private Optional<Tarjeta> buscar(String tarjetaId) {
+        return motor.gestiona(tarjetaId) ? motor.tarjeta(tarjetaId) : cache.buscar(tarjetaId, tarjetaRepository::findById);
+    }
+
+    private void guardarEstado(String tarjetaId, Tarjeta tarjeta) {
+        if (motor.gestiona(tarjetaId)) {
+            motor.guardarEstado(tarjeta);
+        } else {
+            cache.actualizar(tarjetaId, tarjetaRepository.save(tarjeta));
+        }
+    }
+
+    /**
+     * Solo saldo y estado: de la tarjeta si ya esta en memoria, si no de la consulta de saldo
+     * (index-only scan) sin cargar la entidad.
+     */
     @Override
-    public ApiResponse<Tarjeta> obtenerBalance(String tarjetaId) {
-        Optional<Tarjeta> tarjetaOpt = tarjetaRepository.findById(tarjetaId);
-        if (tarjetaOpt.isEmpty()) {
+    public ApiResponse<SaldoTarjeta> obtenerBalance(String tarjetaId) {
+        // Con replicas: del primario si la tarjeta se acaba de mutar (por ejemplo, tras una recarga)
+        Optional<SaldoTarjeta> saldoOpt = lecturaPropia.buscar(tarjetaId, () -> motor.gestiona(tarjetaId)
+                ? motor.tarjeta(tarjetaId).map(SaldoTarjeta::de)
+                : cache.saldo(tarjetaId, tarjetaRepository::saldo));
+        if (saldoOpt.isEmpty()) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
-        } else if (tarjetaOpt.get().getBloqueada()) {
-            return new ApiResponse<>("ERROR", "La tarjeta está bloqueada", null);
-        } else if (!tarjetaOpt.get().getActiva()) {
-            return new ApiResponse<>("ERROR", "La tarjeta no está activa", null);
+        }
+        String rechazo = ReglasTarjeta.rechazoConsulta(saldoOpt.get());
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
         } else {
-            Tarjeta tarjeta = tarjetaOpt.get();
-            return new ApiResponse<>("SUCCESS", "Balance obtenido correctamente", tarjeta);
+            return new ApiResponse<>("SUCCESS", "Balance obtenido correctamente", saldoOpt.get());
         }
     }
+
+    /**
+     * Pagina del libro mayor por secuencia: la siguiente pagina empieza despues de la ultima
+     * secuencia recibida.
+     */
+    @Override
+    public ApiResponse<List<Movimiento>> obtenerMovimientos(String tarjetaId, Long despuesDe, Integer tamanio) {
+        if (cache.saldo(tarjetaId, tarjetaRepository::saldo).isEmpty()) {
+            return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
+        }
+        int limite = tamanio == null ? TAMANIO_MOVIMIENTOS_DEFECTO : Math.min(tamanio, TAMANIO_MOVIMIENTOS_MAXIMO);
+        if (limite <= 0) {
+            return new ApiResponse<>("ERROR", "El tamanio de pagina debe ser mayor a cero", null);
+        }
+        List<Movimiento> movimientos = libroMayor.movimientos(tarjetaId, despuesDe == null ? 0 : despuesDe, limite);
+        return new ApiResponse<>("SUCCESS", "Movimientos encontrados", movimientos);
+    }
+
+    @Override
+    public ApiResponse<SaldoReconstruido> reconstruirBalance(String tarjetaId) {
+        return libroMayor.reconstruir(tarjetaId)
+                .map(r -> new ApiResponse<>("SUCCESS", "Balance reconstruido", new SaldoReconstruido(tarjetaId, r)))
+                .orElseGet(() -> new ApiResponse<>("ERROR", "Tarjeta no encontrada", null));
+    }
 }
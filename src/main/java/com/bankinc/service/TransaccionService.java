@@ -1,15 +1,26 @@
 package com.bankinc.service;
 
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.dto.TransaccionRequest;
 import com.bankinc.entity.Transaccion;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransaccionService {
 
     ApiResponse<Transaccion> crearTransaccion(String idTarjeta, BigDecimal precio);
+    ApiResponse<List<ApiResponse<Transaccion>>> crearTransacciones(List<TransaccionRequest> compras);
     ApiResponse<Transaccion> obtenerTransaccion(Long id);
     ApiResponse<Transaccion> anularTransaccion(String idTarjeta, Long idTransaccion);
 
     ApiResponse<Iterable<Transaccion>> obtenerTransaccionesPorTarjeta(String cardId);
+
+    ApiResponse<PaginaTransacciones> obtenerPaginaTransacciones(String cardId, String cursor, Integer tamanio);
+
+    boolean existeTarjeta(String cardId);
+
+    void recorrerTransacciones(String cardId, Consumer<Transaccion> consumidor);
 }
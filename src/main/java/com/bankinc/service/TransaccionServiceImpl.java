@@ -1,85 +1,328 @@
 package com.bankinc.service;
 
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Movimiento;
 import com.bankinc.entity.Tarjeta;
 import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.AutorizacionCompra;
+import com.bankinc.repository.GastoDiarioRepository;
 import com.bankinc.repository.TarjetaRepository;
 import com.bankinc.repository.Transaccionrepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.swing.text.html.Option;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "bankinc.servicio", description = "Tiempo de los metodos de servicio, incluida la base de datos")
 public class TransaccionServiceImpl implements TransaccionService {
 
+    static final int TAMANIO_PAGINA_DEFECTO = 50;
+    static final int TAMANIO_PAGINA_MAXIMO = 500;
+    static final int MAX_COMPRAS_POR_LOTE = 10_000;
+    static final int TARJETAS_POR_TRANSACCION = 50;
+
     private final Transaccionrepository transaccionrepository;
     private final TarjetaRepository tarjetaRepository;
+    private final GastoDiarioRepository gastoDiarioRepository;
+    private final LibroMayor libroMayor;
+    private final SerializadorTarjetas serializador;
+    private final ReintentoOptimista reintento;
+    private final CacheTarjetas cache;
+    private final RelojMes reloj;
+    private final MotorMemoria motor;
+    private final LecturaPropia lecturaPropia;
 
-    public TransaccionServiceImpl(Transaccionrepository transaccionrepository, TarjetaRepository tarjetaRepository) {
+    public TransaccionServiceImpl(Transaccionrepository transaccionrepository, TarjetaRepository tarjetaRepository,
+                                  GastoDiarioRepository gastoDiarioRepository, LibroMayor libroMayor,
+                                  SerializadorTarjetas serializador, ReintentoOptimista reintento,
+                                  CacheTarjetas cache, RelojMes reloj, MotorMemoria motor,
+                                  LecturaPropia lecturaPropia) {
         this.transaccionrepository = transaccionrepository;
         this.tarjetaRepository = tarjetaRepository;
+        this.gastoDiarioRepository = gastoDiarioRepository;
+        this.libroMayor = libroMayor;
+        this.serializador = serializador;
+        this.reintento = reintento;
+        this.cache = cache;
+        this.reloj = reloj;
+        this.motor = motor;
+        this.lecturaPropia = lecturaPropia;
     }
 
 
+    private ApiResponse<Transaccion> mutar(String idTarjeta, Supplier<ApiResponse<Transaccion>> mutacion) {
+        try {
+            return reintento.ejecutar(idTarjeta, intento -> serializador.ejecutar(idTarjeta, intento),
+                    mutacion, () -> cache.invalidar(idTarjeta));
+        } catch (ConcurrencyFailureException e) {
+            return new ApiResponse<>("ERROR", "La tarjeta esta siendo modificada, intente nuevamente", null);
+        } finally {
+            lecturaPropia.escribio(idTarjeta);
+        }
+    }
+
     @Override
     public ApiResponse<Transaccion> crearTransaccion(String idTarjeta, BigDecimal precio) {
-        Optional<Tarjeta> tarjeta = tarjetaRepository.findById(idTarjeta);
+        if (motor.gestiona(idTarjeta)) {
+            return motor.ejecutar(idTarjeta, () -> comprarEnMemoria(idTarjeta, precio));
+        }
+        return mutar(idTarjeta, () -> comprar(idTarjeta, precio));
+    }
+
+    /**
+     * Compra de una tarjeta del motor en memoria: mismas reglas, sin ir a la base.
+     */
+    private ApiResponse<Transaccion> comprarEnMemoria(String idTarjeta, BigDecimal precio) {
+        Optional<Tarjeta> tarjeta = motor.tarjeta(idTarjeta);
         if (tarjeta.isEmpty()) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
-        } else if (tarjeta.get().getBloqueada()) {
-            return new ApiResponse<>("ERROR", "Tarjeta bloqueada", null);
-        } else if (!tarjeta.get().getActiva()) {
-            return new ApiResponse<>("ERROR", "Tarjeta no activa", null);
-        } else if (validarFechaExpiracion(tarjeta.get().getFechaExpiracion())) {
-            return new ApiResponse<>("ERROR", "Tarjeta expirada", null);
-        } else if (precio.compareTo(BigDecimal.ZERO) <= 0) {
-            return new ApiResponse<>("ERROR", "El monto de la transaccion debe ser mayor a cero", null);
-        }else{
-            if (tarjeta.get().getBalance().compareTo(precio) < 0) {
-                return new ApiResponse<>("ERROR", "Fondos insuficientes", null);
+        }
+        String rechazo = reglasCompra(tarjeta.get(), precio);
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
+        }
+        return new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", motor.debitar(tarjeta.get(), precio));
+    }
+
+    private ApiResponse<Transaccion> comprar(String idTarjeta, BigDecimal precio) {
+        Optional<Tarjeta> enCache = cache.siPresente(idTarjeta);
+        if (enCache.isPresent()) {
+            String rechazo = rechazoPorEstado(enCache.get());
+            if (rechazo != null) {
+                return new ApiResponse<>("ERROR", rechazo, null);
             }
-            Tarjeta tarjetaActual = tarjeta.get();
-            tarjetaActual.setBalance(tarjetaActual.getBalance().subtract(precio));
-            tarjetaRepository.save(tarjetaActual);
-            Transaccion transaccion = new Transaccion();
-            transaccion.setIdTarjeta(idTarjeta);
-            transaccion.setMonto(precio);
-            transaccion.setFechaTransaccion(LocalDateTime.now());
-            transaccion.setAnulada(false);
-            transaccionrepository.save(transaccion);
-            return new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", transaccion);
+        }
+        LocalDateTime fecha = LocalDateTime.now();
+        Optional<AutorizacionCompra> autorizacion = transaccionrepository.autorizarCompra(
+                idTarjeta, precio, fecha, reloj.mesActual());
+        if (autorizacion.isEmpty()) {
+            cache.invalidar(idTarjeta);
+            return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
+        }
+        AutorizacionCompra resultado = autorizacion.get();
+        Tarjeta estado = tarjetaDesde(idTarjeta, resultado);
+        cache.actualizar(idTarjeta, estado);
+        if (resultado.getIdTransaccion() == null) {
+            return new ApiResponse<>("ERROR", motivoRechazo(estado, precio), null);
+        }
+        Transaccion transaccion = new Transaccion();
+        transaccion.setId(resultado.getIdTransaccion());
+        transaccion.setIdTarjeta(idTarjeta);
+        transaccion.setMonto(precio);
+        transaccion.setFechaTransaccion(fecha);
+        transaccion.setAnulada(false);
+        return new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", transaccion);
+    }
 
+    @Override
+    public ApiResponse<List<ApiResponse<Transaccion>>> crearTransacciones(List<TransaccionRequest> compras) {
+        if (compras == null || compras.isEmpty()) {
+            return new ApiResponse<>("ERROR", "El lote no contiene compras", null);
+        }
+        if (compras.size() > MAX_COMPRAS_POR_LOTE) {
+            return new ApiResponse<>("ERROR", "El lote supera el maximo de " + MAX_COMPRAS_POR_LOTE + " compras", null);
         }
+        List<ApiResponse<Transaccion>> resultados = new ArrayList<>(Collections.nCopies(compras.size(), null));
+        Map<String, List<Integer>> porTarjeta = new LinkedHashMap<>();
+        for (int i = 0; i < compras.size(); i++) {
+            TransaccionRequest compra = compras.get(i);
+            if (compra == null || compra.getCardId() == null) {
+                resultados.set(i, new ApiResponse<>("ERROR", "Tarjeta no encontrada", null));
+            } else {
+                porTarjeta.computeIfAbsent(compra.getCardId(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        List<String> tarjetas = new ArrayList<>();
+        for (String idTarjeta : porTarjeta.keySet()) {
+            if (motor.gestiona(idTarjeta)) {
+                motor.ejecutarSinConfirmar(idTarjeta, () -> {
+                    porTarjeta.get(idTarjeta).forEach(i ->
+                            resultados.set(i, comprarEnMemoria(idTarjeta, compras.get(i).getPrice())));
+                    return null;
+                });
+            } else {
+                tarjetas.add(idTarjeta);
+            }
+        }
+        // Una sola espera del diario para todas las compras del lote en memoria
+        motor.confirmar();
+        for (int desde = 0; desde < tarjetas.size(); desde += TARJETAS_POR_TRANSACCION) {
+            List<String> grupo = tarjetas.subList(desde, Math.min(desde + TARJETAS_POR_TRANSACCION, tarjetas.size()));
+            procesarGrupo(grupo, porTarjeta, compras, resultados);
+        }
+        long aprobadas = resultados.stream().filter(r -> "SUCCESS".equals(r.getStatus())).count();
+        return new ApiResponse<>("SUCCESS", "Lote procesado: " + aprobadas + " aprobadas, "
+                + (resultados.size() - aprobadas) + " rechazadas", resultados);
+    }
 
+    /**
+     * Procesa las compras de un grupo de tarjetas en una sola transaccion, con las franjas de
+     * todas tomadas. Un conflicto de version repite el grupo completo, soltando las franjas
+     * durante la espera.
+     */
+    private void procesarGrupo(List<String> grupo, Map<String, List<Integer>> porTarjeta,
+                               List<TransaccionRequest> compras, List<ApiResponse<Transaccion>> resultados) {
+        Map<Integer, ApiResponse<Transaccion>> parcial;
+        try {
+            parcial = reintento.ejecutar(grupo.get(0), intento -> serializador.ejecutarTodas(grupo, intento),
+                    () -> comprarGrupo(grupo, porTarjeta, compras), () -> grupo.forEach(cache::invalidar));
+        } catch (ConcurrencyFailureException e) {
+            parcial = new HashMap<>();
+            for (String id : grupo) {
+                for (int i : porTarjeta.get(id)) {
+                    parcial.put(i, new ApiResponse<>("ERROR", "La tarjeta esta siendo modificada, intente nuevamente", null));
+                }
+            }
+        }
+        parcial.forEach(resultados::set);
+        grupo.forEach(lecturaPropia::escribio);
+    }
 
+    private Map<Integer, ApiResponse<Transaccion>> comprarGrupo(List<String> grupo, Map<String, List<Integer>> porTarjeta,
+                                                                List<TransaccionRequest> compras) {
+        Map<String, Tarjeta> tarjetas = new HashMap<>();
+        tarjetaRepository.findAllById(grupo).forEach(t -> tarjetas.put(t.getId(), t));
+        Map<Integer, ApiResponse<Transaccion>> parcial = new HashMap<>();
+        List<Transaccion> nuevas = new ArrayList<>();
+        LocalDateTime fecha = LocalDateTime.now();
+        List<GastoTarjeta> gastos = new ArrayList<>();
+        List<LibroMayor.Asiento> asientos = new ArrayList<>();
+        for (String idTarjeta : grupo) {
+            Tarjeta tarjeta = tarjetas.get(idTarjeta);
+            int aprobadas = 0;
+            BigDecimal debitado = BigDecimal.ZERO;
+            for (int i : porTarjeta.get(idTarjeta)) {
+                BigDecimal precio = compras.get(i).getPrice();
+                String rechazo = tarjeta == null ? "Tarjeta no encontrada" : reglasCompra(tarjeta, precio);
+                if (rechazo != null) {
+                    parcial.put(i, new ApiResponse<>("ERROR", rechazo, null));
+                    continue;
+                }
+                aprobadas++;
+                debitado = debitado.add(precio);
+                Transaccion transaccion = Transaccion.builder()
+                        .idTarjeta(idTarjeta)
+                        .monto(precio)
+                        .fechaTransaccion(fecha)
+                        .anulada(false)
+                        .build();
+                asientos.add(LibroMayor.aplicar(tarjeta, Movimiento.Tipo.COMPRA, precio.negate(), transaccion, fecha));
+                nuevas.add(transaccion);
+                parcial.put(i, new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", transaccion));
+            }
+            if (aprobadas > 0) {
+                // Las tarjetas quedan gestionadas: el UPDATE con version sale en lote al confirmar
+                cache.actualizar(idTarjeta, tarjeta);
+                gastos.add(new GastoTarjeta(idTarjeta, tarjeta.getIdProducto(), aprobadas, debitado));
+            }
+        }
+        // saveAll asigna los ids que referencian los asientos
+        transaccionrepository.saveAll(nuevas);
+        libroMayor.registrar(asientos, fecha);
+        sumarGasto(gastos, fecha.toLocalDate());
+        return parcial;
     }
 
-    public boolean validarFechaExpiracion(String vencimiento){
+    /**
+     * Suma las compras aprobadas del grupo (un dia, una fila por tarjeta) a gasto_diario en una
+     * sola sentencia, dentro de la misma transaccion que los debitos.
+     */
+    private void sumarGasto(List<GastoTarjeta> gastos, LocalDate dia) {
+        if (gastos.isEmpty()) {
+            return;
+        }
+        int filas = gastos.size();
+        String[] ids = new String[filas];
+        String[] dias = new String[filas];
+        String[] productos = new String[filas];
+        Integer[] compras = new Integer[filas];
+        BigDecimal[] montos = new BigDecimal[filas];
+        for (int i = 0; i < filas; i++) {
+            GastoTarjeta gasto = gastos.get(i);
+            ids[i] = gasto.idTarjeta();
+            dias[i] = dia.toString();
+            productos[i] = gasto.idProducto();
+            compras[i] = gasto.compras();
+            montos[i] = gasto.monto();
+        }
+        gastoDiarioRepository.sumarCompras(ids, dias, productos, compras, montos);
+    }
 
-        String[] parts = vencimiento.split("/");
-        int month = Integer.parseInt(parts[0]);
-        int year = Integer.parseInt(parts[1]);
-        LocalDate hoy = LocalDate.now();
-        int mesActual = hoy.getMonthValue();
-        int anioActual = hoy.getYear();
+    private record GastoTarjeta(String idTarjeta, String idProducto, int compras, BigDecimal monto) {
+    }
 
-        if (year < anioActual) {
-            return true;
-        } else if (year == anioActual && month < mesActual) {
-            return true;
-        } else {
-            return false;
-        }
+    /**
+     * Reglas de una compra sobre el estado de la tarjeta, en el orden en que se informan. La
+     * compra en lote decide con ellas; la individual las usa para explicar un rechazo.
+     */
+    private String reglasCompra(Tarjeta tarjeta, BigDecimal precio) {
+        return ReglasTarjeta.rechazoCompra(tarjeta, precio, reloj);
+    }
+
+    /**
+     * Reconstruye, con el estado leido en la misma sentencia, cual regla impidio el debito.
+     * Si el estado leido cumplia todas, otra compra concurrente consumio el saldo.
+     */
+    private String motivoRechazo(Tarjeta estado, BigDecimal precio) {
+        String rechazo = reglasCompra(estado, precio);
+        return rechazo != null ? rechazo : "Fondos insuficientes";
+    }
+
+    private String rechazoPorEstado(Tarjeta tarjeta) {
+        return ReglasTarjeta.rechazoPorEstado(tarjeta, reloj);
+    }
+
+    private static Tarjeta tarjetaDesde(String idTarjeta, AutorizacionCompra resultado) {
+        return Tarjeta.builder()
+                .id(idTarjeta)
+                .idProducto(resultado.getIdProducto())
+                .nombreTitular(resultado.getNombreTitular())
+                .fechaExpiracion(resultado.getMesExpiracion() == null ? null
+                        : MesExpiracionConverter.desdeMes(resultado.getMesExpiracion()))
+                .expirada(resultado.getExpirada())
+                .activa(resultado.getActiva())
+                .bloqueada(resultado.getBloqueada())
+                .balance(resultado.getBalance())
+                .version(resultado.getVersion())
+                .secuencia(resultado.getSecuencia())
+                .build();
+    }
+
+    public boolean validarFechaExpiracion(String vencimiento) {
+        return validarFechaExpiracion(MesExpiracionConverter.parsear(vencimiento));
+    }
 
+    /**
+     * true si el vencimiento ya paso. Compara contra el mes en curso de RelojMes, sin crear objetos.
+     */
+    public boolean validarFechaExpiracion(YearMonth vencimiento) {
+        return reloj.vencida(vencimiento);
     }
 
     @Override
     public ApiResponse<Transaccion> obtenerTransaccion(Long id) {
-        Optional<Transaccion> transaccion = transaccionrepository.findById(id);
+        // Una compra recien hecha puede no haber llegado a la replica: se busca en el primario
+        Optional<Transaccion> transaccion = lecturaPropia.buscar(null, () -> transaccionrepository.resumen(id));
         if (transaccion.isEmpty()) {
             return new ApiResponse<>("ERROR", "Transaccion no encontrada", null);
         } else {
@@ -89,27 +332,73 @@ public class TransaccionServiceImpl implements TransaccionService {
 
     @Override
     public ApiResponse<Transaccion> anularTransaccion(String idTarjeta, Long idTransaccion) {
-        Optional<Tarjeta> tarjeta = tarjetaRepository.findById(idTarjeta);
+        if (motor.gestiona(idTarjeta)) {
+            return motor.ejecutar(idTarjeta, () -> anularEnMemoria(idTarjeta, idTransaccion));
+        }
+        return mutar(idTarjeta, () -> anular(idTarjeta, idTransaccion));
+    }
+
+    /**
+     * El motor guarda las transacciones de la ventana de anulacion; fuera de ella la base solo
+     * sirve para distinguir caducada de inexistente.
+     */
+    private ApiResponse<Transaccion> anularEnMemoria(String idTarjeta, Long idTransaccion) {
+        Optional<Tarjeta> tarjeta = motor.tarjeta(idTarjeta);
+        if (tarjeta.isEmpty()) {
+            return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
+        }
+        String rechazo = ReglasTarjeta.rechazoAnulacion(tarjeta.get());
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
+        }
+        Optional<Transaccion> transaccion = motor.transaccion(idTarjeta, idTransaccion);
+        if (transaccion.isEmpty()) {
+            transaccion = transaccionrepository.findByIdAndIdTarjeta(idTransaccion, idTarjeta);
+        }
+        if (transaccion.isEmpty()) {
+            return new ApiResponse<>("ERROR", "Transaccion no encontrada para la tarjeta proporcionada", null);
+        }
+        rechazo = ReglasTarjeta.rechazoAnulacion(transaccion.get(), LocalDateTime.now());
+        if (rechazo != null) {
+            return new ApiResponse<>("ERROR", rechazo, null);
+        }
+        motor.anular(tarjeta.get(), transaccion.get());
+        return new ApiResponse<>("SUCCESS", "Transaccion anulada correctamente", transaccion.get());
+    }
+
+    private ApiResponse<Transaccion> anular(String idTarjeta, Long idTransaccion) {
+        Optional<Tarjeta> tarjeta = cache.buscar(idTarjeta, tarjetaRepository::findById);
         if (tarjeta.isEmpty()) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
         }else{
-            if(tarjeta.get().getBloqueada()){
-                return new ApiResponse<>("ERROR", "Tarjeta bloqueada", null);
+            String rechazo = ReglasTarjeta.rechazoAnulacion(tarjeta.get());
+            if (rechazo != null) {
+                return new ApiResponse<>("ERROR", rechazo, null);
+            }
+            LocalDateTime ahora = LocalDateTime.now();
+            Optional<Transaccion> transaccion = transaccionrepository.findByIdAndIdTarjetaAndFechaTransaccionBetween(
+                    idTransaccion, idTarjeta, ahora.minusHours(ReglasTarjeta.HORAS_PARA_ANULAR), ahora);
+            if (transaccion.isEmpty()) {
+                // Fuera de la ventana: solo para distinguir caducada de inexistente
+                transaccion = transaccionrepository.findByIdAndIdTarjeta(idTransaccion, idTarjeta);
             }
-            Optional<Transaccion> transaccion = transaccionrepository.findByIdAndIdTarjeta(idTransaccion, idTarjeta);
             if (transaccion.isEmpty()) {
                 return new ApiResponse<>("ERROR", "Transaccion no encontrada para la tarjeta proporcionada", null);
-            } else if (transaccion.get().getAnulada()) {
-                return new ApiResponse<>("ERROR", "Transaccion ya anulada", null);
-            } else if (validarCaducidadTransaccion(transaccion.get().getFechaTransaccion())) {
-                return new ApiResponse<>("ERROR", "Transaccion caducada para anular", null);
+            }
+            rechazo = ReglasTarjeta.rechazoAnulacion(transaccion.get(), ahora);
+            if (rechazo != null) {
+                return new ApiResponse<>("ERROR", rechazo, null);
             }else{
                 Transaccion trx = transaccion.get();
+                if (transaccionrepository.marcarAnulada(trx.getId(), trx.getFechaTransaccion()) == 0) {
+                    return new ApiResponse<>("ERROR", "Transaccion ya anulada", null);
+                }
                 trx.setAnulada(true);
-                transaccionrepository.save(trx);
                 Tarjeta tarjetaActual = tarjeta.get();
-                tarjetaActual.setBalance(tarjetaActual.getBalance().add(trx.getMonto()));
-                tarjetaRepository.save(tarjetaActual);
+                LibroMayor.Asiento asiento = LibroMayor.aplicar(tarjetaActual, Movimiento.Tipo.ANULACION,
+                        trx.getMonto(), trx, ahora);
+                cache.actualizar(idTarjeta, tarjetaRepository.save(tarjetaActual));
+                libroMayor.registrar(asiento);
                 return new ApiResponse<>("SUCCESS", "Transaccion anulada correctamente", trx);
             }
         }
@@ -119,11 +408,14 @@ public class TransaccionServiceImpl implements TransaccionService {
 
     @Override
     public ApiResponse<Iterable<Transaccion>> obtenerTransaccionesPorTarjeta(String cardId) {
-        Optional<Tarjeta> tarjeta = tarjetaRepository.findById(cardId);
-        if (tarjeta.isEmpty()) {
+        return lecturaPropia.leer(cardId, () -> transaccionesPorTarjeta(cardId));
+    }
+
+    private ApiResponse<Iterable<Transaccion>> transaccionesPorTarjeta(String cardId) {
+        if (!existeTarjeta(cardId)) {
             return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
         } else {
-            Iterable<Transaccion> transacciones = transaccionrepository.findAllByIdTarjeta(cardId);
+            Iterable<Transaccion> transacciones = transaccionrepository.historial(cardId);
             if (!transacciones.iterator().hasNext()) {
                 return new ApiResponse<>("ERROR", "No se encontraron transacciones para esta tarjeta", null);
             }
@@ -131,10 +423,52 @@ public class TransaccionServiceImpl implements TransaccionService {
         }
     }
 
-    public boolean validarCaducidadTransaccion(LocalDateTime fechaTransaccion){
-        LocalDateTime ahora = LocalDateTime.now();
-        LocalDateTime fechaLimite = fechaTransaccion.plusHours(24);
-        return ahora.isAfter(fechaLimite);
+    @Override
+    public ApiResponse<PaginaTransacciones> obtenerPaginaTransacciones(String cardId, String cursor, Integer tamanio) {
+        return lecturaPropia.leer(cardId, () -> paginaTransacciones(cardId, cursor, tamanio));
+    }
 
+    private ApiResponse<PaginaTransacciones> paginaTransacciones(String cardId, String cursor, Integer tamanio) {
+        if (!existeTarjeta(cardId)) {
+            return new ApiResponse<>("ERROR", "Tarjeta no encontrada", null);
+        }
+        int limite = tamanio == null ? TAMANIO_PAGINA_DEFECTO : Math.min(tamanio, TAMANIO_PAGINA_MAXIMO);
+        if (limite <= 0) {
+            return new ApiResponse<>("ERROR", "El tamanio de pagina debe ser mayor a cero", null);
+        }
+        List<Transaccion> filas;
+        if (cursor == null || cursor.isBlank()) {
+            filas = transaccionrepository.primeraPagina(cardId, Limit.of(limite + 1));
+        } else {
+            CursorTransacciones posicion = CursorTransacciones.decodificar(cursor);
+            if (posicion == null) {
+                return new ApiResponse<>("ERROR", "Cursor invalido", null);
+            }
+            filas = transaccionrepository.paginaDespuesDe(cardId, posicion.fecha(), posicion.id(), Limit.of(limite + 1));
+        }
+        String siguienteCursor = null;
+        if (filas.size() > limite) {
+            filas = filas.subList(0, limite);
+            siguienteCursor = CursorTransacciones.despuesDe(filas.get(limite - 1)).codificar();
+        }
+        return new ApiResponse<>("SUCCESS", "Transacciones encontradas", new PaginaTransacciones(filas, siguienteCursor));
+    }
+
+    @Override
+    public boolean existeTarjeta(String cardId) {
+        // Basta la consulta de saldo: no carga la tarjeta completa
+        return lecturaPropia.buscar(cardId, () -> cache.saldo(cardId, tarjetaRepository::saldo)).isPresent();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void recorrerTransacciones(String cardId, Consumer<Transaccion> consumidor) {
+        try (Stream<Transaccion> transacciones = transaccionrepository.recorrerPorTarjeta(cardId)) {
+            transacciones.forEach(consumidor);
+        }
+    }
+
+    public boolean validarCaducidadTransaccion(LocalDateTime fechaTransaccion){
+        return ReglasTarjeta.caducada(fechaTransaccion, LocalDateTime.now());
     }
 }
@@ -0,0 +1,33 @@
+package com.bankinc.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Cupos para el historial NDJSON. Cada transmision retiene una conexion del pool principal
+ * mientras escribe al ritmo del cliente; sin tope, unos pocos clientes lentos dejarian a las
+ * compras sin conexiones. Con los cupos ocupados la transmision se rechaza en vez de esperar.
+ */
+@Component
+public class TransmisionesHistorial {
+
+    private final Semaphore cupos;
+
+    public TransmisionesHistorial(@Value("${bankinc.historial.transmisiones-maximas:3}") int maximas) {
+        this.cupos = new Semaphore(maximas);
+    }
+
+    public boolean tomar() {
+        return cupos.tryAcquire();
+    }
+
+    public void liberar() {
+        cupos.release();
+    }
+
+    public int disponibles() {
+        return cupos.availablePermits();
+    }
+}
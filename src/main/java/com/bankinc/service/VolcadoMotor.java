@@ -0,0 +1,265 @@
+package com.bankinc.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lleva un tramo del diario del motor en memoria a las tablas de siempre (transaccion,
+ * movimiento, gasto_diario, tarjeta) y avanza el checkpoint, todo en una transaccion y una
+ * sentencia por tabla. El checkpoint se lee con FOR UPDATE antes de escribir: si no es el
+ * esperado (otro volcado ya lo hizo, o un commit cuyo resultado no llego) el tramo no se repite.
+ */
+final class VolcadoMotor {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transacciones;
+    private final String nombre;
+
+    VolcadoMotor(JdbcTemplate jdbcTemplate, TransactionOperations transacciones, String nombre) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacciones = transacciones;
+        this.nombre = nombre;
+    }
+
+    long checkpoint() {
+        jdbcTemplate.update("INSERT INTO motor_checkpoint (nombre) VALUES (?) ON CONFLICT (nombre) DO NOTHING", nombre);
+        Long posicion = jdbcTemplate.queryForObject(
+                "SELECT posicion FROM motor_checkpoint WHERE nombre = ?", Long.class, nombre);
+        return posicion == null ? 0 : posicion;
+    }
+
+    /**
+     * Vuelca los registros que van de desde a hasta. Devuelve el checkpoint resultante: hasta,
+     * o el que encontro en la base si no era desde.
+     */
+    long volcar(List<RegistroDiario> registros, long desde, long hasta) {
+        return transacciones.execute(estado -> {
+            Long actual = jdbcTemplate.queryForObject(
+                    "SELECT posicion FROM motor_checkpoint WHERE nombre = ? FOR UPDATE", Long.class, nombre);
+            if (actual == null || actual != desde) {
+                return actual == null ? desde : actual;
+            }
+            insertarCompras(registros);
+            marcarAnuladas(registros);
+            insertarMovimientos(registros);
+            sumarGasto(registros);
+            actualizarTarjetas(registros);
+            jdbcTemplate.update("UPDATE motor_checkpoint SET posicion = ?, actualizado = now() WHERE nombre = ?",
+                    hasta, nombre);
+            return hasta;
+        });
+    }
+
+    private void insertarCompras(List<RegistroDiario> registros) {
+        List<RegistroDiario> compras = filtrar(registros, RegistroDiario.Tipo.COMPRA);
+        if (compras.isEmpty()) {
+            return;
+        }
+        int filas = compras.size();
+        Long[] ids = new Long[filas];
+        String[] tarjetas = new String[filas];
+        BigDecimal[] montos = new BigDecimal[filas];
+        String[] fechas = new String[filas];
+        for (int i = 0; i < filas; i++) {
+            RegistroDiario compra = compras.get(i);
+            ids[i] = compra.idTransaccion();
+            tarjetas[i] = TablaTarjetasMemoria.id(compra.tarjeta());
+            montos[i] = TablaTarjetasMemoria.monto(compra.monto());
+            fechas[i] = RegistroDiario.fecha(compra.fecha()).toString();
+        }
+        jdbcTemplate.update("""
+                INSERT INTO transaccion (id, id_tarjeta, monto, fecha_transaccion, anulada)
+                SELECT c.id, c.id_tarjeta, c.monto, c.fecha, false
+                FROM unnest(CAST(? AS bigint[]), CAST(? AS varchar[]), CAST(? AS numeric[]), CAST(? AS timestamp[]))
+                     AS c(id, id_tarjeta, monto, fecha)
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", tarjetas));
+            ps.setArray(3, ps.getConnection().createArrayOf("numeric", montos));
+            ps.setArray(4, ps.getConnection().createArrayOf("varchar", fechas));
+        });
+    }
+
+    private void marcarAnuladas(List<RegistroDiario> registros) {
+        List<RegistroDiario> anulaciones = filtrar(registros, RegistroDiario.Tipo.ANULACION);
+        if (anulaciones.isEmpty()) {
+            return;
+        }
+        int filas = anulaciones.size();
+        Long[] ids = new Long[filas];
+        String[] fechas = new String[filas];
+        for (int i = 0; i < filas; i++) {
+            ids[i] = anulaciones.get(i).idTransaccion();
+            fechas[i] = RegistroDiario.fecha(anulaciones.get(i).fechaTransaccion()).toString();
+        }
+        // Filtrar por fecha_transaccion limita el UPDATE a la particion de cada transaccion
+        jdbcTemplate.update("""
+                UPDATE transaccion t SET anulada = true
+                FROM unnest(CAST(? AS bigint[]), CAST(? AS timestamp[])) AS a(id, fecha)
+                WHERE t.id = a.id AND t.fecha_transaccion = a.fecha
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", fechas));
+        });
+    }
+
+    private void insertarMovimientos(List<RegistroDiario> registros) {
+        List<RegistroDiario> movimientos = new ArrayList<>(registros.size());
+        for (RegistroDiario registro : registros) {
+            if (registro.tipo() != RegistroDiario.Tipo.ESTADO) {
+                movimientos.add(registro);
+            }
+        }
+        if (movimientos.isEmpty()) {
+            return;
+        }
+        int filas = movimientos.size();
+        String[] tarjetas = new String[filas];
+        Long[] secuencias = new Long[filas];
+        String[] tipos = new String[filas];
+        BigDecimal[] montos = new BigDecimal[filas];
+        Long[] transacciones = new Long[filas];
+        String[] fechas = new String[filas];
+        for (int i = 0; i < filas; i++) {
+            RegistroDiario movimiento = movimientos.get(i);
+            tarjetas[i] = TablaTarjetasMemoria.id(movimiento.tarjeta());
+            secuencias[i] = movimiento.secuencia();
+            tipos[i] = movimiento.tipo().name();
+            BigDecimal monto = TablaTarjetasMemoria.monto(movimiento.monto());
+            montos[i] = movimiento.tipo() == RegistroDiario.Tipo.COMPRA ? monto.negate() : monto;
+            transacciones[i] = movimiento.idTransaccion() == 0 ? null : movimiento.idTransaccion();
+            fechas[i] = RegistroDiario.fecha(movimiento.fecha()).toString();
+        }
+        jdbcTemplate.update("""
+                INSERT INTO movimiento (id_tarjeta, secuencia, tipo, monto, id_transaccion, fecha)
+                SELECT * FROM unnest(CAST(? AS varchar[]), CAST(? AS bigint[]), CAST(? AS varchar[]),
+                                     CAST(? AS numeric[]), CAST(? AS bigint[]), CAST(? AS timestamp[]))
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", tarjetas));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", secuencias));
+            ps.setArray(3, ps.getConnection().createArrayOf("varchar", tipos));
+            ps.setArray(4, ps.getConnection().createArrayOf("numeric", montos));
+            ps.setArray(5, ps.getConnection().createArrayOf("bigint", transacciones));
+            ps.setArray(6, ps.getConnection().createArrayOf("varchar", fechas));
+        });
+    }
+
+    /**
+     * Una fila por tarjeta y dia: las compras en el dia de la compra, las anulaciones en el de
+     * la compra original, como en el camino sin motor.
+     */
+    private void sumarGasto(List<RegistroDiario> registros) {
+        Map<GastoLlave, long[]> gastos = new LinkedHashMap<>();
+        for (RegistroDiario registro : registros) {
+            if (registro.tipo() == RegistroDiario.Tipo.COMPRA) {
+                long[] gasto = gastos.computeIfAbsent(new GastoLlave(registro.tarjeta(),
+                        RegistroDiario.fecha(registro.fecha()).toLocalDate()), k -> new long[4]);
+                gasto[0]++;
+                gasto[1] += registro.monto();
+            } else if (registro.tipo() == RegistroDiario.Tipo.ANULACION) {
+                long[] gasto = gastos.computeIfAbsent(new GastoLlave(registro.tarjeta(),
+                        RegistroDiario.fecha(registro.fechaTransaccion()).toLocalDate()), k -> new long[4]);
+                gasto[2]++;
+                gasto[3] += registro.monto();
+            }
+        }
+        if (gastos.isEmpty()) {
+            return;
+        }
+        int filas = gastos.size();
+        String[] tarjetas = new String[filas];
+        String[] dias = new String[filas];
+        Integer[] compras = new Integer[filas];
+        BigDecimal[] montos = new BigDecimal[filas];
+        Integer[] anulaciones = new Integer[filas];
+        BigDecimal[] anulados = new BigDecimal[filas];
+        int i = 0;
+        for (Map.Entry<GastoLlave, long[]> gasto : gastos.entrySet()) {
+            tarjetas[i] = TablaTarjetasMemoria.id(gasto.getKey().tarjeta());
+            dias[i] = gasto.getKey().dia().toString();
+            compras[i] = (int) gasto.getValue()[0];
+            montos[i] = TablaTarjetasMemoria.monto(gasto.getValue()[1]);
+            anulaciones[i] = (int) gasto.getValue()[2];
+            anulados[i] = TablaTarjetasMemoria.monto(gasto.getValue()[3]);
+            i++;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO gasto_diario (id_tarjeta, dia, id_producto, compras, monto, anulaciones, anulado)
+                SELECT g.id, g.dia, COALESCE((SELECT id_producto FROM tarjeta WHERE id = g.id), left(g.id, 6)),
+                       g.compras, g.monto, g.anulaciones, g.anulado
+                FROM unnest(CAST(? AS varchar[]), CAST(? AS date[]), CAST(? AS integer[]), CAST(? AS numeric[]),
+                            CAST(? AS integer[]), CAST(? AS numeric[])) AS g(id, dia, compras, monto, anulaciones, anulado)
+                ON CONFLICT (id_tarjeta, dia) DO UPDATE
+                SET compras = gasto_diario.compras + EXCLUDED.compras, monto = gasto_diario.monto + EXCLUDED.monto,
+                    anulaciones = gasto_diario.anulaciones + EXCLUDED.anulaciones,
+                    anulado = gasto_diario.anulado + EXCLUDED.anulado
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", tarjetas));
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", dias));
+            ps.setArray(3, ps.getConnection().createArrayOf("integer", compras));
+            ps.setArray(4, ps.getConnection().createArrayOf("numeric", montos));
+            ps.setArray(5, ps.getConnection().createArrayOf("integer", anulaciones));
+            ps.setArray(6, ps.getConnection().createArrayOf("numeric", anulados));
+        });
+    }
+
+    /**
+     * El ultimo registro de cada tarjeta trae su estado final. version sube para que una
+     * escritura por el camino JPA con una copia anterior choque en vez de pisar el saldo.
+     */
+    private void actualizarTarjetas(List<RegistroDiario> registros) {
+        Map<Long, RegistroDiario> ultimos = new LinkedHashMap<>();
+        for (RegistroDiario registro : registros) {
+            ultimos.put(registro.tarjeta(), registro);
+        }
+        int filas = ultimos.size();
+        String[] tarjetas = new String[filas];
+        BigDecimal[] saldos = new BigDecimal[filas];
+        Long[] secuencias = new Long[filas];
+        Boolean[] activas = new Boolean[filas];
+        Boolean[] bloqueadas = new Boolean[filas];
+        int i = 0;
+        for (RegistroDiario ultimo : ultimos.values()) {
+            tarjetas[i] = TablaTarjetasMemoria.id(ultimo.tarjeta());
+            saldos[i] = TablaTarjetasMemoria.monto(ultimo.saldo());
+            secuencias[i] = ultimo.secuencia();
+            activas[i] = ultimo.activa();
+            bloqueadas[i] = ultimo.bloqueada();
+            i++;
+        }
+        jdbcTemplate.update("""
+                UPDATE tarjeta t
+                SET balance = u.balance, secuencia = u.secuencia, activa = u.activa, bloqueada = u.bloqueada,
+                    version = t.version + 1
+                FROM unnest(CAST(? AS varchar[]), CAST(? AS numeric[]), CAST(? AS bigint[]), CAST(? AS boolean[]),
+                            CAST(? AS boolean[])) AS u(id, balance, secuencia, activa, bloqueada)
+                WHERE t.id = u.id
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", tarjetas));
+            ps.setArray(2, ps.getConnection().createArrayOf("numeric", saldos));
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", secuencias));
+            ps.setArray(4, ps.getConnection().createArrayOf("boolean", activas));
+            ps.setArray(5, ps.getConnection().createArrayOf("boolean", bloqueadas));
+        });
+    }
+
+    private static List<RegistroDiario> filtrar(List<RegistroDiario> registros, RegistroDiario.Tipo tipo) {
+        List<RegistroDiario> filtrados = new ArrayList<>();
+        for (RegistroDiario registro : registros) {
+            if (registro.tipo() == tipo) {
+                filtrados.add(registro);
+            }
+        }
+        return filtrados;
+    }
+
+    private record GastoLlave(long tarjeta, LocalDate dia) {
+    }
+}
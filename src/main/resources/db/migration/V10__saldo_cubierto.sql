@@ -0,0 +1,9 @@
+-- La consulta de saldo (id, balance, secuencia, activa, bloqueada) se responde solo con el
+-- indice, sin visitar la tabla, mientras las paginas esten marcadas visibles por el vacuum.
+-- Costo: balance y secuencia quedan indexadas y los UPDATE que los cambian dejan de ser HOT
+-- (tambien actualizan este indice y la clave primaria).
+CREATE UNIQUE INDEX ix_tarjeta_saldo ON tarjeta (id) INCLUDE (balance, secuencia, activa, bloqueada);
+
+-- Con muchas escrituras el autovacuum por defecto deja las paginas sin marcar y el index-only
+-- scan vuelve a leer la tabla
+ALTER TABLE tarjeta SET (autovacuum_vacuum_scale_factor = 0.02);
@@ -0,0 +1,70 @@
+-- Archivo de transacciones: pasadas las 24 horas para anular una transaccion ya no cambia, y
+-- ArchivoTransacciones la mueve por lotes de transaccion (caliente) a transaccion_archivo.
+-- Las consultas de historial leen la vista transaccion_historial, que une las dos.
+
+CREATE TABLE transaccion_archivo (
+    id                bigint         NOT NULL,
+    id_tarjeta        varchar(16),
+    monto             numeric(38, 2),
+    fecha_transaccion timestamp(6)   NOT NULL,
+    anulada           boolean,
+    CONSTRAINT pk_transaccion_archivo PRIMARY KEY (id)
+);
+
+CREATE INDEX ix_transaccion_archivo_tarjeta_fecha ON transaccion_archivo (id_tarjeta, fecha_transaccion, id);
+
+-- Marca de agua: la ultima (fecha_transaccion, id) archivada. Cada lote sigue desde ahi y la
+-- avanza en la misma sentencia que mueve las filas.
+CREATE TABLE archivo_transaccion_marca (
+    id                smallint     NOT NULL DEFAULT 1,
+    fecha_transaccion timestamp(6) NOT NULL DEFAULT '-infinity',
+    id_transaccion    bigint       NOT NULL DEFAULT 0,
+    actualizado       timestamptz  NOT NULL DEFAULT now(),
+    CONSTRAINT archivo_transaccion_marca_pkey PRIMARY KEY (id),
+    CONSTRAINT archivo_transaccion_marca_unica CHECK (id = 1)
+);
+
+INSERT INTO archivo_transaccion_marca DEFAULT VALUES;
+
+-- Recorrido por fecha desde la marca de agua (el resto de los indices empieza por tarjeta o id)
+CREATE INDEX ix_transaccion_fecha ON transaccion (fecha_transaccion, id);
+
+-- El filtro por tarjeta o id llega a las dos ramas, que usan sus propios indices
+CREATE VIEW transaccion_historial AS
+SELECT id, id_tarjeta, monto, fecha_transaccion, anulada FROM transaccion
+UNION ALL
+SELECT id, id_tarjeta, monto, fecha_transaccion, anulada FROM transaccion_archivo;
+
+/*
+ * Elimina las particiones mensuales de transaccion que terminan antes de hasta y ya quedaron
+ * vacias. Una particion ocupada (por ejemplo, con una fila anterior a la marca que llego
+ * tarde) se deja; tambien la que no se puede tomar en un segundo, para no frenar las compras
+ * detras del bloqueo de la tabla.
+ */
+CREATE FUNCTION eliminar_particiones_archivadas(hasta timestamp) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    particion  text;
+    eliminadas integer := 0;
+    ocupada    boolean;
+BEGIN
+    PERFORM set_config('lock_timeout', '1s', true);
+    FOR particion IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'transaccion'::regclass AND c.relname ~ '^transaccion_[0-9]{6}$'
+          AND to_date(substring(c.relname FROM 13), 'YYYYMM') + interval '1 month' <= hasta
+        ORDER BY c.relname
+    LOOP
+        BEGIN
+            EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', particion) INTO ocupada;
+            IF NOT ocupada THEN
+                EXECUTE format('DROP TABLE %I', particion);
+                eliminadas := eliminadas + 1;
+            END IF;
+        EXCEPTION WHEN lock_not_available THEN
+            RAISE NOTICE 'Particion % ocupada, queda para la siguiente pasada', particion;
+        END;
+    END LOOP;
+    RETURN eliminadas;
+END
+$$;
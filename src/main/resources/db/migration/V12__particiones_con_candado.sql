@@ -0,0 +1,37 @@
+-- Varias instancias corren MantenimientoParticiones al arrancar y con el mismo cron: dos
+-- llamadas que vieran faltar el mismo mes intentarian crear la misma tabla y la segunda
+-- fallaria con duplicate_table. Un candado de asesoramiento de la transaccion las pone en fila;
+-- la que llega despues ya encuentra la particion creada y la saltea.
+
+/*
+ * Crea las particiones mensuales que falten entre el mes de desde y el de hasta. Cada
+ * particion se arma aparte con las filas que hubieran caido en la particion por defecto y
+ * luego se adjunta, asi no falla aunque ya existan transacciones de ese mes. Una sola
+ * ejecucion a la vez en toda la base.
+ */
+CREATE OR REPLACE FUNCTION crear_particiones_transaccion(desde date, hasta date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    mes     date := date_trunc('month', desde)::date;
+    fin     date;
+    nombre  text;
+    creadas integer := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('crear_particiones_transaccion'));
+    WHILE mes <= hasta LOOP
+        fin := (mes + interval '1 month')::date;
+        nombre := 'transaccion_' || to_char(mes, 'YYYYMM');
+        IF to_regclass(nombre) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE transaccion INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nombre);
+            EXECUTE format('WITH movidas AS (DELETE FROM transaccion_default'
+                           ' WHERE fecha_transaccion >= %L AND fecha_transaccion < %L RETURNING *)'
+                           ' INSERT INTO %I SELECT * FROM movidas', mes, fin, nombre);
+            EXECUTE format('ALTER TABLE transaccion ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           nombre, mes, fin);
+            creadas := creadas + 1;
+        END IF;
+        mes := fin;
+    END LOOP;
+    RETURN creadas;
+END
+$$;
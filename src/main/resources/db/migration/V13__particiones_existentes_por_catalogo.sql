@@ -0,0 +1,39 @@
+-- Esperar el candado de asesoramiento de V12 no procesa las invalidaciones del catalogo: si la
+-- sesion ya habia buscado la particion (un DROP TABLE IF EXISTS, una llamada anterior),
+-- to_regclass seguia respondiendo de su cache que no existe aunque otra llamada la acabara de
+-- crear, y el CREATE TABLE fallaba con duplicate_table. La existencia se consulta ahora en
+-- pg_class con la instantanea de la sentencia, tomada ya con el candado.
+
+/*
+ * Crea las particiones mensuales que falten entre el mes de desde y el de hasta. Cada
+ * particion se arma aparte con las filas que hubieran caido en la particion por defecto y
+ * luego se adjunta, asi no falla aunque ya existan transacciones de ese mes. Una sola
+ * ejecucion a la vez en toda la base.
+ */
+CREATE OR REPLACE FUNCTION crear_particiones_transaccion(desde date, hasta date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    mes     date := date_trunc('month', desde)::date;
+    fin     date;
+    nombre  text;
+    creadas integer := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('crear_particiones_transaccion'));
+    WHILE mes <= hasta LOOP
+        fin := (mes + interval '1 month')::date;
+        nombre := 'transaccion_' || to_char(mes, 'YYYYMM');
+        IF NOT EXISTS (SELECT 1 FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                       WHERE c.relname = nombre AND n.nspname = current_schema()) THEN
+            EXECUTE format('CREATE TABLE %I (LIKE transaccion INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nombre);
+            EXECUTE format('WITH movidas AS (DELETE FROM transaccion_default'
+                           ' WHERE fecha_transaccion >= %L AND fecha_transaccion < %L RETURNING *)'
+                           ' INSERT INTO %I SELECT * FROM movidas', mes, fin, nombre);
+            EXECUTE format('ALTER TABLE transaccion ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           nombre, mes, fin);
+            creadas := creadas + 1;
+        END IF;
+        mes := fin;
+    END LOOP;
+    RETURN creadas;
+END
+$$;
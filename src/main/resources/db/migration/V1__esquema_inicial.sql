@@ -0,0 +1,27 @@
+-- Esquema que antes generaba ddl-auto. Las sentencias toleran bases ya creadas por Hibernate.
+
+CREATE TABLE IF NOT EXISTS tarjeta (
+    id               varchar(16)   NOT NULL,
+    id_producto      varchar(6),
+    nombre_titular   varchar(255),
+    fecha_expiracion varchar(255),
+    activa           boolean,
+    bloqueada        boolean,
+    balance          numeric(38, 2),
+    version          bigint        NOT NULL DEFAULT 0,
+    CONSTRAINT tarjeta_pkey PRIMARY KEY (id)
+);
+
+ALTER TABLE tarjeta ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+-- generarTarjeta busca por producto y titular
+CREATE INDEX IF NOT EXISTS ix_tarjeta_producto_titular ON tarjeta (id_producto, nombre_titular);
+
+CREATE TABLE IF NOT EXISTS transaccion (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY,
+    id_tarjeta        varchar(16),
+    monto             numeric(38, 2),
+    fecha_transaccion timestamp(6),
+    anulada           boolean,
+    CONSTRAINT transaccion_pkey PRIMARY KEY (id)
+);
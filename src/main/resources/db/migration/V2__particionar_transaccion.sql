@@ -0,0 +1,65 @@
+-- transaccion pasa a estar particionada por mes sobre fecha_transaccion. La llave primaria
+-- incluye la columna de particion; los ids salen de una secuencia comun a todas las particiones.
+
+CREATE SEQUENCE transaccion_seq;
+
+CREATE TABLE transaccion_particionada (
+    id                bigint         NOT NULL DEFAULT nextval('transaccion_seq'),
+    id_tarjeta        varchar(16),
+    monto             numeric(38, 2),
+    fecha_transaccion timestamp(6)   NOT NULL,
+    anulada           boolean,
+    CONSTRAINT pk_transaccion PRIMARY KEY (id, fecha_transaccion)
+) PARTITION BY RANGE (fecha_transaccion);
+
+-- Filas fuera de las particiones mensuales existentes; crear_particiones_transaccion las
+-- mueve a su mes cuando crea la particion.
+CREATE TABLE transaccion_default PARTITION OF transaccion_particionada DEFAULT;
+
+-- Historial por tarjeta (paginado por llave y streaming) y findByIdAndIdTarjeta
+CREATE INDEX ix_transaccion_tarjeta_fecha ON transaccion_particionada (id_tarjeta, fecha_transaccion, id);
+
+/*
+ * Crea las particiones mensuales que falten entre el mes de desde y el de hasta. Cada
+ * particion se arma aparte con las filas que hubieran caido en la particion por defecto y
+ * luego se adjunta, asi no falla aunque ya existan transacciones de ese mes.
+ */
+CREATE FUNCTION crear_particiones_transaccion(desde date, hasta date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    mes     date := date_trunc('month', desde)::date;
+    fin     date;
+    nombre  text;
+    creadas integer := 0;
+BEGIN
+    WHILE mes <= hasta LOOP
+        fin := (mes + interval '1 month')::date;
+        nombre := 'transaccion_' || to_char(mes, 'YYYYMM');
+        IF to_regclass(nombre) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE transaccion INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nombre);
+            EXECUTE format('WITH movidas AS (DELETE FROM transaccion_default'
+                           ' WHERE fecha_transaccion >= %L AND fecha_transaccion < %L RETURNING *)'
+                           ' INSERT INTO %I SELECT * FROM movidas', mes, fin, nombre);
+            EXECUTE format('ALTER TABLE transaccion ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           nombre, mes, fin);
+            creadas := creadas + 1;
+        END IF;
+        mes := fin;
+    END LOOP;
+    RETURN creadas;
+END
+$$;
+
+-- Copia lo que hubiera en la tabla anterior y la reemplaza
+INSERT INTO transaccion_particionada (id, id_tarjeta, monto, fecha_transaccion, anulada)
+SELECT id, id_tarjeta, monto, COALESCE(fecha_transaccion, now()), anulada FROM transaccion;
+
+SELECT setval('transaccion_seq', COALESCE((SELECT max(id) FROM transaccion_particionada), 0) + 1, false);
+
+DROP TABLE transaccion;
+ALTER TABLE transaccion_particionada RENAME TO transaccion;
+ALTER SEQUENCE transaccion_seq OWNED BY transaccion.id;
+
+SELECT crear_particiones_transaccion(
+        COALESCE((SELECT min(fecha_transaccion) FROM transaccion)::date, current_date),
+        (current_date + interval '3 months')::date);
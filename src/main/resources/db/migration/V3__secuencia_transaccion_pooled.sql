@@ -0,0 +1,6 @@
+-- Hibernate reserva los ids de transaccion de a 50 (optimizador pooled): cada nextval es el
+-- tope de un bloque. El siguiente valor se deja a un bloque completo de los ids existentes.
+
+ALTER SEQUENCE transaccion_seq INCREMENT BY 50;
+
+SELECT setval('transaccion_seq', COALESCE((SELECT max(id) FROM transaccion), 0) + 50, false);
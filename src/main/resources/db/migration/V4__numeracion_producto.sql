@@ -0,0 +1,7 @@
+-- Contador por producto del que cada instancia reserva bloques de numeros de tarjeta
+
+CREATE TABLE numeracion_producto (
+    id_producto varchar(6) NOT NULL,
+    siguiente   bigint     NOT NULL,
+    CONSTRAINT numeracion_producto_pkey PRIMARY KEY (id_producto)
+);
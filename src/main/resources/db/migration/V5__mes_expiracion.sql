@@ -0,0 +1,20 @@
+-- Vencimiento como mes desde epoch (enero de 1970 = 0) en vez de texto MM/yyyy, y marca de
+-- tarjeta expirada que mantiene el barrido programado
+
+ALTER TABLE tarjeta ADD COLUMN mes_expiracion integer;
+
+UPDATE tarjeta
+SET mes_expiracion = (split_part(fecha_expiracion, '/', 2)::int - 1970) * 12
+                     + split_part(fecha_expiracion, '/', 1)::int - 1
+WHERE fecha_expiracion ~ '^[0-9]{2}/[0-9]{4}$';
+
+ALTER TABLE tarjeta DROP COLUMN fecha_expiracion;
+
+ALTER TABLE tarjeta ADD COLUMN expirada boolean NOT NULL DEFAULT false;
+
+UPDATE tarjeta
+SET expirada = true
+WHERE mes_expiracion < (extract(year FROM current_date)::int - 1970) * 12 + extract(month FROM current_date)::int - 1;
+
+-- Solo las tarjetas aun no marcadas: el barrido recorre este indice y no la tabla completa
+CREATE INDEX ix_tarjeta_por_expirar ON tarjeta (mes_expiracion) WHERE NOT expirada;
@@ -0,0 +1,12 @@
+-- Respaldo opcional de las Idempotency-Key (bankinc.idempotencia.persistente). La fila se
+-- reclama antes de ejecutar y guarda la respuesta exitosa; respuesta NULL = en curso.
+
+CREATE TABLE idempotencia (
+    clave     varchar(300) NOT NULL,
+    huella    varchar(200) NOT NULL,
+    respuesta text,
+    creada    timestamptz  NOT NULL DEFAULT now(),
+    CONSTRAINT idempotencia_pkey PRIMARY KEY (clave)
+);
+
+CREATE INDEX ix_idempotencia_creada ON idempotencia (creada);
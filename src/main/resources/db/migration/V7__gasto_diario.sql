@@ -0,0 +1,25 @@
+-- Gasto por tarjeta y dia, mantenido en la misma sentencia/transaccion que las compras y las
+-- anulaciones. Una anulacion se descuenta en el dia de la compra original.
+
+CREATE TABLE gasto_diario (
+    id_tarjeta  varchar(16)    NOT NULL,
+    dia         date           NOT NULL,
+    id_producto varchar(6)     NOT NULL,
+    compras     integer        NOT NULL DEFAULT 0,
+    monto       numeric(38, 2) NOT NULL DEFAULT 0,
+    anulaciones integer        NOT NULL DEFAULT 0,
+    anulado     numeric(38, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT gasto_diario_pkey PRIMARY KEY (id_tarjeta, dia)
+);
+
+-- Resumen por producto: filas del rango de dias de las tarjetas del producto
+CREATE INDEX ix_gasto_diario_producto_dia ON gasto_diario (id_producto, dia);
+
+INSERT INTO gasto_diario (id_tarjeta, dia, id_producto, compras, monto, anulaciones, anulado)
+SELECT t.id_tarjeta, t.fecha_transaccion::date, COALESCE(max(c.id_producto), left(t.id_tarjeta, 6)),
+       count(*), COALESCE(sum(t.monto), 0),
+       count(*) FILTER (WHERE t.anulada), COALESCE(sum(t.monto) FILTER (WHERE t.anulada), 0)
+FROM transaccion t
+LEFT JOIN tarjeta c ON c.id = t.id_tarjeta
+WHERE t.id_tarjeta IS NOT NULL
+GROUP BY t.id_tarjeta, t.fecha_transaccion::date;
@@ -0,0 +1,37 @@
+-- Libro mayor de la tarjeta: cada cambio de saldo es un movimiento con secuencia propia de la
+-- tarjeta (1, 2, 3...). Solo se insertan filas; tarjeta.balance es la proyeccion y
+-- tarjeta.secuencia el ultimo movimiento aplicado. Las filas solo desaparecen si se borra la
+-- tarjeta, que la API no expone.
+
+ALTER TABLE tarjeta ADD COLUMN secuencia bigint NOT NULL DEFAULT 0;
+
+-- monto con signo: creditos positivos, debitos negativos
+CREATE TABLE movimiento (
+    id_tarjeta     varchar(16)    NOT NULL,
+    secuencia      bigint         NOT NULL,
+    tipo           varchar(10)    NOT NULL,
+    monto          numeric(38, 2) NOT NULL,
+    id_transaccion bigint,
+    fecha          timestamp      NOT NULL,
+    CONSTRAINT movimiento_pkey PRIMARY KEY (id_tarjeta, secuencia),
+    CONSTRAINT movimiento_tarjeta_fkey FOREIGN KEY (id_tarjeta) REFERENCES tarjeta (id) ON DELETE CASCADE
+);
+
+-- Saldo de la tarjeta tras el movimiento secuencia, calculado desde el libro. Reconstruir
+-- parte de la ultima y suma los movimientos posteriores.
+CREATE TABLE saldo_instantanea (
+    id_tarjeta varchar(16)    NOT NULL,
+    secuencia  bigint         NOT NULL,
+    balance    numeric(38, 2) NOT NULL,
+    creada     timestamptz    NOT NULL DEFAULT now(),
+    CONSTRAINT saldo_instantanea_pkey PRIMARY KEY (id_tarjeta, secuencia),
+    CONSTRAINT saldo_instantanea_tarjeta_fkey FOREIGN KEY (id_tarjeta) REFERENCES tarjeta (id) ON DELETE CASCADE
+);
+
+-- Los saldos existentes entran al libro como apertura
+INSERT INTO movimiento (id_tarjeta, secuencia, tipo, monto, fecha)
+SELECT id, 1, 'APERTURA', balance, now()
+FROM tarjeta
+WHERE balance IS NOT NULL AND balance <> 0;
+
+UPDATE tarjeta SET secuencia = 1 WHERE balance IS NOT NULL AND balance <> 0;
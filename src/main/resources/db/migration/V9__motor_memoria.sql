@@ -0,0 +1,10 @@
+-- Hasta donde el diario de escritura de cada motor en memoria ya esta volcado a las tablas.
+-- Se actualiza en la misma transaccion que el volcado: al recuperar se reproduce solo lo
+-- posterior.
+
+CREATE TABLE motor_checkpoint (
+    nombre      varchar(50) NOT NULL,
+    posicion    bigint      NOT NULL DEFAULT 0,
+    actualizado timestamptz NOT NULL DEFAULT now(),
+    CONSTRAINT motor_checkpoint_pkey PRIMARY KEY (nombre)
+);
@@ -0,0 +1,55 @@
+package com.bankinc.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ColaConexionesDataSourceTest {
+
+    @Test
+    void sinTurno_fallaAlVencerLaEspera() throws Exception {
+        DataSource destino = mock(DataSource.class);
+        when(destino.getConnection()).thenReturn(mock(Connection.class));
+        ColaConexionesDataSource cola = new ColaConexionesDataSource(destino, 1, 50);
+
+        cola.getConnection();
+
+        assertThatThrownBy(cola::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("Sin conexion disponible");
+    }
+
+    @Test
+    void cerrar_liberaElTurnoUnaSolaVez() throws Exception {
+        DataSource destino = mock(DataSource.class);
+        Connection real = mock(Connection.class);
+        when(destino.getConnection()).thenReturn(real);
+        ColaConexionesDataSource cola = new ColaConexionesDataSource(destino, 1, 50);
+
+        Connection primera = cola.getConnection();
+        primera.close();
+        primera.close();
+        Connection segunda = cola.getConnection();
+
+        assertThat(segunda).isNotNull();
+        assertThatThrownBy(cola::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test
+    void errorAlAbrir_devuelveElTurno() throws Exception {
+        DataSource destino = mock(DataSource.class);
+        when(destino.getConnection()).thenThrow(new SQLException("caida")).thenReturn(mock(Connection.class));
+        ColaConexionesDataSource cola = new ColaConexionesDataSource(destino, 1, 50);
+
+        assertThatThrownBy(cola::getConnection).hasMessage("caida");
+        assertThat(cola.getConnection()).isNotNull();
+    }
+}
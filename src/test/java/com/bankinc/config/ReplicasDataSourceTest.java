@@ -0,0 +1,122 @@
+package com.bankinc.config;
+
+import com.bankinc.service.LecturaPropia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicasDataSourceTest {
+
+    private final Connection primaria = mock(Connection.class);
+    private DataSource primario;
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        primario = origen(primaria);
+    }
+
+    @Test
+    void lecturas_turnanEntreReplicas() throws Exception {
+        Connection a = mock(Connection.class);
+        Connection b = mock(Connection.class);
+        ReplicasDataSource replicas = new ReplicasDataSource(primario, List.of(origen(a), origen(b)), Duration.ofSeconds(5));
+
+        assertThat(List.of(replicas.getConnection(), replicas.getConnection(), replicas.getConnection()))
+                .containsExactly(a, b, a);
+        assertThat(replicas.replicas().get(0).lecturas()).isEqualTo(2);
+        assertThat(replicas.lecturasPrimario()).isZero();
+    }
+
+    @Test
+    void replicaSinConexion_quedaFueraYLeeLaSiguiente() throws Exception {
+        DataSource caida = mock(DataSource.class);
+        when(caida.getConnection()).thenThrow(new SQLException("caida"));
+        Connection b = mock(Connection.class);
+        ReplicasDataSource replicas = new ReplicasDataSource(primario, List.of(caida, origen(b)), Duration.ofSeconds(5));
+
+        assertThat(replicas.getConnection()).isSameAs(b);
+        assertThat(replicas.replicas().get(0).sana()).isFalse();
+        assertThat(replicas.getConnection()).isSameAs(b);
+    }
+
+    @Test
+    void sinReplicasSanas_leeDelPrimario() throws Exception {
+        DataSource caida = mock(DataSource.class);
+        when(caida.getConnection()).thenThrow(new SQLException("caida"));
+        ReplicasDataSource replicas = new ReplicasDataSource(primario, List.of(caida), Duration.ofSeconds(5));
+
+        assertThat(replicas.getConnection()).isSameAs(primaria);
+        assertThat(replicas.lecturasPrimario()).isEqualTo(1);
+    }
+
+    @Test
+    void chequeo_sacaLaReplicaAtrasadaYLaDevuelveAlPonerseAlDia() throws Exception {
+        Connection b = conAtraso(0.0, 0.0);
+        ReplicasDataSource replicas = new ReplicasDataSource(primario,
+                List.of(origen(conAtraso(30.0, 0.5)), origen(b)), Duration.ofSeconds(5));
+
+        replicas.verificar();
+        assertThat(replicas.replicas().get(0).sana()).isFalse();
+        assertThat(replicas.replicas().get(0).retrasoSegundos()).isEqualTo(30.0);
+        assertThat(replicas.getConnection()).isSameAs(b);
+        assertThat(replicas.getConnection()).isSameAs(b);
+
+        replicas.verificar();
+        assertThat(replicas.replicas().get(0).sana()).isTrue();
+    }
+
+    @Test
+    void lecturaPropia_vaAlPrimario() throws Exception {
+        Connection a = mock(Connection.class);
+        ReplicasDataSource replicas = new ReplicasDataSource(primario, List.of(origen(a)), Duration.ofSeconds(5));
+        LecturaPropia lecturaPropia = new LecturaPropia(List.of("jdbc:postgresql://replica/bankinc"), Duration.ofMinutes(1));
+        lecturaPropia.escribio("4111");
+
+        assertThat(lecturaPropia.leer("4111", () -> conexion(replicas))).isSameAs(primaria);
+        assertThat(lecturaPropia.leer("4222", () -> conexion(replicas))).isSameAs(a);
+        // Lo que la replica no encuentra se busca otra vez en el primario
+        assertThat(lecturaPropia.buscar("4222", () -> Optional.of(conexion(replicas))
+                .filter(c -> c == primaria))).contains(primaria);
+    }
+
+    private static DataSource origen(Connection conexion) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(conexion);
+        return dataSource;
+    }
+
+    /**
+     * Conexion de una replica que informa un atraso distinto en cada chequeo.
+     */
+    private static Connection conAtraso(double primero, double segundo) throws SQLException {
+        ResultSet fila = mock(ResultSet.class);
+        when(fila.next()).thenReturn(true);
+        when(fila.getDouble(1)).thenReturn(primero, segundo);
+        Statement sentencia = mock(Statement.class);
+        when(sentencia.executeQuery(anyString())).thenReturn(fila);
+        Connection conexion = mock(Connection.class);
+        when(conexion.createStatement()).thenReturn(sentencia);
+        return conexion;
+    }
+
+    private static Connection conexion(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.bankinc.controller;
+
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carga HTTP mixta (consultas de saldo y compras) con muchos clientes concurrentes. Las
+ * subclases levantan la aplicacion con hilos de plataforma o virtuales para comparar
+ * throughput y p99 bajo el mismo pool de conexiones. Los clientes usan hilos de plataforma para
+ * no competir por los hilos portadores del servidor.
+ */
+abstract class ComparacionHilos {
+
+    private static final int CLIENTES = 1000;
+    private static final int PETICIONES_POR_CLIENTE = 20;
+    private static final int TARJETAS = 200;
+    private static final String PREFIJO = "9999995";
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> tarjetas = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        for (int i = 0; i < TARJETAS; i++) {
+            String id = PREFIJO + String.format("%09d", i);
+            tarjetas.add(id);
+            tarjetaRepository.save(Tarjeta.builder()
+                    .id(id)
+                    .idProducto(id.substring(0, 6))
+                    .nombreTitular("Prueba Carga")
+                    .fechaExpiracion("12/2099")
+                    .activa(true)
+                    .bloqueada(false)
+                    .balance(new BigDecimal("1000000.00"))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta LIKE ?", PREFIJO + "%");
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id LIKE ?", PREFIJO + "%");
+    }
+
+    @Test
+    void cargaMixta() throws Exception {
+        ejecutar(CLIENTES / 10, 5);
+        Resultado resultado = ejecutar(CLIENTES, PETICIONES_POR_CLIENTE);
+
+        System.out.printf("%s: %d clientes, %.0f peticiones/s, p50 %.1f ms, p99 %.1f ms, %d errores%n",
+                getClass().getSimpleName(), CLIENTES, resultado.porSegundo(),
+                resultado.percentil(0.50), resultado.percentil(0.99), resultado.errores);
+        assertThat(resultado.errores).isZero();
+    }
+
+    /**
+     * Cada cliente hace 80% consultas de saldo y 20% compras sobre tarjetas al azar.
+     */
+    private Resultado ejecutar(int clientes, int peticiones) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long[] latencias = new long[clientes * peticiones];
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+        CountDownLatch inicio = new CountDownLatch(1);
+        long t0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(clientes)) {
+            for (int c = 0; c < clientes; c++) {
+                executor.submit(() -> {
+                    inicio.await();
+                    for (int p = 0; p < peticiones; p++) {
+                        long antes = System.nanoTime();
+                        try {
+                            HttpResponse<Void> respuesta = http.send(peticion(), HttpResponse.BodyHandlers.discarding());
+                            if (respuesta.statusCode() != 200) {
+                                errores.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errores.incrementAndGet();
+                        }
+                        latencias[siguiente.getAndIncrement()] = System.nanoTime() - antes;
+                    }
+                    return null;
+                });
+            }
+            t0 = System.nanoTime();
+            inicio.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        }
+        return new Resultado(latencias, errores.get(), System.nanoTime() - t0);
+    }
+
+    private HttpRequest peticion() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        String tarjeta = tarjetas.get(aleatorio.nextInt(tarjetas.size()));
+        if (aleatorio.nextInt(5) == 0) {
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/transaction/create"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"cardId\":\"" + tarjeta + "\",\"price\":1.00}"))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/card/balance/" + tarjeta))
+                .GET()
+                .build();
+    }
+
+    private record Resultado(long[] latencias, int errores, long nanos) {
+        double porSegundo() {
+            return latencias.length / (nanos / 1_000_000_000.0);
+        }
+
+        double percentil(double p) {
+            long[] ordenadas = latencias.clone();
+            Arrays.sort(ordenadas);
+            return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
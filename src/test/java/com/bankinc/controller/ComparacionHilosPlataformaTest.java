@@ -0,0 +1,13 @@
+package com.bankinc.controller;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Ejecutar con -Dbankinc.benchmark=true.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "spring.threads.virtual.enabled=false"})
+@EnabledIfSystemProperty(named = "bankinc.benchmark", matches = "true")
+class ComparacionHilosPlataformaTest extends ComparacionHilos {
+}
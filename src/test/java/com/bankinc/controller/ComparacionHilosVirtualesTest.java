@@ -0,0 +1,15 @@
+package com.bankinc.controller;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Ejecutar con -Dbankinc.benchmark=true.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("virtual")
+@EnabledIfSystemProperty(named = "bankinc.benchmark", matches = "true")
+class ComparacionHilosVirtualesTest extends ComparacionHilos {
+}
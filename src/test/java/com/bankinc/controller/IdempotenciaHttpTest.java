@@ -0,0 +1,141 @@
+package com.bankinc.controller;
+
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.IdempotenciaRepository;
+import com.bankinc.service.Idempotencia;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reintentos con Idempotency-Key contra la base, con el respaldo en la tabla idempotencia.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "bankinc.idempotencia.persistente=true")
+class IdempotenciaHttpTest {
+
+    private static final String TARJETA = "9999990000000080";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdempotenciaRepository repositorio;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String prefijo = UUID.randomUUID().toString();
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate.update("""
+                INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada, balance, version)
+                VALUES (?, '999999', 'Prueba Idempotencia', 1559, false, true, false, 100.00, 0)
+                """, TARJETA);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", TARJETA);
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id = ?", TARJETA);
+        jdbcTemplate.update("DELETE FROM idempotencia WHERE clave LIKE ?", "%:" + prefijo + "%");
+    }
+
+    @Test
+    void recarga_repetida_acreditaUnaVez() {
+        String clave = prefijo + "-recarga";
+        Map<String, Object> cuerpo = Map.of("cardId", TARJETA, "balance", 10);
+
+        ResponseEntity<String> primera = rest.postForEntity("/card/balance", conClave(cuerpo, clave), String.class);
+        ResponseEntity<String> segunda = rest.postForEntity("/card/balance", conClave(cuerpo, clave), String.class);
+
+        assertThat(primera.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(primera.getHeaders().containsKey(Idempotencia.CABECERA_REPETIDA)).isFalse();
+        assertThat(segunda.getHeaders().getFirst(Idempotencia.CABECERA_REPETIDA)).isEqualTo("true");
+        assertThat(segunda.getBody()).isEqualTo(primera.getBody());
+        assertThat(balance()).isEqualByComparingTo("110.00");
+
+        // Otra instancia (memoria vacia) lee la respuesta guardada en vez de acreditar
+        Idempotencia otraInstancia = new Idempotencia(100, Duration.ofHours(1), Duration.ofSeconds(5), true,
+                repositorio, objectMapper, new SimpleMeterRegistry());
+        Idempotencia.Resultado<Tarjeta> guardada = otraInstancia.ejecutar("recarga", clave,
+                Idempotencia.huella(TARJETA, BigDecimal.TEN), Tarjeta.class, () -> {
+                    throw new AssertionError("no debe ejecutar");
+                });
+        assertThat(guardada.repetida()).isTrue();
+        assertThat(guardada.respuesta().getData().getBalance()).isEqualByComparingTo("110.00");
+    }
+
+    @Test
+    void comprasDuplicadasConcurrentes_debitanUnaVez() throws Exception {
+        String clave = prefijo + "-compra";
+        Map<String, Object> cuerpo = Map.of("cardId", TARJETA, "price", 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ResponseEntity<String>>> respuestas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            respuestas.add(executor.submit(() ->
+                    rest.postForEntity("/transaction/create", conClave(cuerpo, clave), String.class)));
+        }
+        String original = null;
+        for (Future<ResponseEntity<String>> respuesta : respuestas) {
+            ResponseEntity<String> r = respuesta.get(30, TimeUnit.SECONDS);
+            assertThat(r.getStatusCode().is2xxSuccessful()).isTrue();
+            original = original == null ? r.getBody() : original;
+            assertThat(r.getBody()).isEqualTo(original);
+        }
+        executor.shutdown();
+
+        assertThat(balance()).isEqualByComparingTo("90.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaccion WHERE id_tarjeta = ?",
+                Long.class, TARJETA)).isEqualTo(1L);
+    }
+
+    @Test
+    void mismaClave_otroMonto_seRechaza() {
+        String clave = prefijo + "-otra";
+        rest.postForEntity("/transaction/create", conClave(Map.of("cardId", TARJETA, "price", 10), clave), String.class);
+
+        ResponseEntity<String> otra = rest.postForEntity("/transaction/create",
+                conClave(Map.of("cardId", TARJETA, "price", 20), clave), String.class);
+
+        assertThat(otra.getStatusCode().value()).isEqualTo(400);
+        assertThat(otra.getBody()).contains("La Idempotency-Key ya se uso con otra solicitud");
+        assertThat(balance()).isEqualByComparingTo("90.00");
+    }
+
+    private static HttpEntity<Map<String, Object>> conClave(Map<String, Object> cuerpo, String clave) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set(Idempotencia.CABECERA, clave);
+        return new HttpEntity<>(cuerpo, cabeceras);
+    }
+
+    private BigDecimal balance() {
+        return jdbcTemplate.queryForObject("SELECT balance FROM tarjeta WHERE id = ?", BigDecimal.class, TARJETA);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.EstadoImportacion;
+import com.bankinc.service.ImportacionTarjetasService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportacionTarjetasControllerTest {
+
+    @Mock
+    private ImportacionTarjetasService importacionService;
+
+    @InjectMocks
+    private ImportacionTarjetasController importacionController;
+
+    private final EstadoImportacion estado = new EstadoImportacion("imp-1", "123456", "EN_CURSO", 0, 0, 0,
+            List.of(), "Importacion en curso", LocalDateTime.now(), null);
+
+    @Test
+    void importarTarjetas_shouldReturnAccepted_whenStarted() {
+        MockMultipartFile archivo = new MockMultipartFile("file", "Juan,Perez".getBytes(StandardCharsets.UTF_8));
+        when(importacionService.iniciarImportacion("123456", archivo))
+                .thenReturn(new ApiResponse<>("SUCCESS", "Importacion iniciada", estado));
+
+        ResponseEntity<ApiResponse<EstadoImportacion>> result = importacionController.importarTarjetas("123456", archivo);
+
+        assertThat(result.getStatusCode().value()).isEqualTo(202);
+        assertThat(result.getBody().getData().getId()).isEqualTo("imp-1");
+    }
+
+    @Test
+    void obtenerImportacion_shouldReturnBadRequest_whenUnknown() {
+        when(importacionService.obtenerImportacion("x"))
+                .thenReturn(new ApiResponse<>("ERROR", "Importacion no encontrada", null));
+
+        assertThat(importacionController.obtenerImportacion("x").getStatusCode().value()).isEqualTo(400);
+    }
+
+    @Test
+    void obtenerRechazos_shouldStreamCsv() throws Exception {
+        when(importacionService.existeImportacion("imp-1")).thenReturn(true);
+        doAnswer(i -> {
+            i.<OutputStream>getArgument(1).write("linea,titular,motivo\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(importacionService).escribirRechazos(eq("imp-1"), any());
+
+        ResponseEntity<StreamingResponseBody> result = importacionController.obtenerRechazos("imp-1");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        result.getBody().writeTo(salida);
+
+        assertThat(result.getStatusCode().value()).isEqualTo(200);
+        assertThat(salida.toString(StandardCharsets.UTF_8)).startsWith("linea,titular,motivo");
+    }
+}
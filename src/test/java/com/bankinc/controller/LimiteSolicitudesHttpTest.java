@@ -0,0 +1,159 @@
+package com.bankinc.controller;
+
+import com.bankinc.service.Idempotencia;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Limites por tarjeta y por cliente a traves de HTTP, con tasas bajas para que el rechazo
+ * llegue en pocas peticiones.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "bankinc.limite.tarjeta.por-segundo=0.1",
+        "bankinc.limite.tarjeta.rafaga=2",
+        "bankinc.limite.cliente.por-segundo=0.1",
+        "bankinc.limite.cliente.rafaga=3"
+})
+class LimiteSolicitudesHttpTest {
+
+    private static final String TARJETA = "9999810000000001";
+    private static final String TARJETA_IDEMPOTENTE = "9999810000000002";
+    private static final String TARJETA_LOTE = "9999810000000003";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void preparar() {
+        // Cada test con su tarjeta: las cubetas del limite duran toda la corrida
+        for (String tarjeta : new String[]{TARJETA, TARJETA_IDEMPOTENTE, TARJETA_LOTE}) {
+            jdbcTemplate.update("""
+                    INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada, balance, version)
+                    VALUES (?, '999981', 'Prueba Limite', 1559, false, true, false, 100.00, 0)
+                    """, tarjeta);
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM movimiento WHERE id_tarjeta IN (?, ?, ?)", TARJETA, TARJETA_IDEMPOTENTE, TARJETA_LOTE);
+        jdbcTemplate.update("DELETE FROM gasto_diario WHERE id_tarjeta IN (?, ?, ?)", TARJETA, TARJETA_IDEMPOTENTE, TARJETA_LOTE);
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta IN (?, ?, ?)", TARJETA, TARJETA_IDEMPOTENTE, TARJETA_LOTE);
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id IN (?, ?, ?)", TARJETA, TARJETA_IDEMPOTENTE, TARJETA_LOTE);
+    }
+
+    @Test
+    void compras_pasadaLaRafagaDeLaTarjeta_responden429SinDebitar() {
+        Map<String, Object> compra = Map.of("cardId", TARJETA, "price", 10);
+
+        // Un cliente distinto por peticion: solo cuenta el limite de la tarjeta
+        assertThat(comprar(compra).getStatusCode().value()).isEqualTo(200);
+        assertThat(comprar(compra).getStatusCode().value()).isEqualTo(200);
+        ResponseEntity<String> rechazada = comprar(compra);
+
+        assertThat(rechazada.getStatusCode().value()).isEqualTo(429);
+        assertThat(rechazada.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+        assertThat(rechazada.getBody()).contains("Demasiadas solicitudes para la tarjeta");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaccion WHERE id_tarjeta = ?",
+                Integer.class, TARJETA)).isEqualTo(2);
+        assertThat(meterRegistry.get("bankinc.limite.rechazos").tag("clave", "tarjeta").counter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void lote_conMasComprasQueLaRafagaDeLaTarjeta_responde429SinDebitar() {
+        Map<String, Object> compra = Map.of("cardId", TARJETA_LOTE, "price", 10);
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set("X-Api-Client", "terminal-" + UUID.randomUUID());
+
+        ResponseEntity<String> rechazado = rest.postForEntity("/transaction/batch",
+                new HttpEntity<>(List.of(compra, compra, compra), cabeceras), String.class);
+
+        assertThat(rechazado.getStatusCode().value()).isEqualTo(429);
+        assertThat(rechazado.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(rechazado.getBody()).contains("Demasiadas solicitudes para la tarjeta");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaccion WHERE id_tarjeta = ?",
+                Integer.class, TARJETA_LOTE)).isZero();
+    }
+
+    @Test
+    void reintentoIdempotente_conLaTarjetaPasadaDelLimite_recibeLaCompraGuardada() {
+        Map<String, Object> compra = Map.of("cardId", TARJETA_IDEMPOTENTE, "price", 10);
+        String clave = UUID.randomUUID().toString();
+
+        ResponseEntity<String> primera = comprar(compra, clave);
+        assertThat(primera.getStatusCode().value()).isEqualTo(200);
+        assertThat(comprar(compra).getStatusCode().value()).isEqualTo(200);
+        assertThat(comprar(compra).getStatusCode().value()).isEqualTo(429);
+
+        ResponseEntity<String> reintento = comprar(compra, clave);
+
+        assertThat(reintento.getStatusCode().value()).isEqualTo(200);
+        assertThat(reintento.getHeaders().getFirst(Idempotencia.CABECERA_REPETIDA)).isEqualTo("true");
+        assertThat(reintento.getBody()).isEqualTo(primera.getBody());
+        assertThat(comprar(compra, UUID.randomUUID().toString()).getStatusCode().value()).isEqualTo(429);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaccion WHERE id_tarjeta = ?",
+                Integer.class, TARJETA_IDEMPOTENTE)).isEqualTo(2);
+    }
+
+    @Test
+    void cliente_pasadaSuRafaga_recibe429AntesDelControlador() {
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set("X-Api-Client", "terminal-" + UUID.randomUUID());
+        HttpEntity<Void> peticion = new HttpEntity<>(cabeceras);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(rest.exchange("/card/balance/" + TARJETA, HttpMethod.GET, peticion, String.class)
+                    .getStatusCode().value()).isEqualTo(200);
+        }
+        ResponseEntity<String> rechazada = rest.exchange("/card/balance/" + TARJETA, HttpMethod.GET, peticion, String.class);
+
+        assertThat(rechazada.getStatusCode().value()).isEqualTo(429);
+        assertThat(rechazada.getBody()).contains("Demasiadas solicitudes del cliente");
+        assertThat(meterRegistry.get("bankinc.limite.rechazos").tag("clave", "cliente").counter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void sinCabeceraDeCliente_noSeLimitaPorDireccionRemota() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(rest.getForEntity("/card/balance/" + TARJETA, String.class).getStatusCode().value())
+                    .isEqualTo(200);
+        }
+    }
+
+    private ResponseEntity<String> comprar(Map<String, Object> compra) {
+        return comprar(compra, null);
+    }
+
+    private ResponseEntity<String> comprar(Map<String, Object> compra, String claveIdempotencia) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set("X-Api-Client", "terminal-" + UUID.randomUUID());
+        if (claveIdempotencia != null) {
+            cabeceras.set(Idempotencia.CABECERA, claveIdempotencia);
+        }
+        return rest.postForEntity("/transaction/create", new HttpEntity<>(compra, cabeceras), String.class);
+    }
+}
@@ -0,0 +1,43 @@
+package com.bankinc.controller;
+
+import com.bankinc.dto.ApiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricasRespuestasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricasRespuestas metricas = new MetricasRespuestas(registry);
+
+    @Test
+    void mensaje_reemplazaNumeros() {
+        assertThat(MetricasRespuestas.mensaje("Lote procesado: 12 aprobadas, 3 rechazadas"))
+                .isEqualTo("Lote procesado: # aprobadas, # rechazadas");
+        assertThat(MetricasRespuestas.mensaje(null)).isEmpty();
+    }
+
+    @Test
+    void lote_cuentaLaRespuestaYCadaItem() {
+        MockHttpServletRequest servlet = new MockHttpServletRequest("POST", "/transaction/batch");
+        servlet.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/transaction/batch");
+        ApiResponse<List<ApiResponse<Object>>> lote = new ApiResponse<>("SUCCESS", "Lote procesado: 1 aprobadas, 1 rechazadas",
+                List.of(new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", null),
+                        new ApiResponse<>("ERROR", "Tarjeta bloqueada", null)));
+
+        metricas.beforeBodyWrite(lote, null, null, null, new ServletServerHttpRequest(servlet), null);
+
+        assertThat(registry.get(MetricasRespuestas.METRICA)
+                .tags("endpoint", "POST /transaction/batch", "mensaje", "Lote procesado: # aprobadas, # rechazadas")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(registry.get(MetricasRespuestas.METRICA)
+                .tags("endpoint", "POST /transaction/batch[]", "status", "ERROR", "mensaje", "Tarjeta bloqueada")
+                .counter().count()).isEqualTo(1.0);
+    }
+}
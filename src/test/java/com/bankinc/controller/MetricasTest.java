@@ -0,0 +1,90 @@
+package com.bankinc.controller;
+
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contra la aplicacion levantada: las peticiones dejan series de latencia, resultado, servicio,
+ * repositorio, serializacion y pool en /actuator/prometheus.
+ */
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MetricasTest {
+
+    private static final String TARJETA = "9999990000000050";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", TARJETA);
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id = ?", TARJETA);
+    }
+
+    @Test
+    void prometheus_exponeLatenciasResultadosYPool() {
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto(TARJETA.substring(0, 6))
+                .nombreTitular("Prueba Metricas")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("5.00"))
+                .build());
+
+        rest.getForEntity("/card/balance/" + TARJETA, String.class);
+        ResponseEntity<String> compra =
+                rest.postForEntity("/transaction/create", Map.of("cardId", TARJETA, "price", 10), String.class);
+        rest.postForEntity("/transaction/batch", List.of(
+                Map.of("cardId", TARJETA, "price", 1),
+                Map.of("cardId", TARJETA, "price", 100)), String.class);
+
+        ResponseEntity<String> respuesta = rest.getForEntity("/actuator/prometheus", String.class);
+
+        // La compra es una sola sentencia (CTE de autorizacion) que lee una fila
+        assertThat(compra.getHeaders().getFirst(CabecerasSql.SENTENCIAS)).isEqualTo("1");
+        assertThat(compra.getHeaders().getFirst(CabecerasSql.FILAS)).isEqualTo("1");
+        assertThat(compra.getHeaders().getFirst(CabecerasSql.TIEMPO)).isNotBlank();
+
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuesta.getBody())
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/card/balance/{cardId}\"")
+                .contains("endpoint=\"POST /transaction/create\",mensaje=\"Fondos insuficientes\",status=\"ERROR\"")
+                .contains("endpoint=\"POST /transaction/batch\",mensaje=\"Lote procesado: # aprobadas, # rechazadas\"")
+                .contains("endpoint=\"POST /transaction/batch[]\",mensaje=\"Fondos insuficientes\"")
+                .contains("bankinc_servicio_seconds_bucket{")
+                .contains("method=\"crearTransaccion\"")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("bankinc_http_serializacion_seconds_bucket{")
+                .contains("hikaricp_connections_pending{")
+                .contains("hikaricp_connections_acquire_seconds_bucket{")
+                .contains("hikaricp_connections_usage_seconds_bucket{")
+                .contains("bankinc_sql_sentencias_count{endpoint=\"POST /transaction/create\"")
+                .contains("bankinc_sql_filas_sum{endpoint=\"POST /transaction/batch\"")
+                .contains("bankinc_sql_tiempo_seconds_bucket{endpoint=\"GET /card/balance/{cardId}\"");
+    }
+}
@@ -0,0 +1,117 @@
+package com.bankinc.controller;
+
+import com.bankinc.service.CacheTarjetas;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Peticiones HTTP completas con una replica que rechaza escrituras y todavia no tiene datos: la
+ * misma base abierta con default_transaction_read_only y un search_path a tablas vacias. Una
+ * escritura que tomara la conexion de replica de una lectura anterior de la peticion fallaria,
+ * y una lectura que la replica no encuentra solo aparece si el reintento va de verdad al primario.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "bankinc.replicas.urls=${spring.datasource.url}?options=-c%20default_transaction_read_only%3Don%20-c%20search_path%3Dreplica_prueba",
+        "bankinc.replicas.lectura-propia=0s"
+})
+class ReplicasHttpTest {
+
+    private static final String PRODUCTO = "999979";
+    private static final String TARJETA = "9999790000000001";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @BeforeEach
+    void preparar() {
+        jdbc.execute("CREATE SCHEMA IF NOT EXISTS replica_prueba");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS replica_prueba.tarjeta (LIKE public.tarjeta)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS replica_prueba.transaccion_historial (LIKE public.transaccion_archivo)");
+        jdbc.update("""
+                INSERT INTO tarjeta (id, id_producto, nombre_titular, mes_expiracion, expirada, activa, bloqueada, balance, version)
+                VALUES (?, ?, 'Prueba Replica', 1559, false, true, false, 100.00, 0)
+                """, TARJETA, PRODUCTO);
+        cache.invalidar(TARJETA);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbc.update("DELETE FROM movimiento WHERE id_tarjeta LIKE ?", PRODUCTO + "%");
+        jdbc.update("DELETE FROM gasto_diario WHERE id_tarjeta LIKE ?", PRODUCTO + "%");
+        jdbc.update("DELETE FROM transaccion WHERE id_tarjeta LIKE ?", PRODUCTO + "%");
+        jdbc.update("DELETE FROM tarjeta WHERE id_producto = ?", PRODUCTO);
+        jdbc.execute("DROP SCHEMA IF EXISTS replica_prueba CASCADE");
+    }
+
+    @Test
+    void escrituras_vanAlPrimarioAunqueLaPeticionLeaAntes() throws Exception {
+        JsonNode emitida = cuerpo(rest.getForEntity("/card/" + PRODUCTO + "/number?firstName=Prueba&lastName="
+                + UUID.randomUUID(), String.class));
+        String tarjeta = emitida.path("data").path("id").asText();
+
+        // Sin la tarjeta en cache cada peticion la lee primero y luego escribe
+        cache.invalidar(tarjeta);
+        cuerpo(rest.postForEntity("/card/enroll", Map.of("cardId", tarjeta), String.class));
+        cache.invalidar(tarjeta);
+        cuerpo(rest.postForEntity("/card/balance", Map.of("cardId", tarjeta, "balance", 100), String.class));
+        cache.invalidar(tarjeta);
+        JsonNode compra = cuerpo(rest.postForEntity("/transaction/create",
+                Map.of("cardId", tarjeta, "price", 10), String.class));
+        cache.invalidar(tarjeta);
+        cuerpo(rest.postForEntity("/transaction/anulation",
+                Map.of("cardId", tarjeta, "transactionId", compra.path("data").path("id").asLong()), String.class));
+
+        assertThat(jdbc.queryForObject("SELECT balance FROM tarjeta WHERE id = ?", BigDecimal.class, tarjeta))
+                .isEqualByComparingTo("100");
+    }
+
+    @Test
+    void loQueLaReplicaNoTiene_seLeeDelPrimarioEnLaMismaPeticion() throws Exception {
+        JsonNode compra = cuerpo(rest.postForEntity("/transaction/create",
+                Map.of("cardId", TARJETA, "price", 10), String.class));
+        cache.invalidar(TARJETA);
+        double replica = lecturas();
+
+        assertThat(cuerpo(rest.getForEntity("/transaction/" + compra.path("data").path("id").asLong(), String.class))
+                .path("data").path("idTarjeta").asText()).isEqualTo(TARJETA);
+        assertThat(cuerpo(rest.getForEntity("/card/balance/" + TARJETA, String.class))
+                .path("data").path("balance").decimalValue()).isEqualByComparingTo("90");
+        assertThat(lecturas()).isGreaterThan(replica);
+    }
+
+    private JsonNode cuerpo(ResponseEntity<String> respuesta) throws Exception {
+        assertThat(respuesta.getStatusCode().value()).as(respuesta.getBody()).isEqualTo(200);
+        return objectMapper.readTree(respuesta.getBody());
+    }
+
+    private double lecturas() {
+        return meterRegistry.get("bankinc.replicas.lecturas").tag("destino", "replica-0").functionCounter().count();
+    }
+}
@@ -3,7 +3,9 @@ package com.bankinc.controller;
 import com.bankinc.dto.ActivarTarjetaRequest;
 import com.bankinc.dto.ApiResponse;
 import com.bankinc.dto.BalanceRequest;
+import com.bankinc.dto.SaldoTarjeta;
 import com.bankinc.entity.Tarjeta;
+import com.bankinc.service.LimiteSolicitudes;
 import com.bankinc.service.TarjetaService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
@@ -27,6 +30,9 @@ class TarjetaControllerTest {
     @Mock
     private TarjetaService tarjetaService;
 
+    @Spy
+    private LimiteSolicitudes limite = LimiteSolicitudes.deshabilitado();
+
     @InjectMocks
     private TarjetaController tarjetaController;
 
@@ -126,7 +132,7 @@ class TarjetaControllerTest {
         request.setCardId("1234567890123456");
         request.setBalance(new BigDecimal("100.00"));
 
-        ResponseEntity<ApiResponse<Tarjeta>> result = tarjetaController.cargarTarjeta(request);
+        ResponseEntity<ApiResponse<Tarjeta>> result = tarjetaController.cargarTarjeta(request, null);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
         assertThat(result.getBody().getMessage()).isEqualTo("Recargada");
@@ -142,7 +148,7 @@ class TarjetaControllerTest {
         request.setCardId("1234567890123456");
         request.setBalance(new BigDecimal("100.00"));
 
-        ResponseEntity<ApiResponse<Tarjeta>> result = tarjetaController.cargarTarjeta(request);
+        ResponseEntity<ApiResponse<Tarjeta>> result = tarjetaController.cargarTarjeta(request, null);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(400);
         assertThat(result.getBody().getStatus()).isEqualTo("ERROR");
@@ -150,22 +156,23 @@ class TarjetaControllerTest {
 
     @Test
     void obtenerBalance_shouldReturnOk_whenServiceReturnsSuccess() {
-        ApiResponse<Tarjeta> response = new ApiResponse<>("SUCCESS", "Balance consultado", tarjeta);
+        SaldoTarjeta saldo = SaldoTarjeta.de(tarjeta);
+        ApiResponse<SaldoTarjeta> response = new ApiResponse<>("SUCCESS", "Balance consultado", saldo);
         when(tarjetaService.obtenerBalance("1234567890123456")).thenReturn(response);
 
-        ResponseEntity<ApiResponse<Tarjeta>> result = tarjetaController.obtenerBalance("1234567890123456");
+        ResponseEntity<ApiResponse<SaldoTarjeta>> result = tarjetaController.obtenerBalance("1234567890123456");
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody().getData()).isEqualTo(tarjeta);
+        assertThat(result.getBody().getData()).isEqualTo(saldo);
         verify(tarjetaService).obtenerBalance("1234567890123456");
     }
 
     @Test
     void obtenerBalance_shouldReturnBadRequest_whenServiceReturnsError() {
-        ApiResponse<Tarjeta> response = new ApiResponse<>("ERROR", "No encontrada", null);
+        ApiResponse<SaldoTarjeta> response = new ApiResponse<>("ERROR", "No encontrada", null);
         when(tarjetaService.obtenerBalance("1234567890123456")).thenReturn(response);
 
-        ResponseEntity<ApiResponse<Tarjeta>> result = tarjetaController.obtenerBalance("1234567890123456");
+        ResponseEntity<ApiResponse<SaldoTarjeta>> result = tarjetaController.obtenerBalance("1234567890123456");
 
         assertThat(result.getStatusCodeValue()).isEqualTo(400);
         assertThat(result.getBody().getStatus()).isEqualTo("ERROR");
@@ -2,24 +2,39 @@ package com.bankinc.controller;
 
 import com.bankinc.dto.AnularTransaccionRequest;
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
 import com.bankinc.dto.TransaccionRequest;
 import com.bankinc.entity.Transaccion;
+import com.bankinc.service.Idempotencia;
+import com.bankinc.service.LimiteSolicitudes;
 import com.bankinc.service.TransaccionService;
+import com.bankinc.service.TransmisionesHistorial;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +44,18 @@ class TransaccionControllerTest {
     @Mock
     private TransaccionService transaccionService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private Idempotencia idempotencia;
+
+    @Spy
+    private LimiteSolicitudes limite = LimiteSolicitudes.deshabilitado();
+
+    @Spy
+    private TransmisionesHistorial transmisiones = new TransmisionesHistorial(1);
+
     @InjectMocks
     private TransaccionController transaccionController;
 
@@ -53,7 +80,7 @@ class TransaccionControllerTest {
         request.setCardId("1234567890123456");
         request.setPrice(new BigDecimal("50.00"));
 
-        ResponseEntity<ApiResponse<Transaccion>> result = transaccionController.realizarTransaccion(request);
+        ResponseEntity<ApiResponse<Transaccion>> result = transaccionController.realizarTransaccion(request, null);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
         assertThat(result.getBody()).isNotNull();
@@ -71,12 +98,76 @@ class TransaccionControllerTest {
         request.setCardId("1234567890123456");
         request.setPrice(new BigDecimal("9999.99"));
 
-        ResponseEntity<ApiResponse<Transaccion>> result = transaccionController.realizarTransaccion(request);
+        ResponseEntity<ApiResponse<Transaccion>> result = transaccionController.realizarTransaccion(request, null);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(400);
         assertThat(result.getBody().getMessage()).isEqualTo("Saldo insuficiente");
     }
 
+    @Test
+    void realizarTransaccion_shouldReturnTooManyRequests_whenCardIsOverLimit() {
+        doReturn(1_500_000_000L).when(limite).esperaTarjeta("1234567890123456");
+
+        TransaccionRequest request = new TransaccionRequest();
+        request.setCardId("1234567890123456");
+        request.setPrice(new BigDecimal("50.00"));
+
+        ResponseEntity<ApiResponse<Transaccion>> result = transaccionController.realizarTransaccion(request, null);
+
+        assertThat(result.getStatusCode().value()).isEqualTo(429);
+        assertThat(result.getHeaders().getFirst("Retry-After")).isEqualTo("2");
+        verify(transaccionService, never()).crearTransaccion(anyString(), any());
+    }
+
+    @Test
+    void realizarTransacciones_shouldReturnTooManyRequests_whenAnyCardIsOverLimit() {
+        doReturn(0L).when(limite).esperaTarjeta("1234567890123456");
+        doReturn(1_500_000_000L).when(limite).esperaTarjeta("6543210987654321");
+        TransaccionRequest permitida = new TransaccionRequest();
+        permitida.setCardId("1234567890123456");
+        permitida.setPrice(BigDecimal.ONE);
+        TransaccionRequest excedida = new TransaccionRequest();
+        excedida.setCardId("6543210987654321");
+        excedida.setPrice(BigDecimal.ONE);
+
+        ResponseEntity<ApiResponse<List<ApiResponse<Transaccion>>>> result =
+                transaccionController.realizarTransacciones(List.of(permitida, excedida));
+
+        assertThat(result.getStatusCode().value()).isEqualTo(429);
+        assertThat(result.getHeaders().getFirst("Retry-After")).isEqualTo("2");
+        verify(transaccionService, never()).crearTransacciones(any());
+    }
+
+    @Test
+    void realizarTransacciones_shouldReturnResultPerItem() {
+        List<ApiResponse<Transaccion>> items = List.of(
+                new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", transaccion),
+                new ApiResponse<>("ERROR", "Fondos insuficientes", null));
+        when(transaccionService.crearTransacciones(any()))
+                .thenReturn(new ApiResponse<>("SUCCESS", "Lote procesado: 1 aprobadas, 1 rechazadas", items));
+
+        TransaccionRequest request = new TransaccionRequest();
+        request.setCardId("1234567890123456");
+        request.setPrice(new BigDecimal("50.00"));
+
+        ResponseEntity<ApiResponse<List<ApiResponse<Transaccion>>>> result =
+                transaccionController.realizarTransacciones(List.of(request, request));
+
+        assertThat(result.getStatusCode().value()).isEqualTo(200);
+        assertThat(result.getBody().getData()).extracting(ApiResponse::getStatus).containsExactly("SUCCESS", "ERROR");
+    }
+
+    @Test
+    void realizarTransacciones_shouldReturnBadRequest_whenBatchRejected() {
+        when(transaccionService.crearTransacciones(any()))
+                .thenReturn(new ApiResponse<>("ERROR", "El lote no contiene compras", null));
+
+        ResponseEntity<ApiResponse<List<ApiResponse<Transaccion>>>> result =
+                transaccionController.realizarTransacciones(List.of());
+
+        assertThat(result.getStatusCode().value()).isEqualTo(400);
+    }
+
     // --- TEST: Obtener transacción (OK) ---
     @Test
     void obtenerTransaccion_shouldReturnOk_whenServiceReturnsSuccess() {
@@ -135,6 +226,88 @@ class TransaccionControllerTest {
         assertThat(result.getBody().getMessage()).isEqualTo("Fuera de tiempo");
     }
 
+    @Test
+    void obtenerPaginaTransacciones_shouldReturnOk_whenServiceReturnsSuccess() {
+        PaginaTransacciones pagina = new PaginaTransacciones(List.of(transaccion), "abc");
+        when(transaccionService.obtenerPaginaTransacciones("1234567890123456", null, 10))
+                .thenReturn(new ApiResponse<>("SUCCESS", "Transacciones encontradas", pagina));
+
+        ResponseEntity<ApiResponse<PaginaTransacciones>> result =
+                transaccionController.obtenerPaginaTransacciones("1234567890123456", null, 10);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(200);
+        assertThat(result.getBody().getData().getSiguienteCursor()).isEqualTo("abc");
+    }
+
+    @Test
+    void obtenerPaginaTransacciones_shouldReturnBadRequest_whenServiceReturnsError() {
+        when(transaccionService.obtenerPaginaTransacciones("1234567890123456", "x", null))
+                .thenReturn(new ApiResponse<>("ERROR", "Cursor invalido", null));
+
+        ResponseEntity<ApiResponse<PaginaTransacciones>> result =
+                transaccionController.obtenerPaginaTransacciones("1234567890123456", "x", null);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(400);
+        assertThat(result.getBody().getMessage()).isEqualTo("Cursor invalido");
+    }
 
+    @Test
+    void transmitirTransacciones_shouldWriteOneJsonPerLine() throws Exception {
+        Transaccion segunda = new Transaccion();
+        segunda.setId(2L);
+        segunda.setIdTarjeta("1234567890123456");
+        when(transaccionService.existeTarjeta("1234567890123456")).thenReturn(true);
+        doAnswer(i -> {
+            Consumer<Transaccion> consumidor = i.getArgument(1);
+            consumidor.accept(transaccion);
+            consumidor.accept(segunda);
+            return null;
+        }).when(transaccionService).recorrerTransacciones(eq("1234567890123456"), any());
+
+        ResponseEntity<StreamingResponseBody> result =
+                transaccionController.transmitirTransaccionesPorTarjeta("1234567890123456");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        result.getBody().writeTo(salida);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(200);
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lineas).hasSize(2);
+        assertThat(objectMapper.readTree(lineas[1]).get("id").asLong()).isEqualTo(2L);
+        assertThat(transmisiones.disponibles()).isEqualTo(1);
+    }
+
+    @Test
+    void transmitirTransacciones_shouldReturnServiceUnavailable_whenStreamsAreBusy() throws Exception {
+        when(transaccionService.existeTarjeta("1234567890123456")).thenReturn(true);
+        ResponseEntity<StreamingResponseBody> enCurso =
+                transaccionController.transmitirTransaccionesPorTarjeta("1234567890123456");
+
+        ResponseEntity<StreamingResponseBody> result =
+                transaccionController.transmitirTransaccionesPorTarjeta("1234567890123456");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        result.getBody().writeTo(salida);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(503);
+        assertThat(result.getHeaders().getFirst("Retry-After")).isEqualTo("5");
+        assertThat(salida.toString(StandardCharsets.UTF_8)).contains("Hay demasiados historiales en transmision");
+        verify(transaccionService, never()).recorrerTransacciones(anyString(), any());
+
+        enCurso.getBody().writeTo(new ByteArrayOutputStream());
+        assertThat(transmisiones.disponibles()).isEqualTo(1);
+    }
+
+    @Test
+    void transmitirTransacciones_shouldReturnBadRequest_whenCardNotFound() throws Exception {
+        when(transaccionService.existeTarjeta("1234567890123456")).thenReturn(false);
+
+        ResponseEntity<StreamingResponseBody> result =
+                transaccionController.transmitirTransaccionesPorTarjeta("1234567890123456");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        result.getBody().writeTo(salida);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(400);
+        assertThat(salida.toString(StandardCharsets.UTF_8)).contains("Tarjeta no encontrada");
+        verify(transaccionService, never()).recorrerTransacciones(anyString(), any());
+    }
 
-}
\ No newline at end of file
+}
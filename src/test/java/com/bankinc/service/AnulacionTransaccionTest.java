@@ -0,0 +1,144 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Anulacion contra la tabla particionada: la ventana de 24 horas, el UPDATE por particion y
+ * la creacion de particiones con filas ya guardadas en la particion por defecto o pedida por
+ * varias conexiones a la vez.
+ */
+@SpringBootTest
+class AnulacionTransaccionTest {
+
+    private static final String TARJETA = "9999990000000020";
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto("999999")
+                .nombreTitular("Prueba Anulacion")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("100.00"))
+                .build());
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", TARJETA);
+        tarjetaRepository.deleteById(TARJETA);
+    }
+
+    @Test
+    void anular_devuelveElSaldoUnaSolaVez() {
+        Transaccion compra = transaccionService.crearTransaccion(TARJETA, new BigDecimal("20.00")).getData();
+
+        ApiResponse<Transaccion> primera = transaccionService.anularTransaccion(TARJETA, compra.getId());
+        ApiResponse<Transaccion> segunda = transaccionService.anularTransaccion(TARJETA, compra.getId());
+
+        assertThat(primera.getStatus()).isEqualTo("SUCCESS");
+        assertThat(segunda.getMessage()).isEqualTo("Transaccion ya anulada");
+        assertThat(transaccionrepository.findById(compra.getId()).orElseThrow().getAnulada()).isTrue();
+        assertThat(tarjetaService.obtenerBalance(TARJETA).getData().getBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void anular_fueraDeLaVentana_caducada() {
+        Transaccion antigua = transaccionrepository.save(Transaccion.builder()
+                .idTarjeta(TARJETA)
+                .monto(new BigDecimal("5.00"))
+                .fechaTransaccion(LocalDateTime.now().minusDays(40))
+                .anulada(false)
+                .build());
+
+        ApiResponse<Transaccion> resp = transaccionService.anularTransaccion(TARJETA, antigua.getId());
+
+        assertThat(resp.getMessage()).isEqualTo("Transaccion caducada para anular");
+    }
+
+    @Test
+    void crearParticion_mueveFilasDeLaParticionPorDefecto() {
+        LocalDateTime lejana = LocalDateTime.of(2090, 6, 15, 12, 0);
+        jdbcTemplate.update("DROP TABLE IF EXISTS transaccion_209006");
+        Transaccion futura = transaccionrepository.save(Transaccion.builder()
+                .idTarjeta(TARJETA)
+                .monto(BigDecimal.ONE)
+                .fechaTransaccion(lejana)
+                .anulada(false)
+                .build());
+        assertThat(particionDe(futura.getId())).isEqualTo("transaccion_default");
+
+        jdbcTemplate.queryForObject("SELECT crear_particiones_transaccion(?, ?)", Integer.class,
+                lejana.toLocalDate(), lejana.toLocalDate());
+
+        assertThat(particionDe(futura.getId())).isEqualTo("transaccion_209006");
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id = ?", futura.getId());
+        jdbcTemplate.update("DROP TABLE transaccion_209006");
+    }
+
+    @Test
+    void crearParticion_desdeVariasConexionesALaVez_laCreaUnaSola() throws Exception {
+        LocalDate mes = LocalDate.of(2091, 3, 1);
+        jdbcTemplate.update("DROP TABLE IF EXISTS transaccion_209103");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> llamadas = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                llamadas.add(executor.submit(() -> jdbcTemplate.queryForObject(
+                        "SELECT crear_particiones_transaccion(?, ?)", Integer.class, mes, mes)));
+            }
+            int creadas = 0;
+            for (Future<Integer> llamada : llamadas) {
+                creadas += llamada.get(30, TimeUnit.SECONDS);
+            }
+
+            assertThat(creadas).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+            jdbcTemplate.update("DROP TABLE IF EXISTS transaccion_209103");
+        }
+    }
+
+    private String particionDe(Long id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM transaccion WHERE id = ?", String.class, id);
+    }
+}
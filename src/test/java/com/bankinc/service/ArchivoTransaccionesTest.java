@@ -0,0 +1,155 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Archivo de transacciones contra la base: mueve solo las que ya no se pueden anular, el
+ * historial lee las dos tablas y las particiones vacias se eliminan.
+ */
+@SpringBootTest
+class ArchivoTransaccionesTest {
+
+    private static final String TARJETA = "9999840000000001";
+
+    @Autowired
+    private ArchivoTransacciones archivo;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final List<Transaccion> antiguas = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto("999984")
+                .nombreTitular("Prueba Archivo")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("100.00"))
+                .build());
+        cache.invalidar(TARJETA);
+        LocalDateTime hace3Dias = LocalDateTime.now().minusDays(3).withNano(0);
+        LocalDateTime haceUnaHora = LocalDateTime.now().minusHours(1).withNano(0);
+        List<Transaccion> transacciones = new ArrayList<>();
+        // Misma fecha y ids crecientes: quedan despues de la marca que dejo la prueba anterior
+        for (int i = 0; i < 6; i++) {
+            transacciones.add(Transaccion.builder()
+                    .idTarjeta(TARJETA)
+                    .monto(BigDecimal.valueOf(i + 1))
+                    .fechaTransaccion(i < 4 ? hace3Dias : haceUnaHora)
+                    .anulada(false)
+                    .build());
+        }
+        transaccionrepository.saveAll(transacciones);
+        antiguas.addAll(transacciones.subList(0, 4));
+    }
+
+    @AfterEach
+    void limpiar() {
+        antiguas.clear();
+        jdbc.update("DELETE FROM transaccion WHERE id_tarjeta LIKE '999984%'");
+        jdbc.update("DELETE FROM transaccion_archivo WHERE id_tarjeta LIKE '999984%'");
+        jdbc.update("DELETE FROM tarjeta WHERE id LIKE '999984%'");
+        jdbc.execute("DROP TABLE IF EXISTS transaccion_200101");
+        jdbc.execute("DROP TABLE IF EXISTS transaccion_200102");
+    }
+
+    @Test
+    void archivar_mueveSoloLasQueYaNoSePuedenAnular() {
+        assertThat(archivo.archivar()).isGreaterThanOrEqualTo(4);
+
+        assertThat(filas("transaccion")).isEqualTo(2);
+        assertThat(filas("transaccion_archivo")).isEqualTo(4);
+        assertThat(marcaFecha()).isAfterOrEqualTo(antiguas.get(3).getFechaTransaccion());
+
+        // Repetir la pasada no mueve ni duplica nada
+        archivo.archivar();
+        assertThat(filas("transaccion")).isEqualTo(2);
+        assertThat(filas("transaccion_archivo")).isEqualTo(4);
+    }
+
+    @Test
+    void historial_leeLaTablaCalienteYElArchivo() {
+        archivo.archivar();
+
+        assertThat(transaccionService.obtenerTransaccionesPorTarjeta(TARJETA).getData())
+                .extracting(t -> t.getMonto().intValue())
+                .containsExactly(1, 2, 3, 4, 5, 6);
+
+        List<Integer> montos = new ArrayList<>();
+        String cursor = null;
+        do {
+            ApiResponse<PaginaTransacciones> pagina = transaccionService.obtenerPaginaTransacciones(TARJETA, cursor, 4);
+            pagina.getData().getTransacciones().forEach(t -> montos.add(t.getMonto().intValue()));
+            cursor = pagina.getData().getSiguienteCursor();
+        } while (cursor != null);
+        assertThat(montos).containsExactly(1, 2, 3, 4, 5, 6);
+
+        Long archivada = antiguas.get(0).getId();
+        assertThat(transaccionService.obtenerTransaccion(archivada).getData().getMonto()).isEqualByComparingTo("1");
+        assertThat(transaccionService.anularTransaccion(TARJETA, archivada).getMessage())
+                .isEqualTo("Transaccion caducada para anular");
+    }
+
+    @Test
+    void particionesVacias_seEliminanYLasOcupadasQuedan() {
+        // La marca queda en las transacciones de hace tres dias
+        archivo.archivar();
+        jdbc.queryForObject("SELECT crear_particiones_transaccion('2001-01-01', '2001-02-01')", Integer.class);
+        // Llega tarde, con fecha anterior a la marca: queda en la tabla caliente
+        Transaccion tardia = transaccionrepository.save(Transaccion.builder()
+                .idTarjeta(TARJETA)
+                .monto(BigDecimal.TEN)
+                .fechaTransaccion(LocalDateTime.of(2001, 2, 10, 12, 0))
+                .anulada(false)
+                .build());
+
+        archivo.archivar();
+
+        assertThat(jdbc.queryForObject("SELECT to_regclass('transaccion_200101') IS NULL", Boolean.class)).isTrue();
+        assertThat(jdbc.queryForObject("SELECT to_regclass('transaccion_200102') IS NULL", Boolean.class)).isFalse();
+        assertThat(transaccionrepository.findByIdAndIdTarjeta(tardia.getId(), TARJETA)).isPresent();
+    }
+
+    private int filas(String tabla) {
+        return jdbc.queryForObject("SELECT count(*) FROM " + tabla + " WHERE id_tarjeta = ?", Integer.class, TARJETA);
+    }
+
+    private LocalDateTime marcaFecha() {
+        return jdbc.queryForObject("SELECT fecha_transaccion FROM archivo_transaccion_marca", LocalDateTime.class);
+    }
+}
@@ -0,0 +1,130 @@
+package com.bankinc.service;
+
+import com.bankinc.repository.NumeracionProductoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsignadorNumerosTarjetaTest {
+
+    private final AtomicLong contador = new AtomicLong();
+    private final NumeracionProductoRepository numeracionRepository = numeracionEnMemoria(contador);
+
+    @Test
+    void asignar_generaPanLuhnValidoConPrefijoDelProducto() {
+        AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(numeracionRepository, 100, 42L);
+
+        for (int i = 0; i < 1_000; i++) {
+            String pan = asignador.asignar("123456");
+            assertThat(pan).hasSize(16).startsWith("123456").containsOnlyDigits();
+            assertThat(cumpleLuhn(pan)).isTrue();
+        }
+    }
+
+    /**
+     * El modulo reactivo reserva sus bloques aparte pero debe llegar al mismo numero.
+     */
+    @Test
+    void numero_coincideConAsignarParaElMismoSecuencial() {
+        AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(numeracionRepository, 100, 42L);
+
+        for (long secuencial = 0; secuencial < 100; secuencial++) {
+            assertThat(AsignadorNumerosTarjeta.numero("123456", secuencial, 42L)).isEqualTo(asignador.asignar("123456"));
+        }
+    }
+
+    @Test
+    void digitoLuhn_coincideConNumerosConocidos() {
+        assertThat(AsignadorNumerosTarjeta.digitoLuhn("453201511283036".toCharArray(), 15)).isEqualTo(6);
+        assertThat(AsignadorNumerosTarjeta.digitoLuhn("7992739871".toCharArray(), 10)).isEqualTo(3);
+    }
+
+    @Test
+    void permutar_noRepiteValoresYSaleDelOrdenSecuencial() {
+        int cantidad = 1_000_000;
+        long[] valores = new long[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            valores[i] = AsignadorNumerosTarjeta.permutar(i, 42L);
+            assertThat(valores[i]).isBetween(0L, AsignadorNumerosTarjeta.ESPACIO - 1);
+        }
+        assertThat(valores[1]).isNotEqualTo(valores[0] + 1);
+
+        Arrays.sort(valores);
+        for (int i = 1; i < cantidad; i++) {
+            assertThat(valores[i]).isNotEqualTo(valores[i - 1]);
+        }
+    }
+
+    @Test
+    void permutar_dependeDeLaClave() {
+        assertThat(AsignadorNumerosTarjeta.permutar(7, 1L)).isNotEqualTo(AsignadorNumerosTarjeta.permutar(7, 2L));
+    }
+
+    @Test
+    void asignar_concurrente_noRepiteNumerosYReservaPorBloques() throws Exception {
+        AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(numeracionRepository, 1_000, 42L);
+        int hilos = 8;
+        int porHilo = 100_000;
+        Set<String> emitidos = ConcurrentHashMap.newKeySet(hilos * porHilo);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+
+        for (int h = 0; h < hilos; h++) {
+            executor.submit(() -> {
+                for (int i = 0; i < porHilo; i++) {
+                    emitidos.add(asignador.asignar("123456"));
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(emitidos).hasSize(hilos * porHilo);
+        verify(numeracionRepository, times(hilos * porHilo / 1_000)).reservarBloque("123456", 1_000);
+    }
+
+    @Test
+    void asignar_fallaAlAgotarLaNumeracion() {
+        contador.set(AsignadorNumerosTarjeta.ESPACIO - 2);
+        AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(numeracionRepository, 10, 42L);
+
+        asignador.asignar("123456");
+        asignador.asignar("123456");
+
+        assertThatThrownBy(() -> asignador.asignar("123456")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void asignar_rechazaProductoInvalido() {
+        AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(numeracionRepository, 10, 42L);
+
+        assertThatThrownBy(() -> asignador.asignar("12345A")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> asignador.asignar("12345")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    static NumeracionProductoRepository numeracionEnMemoria(AtomicLong contador) {
+        NumeracionProductoRepository repository = mock(NumeracionProductoRepository.class);
+        when(repository.reservarBloque(anyString(), anyLong()))
+                .thenAnswer(i -> contador.getAndAdd(i.<Long>getArgument(1)));
+        return repository;
+    }
+
+    private static boolean cumpleLuhn(String pan) {
+        char[] digitos = pan.toCharArray();
+        return AsignadorNumerosTarjeta.digitoLuhn(digitos, 15) == digitos[15] - '0';
+    }
+}
@@ -0,0 +1,83 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contra la base de datos: el barrido marca las vencidas y la compra las rechaza con el mensaje
+ * de expiracion, aunque tengan saldo.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class BarridoExpiracionTest {
+
+    private static final String VENCIDA = "9999990000000040";
+    private static final String VIGENTE = "9999990000000041";
+
+    @Autowired
+    private BarridoExpiracion barrido;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta IN (?, ?)", VENCIDA, VIGENTE);
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id IN (?, ?)", VENCIDA, VIGENTE);
+    }
+
+    @Test
+    void barrido_marcaSoloLasVencidas_yLaCompraLasRechaza() throws Exception {
+        tarjetaRepository.save(tarjeta(VENCIDA, "01/2020"));
+        tarjetaRepository.save(tarjeta(VIGENTE, "12/2099"));
+
+        assertThat(barrido.marcarExpiradas()).isGreaterThanOrEqualTo(1);
+
+        Tarjeta vencida = tarjetaRepository.findById(VENCIDA).orElseThrow();
+        assertThat(vencida.getExpirada()).isTrue();
+        assertThat(vencida.getFechaExpiracion()).isEqualTo(YearMonth.of(2020, 1));
+        assertThat(tarjetaRepository.findById(VIGENTE).orElseThrow().getExpirada()).isFalse();
+        assertThat(barrido.marcarExpiradas()).isZero();
+
+        ApiResponse<Transaccion> compra = transaccionService.crearTransaccion(VENCIDA, BigDecimal.ONE);
+        assertThat(compra.getMessage()).isEqualTo("Tarjeta expirada");
+        assertThat(transaccionService.crearTransaccion(VIGENTE, BigDecimal.ONE).getStatus()).isEqualTo("SUCCESS");
+
+        assertThat(objectMapper.writeValueAsString(vencida))
+                .contains("\"fechaExpiracion\":\"01/2020\"")
+                .contains("\"expirada\":true");
+    }
+
+    private static Tarjeta tarjeta(String id, String vencimiento) {
+        return Tarjeta.builder()
+                .id(id)
+                .idProducto(id.substring(0, 6))
+                .nombreTitular("Prueba Expiracion")
+                .fechaExpiracion(vencimiento)
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("100.00"))
+                .build();
+    }
+}
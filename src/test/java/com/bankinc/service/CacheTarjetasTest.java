@@ -0,0 +1,153 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Tarjeta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheTarjetasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CacheTarjetas cache = new CacheTarjetas(2, Duration.ofMinutes(1), registry);
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void buscar_cargaUnaVezYLuegoSirveDesdeMemoria() {
+        AtomicInteger cargas = new AtomicInteger();
+
+        Optional<Tarjeta> primera = cache.buscar("1234560000000001", id -> {
+            cargas.incrementAndGet();
+            return Optional.of(tarjeta(id, "10.00"));
+        });
+        Optional<Tarjeta> segunda = cache.buscar("1234560000000001", id -> {
+            cargas.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(cargas.get()).isEqualTo(1);
+        assertThat(segunda).isPresent();
+        assertThat(segunda.get()).isNotSameAs(primera.get());
+        assertThat(segunda.get().getBalance()).isEqualByComparingTo("10.00");
+        assertThat(registry.get("cache.gets").tag("cache", "tarjetas").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.gets").tag("cache", "tarjetas").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void buscar_noGuardaTarjetasInexistentes() {
+        assertThat(cache.buscar("1234560000000001", id -> Optional.empty())).isEmpty();
+        assertThat(cache.siPresente("1234560000000001")).isEmpty();
+    }
+
+    @Test
+    void modificarLaCopia_noAlteraLaCache() {
+        cache.actualizar("1234560000000001", tarjeta("1234560000000001", "10.00"));
+
+        cache.siPresente("1234560000000001").orElseThrow().setBalance(new BigDecimal("99.00"));
+
+        assertThat(cache.siPresente("1234560000000001").orElseThrow().getBalance()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void actualizar_enTransaccion_esperaAlCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        Tarjeta guardada = tarjeta("1234560000000001", "25.00");
+
+        cache.actualizar("1234560000000001", guardada);
+        guardada.setVersion(4L);
+        assertThat(cache.siPresente("1234560000000001")).isEmpty();
+
+        completar(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(cache.siPresente("1234560000000001").orElseThrow().getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void actualizar_enTransaccionRevertida_invalida() {
+        cache.actualizar("1234560000000001", tarjeta("1234560000000001", "10.00"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.actualizar("1234560000000001", tarjeta("1234560000000001", "25.00"));
+        completar(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(cache.siPresente("1234560000000001")).isEmpty();
+    }
+
+    @Test
+    void saldo_cargadoAntesDeUnaInvalidacionDuranteLaCarga_noQuedaEnCache() {
+        String id = "1234560000000001";
+        AtomicInteger cargas = new AtomicInteger();
+
+        // La lectura ve el saldo previo; la compra confirma e invalida antes de que se guarde
+        Optional<SaldoTarjeta> leido = cache.saldo(id, i -> {
+            cargas.incrementAndGet();
+            SaldoTarjeta previo = SaldoTarjeta.de(tarjeta(id, "100.00"));
+            cache.invalidar(id);
+            return Optional.of(previo);
+        });
+        Optional<SaldoTarjeta> siguiente = cache.saldo(id, i -> {
+            cargas.incrementAndGet();
+            return Optional.of(SaldoTarjeta.de(tarjeta(id, "90.00")));
+        });
+
+        assertThat(leido.orElseThrow().getBalance()).isEqualByComparingTo("100.00");
+        assertThat(siguiente.orElseThrow().getBalance()).isEqualByComparingTo("90.00");
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    void buscar_cargadaAntesDeUnCambio_noPisaLaEntradaNueva() {
+        String id = "1234560000000001";
+
+        cache.buscar(id, i -> {
+            Tarjeta previa = tarjeta(id, "100.00");
+            cache.actualizar(id, tarjeta(id, "90.00"));
+            return Optional.of(previa);
+        });
+
+        assertThat(cache.siPresente(id)).isEmpty();
+    }
+
+    @Test
+    void respetaElTamanioMaximo() {
+        for (int i = 0; i < 50; i++) {
+            String id = String.format("12345600000000%02d", i);
+            cache.actualizar(id, tarjeta(id, "1.00"));
+        }
+
+        assertThat(cache.tamanio()).isLessThanOrEqualTo(2);
+        assertThat(registry.get("cache.evictions").functionCounter().count()).isGreaterThan(0);
+    }
+
+    private static void completar(int estado) {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            sincronizacion.afterCompletion(estado);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Tarjeta tarjeta(String id, String balance) {
+        return Tarjeta.builder()
+                .id(id)
+                .idProducto(id.substring(0, 6))
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal(balance))
+                .version(1L)
+                .build();
+    }
+}
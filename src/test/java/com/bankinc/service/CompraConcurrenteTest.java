@@ -0,0 +1,209 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba de estres contra la base de datos: muchas compras concurrentes sobre la misma tarjeta
+ * no gastan dos veces el mismo saldo ni fallan por conflicto. La comparacion de rendimiento con
+ * el flujo anterior se ejecuta con -Dbankinc.benchmark=true.
+ */
+@SpringBootTest
+class CompraConcurrenteTest {
+
+    private static final int HILOS = 16;
+    private static final int COMPRAS_POR_HILO = 50;
+    private static final BigDecimal PRECIO = new BigDecimal("10.00");
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("4000.00");
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> tarjetasCreadas = new ArrayList<>();
+
+    @AfterEach
+    void limpiar() {
+        for (String id : tarjetasCreadas) {
+            jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", id);
+            tarjetaRepository.deleteById(id);
+        }
+    }
+
+    @Test
+    void compraAtomica_noPermiteDobleGasto() throws Exception {
+        Tarjeta tarjeta = crearTarjeta("9999990000000001");
+
+        Resultado resultado = ejecutar(() -> transaccionService.crearTransaccion(tarjeta.getId(), PRECIO));
+
+        int comprasPosibles = SALDO_INICIAL.divide(PRECIO).intValue();
+        BigDecimal balanceFinal = tarjetaRepository.findById(tarjeta.getId()).orElseThrow().getBalance();
+        long transacciones = contarTransacciones(tarjeta.getId());
+
+        assertThat(resultado.exitosas).isEqualTo(comprasPosibles);
+        assertThat(resultado.fondosInsuficientes).isEqualTo(HILOS * COMPRAS_POR_HILO - comprasPosibles);
+        assertThat(balanceFinal).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(transacciones).isEqualTo(comprasPosibles);
+        assertThat(resultado.conflictos).isZero();
+    }
+
+    @Test
+    void recargasYCompras_concurrentes_cuadranElBalance() throws Exception {
+        Tarjeta tarjeta = crearTarjeta("9999990000000003");
+        AtomicInteger turno = new AtomicInteger();
+
+        Resultado resultado = ejecutar(() -> {
+            if (turno.getAndIncrement() % 2 == 0) {
+                ApiResponse<Tarjeta> recarga = tarjetaService.recargarTarjeta(tarjeta.getId(), PRECIO);
+                return new ApiResponse<>(recarga.getStatus(), "Recarga", null);
+            }
+            return transaccionService.crearTransaccion(tarjeta.getId(), PRECIO);
+        });
+
+        int intentos = HILOS * COMPRAS_POR_HILO;
+        int compras = (int) contarTransacciones(tarjeta.getId());
+        int recargas = resultado.exitosas - compras;
+        BigDecimal esperado = SALDO_INICIAL.add(PRECIO.multiply(BigDecimal.valueOf(recargas - compras)));
+        BigDecimal balanceFinal = tarjetaRepository.findById(tarjeta.getId()).orElseThrow().getBalance();
+
+        assertThat(resultado.exitosas).isEqualTo(intentos);
+        assertThat(recargas).isEqualTo(intentos / 2);
+        assertThat(balanceFinal).isEqualByComparingTo(esperado);
+        assertThat(tarjetaService.obtenerBalance(tarjeta.getId()).getData().getBalance()).isEqualByComparingTo(esperado);
+    }
+
+    /**
+     * Compara la autorizacion atomica contra el flujo anterior (findById + save + save), que con
+     * la version optimista ya no pierde actualizaciones pero falla por conflicto.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bankinc.benchmark", matches = "true")
+    void compraAnterior_comparacionDeRendimiento() throws Exception {
+        Tarjeta atomica = crearTarjeta("9999990000000004");
+        Tarjeta anterior = crearTarjeta("9999990000000002");
+
+        Resultado nuevo = ejecutar(() -> transaccionService.crearTransaccion(atomica.getId(), PRECIO));
+        Resultado viejo = ejecutar(() -> compraAnterior(anterior.getId(), PRECIO));
+
+        BigDecimal balanceAnterior = tarjetaRepository.findById(anterior.getId()).orElseThrow().getBalance();
+        System.out.printf("Compra atomica: %.0f compras/s, %d exitosas, %d conflictos%n",
+                nuevo.porSegundo(), nuevo.exitosas, nuevo.conflictos);
+        System.out.printf("Compra anterior: %.0f compras/s, %d exitosas, %d conflictos, balance final %s%n",
+                viejo.porSegundo(), viejo.exitosas, viejo.conflictos, balanceAnterior);
+        assertThat(nuevo.conflictos).isZero();
+        assertThat(nuevo.exitosas).isEqualTo(SALDO_INICIAL.divide(PRECIO).intValue());
+        assertThat(balanceAnterior)
+                .isEqualByComparingTo(SALDO_INICIAL.subtract(PRECIO.multiply(BigDecimal.valueOf(viejo.exitosas))));
+    }
+
+    /**
+     * Flujo previo de crearTransaccion: lectura, validacion en Java y dos escrituras sin transaccion.
+     */
+    private ApiResponse<Transaccion> compraAnterior(String idTarjeta, BigDecimal precio) {
+        Tarjeta tarjeta = tarjetaRepository.findById(idTarjeta).orElseThrow();
+        if (tarjeta.getBalance().compareTo(precio) < 0) {
+            return new ApiResponse<>("ERROR", "Fondos insuficientes", null);
+        }
+        tarjeta.setBalance(tarjeta.getBalance().subtract(precio));
+        tarjetaRepository.save(tarjeta);
+        Transaccion transaccion = new Transaccion();
+        transaccion.setIdTarjeta(idTarjeta);
+        transaccion.setMonto(precio);
+        transaccion.setFechaTransaccion(LocalDateTime.now());
+        transaccion.setAnulada(false);
+        transaccionrepository.save(transaccion);
+        return new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", transaccion);
+    }
+
+    private Tarjeta crearTarjeta(String id) {
+        Tarjeta tarjeta = Tarjeta.builder()
+                .id(id)
+                .idProducto(id.substring(0, 6))
+                .nombreTitular("Prueba Concurrencia")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(SALDO_INICIAL)
+                .build();
+        tarjetasCreadas.add(id);
+        return tarjetaRepository.save(tarjeta);
+    }
+
+    private long contarTransacciones(String idTarjeta) {
+        return transaccionrepository.historial(idTarjeta).size();
+    }
+
+    private Resultado ejecutar(Supplier<ApiResponse<Transaccion>> compra) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger exitosas = new AtomicInteger();
+        AtomicInteger fondosInsuficientes = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        for (int i = 0; i < HILOS; i++) {
+            executor.submit(() -> {
+                inicio.await();
+                for (int j = 0; j < COMPRAS_POR_HILO; j++) {
+                    ApiResponse<Transaccion> resp;
+                    try {
+                        resp = compra.get();
+                    } catch (ConcurrencyFailureException e) {
+                        conflictos.incrementAndGet();
+                        continue;
+                    }
+                    if ("SUCCESS".equals(resp.getStatus())) {
+                        exitosas.incrementAndGet();
+                    } else if ("Fondos insuficientes".equals(resp.getMessage())) {
+                        fondosInsuficientes.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        long nanos = System.nanoTime() - t0;
+        return new Resultado(exitosas.get(), fondosInsuficientes.get(), conflictos.get(), nanos);
+    }
+
+    private record Resultado(int exitosas, int fondosInsuficientes, int conflictos, long nanos) {
+        double porSegundo() {
+            return HILOS * COMPRAS_POR_HILO / (nanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compras en lote contra la base de datos: reparto por tarjeta y fondos que se agotan a mitad
+ * del lote.
+ */
+@SpringBootTest
+class CompraLoteTest {
+
+    private static final int TARJETAS = 50;
+    private static final int COMPRAS_POR_TARJETA = 100;
+    private static final int COMPRAS_POR_LOTE = 1_000;
+    private static final BigDecimal PRECIO = new BigDecimal("10.00");
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> tarjetasCreadas = new ArrayList<>();
+
+    @AfterEach
+    void limpiar() {
+        for (String id : tarjetasCreadas) {
+            jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", id);
+            tarjetaRepository.deleteById(id);
+        }
+    }
+
+    @Test
+    void lote_debitaCadaTarjetaHastaAgotarFondos() {
+        List<String> tarjetas = crearTarjetas("99999901", TARJETAS, PRECIO.multiply(BigDecimal.valueOf(COMPRAS_POR_TARJETA - 10)));
+        List<TransaccionRequest> compras = compras(tarjetas);
+
+        List<ApiResponse<Transaccion>> resultados = new ArrayList<>();
+        for (int desde = 0; desde < compras.size(); desde += COMPRAS_POR_LOTE) {
+            resultados.addAll(transaccionService.crearTransacciones(
+                    compras.subList(desde, Math.min(desde + COMPRAS_POR_LOTE, compras.size()))).getData());
+        }
+
+        assertThat(resultados).hasSize(compras.size());
+        assertThat(resultados.stream().filter(r -> "SUCCESS".equals(r.getStatus()))).hasSize(TARJETAS * (COMPRAS_POR_TARJETA - 10));
+        assertThat(resultados.stream().filter(r -> "Fondos insuficientes".equals(r.getMessage()))).hasSize(TARJETAS * 10);
+        for (String id : tarjetas) {
+            assertThat(tarjetaRepository.findById(id).orElseThrow().getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        }
+    }
+
+    private List<String> crearTarjetas(String prefijo, int cantidad, BigDecimal saldo) {
+        List<Tarjeta> tarjetas = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            String id = prefijo + String.format("%08d", i);
+            tarjetas.add(Tarjeta.builder()
+                    .id(id)
+                    .idProducto(id.substring(0, 6))
+                    .nombreTitular("Prueba Lote")
+                    .fechaExpiracion("12/2099")
+                    .activa(true)
+                    .bloqueada(false)
+                    .balance(saldo)
+                    .build());
+            tarjetasCreadas.add(id);
+        }
+        tarjetaRepository.saveAll(tarjetas);
+        return tarjetas.stream().map(Tarjeta::getId).toList();
+    }
+
+    /**
+     * Compras intercaladas entre tarjetas, como llegarian desde la pasarela.
+     */
+    private static List<TransaccionRequest> compras(List<String> tarjetas) {
+        List<TransaccionRequest> compras = new ArrayList<>();
+        for (int j = 0; j < COMPRAS_POR_TARJETA; j++) {
+            for (String id : tarjetas) {
+                TransaccionRequest compra = new TransaccionRequest();
+                compra.setCardId(id);
+                compra.setPrice(PRECIO);
+                compras.add(compra);
+            }
+        }
+        return compras;
+    }
+}
@@ -0,0 +1,108 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Consulta de saldo contra la base: proyeccion sin entidad, cache del saldo invalidada por las
+ * escrituras y plan index-only sobre ix_tarjeta_saldo.
+ */
+@SpringBootTest
+class ConsultaSaldoTest {
+
+    private static final String TARJETA = "9999850000000001";
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto("999985")
+                .nombreTitular("Prueba Saldo")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("100.00"))
+                .build());
+        cache.invalidar(TARJETA);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbc.update("DELETE FROM movimiento WHERE id_tarjeta LIKE '999985%'");
+        jdbc.update("DELETE FROM gasto_diario WHERE id_tarjeta LIKE '999985%'");
+        jdbc.update("DELETE FROM transaccion WHERE id_tarjeta LIKE '999985%'");
+        jdbc.update("DELETE FROM tarjeta WHERE id LIKE '999985%'");
+    }
+
+    @Test
+    void saldo_soloSaldoYEstado() {
+        ApiResponse<SaldoTarjeta> saldo = LimiteSentencias.maximo(1, () -> tarjetaService.obtenerBalance(TARJETA));
+
+        assertThat(saldo.getData().getBalance()).isEqualByComparingTo("100.00");
+        assertThat(saldo.getData().getActiva()).isTrue();
+        assertThat(saldo.getData().getSecuencia()).isZero();
+        // La consulta de saldo no deja la tarjeta completa en cache
+        assertThat(cache.siPresente(TARJETA)).isEmpty();
+    }
+
+    @Test
+    void saldoEnCache_seActualizaConLasEscrituras() {
+        tarjetaService.obtenerBalance(TARJETA);
+        LimiteSentencias.maximo(0, () -> tarjetaService.obtenerBalance(TARJETA));
+
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("30.00"));
+        assertThat(tarjetaService.obtenerBalance(TARJETA).getData().getBalance()).isEqualByComparingTo("70.00");
+
+        cache.invalidar(TARJETA);
+        tarjetaService.obtenerBalance(TARJETA);
+        tarjetaService.bloquearTarjeta(TARJETA);
+        assertThat(tarjetaService.obtenerBalance(TARJETA).getMessage()).isEqualTo("La tarjeta está bloqueada");
+    }
+
+    @Test
+    void saldo_indexOnlyScan() {
+        jdbc.execute("VACUUM tarjeta");
+        List<String> plan = transactionTemplate.execute(estado -> {
+            // Con pocas filas el planificador preferiria leer la tabla entera
+            jdbc.execute("SET LOCAL enable_seqscan = off");
+            jdbc.execute("SET LOCAL enable_bitmapscan = off");
+            return jdbc.queryForList("EXPLAIN SELECT id, balance, secuencia, activa, bloqueada FROM tarjeta WHERE id = ?",
+                    String.class, TARJETA);
+        });
+
+        assertThat(String.join("\n", plan)).contains("Index Only Scan using ix_tarjeta_saldo");
+    }
+}
@@ -0,0 +1,133 @@
+package com.bankinc.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiarioEscrituraTest {
+
+    private static final long SEGMENTO = RegistroDiario.TAMANIO * 4L;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void recuperar_entregaLoPosteriorAlCheckpointYSigueEscribiendo() {
+        long checkpoint;
+        try (DiarioEscritura diario = abrir(0, new ArrayList<>())) {
+            diario.agregar(registro(1));
+            checkpoint = diario.agregar(registro(2));
+            diario.esperar(diario.agregar(registro(3)));
+        }
+
+        List<RegistroDiario> recuperados = new ArrayList<>();
+        try (DiarioEscritura diario = abrir(checkpoint, recuperados)) {
+            assertThat(recuperados).extracting(RegistroDiario::secuencia).containsExactly(3L);
+            long fin = diario.agregar(registro(4));
+            diario.esperar(fin);
+            assertThat(diario.leer(checkpoint, fin, 10)).extracting(RegistroDiario::secuencia).containsExactly(3L, 4L);
+        }
+    }
+
+    @Test
+    void recuperar_terminaEnElPrimerRegistroCortado() throws IOException {
+        try (DiarioEscritura diario = abrir(0, new ArrayList<>())) {
+            diario.agregar(registro(1));
+            diario.esperar(diario.agregar(registro(2)));
+        }
+        // Escritura a medias del segundo registro: el CRC ya no coincide
+        try (FileChannel canal = FileChannel.open(segmentos().get(0), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{7}), RegistroDiario.TAMANIO + 20);
+        }
+
+        List<RegistroDiario> recuperados = new ArrayList<>();
+        try (DiarioEscritura diario = abrir(0, recuperados)) {
+            assertThat(recuperados).extracting(RegistroDiario::secuencia).containsExactly(1L);
+            // El siguiente registro ocupa el lugar del cortado
+            assertThat(diario.agregar(registro(5))).isEqualTo(2L * RegistroDiario.TAMANIO);
+        }
+    }
+
+    @Test
+    void segmentos_cambianAlLlenarseYSeBorranAlVolcar() throws IOException {
+        long fin = 0;
+        try (DiarioEscritura diario = abrir(0, new ArrayList<>())) {
+            for (int i = 1; i <= 10; i++) {
+                fin = diario.agregar(registro(i));
+            }
+            diario.esperar(fin);
+            assertThat(segmentos()).hasSize(3);
+
+            diario.liberarHasta(2 * SEGMENTO);
+            assertThat(segmentos()).hasSize(1);
+        }
+
+        List<RegistroDiario> recuperados = new ArrayList<>();
+        try (DiarioEscritura ignorado = abrir(2 * SEGMENTO, recuperados)) {
+            assertThat(recuperados).extracting(RegistroDiario::secuencia).containsExactly(9L, 10L);
+        }
+    }
+
+    /**
+     * Varios hilos escriben y esperan a la vez: cada uno ve su registro confirmado y ninguno
+     * se pierde ni se mezcla con otro.
+     */
+    @Test
+    void commitEnGrupo_confirmaATodosLosHilos() throws Exception {
+        int hilos = 8;
+        int porHilo = 200;
+        try (DiarioEscritura diario = DiarioEscritura.abrir(directorio, 1024 * RegistroDiario.TAMANIO, true, 0, r -> { });
+             ExecutorService executor = Executors.newFixedThreadPool(hilos)) {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        long hasta = diario.agregar(registro(hilo * 1000L + i));
+                        diario.esperar(hasta);
+                        assertThat(diario.durable()).isGreaterThanOrEqualTo(hasta);
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        }
+
+        List<RegistroDiario> recuperados = new ArrayList<>();
+        try (DiarioEscritura ignorado = DiarioEscritura.abrir(directorio, 1024 * RegistroDiario.TAMANIO, true, 0,
+                recuperados::add)) {
+            assertThat(recuperados).hasSize(hilos * porHilo);
+            assertThat(recuperados).extracting(RegistroDiario::secuencia).doesNotHaveDuplicates();
+        }
+    }
+
+    private DiarioEscritura abrir(long desde, List<RegistroDiario> recuperados) {
+        return DiarioEscritura.abrir(directorio, SEGMENTO, true, desde, recuperados::add);
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.sorted().toList();
+        }
+    }
+
+    private static RegistroDiario registro(long secuencia) {
+        return new RegistroDiario(RegistroDiario.Tipo.RECARGA, RegistroDiario.ACTIVA, 9999990000000001L, 100,
+                secuencia * 100, secuencia, 0, 1_700_000_000_000_000L, 0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.NumeracionProductoRepository;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Emision concurrente contra la base de datos: numeros unicos con bloques reservados en
+ * numeracion_producto.
+ */
+@SpringBootTest
+class EmisionTarjetasTest {
+
+    private static final String PRODUCTO = "999998";
+    private static final int TARJETAS = 400;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private NumeracionProductoRepository numeracionRepository;
+
+    private final Set<String> emitidas = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void limpiar() {
+        tarjetaRepository.deleteAllById(emitidas);
+    }
+
+    @Test
+    void emisionConcurrente_noRepiteNumeros() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < TARJETAS; i++) {
+            String apellido = "Emision" + i;
+            executor.submit(() -> {
+                ApiResponse<Tarjeta> resp = tarjetaService.generarTarjeta(PRODUCTO, "Prueba", apellido);
+                assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+                emitidas.add(resp.getData().getId());
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(emitidas).hasSize(TARJETAS).allMatch(id -> id.startsWith(PRODUCTO));
+        assertThat(tarjetaRepository.findAllById(emitidas)).hasSize(TARJETAS);
+        assertThat(numeracionRepository.findById(PRODUCTO).orElseThrow().getSiguiente()).isGreaterThanOrEqualTo(TARJETAS);
+    }
+}
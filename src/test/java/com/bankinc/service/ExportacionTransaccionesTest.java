@@ -0,0 +1,208 @@
+package com.bankinc.service;
+
+import com.bankinc.controller.ExportacionController;
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Extractos contra la base: filtran por producto y rango de dias (incluido el archivo), y el
+ * pool de exportacion se reserva de a una exportacion.
+ */
+@SpringBootTest(properties = {
+        "bankinc.exportacion.directorio=target/exportaciones",
+        "bankinc.exportacion.espera-diaria=200ms"
+})
+class ExportacionTransaccionesTest {
+
+    private static final String PRODUCTO = "999983";
+    private static final String TARJETA = "9999830000000001";
+    private static final String OTRO_PRODUCTO = "9999820000000001";
+    private static final LocalDate DIA = LocalDate.now().minusDays(5);
+
+    @Autowired
+    private ExportacionTransacciones exportacion;
+
+    @Autowired
+    private ExportacionController controller;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        for (String id : new String[]{TARJETA, OTRO_PRODUCTO}) {
+            tarjetaRepository.save(Tarjeta.builder()
+                    .id(id)
+                    .idProducto(id.substring(0, 6))
+                    .nombreTitular("Prueba Exportacion")
+                    .fechaExpiracion("12/2099")
+                    .activa(true)
+                    .bloqueada(false)
+                    .balance(BigDecimal.ZERO)
+                    .build());
+        }
+        List<Transaccion> transacciones = new ArrayList<>();
+        transacciones.add(transaccion(TARJETA, "1.00", DIA.minusDays(1)));
+        transacciones.add(transaccion(TARJETA, "2.00", DIA));
+        transacciones.add(transaccion(TARJETA, "3.00", DIA.plusDays(1)));
+        transacciones.add(transaccion(TARJETA, "4.00", DIA.plusDays(2)));
+        transacciones.add(transaccion(OTRO_PRODUCTO, "5.00", DIA));
+        transaccionrepository.saveAll(transacciones);
+        // Una del rango ya archivada
+        jdbc.update("""
+                INSERT INTO transaccion_archivo (id, id_tarjeta, monto, fecha_transaccion, anulada)
+                VALUES (nextval('transaccion_seq'), ?, 6.00, ?, true)
+                """, TARJETA, DIA.atTime(23, 59));
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbc.update("DELETE FROM transaccion WHERE id_tarjeta IN (?, ?)", TARJETA, OTRO_PRODUCTO);
+        jdbc.update("DELETE FROM transaccion_archivo WHERE id_tarjeta IN (?, ?)", TARJETA, OTRO_PRODUCTO);
+        jdbc.update("DELETE FROM tarjeta WHERE id IN (?, ?)", TARJETA, OTRO_PRODUCTO);
+    }
+
+    @Test
+    void exportacion_soloElProductoYLosDiasPedidos() throws IOException {
+        ApiResponse<ExportacionTransacciones.Exportacion> pedido = exportacion.preparar(PRODUCTO, DIA, DIA.plusDays(1));
+        assertThat(pedido.getStatus()).isEqualTo("SUCCESS");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        assertThat(pedido.getData().escribir(salida)).isEqualTo(3);
+
+        List<String> lineas = lineas(new ByteArrayInputStream(salida.toByteArray()));
+        assertThat(lineas.get(0)).isEqualTo(ExportacionTransacciones.CABECERA);
+        assertThat(lineas.subList(1, lineas.size()))
+                .extracting(linea -> linea.split(",")[2])
+                .containsExactlyInAnyOrder("2.00", "3.00", "6.00");
+        assertThat(lineas).allMatch(linea -> linea.equals(ExportacionTransacciones.CABECERA) || linea.contains(TARJETA));
+    }
+
+    @Test
+    void conLaConexionReservada_rechazaOtraExportacion() throws IOException {
+        ExportacionTransacciones.Exportacion primera = exportacion.preparar(PRODUCTO, DIA, DIA).getData();
+
+        assertThat(exportacion.preparar(PRODUCTO, DIA, DIA).getMessage())
+                .isEqualTo(ExportacionTransacciones.EN_CURSO);
+
+        primera.escribir(new ByteArrayOutputStream());
+        ExportacionTransacciones.Exportacion segunda = exportacion.preparar(PRODUCTO, DIA, DIA).getData();
+        assertThat(segunda).isNotNull();
+        segunda.escribir(new ByteArrayOutputStream());
+    }
+
+    @Test
+    void exportacionQueNoSeEscribe_liberaLaConexionUnaSolaVez() throws IOException {
+        ExportacionTransacciones.Exportacion abandonada = exportacion.preparar(PRODUCTO, DIA, DIA).getData();
+
+        abandonada.liberar();
+        ExportacionTransacciones.Exportacion siguiente = exportacion.preparar(PRODUCTO, DIA, DIA).getData();
+        assertThat(siguiente).isNotNull();
+        abandonada.liberar();
+        assertThat(exportacion.preparar(PRODUCTO, DIA, DIA).getMessage()).isEqualTo(ExportacionTransacciones.EN_CURSO);
+
+        siguiente.escribir(new ByteArrayOutputStream());
+    }
+
+    @Test
+    void conLaConexionReservada_elControladorResponde503ConRetryAfter() throws IOException {
+        ExportacionTransacciones.Exportacion enCurso = exportacion.preparar(PRODUCTO, DIA, DIA).getData();
+
+        ResponseEntity<StreamingResponseBody> respuesta = controller.exportarTransacciones(PRODUCTO, DIA, DIA);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        respuesta.getBody().writeTo(salida);
+
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(respuesta.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        assertThat(salida.toString(StandardCharsets.UTF_8)).contains(ExportacionTransacciones.EN_CURSO);
+        enCurso.escribir(new ByteArrayOutputStream());
+    }
+
+    @Test
+    void pedidoInvalido_respondeError() throws IOException {
+        ResponseEntity<StreamingResponseBody> respuesta = controller.exportarTransacciones("9999", DIA, DIA);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        respuesta.getBody().writeTo(salida);
+
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(salida.toString(StandardCharsets.UTF_8)).contains("El producto debe tener 6 digitos");
+        assertThat(exportacion.preparar(PRODUCTO, DIA, DIA.minusDays(1)).getMessage())
+                .isEqualTo("Rango de fechas invalido");
+    }
+
+    @Test
+    void archivo_seEscribeCompletoEnElDirectorio() throws Exception {
+        Path archivo = exportacion.exportarArchivo(PRODUCTO, DIA.minusDays(1), DIA.plusDays(2)).orElseThrow();
+
+        assertThat(archivo.getFileName().toString())
+                .isEqualTo("transacciones-" + PRODUCTO + "-" + DIA.minusDays(1) + "-" + DIA.plusDays(2) + ".csv.gz");
+        try (InputStream entrada = Files.newInputStream(archivo)) {
+            assertThat(lineas(entrada)).hasSize(6);
+        }
+        try (var restantes = Files.list(archivo.getParent())) {
+            assertThat(restantes).noneMatch(p -> p.toString().endsWith(".parcial"));
+        }
+        Files.delete(archivo);
+    }
+
+    @Test
+    void archivo_conLaConexionOcupada_seOmiteTrasLaEspera() throws Exception {
+        ExportacionTransacciones.Exportacion enCurso = exportacion.preparar(PRODUCTO, DIA, DIA).getData();
+
+        assertThat(exportacion.exportarArchivo(PRODUCTO, DIA, DIA)).isEmpty();
+
+        enCurso.escribir(new ByteArrayOutputStream());
+        Path archivo = exportacion.exportarArchivo(PRODUCTO, DIA, DIA).orElseThrow();
+        Files.delete(archivo);
+    }
+
+    private static Transaccion transaccion(String tarjeta, String monto, LocalDate dia) {
+        return Transaccion.builder()
+                .idTarjeta(tarjeta)
+                .monto(new BigDecimal(monto))
+                .fechaTransaccion(dia.atTime(12, 0))
+                .anulada(false)
+                .build();
+    }
+
+    private static List<String> lineas(InputStream comprimido) throws IOException {
+        try (GZIPInputStream entrada = new GZIPInputStream(comprimido)) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
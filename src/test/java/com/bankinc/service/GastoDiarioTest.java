@@ -0,0 +1,149 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.ResumenGasto;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * gasto_diario se mantiene en la misma transaccion que compras, lotes y anulaciones, y los
+ * resumenes salen de ahi.
+ */
+@SpringBootTest
+class GastoDiarioTest {
+
+    private static final String TARJETA = "9999990000000090";
+    private static final String OTRA_TARJETA = "9999990000000091";
+    private static final String PRODUCTO = "999993";
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private GastoService gastoService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        for (String id : List.of(TARJETA, OTRA_TARJETA)) {
+            tarjetaRepository.save(Tarjeta.builder()
+                    .id(id)
+                    .idProducto(PRODUCTO)
+                    .nombreTitular("Prueba Gasto " + id)
+                    .fechaExpiracion("12/2099")
+                    .activa(true)
+                    .bloqueada(false)
+                    .balance(new BigDecimal("100.00"))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        for (String id : List.of(TARJETA, OTRA_TARJETA)) {
+            jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", id);
+            tarjetaRepository.deleteById(id);
+            jdbcTemplate.update("DELETE FROM gasto_diario WHERE id_tarjeta = ?", id);
+            cache.invalidar(id);
+        }
+    }
+
+    @Test
+    void compraYAnulacion_actualizanElDia() {
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("10.00"));
+        Transaccion anulable = transaccionService.crearTransaccion(TARJETA, new BigDecimal("5.50")).getData();
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("500.00"));
+        transaccionService.anularTransaccion(TARJETA, anulable.getId());
+
+        ResumenGasto resumen = gastoService.resumenTarjeta(TARJETA, null, null).getData();
+
+        assertThat(resumen.getDias()).hasSize(1);
+        assertThat(resumen.getDias().get(0).getDia()).isEqualTo(LocalDate.now());
+        assertThat(resumen.getCompras()).isEqualTo(2);
+        assertThat(resumen.getMonto()).isEqualByComparingTo("15.50");
+        assertThat(resumen.getAnulaciones()).isEqualTo(1);
+        assertThat(resumen.getAnulado()).isEqualByComparingTo("5.50");
+        assertThat(resumen.getNeto()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void lote_sumaPorTarjetaYProducto() {
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("10.00"));
+        transaccionService.crearTransacciones(List.of(
+                compra(TARJETA, "1.00"), compra(OTRA_TARJETA, "2.00"),
+                compra(OTRA_TARJETA, "3.00"), compra(OTRA_TARJETA, "999.00")));
+
+        ResumenGasto tarjeta = gastoService.resumenTarjeta(TARJETA, null, null).getData();
+        ResumenGasto otra = gastoService.resumenTarjeta(OTRA_TARJETA, null, null).getData();
+        ResumenGasto producto = gastoService.resumenProducto(PRODUCTO, null, null).getData();
+
+        assertThat(tarjeta.getCompras()).isEqualTo(2);
+        assertThat(tarjeta.getMonto()).isEqualByComparingTo("11.00");
+        assertThat(otra.getCompras()).isEqualTo(2);
+        assertThat(otra.getMonto()).isEqualByComparingTo("5.00");
+        assertThat(producto.getDias()).hasSize(1);
+        assertThat(producto.getCompras()).isEqualTo(4);
+        assertThat(producto.getMonto()).isEqualByComparingTo("16.00");
+    }
+
+    @Test
+    void rango_filtraPorDia() {
+        jdbcTemplate.update("""
+                INSERT INTO gasto_diario (id_tarjeta, dia, id_producto, compras, monto)
+                VALUES (?, DATE '2025-01-31', ?, 3, 30.00), (?, DATE '2025-02-01', ?, 1, 7.00)
+                """, TARJETA, PRODUCTO, TARJETA, PRODUCTO);
+
+        ResumenGasto enero = gastoService.resumenTarjeta(TARJETA, "2025-01-01", "2025-01-31").getData();
+        ResumenGasto ambos = gastoService.resumenTarjeta(TARJETA, "2025-01-31", "2025-02-28").getData();
+
+        assertThat(enero.getCompras()).isEqualTo(3);
+        assertThat(enero.getMonto()).isEqualByComparingTo("30.00");
+        assertThat(ambos.getDias()).extracting(d -> d.getDia().toString()).containsExactly("2025-01-31", "2025-02-01");
+        assertThat(ambos.getMonto()).isEqualByComparingTo("37.00");
+    }
+
+    @Test
+    void validaciones() {
+        assertThat(gastoService.resumenTarjeta("9999990000000099", null, null).getMessage())
+                .isEqualTo("Tarjeta no encontrada");
+        assertThat(gastoService.resumenProducto("12ab", null, null).getStatus()).isEqualTo("ERROR");
+        assertThat(gastoService.resumenTarjeta(TARJETA, "2025-13-01", null).getStatus()).isEqualTo("ERROR");
+        assertThat(gastoService.resumenTarjeta(TARJETA, "2025-02-01", "2025-01-01").getStatus()).isEqualTo("ERROR");
+        ApiResponse<ResumenGasto> largo = gastoService.resumenTarjeta(TARJETA, "2023-01-01", "2025-01-01");
+        assertThat(largo.getMessage()).isEqualTo("El rango no puede superar 366 dias");
+    }
+
+    private static TransaccionRequest compra(String idTarjeta, String precio) {
+        TransaccionRequest compra = new TransaccionRequest();
+        compra.setCardId(idTarjeta);
+        compra.setPrice(new BigDecimal(precio));
+        return compra;
+    }
+}
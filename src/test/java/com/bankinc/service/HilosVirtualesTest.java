@@ -0,0 +1,145 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.TarjetaRepository;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Perfil "virtual": peticiones y trabajo asincrono en hilos virtuales, y ninguna operacion de
+ * servicio fija el hilo portador mientras espera candados o conexiones.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("virtual")
+class HilosVirtualesTest {
+
+    private static final String TARJETA = "9999990000000030";
+    private static final String PRODUCTO = "999996";
+
+    @Autowired
+    private ServletWebServerApplicationContext contexto;
+
+    @Autowired
+    @Qualifier("importacionesExecutor")
+    private ThreadPoolTaskExecutor importacionesExecutor;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto(TARJETA.substring(0, 6))
+                .nombreTitular("Prueba Virtual")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(new BigDecimal("100000.00"))
+                .build());
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", TARJETA);
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id = ? OR id_producto = ?", TARJETA, PRODUCTO);
+    }
+
+    @Test
+    void tomcatEImportaciones_usanHilosVirtuales() throws Exception {
+        ProtocolHandler protocolo = ((TomcatWebServer) contexto.getWebServer()).getTomcat()
+                .getConnector().getProtocolHandler();
+
+        assertThat(protocolo.getExecutor().getClass().getSimpleName()).isEqualTo("VirtualThreadExecutor");
+        assertThat(importacionesExecutor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+    }
+
+    @Test
+    void operacionesConcurrentes_noFijanElHiloPortador() throws Exception {
+        ejecutarOperaciones(20);
+        Queue<String> fijados = new ConcurrentLinkedQueue<>();
+        try (RecordingStream grabacion = new RecordingStream()) {
+            grabacion.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            grabacion.onEvent("jdk.VirtualThreadPinned", evento -> fijados.add(pila(evento.getStackTrace())));
+            grabacion.startAsync();
+
+            ejecutarOperaciones(400);
+
+            grabacion.stop();
+        }
+        assertThat(fijados)
+                .as(() -> "Hilos virtuales fijados:\n" + String.join("\n\n", fijados))
+                .isEmpty();
+    }
+
+    private static String pila(RecordedStackTrace pila) {
+        if (pila == null) {
+            return "(sin pila)";
+        }
+        return pila.getFrames().stream()
+                .map(marco -> "    at " + marco.getMethod().getType().getName() + "." + marco.getMethod().getName()
+                        + ":" + marco.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Mezcla de operaciones sobre una misma tarjeta, con mas hilos que conexiones para que
+     * esperen en candados de franja y en el pool.
+     */
+    private void ejecutarOperaciones(int cantidad) throws InterruptedException {
+        TransaccionRequest compra = new TransaccionRequest();
+        compra.setCardId(TARJETA);
+        compra.setPrice(BigDecimal.ONE);
+        AtomicInteger titular = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < cantidad; i++) {
+                int operacion = i % 5;
+                executor.submit(() -> switch (operacion) {
+                    case 0 -> transaccionService.crearTransaccion(TARJETA, BigDecimal.ONE);
+                    case 1 -> tarjetaService.recargarTarjeta(TARJETA, BigDecimal.ONE);
+                    case 2 -> tarjetaService.obtenerBalance(TARJETA);
+                    case 3 -> transaccionService.crearTransacciones(List.of(compra, compra));
+                    default -> tarjetaService.generarTarjeta(PRODUCTO, "Virtual", "T" + titular.incrementAndGet());
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Historial de una tarjeta contra la base de datos: paginas por llave y recorrido con cursor.
+ */
+@SpringBootTest
+class HistorialTransaccionesTest {
+
+    private static final String TARJETA = "9999990000000010";
+    private static final int TOTAL = 25;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto("999999")
+                .nombreTitular("Prueba Historial")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(BigDecimal.ZERO)
+                .build());
+        LocalDateTime base = LocalDateTime.now().minusHours(1).withNano(0);
+        List<Transaccion> transacciones = new ArrayList<>();
+        for (int i = 0; i < TOTAL; i++) {
+            // Cada dos transacciones comparten fecha para ejercitar el desempate por id
+            transacciones.add(Transaccion.builder()
+                    .idTarjeta(TARJETA)
+                    .monto(BigDecimal.valueOf(i + 1))
+                    .fechaTransaccion(base.plusSeconds(i / 2))
+                    .anulada(false)
+                    .build());
+        }
+        transaccionrepository.saveAll(transacciones);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", TARJETA);
+        tarjetaRepository.deleteById(TARJETA);
+    }
+
+    @Test
+    void paginas_recorrenTodoElHistorialSinRepetir() {
+        List<BigDecimal> montos = new ArrayList<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            ApiResponse<PaginaTransacciones> resp = transaccionService.obtenerPaginaTransacciones(TARJETA, cursor, 4);
+            assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+            resp.getData().getTransacciones().forEach(t -> montos.add(t.getMonto()));
+            cursor = resp.getData().getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertThat(paginas).isEqualTo(7);
+        assertThat(montos).hasSize(TOTAL);
+        for (int i = 0; i < TOTAL; i++) {
+            assertThat(montos.get(i)).isEqualByComparingTo(BigDecimal.valueOf(i + 1));
+        }
+    }
+
+    @Test
+    void recorrer_entregaTodasEnOrden() {
+        List<Long> ids = new ArrayList<>();
+
+        transaccionService.recorrerTransacciones(TARJETA, t -> ids.add(t.getId()));
+
+        assertThat(ids).hasSize(TOTAL).isSorted();
+    }
+}
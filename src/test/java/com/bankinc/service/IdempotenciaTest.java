@@ -0,0 +1,233 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.IdempotenciaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotenciaTest {
+
+    private static final String HUELLA = Idempotencia.huella("1234560000000001", new BigDecimal("10.00"));
+
+    private final IdempotenciaRepository repositorio = mock(IdempotenciaRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    private Idempotencia idempotencia(boolean persistente) {
+        return new Idempotencia(1000, Duration.ofHours(1), Duration.ofSeconds(5), persistente,
+                repositorio, objectMapper, registry);
+    }
+
+    @Test
+    void huella_ignoraCerosDecimales() {
+        assertThat(Idempotencia.huella("1", new BigDecimal("10.00"))).isEqualTo(Idempotencia.huella("1", BigDecimal.TEN));
+    }
+
+    @Test
+    void claveInvalida_noEjecuta() {
+        Idempotencia idempotencia = idempotencia(false);
+
+        Idempotencia.Resultado<Transaccion> vacia = idempotencia.ejecutar("compra", " ", HUELLA, Transaccion.class, this::compra);
+        Idempotencia.Resultado<Transaccion> larga = idempotencia.ejecutar("compra", "x".repeat(201), HUELLA,
+                Transaccion.class, this::compra);
+
+        assertThat(vacia.respuesta().getStatus()).isEqualTo("ERROR");
+        assertThat(larga.respuesta().getStatus()).isEqualTo("ERROR");
+        assertThat(ejecuciones).hasValue(0);
+    }
+
+    @Test
+    void repeticion_devuelveLaPrimeraRespuestaSinEjecutar() {
+        Idempotencia idempotencia = idempotencia(false);
+
+        Idempotencia.Resultado<Transaccion> primera = idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+        Idempotencia.Resultado<Transaccion> segunda = idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+
+        assertThat(ejecuciones).hasValue(1);
+        assertThat(primera.repetida()).isFalse();
+        assertThat(segunda.repetida()).isTrue();
+        assertThat(segunda.respuesta()).isSameAs(primera.respuesta());
+        assertThat(registry.get("bankinc.idempotencia.repeticiones").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void mismaClave_enOtraOperacion_esIndependiente() {
+        Idempotencia idempotencia = idempotencia(false);
+
+        idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+        idempotencia.ejecutar("recarga", "k1", HUELLA, Transaccion.class, this::compra);
+
+        assertThat(ejecuciones).hasValue(2);
+    }
+
+    @Test
+    void mismaClave_conOtraHuella_seRechaza() {
+        Idempotencia idempotencia = idempotencia(false);
+        idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+
+        Idempotencia.Resultado<Transaccion> otra = idempotencia.ejecutar("compra", "k1",
+                Idempotencia.huella("1234560000000001", new BigDecimal("99")), Transaccion.class, this::compra);
+
+        assertThat(otra.respuesta().getMessage()).isEqualTo("La Idempotency-Key ya se uso con otra solicitud");
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void errores_noSeRetienen() {
+        Idempotencia idempotencia = idempotencia(false);
+
+        idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class,
+                () -> new ApiResponse<>("ERROR", "Fondos insuficientes", null));
+        Idempotencia.Resultado<Transaccion> reintento = idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+
+        assertThat(reintento.respuesta().getStatus()).isEqualTo("SUCCESS");
+        assertThat(reintento.repetida()).isFalse();
+        assertThat(idempotencia.enMemoria()).isEqualTo(1);
+    }
+
+    @Test
+    void excepcion_liberaLaClave() {
+        Idempotencia idempotencia = idempotencia(false);
+
+        assertThatThrownBy(() -> idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, () -> {
+            throw new IllegalStateException("sin base");
+        })).isInstanceOf(IllegalStateException.class);
+        Idempotencia.Resultado<Transaccion> reintento = idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+
+        assertThat(reintento.respuesta().getStatus()).isEqualTo("SUCCESS");
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void duplicadosConcurrentes_esperanLaEjecucionEnCurso() throws Exception {
+        Idempotencia idempotencia = idempotencia(false);
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Future<Idempotencia.Resultado<Transaccion>> original = executor.submit(() ->
+                idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, () -> {
+                    dentro.countDown();
+                    aguardar(liberar);
+                    return compra();
+                }));
+        dentro.await();
+        List<Future<Idempotencia.Resultado<Transaccion>>> duplicados = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            duplicados.add(executor.submit(() -> idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra)));
+        }
+        liberar.countDown();
+
+        ApiResponse<Transaccion> respuesta = original.get(5, TimeUnit.SECONDS).respuesta();
+        for (Future<Idempotencia.Resultado<Transaccion>> duplicado : duplicados) {
+            Idempotencia.Resultado<Transaccion> resultado = duplicado.get(5, TimeUnit.SECONDS);
+            assertThat(resultado.repetida()).isTrue();
+            assertThat(resultado.respuesta()).isSameAs(respuesta);
+        }
+        assertThat(ejecuciones).hasValue(1);
+        executor.shutdown();
+    }
+
+    @Test
+    void persistente_reclamaYGuardaLaRespuesta() {
+        when(repositorio.reclamar("compra:k1", HUELLA)).thenReturn(true);
+
+        idempotencia(true).ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+
+        verify(repositorio).completar(eq("compra:k1"), anyString());
+        verify(repositorio, never()).liberar(anyString());
+    }
+
+    @Test
+    void persistente_claveYaReclamada_devuelveLaGuardada() throws Exception {
+        String guardada = objectMapper.writeValueAsString(compra());
+        when(repositorio.reclamar("compra:k1", HUELLA)).thenReturn(false);
+        when(repositorio.buscar("compra:k1")).thenReturn(Optional.of(new IdempotenciaRepository.Registro(HUELLA, guardada)));
+        ejecuciones.set(0);
+
+        Idempotencia.Resultado<Transaccion> resultado = idempotencia(true).ejecutar("compra", "k1", HUELLA,
+                Transaccion.class, this::compra);
+
+        assertThat(resultado.repetida()).isTrue();
+        assertThat(resultado.respuesta().getData()).isInstanceOf(Transaccion.class);
+        assertThat(resultado.respuesta().getData().getId()).isEqualTo(7L);
+        assertThat(ejecuciones).hasValue(0);
+    }
+
+    @Test
+    void guardada_soloConRespuestaExitosaYMismaHuella() {
+        Idempotencia idempotencia = idempotencia(false);
+        assertThat(idempotencia.repeticion("compra", "k1", HUELLA, Transaccion.class)).isEmpty();
+
+        Idempotencia.Resultado<Transaccion> primera = idempotencia.ejecutar("compra", "k1", HUELLA, Transaccion.class, this::compra);
+
+        assertThat(idempotencia.repeticion("compra", "k1", HUELLA, Transaccion.class)).contains(primera.respuesta());
+        assertThat(idempotencia.repeticion("compra", "k1", "otra", Transaccion.class)).isEmpty();
+        assertThat(idempotencia.repeticion("compra", null, HUELLA, Transaccion.class)).isEmpty();
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void persistente_guardada_seLeeDeLaTablaSiNoEstaEnMemoria() throws Exception {
+        String guardada = objectMapper.writeValueAsString(compra());
+        when(repositorio.buscar("compra:k1")).thenReturn(Optional.of(new IdempotenciaRepository.Registro(HUELLA, guardada)));
+        when(repositorio.buscar("compra:k2")).thenReturn(Optional.of(new IdempotenciaRepository.Registro(HUELLA, null)));
+
+        Idempotencia idempotencia = idempotencia(true);
+
+        assertThat(idempotencia.repeticion("compra", "k1", HUELLA, Transaccion.class))
+                .hasValueSatisfying(respuesta -> assertThat(respuesta.getData().getId()).isEqualTo(7L));
+        assertThat(idempotencia.repeticion("compra", "k2", HUELLA, Transaccion.class)).isEmpty();
+    }
+
+    @Test
+    void persistente_claveEnCurso_noEjecuta() {
+        when(repositorio.reclamar("compra:k1", HUELLA)).thenReturn(false);
+        when(repositorio.buscar("compra:k1")).thenReturn(Optional.of(new IdempotenciaRepository.Registro(HUELLA, null)));
+
+        Idempotencia.Resultado<Transaccion> resultado = idempotencia(true).ejecutar("compra", "k1", HUELLA,
+                Transaccion.class, this::compra);
+
+        assertThat(resultado.respuesta().getMessage()).isEqualTo("Hay una solicitud en curso con la misma Idempotency-Key");
+        assertThat(ejecuciones).hasValue(0);
+    }
+
+    private ApiResponse<Transaccion> compra() {
+        ejecuciones.incrementAndGet();
+        Transaccion transaccion = Transaccion.builder().id(7L).idTarjeta("1234560000000001")
+                .monto(new BigDecimal("10.00")).anulada(false).build();
+        return new ApiResponse<>("SUCCESS", "Transaccion realizada correctamente", transaccion);
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.EstadoImportacion;
+import com.bankinc.repository.CargaTarjetasRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ImportacionTarjetasServiceImplTest {
+
+    private final TaskExecutor executor = mock(TaskExecutor.class);
+    private final ImportacionTarjetasServiceImpl importacionService = new ImportacionTarjetasServiceImpl(
+            mock(CargaTarjetasRepository.class), mock(AsignadorNumerosTarjeta.class), mock(TarjetaService.class),
+            TransactionOperations.withoutTransaction(), executor, 100);
+
+    @Test
+    void campos_separaConComillasYEspacios() {
+        assertThat(ImportacionTarjetasServiceImpl.campos("Juan, Perez")).containsExactly("Juan", "Perez");
+        assertThat(ImportacionTarjetasServiceImpl.campos("\"Perez, Juan\",Ana")).containsExactly("Perez, Juan", "Ana");
+        assertThat(ImportacionTarjetasServiceImpl.campos("\"O\"\"Brien\",Ana")).containsExactly("O\"Brien", "Ana");
+        assertThat(ImportacionTarjetasServiceImpl.campos("solo")).containsExactly("solo");
+    }
+
+    @Test
+    void iniciar_rechazaProductoInvalidoYArchivoVacio() {
+        MockMultipartFile vacio = new MockMultipartFile("file", new byte[0]);
+
+        assertThat(importacionService.iniciarImportacion("12A456", csv("Juan,Perez")).getStatus()).isEqualTo("ERROR");
+        assertThat(importacionService.iniciarImportacion("123456", vacio).getStatus()).isEqualTo("ERROR");
+        verifyNoInteractions(executor);
+    }
+
+    @Test
+    void iniciar_registraLaImportacionEnCurso() {
+        ApiResponse<EstadoImportacion> resp = importacionService.iniciarImportacion("123456", csv("Juan,Perez"));
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData().getEstado()).isEqualTo("EN_CURSO");
+        assertThat(importacionService.existeImportacion(resp.getData().getId())).isTrue();
+    }
+
+    @Test
+    void iniciar_conColaLlena_noRegistraLaImportacion() {
+        doThrow(new TaskRejectedException("llena")).when(executor).execute(any());
+
+        ApiResponse<EstadoImportacion> resp = importacionService.iniciarImportacion("123456", csv("Juan,Perez"));
+
+        assertThat(resp.getMessage()).isEqualTo("Hay demasiadas importaciones en curso, intente mas tarde");
+    }
+
+    @Test
+    void obtener_importacionInexistente() {
+        assertThat(importacionService.obtenerImportacion("no-existe").getStatus()).isEqualTo("ERROR");
+    }
+
+    private static MockMultipartFile csv(String contenido) {
+        return new MockMultipartFile("file", "titulares.csv", "text/csv", contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
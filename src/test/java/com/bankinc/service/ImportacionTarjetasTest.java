@@ -0,0 +1,95 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.EstadoImportacion;
+import com.bankinc.dto.RechazoImportacion;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Emision masiva contra la base de datos: varios bloques por COPY, duplicados contra la base y
+ * dentro del archivo, filas mal formadas y el archivo de rechazos.
+ */
+@SpringBootTest
+class ImportacionTarjetasTest {
+
+    private static final String PRODUCTO = "999997";
+    private static final int TITULARES = 12_000;
+
+    @Autowired
+    private ImportacionTarjetasService importacionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM tarjeta WHERE id_producto = ?", PRODUCTO);
+    }
+
+    @Test
+    void importacion_emiteTarjetasYReportaRechazos() throws Exception {
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(PRODUCTO + "0000000001")
+                .idProducto(PRODUCTO)
+                .nombreTitular("Titular 7")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(BigDecimal.ZERO)
+                .build());
+        StringBuilder csv = new StringBuilder("firstName,lastName\n");
+        for (int i = 0; i < TITULARES; i++) {
+            csv.append("Titular,").append(i).append('\n');
+        }
+        csv.append("Titular,").append(TITULARES - 1).append('\n');
+        csv.append("\"Perez, Juan\"\n");
+        csv.append("\"O\"\"Brien\",Ana\n");
+
+        ApiResponse<EstadoImportacion> inicio = importacionService.iniciarImportacion(PRODUCTO,
+                new MockMultipartFile("file", "titulares.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8)));
+        assertThat(inicio.getStatus()).isEqualTo("SUCCESS");
+
+        EstadoImportacion estado = esperarFin(inicio.getData().getId());
+
+        assertThat(estado.getEstado()).isEqualTo("COMPLETADA");
+        assertThat(estado.getFilasLeidas()).isEqualTo(TITULARES + 3);
+        assertThat(estado.getTarjetasEmitidas()).isEqualTo(TITULARES);
+        assertThat(estado.getRechazos()).extracting(RechazoImportacion::getMotivo).containsExactlyInAnyOrder(
+                "Tarjeta ya existe con el idProducto y titular",
+                "Titular repetido en el archivo",
+                "Formato invalido: se esperan nombre y apellido");
+        assertThat(tarjetaRepository.findByIdProductoAndNombreTitular(PRODUCTO, "O\"Brien Ana")).isPresent();
+        Long total = jdbcTemplate.queryForObject("SELECT count(*) FROM tarjeta WHERE id_producto = ?", Long.class, PRODUCTO);
+        assertThat(total).isEqualTo(TITULARES + 1L);
+
+        ByteArrayOutputStream rechazos = new ByteArrayOutputStream();
+        importacionService.escribirRechazos(estado.getId(), rechazos);
+        assertThat(rechazos.toString(StandardCharsets.UTF_8).lines()).hasSize(4);
+    }
+
+    private EstadoImportacion esperarFin(String id) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 60_000;
+        EstadoImportacion estado = importacionService.obtenerImportacion(id).getData();
+        while ("EN_CURSO".equals(estado.getEstado()) && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+            estado = importacionService.obtenerImportacion(id).getData();
+        }
+        return estado;
+    }
+}
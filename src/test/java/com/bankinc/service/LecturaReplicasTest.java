@@ -0,0 +1,120 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Enrutamiento a replicas con la misma base local como replica: el contador por destino de
+ * bankinc.replicas.lecturas muestra a donde fue cada lectura.
+ */
+@SpringBootTest(properties = {
+        "bankinc.replicas.urls=${spring.datasource.url}",
+        "bankinc.replicas.lectura-propia=1h"
+})
+class LecturaReplicasTest {
+
+    private static final String TARJETA = "9999860000000001";
+    private static final String LEIDA = "9999860000000002";
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        for (String id : new String[]{TARJETA, LEIDA}) {
+            tarjetaRepository.save(Tarjeta.builder()
+                    .id(id)
+                    .idProducto("999986")
+                    .nombreTitular("Prueba Replicas")
+                    .fechaExpiracion("12/2099")
+                    .activa(true)
+                    .bloqueada(false)
+                    .balance(new BigDecimal("100.00"))
+                    .build());
+            cache.invalidar(id);
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbc.update("DELETE FROM movimiento WHERE id_tarjeta LIKE '999986%'");
+        jdbc.update("DELETE FROM gasto_diario WHERE id_tarjeta LIKE '999986%'");
+        jdbc.update("DELETE FROM transaccion WHERE id_tarjeta LIKE '999986%'");
+        jdbc.update("DELETE FROM tarjeta WHERE id LIKE '999986%'");
+    }
+
+    @Test
+    void consultas_vanALaReplica() {
+        double replica = lecturas("replica-0");
+        double primario = lecturas("primario");
+
+        assertThat(tarjetaService.obtenerBalance(LEIDA).getData().getBalance()).isEqualByComparingTo("100.00");
+        assertThat(transaccionService.obtenerTransaccionesPorTarjeta(LEIDA).getStatus()).isEqualTo("ERROR");
+
+        assertThat(lecturas("replica-0")).isGreaterThan(replica);
+        assertThat(lecturas("primario")).isEqualTo(primario);
+    }
+
+    @Test
+    void saldoTrasRecarga_seLeeDelPrimario() {
+        assertThat(tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("50.00")).getStatus()).isEqualTo("SUCCESS");
+        cache.invalidar(TARJETA);
+        double replica = lecturas("replica-0");
+        double primario = lecturas("primario");
+
+        ApiResponse<SaldoTarjeta> balance = tarjetaService.obtenerBalance(TARJETA);
+
+        assertThat(balance.getData().getBalance()).isEqualByComparingTo("150.00");
+        assertThat(lecturas("primario")).isGreaterThan(primario);
+        assertThat(lecturas("replica-0")).isEqualTo(replica);
+    }
+
+    @Test
+    void historialTrasCompra_seLeeDelPrimario() {
+        ApiResponse<Transaccion> compra = transaccionService.crearTransaccion(TARJETA, new BigDecimal("10.00"));
+        double replica = lecturas("replica-0");
+
+        assertThat(transaccionService.obtenerTransaccionesPorTarjeta(TARJETA).getData()).hasSize(1);
+        assertThat(transaccionService.obtenerPaginaTransacciones(TARJETA, null, 10).getData().getTransacciones())
+                .extracting(Transaccion::getId).containsExactly(compra.getData().getId());
+        assertThat(lecturas("replica-0")).isEqualTo(replica);
+    }
+
+    private double lecturas(String destino) {
+        return meterRegistry.get("bankinc.replicas.lecturas").tag("destino", destino).functionCounter().count();
+    }
+}
@@ -0,0 +1,137 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.SaldoReconstruido;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Movimiento;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cada cambio de saldo queda como movimiento con la secuencia siguiente de la tarjeta, y el
+ * balance se puede reconstruir desde el libro partiendo de la ultima instantanea.
+ */
+@SpringBootTest
+class LibroMayorTest {
+
+    private static final String TARJETA = "9999990000000095";
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        tarjetaRepository.save(Tarjeta.builder()
+                .id(TARJETA)
+                .idProducto("999999")
+                .nombreTitular("Prueba Libro")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(BigDecimal.ZERO)
+                .build());
+        cache.invalidar(TARJETA);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", TARJETA);
+        tarjetaRepository.deleteById(TARJETA);
+        cache.invalidar(TARJETA);
+    }
+
+    @Test
+    void cadaCambioDeSaldo_esUnMovimientoEnSecuencia() {
+        tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("100.00"));
+        Transaccion compra = transaccionService.crearTransaccion(TARJETA, new BigDecimal("30.00")).getData();
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("500.00"));
+        transaccionService.crearTransacciones(List.of(compra("10.00"), compra("10.00")));
+        transaccionService.anularTransaccion(TARJETA, compra.getId());
+
+        List<Movimiento> movimientos = tarjetaService.obtenerMovimientos(TARJETA, null, null).getData();
+
+        assertThat(movimientos).extracting(Movimiento::getSecuencia).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(movimientos).extracting(Movimiento::getTipo).containsExactly(Movimiento.Tipo.RECARGA,
+                Movimiento.Tipo.COMPRA, Movimiento.Tipo.COMPRA, Movimiento.Tipo.COMPRA, Movimiento.Tipo.ANULACION);
+        assertThat(movimientos).extracting(m -> m.getMonto().toPlainString())
+                .containsExactly("100.00", "-30.00", "-10.00", "-10.00", "30.00");
+        assertThat(movimientos.get(1).getIdTransaccion()).isEqualTo(compra.getId());
+        assertThat(movimientos.get(4).getIdTransaccion()).isEqualTo(compra.getId());
+        assertThat(movimientos.get(2).getIdTransaccion()).isNotNull();
+        assertThat(tarjetaService.obtenerMovimientos(TARJETA, 3L, 1).getData())
+                .extracting(Movimiento::getSecuencia).containsExactly(4L);
+
+        SaldoReconstruido saldo = tarjetaService.reconstruirBalance(TARJETA).getData();
+        assertThat(saldo.getBalance()).isEqualByComparingTo("80.00");
+        assertThat(saldo.getSecuencia()).isEqualTo(5);
+        assertThat(saldo.isConsistente()).isTrue();
+    }
+
+    @Test
+    void reconstruccion_partiendoDeLaInstantanea() {
+        InstantaneasSaldo instantaneas = new InstantaneasSaldo(jdbcTemplate, 3, 1000);
+        tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("50.00"));
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("5.00"));
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("5.00"));
+        instantaneas.tomar();
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("15.00"));
+
+        SaldoReconstruido saldo = tarjetaService.reconstruirBalance(TARJETA).getData();
+
+        assertThat(saldo.getSecuenciaInstantanea()).isEqualTo(3);
+        assertThat(saldo.getBalanceInstantanea()).isEqualByComparingTo("40.00");
+        assertThat(saldo.getMovimientosAplicados()).isEqualTo(1);
+        assertThat(saldo.getBalance()).isEqualByComparingTo("25.00");
+        assertThat(saldo.isConsistente()).isTrue();
+
+        // Un movimiento menos que el minimo: no hay instantanea nueva
+        instantaneas.tomar();
+        assertThat(tarjetaService.reconstruirBalance(TARJETA).getData().getSecuenciaInstantanea()).isEqualTo(3);
+    }
+
+    @Test
+    void saldoFueraDelLibro_noEsConsistente() {
+        jdbcTemplate.update("UPDATE tarjeta SET balance = balance + 1 WHERE id = ?", TARJETA);
+
+        SaldoReconstruido saldo = tarjetaService.reconstruirBalance(TARJETA).getData();
+
+        assertThat(saldo.getBalance()).isEqualByComparingTo("0.00");
+        assertThat(saldo.getBalanceProyeccion()).isEqualByComparingTo("1.00");
+        assertThat(saldo.isConsistente()).isFalse();
+        assertThat(tarjetaService.reconstruirBalance("9999990000000099").getMessage()).isEqualTo("Tarjeta no encontrada");
+    }
+
+    private static TransaccionRequest compra(String precio) {
+        TransaccionRequest compra = new TransaccionRequest();
+        compra.setCardId(TARJETA);
+        compra.setPrice(new BigDecimal(precio));
+        return compra;
+    }
+}
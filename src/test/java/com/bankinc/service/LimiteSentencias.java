@@ -0,0 +1,35 @@
+package com.bankinc.service;
+
+import com.bankinc.config.ContadorSql;
+
+import java.util.function.Supplier;
+
+/**
+ * Falla si la accion ejecuta mas sentencias SQL que las permitidas. El mensaje lista cada
+ * sentencia con sus repeticiones, para ver de donde salio la ida de mas.
+ */
+public final class LimiteSentencias {
+
+    private LimiteSentencias() {
+    }
+
+    public static <T> T maximo(int sentencias, Supplier<T> accion) {
+        try (ContadorSql.Medicion medicion = ContadorSql.iniciar()) {
+            T resultado = accion.get();
+            if (medicion.sentencias() > sentencias) {
+                StringBuilder detalle = new StringBuilder("Se esperaban como maximo ").append(sentencias)
+                        .append(" sentencias y se ejecutaron ").append(medicion.sentencias()).append(':');
+                medicion.porSql().forEach((sql, veces) -> detalle.append("\n  ").append(veces).append("x ").append(sql));
+                throw new AssertionError(detalle.toString());
+            }
+            return resultado;
+        }
+    }
+
+    public static void maximo(int sentencias, Runnable accion) {
+        maximo(sentencias, () -> {
+            accion.run();
+            return null;
+        });
+    }
+}
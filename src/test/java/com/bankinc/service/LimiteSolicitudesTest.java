@@ -0,0 +1,97 @@
+package com.bankinc.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LimiteSolicitudesTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LimiteSolicitudes limite = new LimiteSolicitudes(true, 10, 3, List.of("654321=1:1"),
+            100, 2, 1_000, registry);
+
+    @Test
+    void tarjeta_aceptaLaRafagaYLuegoRechazaHastaRecuperar() {
+        long ahora = 1_000 * SEGUNDO;
+
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora)).isZero();
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora)).isZero();
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora)).isZero();
+        // 10 por segundo: la siguiente entra a los 100 ms
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora)).isEqualTo(SEGUNDO / 10);
+        assertThat(limite.esperaTarjeta("1234560000000002", ahora)).isZero();
+
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora + SEGUNDO / 10)).isZero();
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora + SEGUNDO / 10)).isPositive();
+        assertThat(registry.get("bankinc.limite.rechazos").tag("clave", "tarjeta").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void producto_usaSuPropioLimite() {
+        long ahora = 1_000 * SEGUNDO;
+
+        assertThat(limite.esperaTarjeta("6543210000000001", ahora)).isZero();
+        assertThat(limite.esperaTarjeta("6543210000000001", ahora)).isEqualTo(SEGUNDO);
+        assertThat(limite.esperaTarjeta("6543210000000001", ahora + SEGUNDO)).isZero();
+    }
+
+    @Test
+    void cliente_seCuentaAparte() {
+        long ahora = 1_000 * SEGUNDO;
+
+        assertThat(limite.esperaCliente("terminal-1", ahora)).isZero();
+        assertThat(limite.esperaCliente("terminal-1", ahora)).isZero();
+        assertThat(limite.esperaCliente("terminal-1", ahora)).isEqualTo(SEGUNDO / 100);
+        assertThat(limite.esperaTarjeta("1234560000000001", ahora)).isZero();
+        assertThat(registry.get("bankinc.limite.rechazos").tag("clave", "cliente").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void deshabilitado_aceptaTodo() {
+        LimiteSolicitudes sinLimite = LimiteSolicitudes.deshabilitado();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(sinLimite.esperaTarjeta("1234560000000001")).isZero();
+        }
+    }
+
+    @Test
+    void limiteDeProductoMalEscrito_falla() {
+        assertThatThrownBy(() -> new LimiteSolicitudes(true, 10, 3, List.of("654321=1"), 100, 2, 1_000, registry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void retryAfter_redondeaHaciaArriba() {
+        assertThat(LimiteSolicitudes.segundos(1)).isEqualTo(1);
+        assertThat(LimiteSolicitudes.segundos(SEGUNDO)).isEqualTo(1);
+        assertThat(LimiteSolicitudes.segundos(SEGUNDO + 1)).isEqualTo(2);
+    }
+
+    @Test
+    void verificacion_noCreaObjetosConLaCubetaEnCache() {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String tarjeta = "1234560000000003";
+        long ahora = 1_000 * SEGUNDO;
+        for (int i = 0; i < 100_000; i++) {
+            limite.esperaTarjeta(tarjeta, ahora + i * SEGUNDO);
+        }
+
+        long antes = hilos.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            limite.esperaTarjeta(tarjeta, ahora + (100_000 + i) * SEGUNDO);
+        }
+        long creados = hilos.getCurrentThreadAllocatedBytes() - antes;
+
+        // Margen para lo que asigne la propia medicion, muy por debajo de un objeto por llamada
+        assertThat(creados).isLessThan(10_000);
+    }
+}
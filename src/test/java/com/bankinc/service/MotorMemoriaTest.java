@@ -0,0 +1,274 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoReconstruido;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import com.bankinc.repository.Transaccionrepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tarjetas del producto 999992 en el motor en memoria: las mutaciones responden desde memoria,
+ * llegan a las tablas por el volcado y, si el proceso cae antes, se recuperan del diario.
+ */
+@SpringBootTest(properties = {
+        "bankinc.motor.productos=999992",
+        "bankinc.motor.nombre=prueba-motor",
+        "bankinc.motor.directorio=target/diario-prueba/${random.uuid}",
+        "bankinc.motor.tamanio-segmento=64KB"
+})
+class MotorMemoriaTest {
+
+    private static final String TARJETA = "9999920000000001";
+    private static final String TARJETA_BASE = "9999990000000093";
+    private static final String TARJETA_RECUPERACION = "9999910000000001";
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private MotorMemoria motor;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private Transaccionrepository transaccionrepository;
+
+    @Autowired
+    private SerializadorTarjetas serializador;
+
+    @Autowired
+    private TransactionOperations transacciones;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directorioRecuperacion;
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        motor.registrar(tarjetaRepository.save(tarjeta(TARJETA, "999992")));
+        tarjetaRepository.save(tarjeta(TARJETA_BASE, "999999"));
+    }
+
+    @AfterEach
+    void limpiar() {
+        // Nada pendiente de una tarjeta que se va a borrar y volver a crear
+        motor.volcarPendiente();
+        for (String id : List.of(TARJETA, TARJETA_BASE, TARJETA_RECUPERACION)) {
+            jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", id);
+            jdbcTemplate.update("DELETE FROM gasto_diario WHERE id_tarjeta = ?", id);
+            tarjetaRepository.findById(id).ifPresent(tarjetaRepository::delete);
+            cache.invalidar(id);
+        }
+        jdbcTemplate.update("DELETE FROM motor_checkpoint WHERE nombre IN ('prueba-recuperacion', 'prueba-ids')");
+    }
+
+    @Test
+    void mutaciones_respondenDesdeMemoriaYSeVuelcanALaBase() {
+        assertThat(motor.gestiona(TARJETA)).isTrue();
+        assertThat(motor.gestiona(TARJETA_BASE)).isFalse();
+
+        tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("100.00"));
+        Transaccion compra = transaccionService.crearTransaccion(TARJETA, new BigDecimal("30.00")).getData();
+        ApiResponse<Transaccion> sinFondos = transaccionService.crearTransaccion(TARJETA, new BigDecimal("500.00"));
+        ApiResponse<Transaccion> anulacion = transaccionService.anularTransaccion(TARJETA, compra.getId());
+        ApiResponse<Transaccion> repetida = transaccionService.anularTransaccion(TARJETA, compra.getId());
+        transaccionService.crearTransaccion(TARJETA, new BigDecimal("20.00"));
+
+        assertThat(sinFondos.getMessage()).isEqualTo("Fondos insuficientes");
+        assertThat(anulacion.getStatus()).isEqualTo("SUCCESS");
+        assertThat(repetida.getMessage()).isEqualTo("Transaccion ya anulada");
+        assertThat(tarjetaService.obtenerBalance(TARJETA).getData().getBalance()).isEqualByComparingTo("80.00");
+
+        esperarVolcado(TARJETA, 4);
+        Tarjeta enBase = tarjetaRepository.findById(TARJETA).orElseThrow();
+        assertThat(enBase.getBalance()).isEqualByComparingTo("80.00");
+        assertThat(transaccionrepository.findById(compra.getId()).orElseThrow().getAnulada()).isTrue();
+        SaldoReconstruido saldo = tarjetaService.reconstruirBalance(TARJETA).getData();
+        assertThat(saldo.getBalance()).isEqualByComparingTo("80.00");
+        assertThat(saldo.isConsistente()).isTrue();
+        Map<String, Object> gasto = jdbcTemplate.queryForMap(
+                "SELECT compras, monto, anulaciones, anulado FROM gasto_diario WHERE id_tarjeta = ?", TARJETA);
+        assertThat(gasto.get("compras")).isEqualTo(2);
+        assertThat((BigDecimal) gasto.get("monto")).isEqualByComparingTo("50.00");
+        assertThat(gasto.get("anulaciones")).isEqualTo(1);
+        assertThat((BigDecimal) gasto.get("anulado")).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void estado_bloqueoYActivacionPasanPorElMotor() {
+        tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("10.00"));
+        tarjetaService.bloquearTarjeta(TARJETA);
+
+        assertThat(transaccionService.crearTransaccion(TARJETA, new BigDecimal("1.00")).getMessage())
+                .isEqualTo("Tarjeta bloqueada");
+        assertThat(tarjetaService.activarTarjeta(TARJETA).getStatus()).isEqualTo("SUCCESS");
+        assertThat(transaccionService.crearTransaccion(TARJETA, new BigDecimal("1.00")).getStatus()).isEqualTo("SUCCESS");
+
+        esperarVolcado(TARJETA, 2);
+        Tarjeta enBase = tarjetaRepository.findById(TARJETA).orElseThrow();
+        assertThat(enBase.getActiva()).isTrue();
+        assertThat(enBase.getBloqueada()).isFalse();
+        assertThat(enBase.getBalance()).isEqualByComparingTo("9.00");
+    }
+
+    @Test
+    void lote_mezclaTarjetasDelMotorYDeLaBase() {
+        tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("15.00"));
+
+        List<ApiResponse<Transaccion>> resultados = transaccionService.crearTransacciones(List.of(
+                compra(TARJETA, "10.00"), compra(TARJETA_BASE, "10.00"), compra(TARJETA, "10.00"))).getData();
+
+        assertThat(resultados).extracting(ApiResponse::getMessage).containsExactly(
+                "Transaccion realizada correctamente", "Transaccion realizada correctamente", "Fondos insuficientes");
+        assertThat(motor.tarjeta(TARJETA).orElseThrow().getBalance()).isEqualByComparingTo("5.00");
+        assertThat(tarjetaRepository.findById(TARJETA_BASE).orElseThrow().getBalance()).isEqualByComparingTo("90.00");
+    }
+
+    /**
+     * Un motor propio sobre otro producto: escribe en el diario, cae sin volcar y el siguiente
+     * reproduce el diario sobre lo que tiene la base.
+     */
+    @Test
+    void recuperacion_reproduceElDiarioNoVolcado() throws InterruptedException {
+        Tarjeta guardada = tarjeta(TARJETA_RECUPERACION, "999991");
+        guardada.setBalance(new BigDecimal("50.00"));
+        tarjetaRepository.save(guardada);
+
+        MotorMemoria caido = motorRecuperacion();
+        caido.start();
+        Transaccion compra = caido.ejecutar(TARJETA_RECUPERACION, () -> {
+            Tarjeta tarjeta = caido.tarjeta(TARJETA_RECUPERACION).orElseThrow();
+            caido.acreditar(tarjeta, new BigDecimal("25.00"));
+            return caido.debitar(tarjeta, new BigDecimal("5.00"));
+        });
+        caido.detenerSinVolcar();
+        assertThat(tarjetaRepository.findById(TARJETA_RECUPERACION).orElseThrow().getBalance())
+                .isEqualByComparingTo("50.00");
+
+        MotorMemoria recuperado = motorRecuperacion();
+        recuperado.start();
+        try {
+            assertThat(recuperado.tarjeta(TARJETA_RECUPERACION).orElseThrow().getBalance()).isEqualByComparingTo("70.00");
+            assertThat(recuperado.transaccion(TARJETA_RECUPERACION, compra.getId())).isPresent();
+            esperarVolcado(TARJETA_RECUPERACION, 2);
+        } finally {
+            recuperado.stop();
+        }
+        assertThat(tarjetaRepository.findById(TARJETA_RECUPERACION).orElseThrow().getBalance())
+                .isEqualByComparingTo("70.00");
+        assertThat(transaccionrepository.findById(compra.getId())).isPresent();
+    }
+
+    /**
+     * Los ids salen de los bloques reservados sin ir a la base; agotados (aca nadie repone,
+     * el intervalo de volcado es largo) la compra falla en vez de consultar la secuencia.
+     */
+    @Test
+    void ids_unicosEntreHilosYSinReservaFallanSinIrALaBase() throws Exception {
+        MotorMemoria motorIds = new MotorMemoria(List.of("999990"), "prueba-ids", directorioRecuperacion.toString(),
+                DataSize.ofKilobytes(64), false, Duration.ofMinutes(10), 5000, jdbcTemplate, transacciones,
+                serializador, new SimpleMeterRegistry());
+        motorIds.start();
+        try {
+            Set<Long> ids = ConcurrentHashMap.newKeySet();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> hilos = new ArrayList<>();
+                for (int h = 0; h < 8; h++) {
+                    hilos.add(executor.submit(() -> {
+                        for (int i = 0; i < 125; i++) {
+                            ids.add(motorIds.siguienteId());
+                        }
+                    }));
+                }
+                for (Future<?> hilo : hilos) {
+                    hilo.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertThat(ids).hasSize(1000);
+            assertThatThrownBy(motorIds::siguienteId).isInstanceOf(IllegalStateException.class);
+        } finally {
+            motorIds.stop();
+        }
+    }
+
+    private MotorMemoria motorRecuperacion() {
+        // Intervalo largo: nada se vuelca salvo lo que ya estaba pendiente al arrancar
+        return new MotorMemoria(List.of("999991"), "prueba-recuperacion", directorioRecuperacion.toString(),
+                DataSize.ofKilobytes(64), true, Duration.ofMinutes(10), 5000, jdbcTemplate, transacciones,
+                serializador, new SimpleMeterRegistry());
+    }
+
+    private void esperarVolcado(String idTarjeta, long secuencia) {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (jdbcTemplate.queryForObject("SELECT secuencia FROM tarjeta WHERE id = ?", Long.class, idTarjeta) < secuencia) {
+            assertThat(System.currentTimeMillis()).as("volcado de " + idTarjeta).isLessThan(limite);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Tarjeta tarjeta(String id, String producto) {
+        return Tarjeta.builder()
+                .id(id)
+                .idProducto(producto)
+                .nombreTitular("Prueba Motor")
+                .fechaExpiracion("12/2099")
+                .activa(true)
+                .bloqueada(false)
+                .balance(producto.equals("999999") ? new BigDecimal("100.00") : BigDecimal.ZERO)
+                .build();
+    }
+
+    private static TransaccionRequest compra(String idTarjeta, String precio) {
+        TransaccionRequest compra = new TransaccionRequest();
+        compra.setCardId(idTarjeta);
+        compra.setPrice(new BigDecimal(precio));
+        return compra;
+    }
+}
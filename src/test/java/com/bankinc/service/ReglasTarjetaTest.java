@@ -0,0 +1,62 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReglasTarjetaTest {
+
+    private final RelojMes reloj = new RelojMes();
+
+    @Test
+    void compra_informaLaPrimeraReglaQueFalla() {
+        assertThat(ReglasTarjeta.rechazoCompra(tarjeta(true, true, "12/2099"), BigDecimal.ONE, reloj))
+                .isEqualTo("Tarjeta bloqueada");
+        assertThat(ReglasTarjeta.rechazoCompra(tarjeta(false, false, "12/2099"), BigDecimal.ONE, reloj))
+                .isEqualTo("Tarjeta no activa");
+        assertThat(ReglasTarjeta.rechazoCompra(tarjeta(true, false, "01/2020"), BigDecimal.ONE, reloj))
+                .isEqualTo("Tarjeta expirada");
+        assertThat(ReglasTarjeta.rechazoCompra(tarjeta(true, false, "12/2099"), BigDecimal.ZERO, reloj))
+                .isEqualTo("El monto de la transaccion debe ser mayor a cero");
+        assertThat(ReglasTarjeta.rechazoCompra(tarjeta(true, false, "12/2099"), new BigDecimal("100.01"), reloj))
+                .isEqualTo("Fondos insuficientes");
+        assertThat(ReglasTarjeta.rechazoCompra(tarjeta(true, false, "12/2099"), new BigDecimal("100.00"), reloj))
+                .isNull();
+    }
+
+    @Test
+    void recarga_montoAntesQueElEstado() {
+        assertThat(ReglasTarjeta.rechazoRecarga(tarjeta(false, true, "12/2099"), null))
+                .isEqualTo("El monto debe ser mayor a cero");
+        assertThat(ReglasTarjeta.rechazoRecarga(tarjeta(false, true, "12/2099"), BigDecimal.TEN))
+                .isEqualTo("La tarjeta está bloqueada");
+        assertThat(ReglasTarjeta.rechazoRecarga(tarjeta(true, false, "12/2099"), BigDecimal.TEN)).isNull();
+    }
+
+    @Test
+    void anulacion_ventanaDeVeinticuatroHoras() {
+        LocalDateTime ahora = LocalDateTime.of(2026, 3, 2, 12, 0);
+        Transaccion reciente = new Transaccion(1L, "9999990000000001", BigDecimal.ONE, ahora.minusHours(24), false);
+        Transaccion vieja = new Transaccion(2L, "9999990000000001", BigDecimal.ONE, ahora.minusHours(25), false);
+        Transaccion anulada = new Transaccion(3L, "9999990000000001", BigDecimal.ONE, ahora, true);
+
+        assertThat(ReglasTarjeta.rechazoAnulacion(reciente, ahora)).isNull();
+        assertThat(ReglasTarjeta.rechazoAnulacion(vieja, ahora)).isEqualTo("Transaccion caducada para anular");
+        assertThat(ReglasTarjeta.rechazoAnulacion(anulada, ahora)).isEqualTo("Transaccion ya anulada");
+    }
+
+    private static Tarjeta tarjeta(boolean activa, boolean bloqueada, String vencimiento) {
+        return Tarjeta.builder()
+                .id("9999990000000001")
+                .activa(activa)
+                .bloqueada(bloqueada)
+                .fechaExpiracion(vencimiento)
+                .balance(new BigDecimal("100.00"))
+                .build();
+    }
+}
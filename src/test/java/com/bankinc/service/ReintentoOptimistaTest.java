@@ -0,0 +1,102 @@
+package com.bankinc.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReintentoOptimistaTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReintentoOptimista reintento =
+            new ReintentoOptimista(TransactionOperations.withoutTransaction(), registry, 3, 1, 2);
+
+    @Test
+    void reintenta_hasta_tener_exito() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = reintento.ejecutar("1234560000000001", () -> {
+            if (intentos.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Tarjeta", "1234560000000001");
+            }
+            return "ok";
+        });
+
+        assertThat(resultado).isEqualTo("ok");
+        assertThat(intentos.get()).isEqualTo(3);
+        assertThat(registry.get("bankinc.concurrencia.reintentos").tag("producto", "123456").counter().count())
+                .isEqualTo(2.0);
+        assertThat(registry.find("bankinc.concurrencia.agotados").counter()).isNull();
+    }
+
+    @Test
+    void abandona_al_llegar_al_maximo_de_intentos() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        assertThatThrownBy(() -> reintento.ejecutar("6543210000000001", () -> {
+            intentos.incrementAndGet();
+            throw new CannotAcquireLockException("deadlock");
+        })).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(intentos.get()).isEqualTo(3);
+        assertThat(registry.get("bankinc.concurrencia.agotados").tag("producto", "654321").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void no_reintenta_otros_errores() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        assertThatThrownBy(() -> reintento.ejecutar("1234560000000001", () -> {
+            intentos.incrementAndGet();
+            throw new IllegalStateException("fallo");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(intentos.get()).isEqualTo(1);
+    }
+
+    @Test
+    void la_exclusion_se_suelta_durante_la_espera_y_se_vuelve_a_tomar_por_intento() {
+        ReentrantLock candado = new ReentrantLock();
+        AtomicInteger tomas = new AtomicInteger();
+        AtomicInteger intentos = new AtomicInteger();
+        List<Boolean> conflictosConCandado = new ArrayList<>();
+
+        String resultado = reintento.ejecutar("1234560000000001", intento -> {
+            assertThat(candado.isLocked()).isFalse();
+            candado.lock();
+            try {
+                tomas.incrementAndGet();
+                return intento.get();
+            } finally {
+                candado.unlock();
+            }
+        }, () -> {
+            if (intentos.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Tarjeta", "1234560000000001");
+            }
+            return "ok";
+        }, () -> conflictosConCandado.add(candado.isHeldByCurrentThread()));
+
+        assertThat(resultado).isEqualTo("ok");
+        assertThat(tomas.get()).isEqualTo(3);
+        assertThat(conflictosConCandado).containsExactly(true, true);
+        assertThat(candado.isLocked()).isFalse();
+    }
+
+    @Test
+    void producto_se_toma_del_prefijo_de_la_tarjeta() {
+        assertThat(ReintentoOptimista.producto("1234560000000001")).isEqualTo("123456");
+        assertThat(ReintentoOptimista.producto("12")).isEqualTo("desconocido");
+        assertThat(ReintentoOptimista.producto(null)).isEqualTo("desconocido");
+    }
+}
@@ -0,0 +1,68 @@
+package com.bankinc.service;
+
+import com.bankinc.entity.MesExpiracionConverter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RelojMesTest {
+
+    @Test
+    void mesActual_cambiaAlCruzarElFinDeMes() {
+        RelojAjustable reloj = new RelojAjustable(Instant.parse("2026-01-31T23:59:59Z"));
+        RelojMes relojMes = new RelojMes(reloj);
+
+        assertThat(relojMes.mesActual()).isEqualTo(MesExpiracionConverter.aMes(YearMonth.of(2026, 1)));
+        assertThat(relojMes.vencida(YearMonth.of(2026, 1))).isFalse();
+
+        reloj.ahora = Instant.parse("2026-02-01T00:00:00Z");
+
+        assertThat(relojMes.mesActual()).isEqualTo(MesExpiracionConverter.aMes(YearMonth.of(2026, 2)));
+        assertThat(relojMes.vencida(YearMonth.of(2026, 1))).isTrue();
+        assertThat(relojMes.vencida(YearMonth.of(2026, 2))).isFalse();
+    }
+
+    @Test
+    void sinVencimiento_seConsideraVencida() {
+        assertThat(new RelojMes().vencida(null)).isTrue();
+    }
+
+    @Test
+    void mesDesdeEpoch_idaYVuelta() {
+        assertThat(MesExpiracionConverter.aMes(YearMonth.of(1970, 1))).isZero();
+        assertThat(MesExpiracionConverter.desdeMes(MesExpiracionConverter.aMes(YearMonth.of(2099, 12))))
+                .isEqualTo(YearMonth.of(2099, 12));
+        assertThat(MesExpiracionConverter.desdeMes(-1)).isEqualTo(YearMonth.of(1969, 12));
+        assertThat(MesExpiracionConverter.formatear(MesExpiracionConverter.parsear("03/2027"))).isEqualTo("03/2027");
+    }
+
+    private static final class RelojAjustable extends Clock {
+
+        private Instant ahora;
+
+        private RelojAjustable(Instant ahora) {
+            this.ahora = ahora;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.bankinc.service;
+
+import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.Tarjeta;
+import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.TarjetaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Presupuesto de idas a la base por metodo de servicio, con la cache de tarjetas fria salvo
+ * donde se indica. Si un cambio agrega sentencias (o un N+1 en el lote) falla aqui.
+ */
+@SpringBootTest
+class SentenciasPorMetodoTest {
+
+    private static final String TARJETA = "9999990000000060";
+    private static final String PRODUCTO_EMISION = "999994";
+    private static final int TARJETAS_LOTE = 10;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private TarjetaService tarjetaService;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheTarjetas cache;
+
+    private final List<String> tarjetas = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        for (int i = 0; i < TARJETAS_LOTE; i++) {
+            String id = "99999900000000" + (60 + i);
+            tarjetaRepository.save(Tarjeta.builder()
+                    .id(id)
+                    .idProducto("999999")
+                    .nombreTitular("Prueba Sentencias")
+                    .fechaExpiracion("12/2099")
+                    .activa(true)
+                    .bloqueada(false)
+                    .balance(new BigDecimal("100.00"))
+                    .build());
+            tarjetas.add(id);
+            cache.invalidar(id);
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        for (String id : tarjetas) {
+            jdbcTemplate.update("DELETE FROM transaccion WHERE id_tarjeta = ?", id);
+            tarjetaRepository.deleteById(id);
+            cache.invalidar(id);
+        }
+    }
+
+    @Test
+    void compra_unaSolaSentencia() {
+        ApiResponse<Transaccion> compra = LimiteSentencias.maximo(1,
+                () -> transaccionService.crearTransaccion(TARJETA, new BigDecimal("10.00")));
+
+        assertThat(compra.getStatus()).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    void consultas_leenLaTarjetaUnaVezYLuegoDeCache() {
+        LimiteSentencias.maximo(1, () -> tarjetaService.obtenerBalance(TARJETA));
+        LimiteSentencias.maximo(0, () -> tarjetaService.obtenerBalance(TARJETA));
+        LimiteSentencias.maximo(1, () -> transaccionService.obtenerPaginaTransacciones(TARJETA, null, 10));
+        LimiteSentencias.maximo(1, () -> transaccionService.obtenerTransaccionesPorTarjeta(TARJETA));
+    }
+
+    /**
+     * Con la tarjeta en cache no hay findById, pero save() sobre la copia desacoplada hace merge:
+     * SELECT por id y UPDATE con version. Con o sin cache son dos sentencias, mas el INSERT del
+     * movimiento en las recargas.
+     */
+    @Test
+    void mutacionesDeTarjeta_lecturaYUpdate() {
+        LimiteSentencias.maximo(3, () -> tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("10.00")));
+        LimiteSentencias.maximo(3, () -> tarjetaService.recargarTarjeta(TARJETA, new BigDecimal("10.00")));
+        LimiteSentencias.maximo(2, () -> tarjetaService.bloquearTarjeta(TARJETA));
+        LimiteSentencias.maximo(2, () -> tarjetaService.activarTarjeta(TARJETA));
+    }
+
+    @Test
+    void anulacion_ventanaMarcaYSaldo() {
+        Transaccion compra = transaccionService.crearTransaccion(TARJETA, new BigDecimal("10.00")).getData();
+
+        // Ventana de 24 horas, marca por particion, merge + UPDATE del saldo y el movimiento
+        ApiResponse<Transaccion> anulacion = LimiteSentencias.maximo(5,
+                () -> transaccionService.anularTransaccion(TARJETA, compra.getId()));
+
+        assertThat(anulacion.getStatus()).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    void emision_consultaYInsert() {
+        tarjetaService.generarTarjeta(PRODUCTO_EMISION, "Prueba", "Reserva");
+
+        ApiResponse<Tarjeta> emitida = LimiteSentencias.maximo(2,
+                () -> tarjetaService.generarTarjeta(PRODUCTO_EMISION, "Prueba", "Sentencias"));
+
+        tarjetas.add(emitida.getData().getId());
+        tarjetaRepository.findByIdProductoAndNombreTitular(PRODUCTO_EMISION, "Prueba Reserva")
+                .ifPresent(t -> tarjetas.add(t.getId()));
+        assertThat(emitida.getStatus()).isEqualTo("SUCCESS");
+    }
+
+    /**
+     * Lectura de las tarjetas, INSERT y UPDATE en lote, los movimientos y el upsert de
+     * gasto_diario.
+     */
+    @Test
+    void lote_noCreceConLasTarjetas() {
+        List<TransaccionRequest> compras = new ArrayList<>();
+        for (String id : tarjetas) {
+            compras.add(compra(id));
+            compras.add(compra(id));
+        }
+
+        ApiResponse<List<ApiResponse<Transaccion>>> lote = LimiteSentencias.maximo(6,
+                () -> transaccionService.crearTransacciones(compras));
+
+        assertThat(lote.getData()).allMatch(r -> "SUCCESS".equals(r.getStatus()));
+    }
+
+    private static TransaccionRequest compra(String idTarjeta) {
+        TransaccionRequest compra = new TransaccionRequest();
+        compra.setCardId(idTarjeta);
+        compra.setPrice(new BigDecimal("5.00"));
+        return compra;
+    }
+}
@@ -0,0 +1,127 @@
+package com.bankinc.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SerializadorTarjetasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void franjas_seRedondeanAPotenciaDeDos() {
+        assertThat(new SerializadorTarjetas(1, registry).numeroFranjas()).isEqualTo(1);
+        assertThat(new SerializadorTarjetas(5, new SimpleMeterRegistry()).numeroFranjas()).isEqualTo(8);
+        assertThat(new SerializadorTarjetas(256, new SimpleMeterRegistry()).numeroFranjas()).isEqualTo(256);
+    }
+
+    @Test
+    void franjas_invalidas_fallan() {
+        assertThatThrownBy(() -> new SerializadorTarjetas(0, registry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mismaTarjeta_seEjecutaEnSerie() throws Exception {
+        SerializadorTarjetas serializador = new SerializadorTarjetas(16, registry);
+        int[] contador = {0};
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    serializador.ejecutar("1234560000000001", () -> contador[0]++);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(contador[0]).isEqualTo(80_000);
+        assertThat(registry.get("bankinc.serializacion.espera").timer().count()).isEqualTo(80_000);
+    }
+
+    @Test
+    void tarjetasEnFranjasDistintas_avanzanEnParalelo() throws Exception {
+        SerializadorTarjetas serializador = new SerializadorTarjetas(64, registry);
+        String primera = "1234560000000001";
+        String segunda = "1234560000000002";
+        assertThat(serializador.franja(primera)).isNotEqualTo(serializador.franja(segunda));
+
+        CountDownLatch ambasDentro = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Boolean> a = executor.submit(() -> serializador.ejecutar(primera, () -> esperar(ambasDentro)));
+        Future<Boolean> b = executor.submit(() -> serializador.ejecutar(segunda, () -> esperar(ambasDentro)));
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(b.get(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+    }
+
+    @Test
+    void ejecutarTodas_conTarjetasCruzadas_noSeBloquea() throws Exception {
+        SerializadorTarjetas serializador = new SerializadorTarjetas(64, registry);
+        List<String> ida = List.of("1234560000000001", "1234560000000002", "1234560000000003");
+        List<String> vuelta = List.of("1234560000000003", "1234560000000002", "1234560000000001");
+        int[] contador = {0};
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (List<String> tarjetas : List.of(ida, vuelta)) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    serializador.ejecutarTodas(tarjetas, () -> contador[0]++);
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(contador[0]).isEqualTo(20_000);
+    }
+
+    @Test
+    void cola_reportaHilosEsperando() throws Exception {
+        SerializadorTarjetas serializador = new SerializadorTarjetas(4, registry);
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.submit(() -> serializador.ejecutar("1234560000000001", () -> {
+            dentro.countDown();
+            return aguardar(liberar);
+        }));
+        dentro.await();
+        executor.submit(() -> serializador.ejecutar("1234560000000001", () -> true));
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("bankinc.serializacion.cola").gauge().value() < 1 && System.nanoTime() < limite) {
+            Thread.onSpinWait();
+        }
+        assertThat(registry.get("bankinc.serializacion.cola").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("bankinc.serializacion.cola.max").gauge().value()).isEqualTo(1.0);
+
+        liberar.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static boolean esperar(CountDownLatch latch) {
+        latch.countDown();
+        return aguardar(latch);
+    }
+
+    private static boolean aguardar(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
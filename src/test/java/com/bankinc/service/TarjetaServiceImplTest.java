@@ -1,18 +1,27 @@
 package com.bankinc.service;
 
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.entity.Movimiento;
 import com.bankinc.entity.Tarjeta;
 import com.bankinc.repository.TarjetaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
@@ -24,6 +33,29 @@ class TarjetaServiceImplTest {
     @Mock
     private TarjetaRepository tarjetaRepository;
 
+    @Spy
+    private SerializadorTarjetas serializador = new SerializadorTarjetas(4, new SimpleMeterRegistry());
+
+    @Spy
+    private ReintentoOptimista reintento = new ReintentoOptimista(
+            TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 3, 0, 0);
+
+    @Spy
+    private CacheTarjetas cache = new CacheTarjetas(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Spy
+    private AsignadorNumerosTarjeta asignador = new AsignadorNumerosTarjeta(
+            AsignadorNumerosTarjetaTest.numeracionEnMemoria(new AtomicLong()), 100, 42L);
+
+    @Mock
+    private LibroMayor libroMayor;
+
+    @Spy
+    private MotorMemoria motor = MotorMemoria.deshabilitado();
+
+    @Spy
+    private LecturaPropia lecturaPropia = LecturaPropia.deshabilitada();
+
     @InjectMocks
     private TarjetaServiceImpl tarjetaService;
 
@@ -55,6 +87,29 @@ class TarjetaServiceImplTest {
         verify(tarjetaRepository, times(1)).save(any(Tarjeta.class));
     }
 
+    @Test
+    void generarTarjeta_retries_with_next_number_when_pan_taken() {
+        when(tarjetaRepository.findByIdProductoAndNombreTitular(eq(idProducto), anyString()))
+                .thenReturn(Optional.empty());
+        when(tarjetaRepository.save(any(Tarjeta.class)))
+                .thenThrow(new DataIntegrityViolationException("tarjeta_pkey"))
+                .thenAnswer(i -> i.getArgument(0));
+
+        ApiResponse<Tarjeta> resp = tarjetaService.generarTarjeta(idProducto, primerNombre, segundoNombre);
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        verify(asignador, times(2)).asignar(idProducto);
+        verify(tarjetaRepository, times(2)).save(any(Tarjeta.class));
+    }
+
+    @Test
+    void generarTarjeta_fails_when_product_not_numeric() {
+        ApiResponse<Tarjeta> resp = tarjetaService.generarTarjeta("12A456", primerNombre, segundoNombre);
+
+        assertThat(resp.getStatus()).isEqualTo("ERROR");
+        verifyNoInteractions(tarjetaRepository);
+    }
+
     @Test
     void generarTarjeta_fails_ifAlreadyExists() {
         Tarjeta existing = Tarjeta.builder().id("1234560000000001").idProducto(idProducto)
@@ -86,7 +141,51 @@ class TarjetaServiceImplTest {
 
         assertThat(resp.getStatus()).isEqualTo("SUCCESS");
         assertThat(resp.getData().getBalance()).isEqualByComparingTo(new BigDecimal("25.50"));
+        assertThat(resp.getData().getSecuencia()).isEqualTo(1L);
         verify(tarjetaRepository).save(any());
+        verify(libroMayor).registrar(argThat((LibroMayor.Asiento a) -> a.tipo() == Movimiento.Tipo.RECARGA
+                && a.monto().compareTo(new BigDecimal("15.50")) == 0));
+    }
+
+    @Test
+    void recargar_reintenta_cuando_hay_conflicto_de_version() {
+        Tarjeta tarjeta = Tarjeta.builder()
+                .id("1234560000000002")
+                .balance(new BigDecimal("10.00"))
+                .bloqueada(false)
+                .activa(true)
+                .build();
+
+        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(tarjetaRepository.save(any(Tarjeta.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Tarjeta.class, tarjeta.getId()))
+                .thenAnswer(i -> i.getArgument(0));
+
+        ApiResponse<Tarjeta> resp = tarjetaService.recargarTarjeta(tarjeta.getId(), new BigDecimal("5.00"));
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        verify(tarjetaRepository, times(2)).findById(tarjeta.getId());
+        verify(tarjetaRepository, times(2)).save(any());
+    }
+
+    @Test
+    void recargar_fails_cuando_se_agotan_los_reintentos() {
+        Tarjeta tarjeta = Tarjeta.builder()
+                .id("1234560000000002")
+                .balance(new BigDecimal("10.00"))
+                .bloqueada(false)
+                .activa(true)
+                .build();
+
+        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(tarjetaRepository.save(any(Tarjeta.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Tarjeta.class, tarjeta.getId()));
+
+        ApiResponse<Tarjeta> resp = tarjetaService.recargarTarjeta(tarjeta.getId(), new BigDecimal("5.00"));
+
+        assertThat(resp.getStatus()).isEqualTo("ERROR");
+        assertThat(resp.getMessage()).isEqualTo("La tarjeta esta siendo modificada, intente nuevamente");
+        verify(tarjetaRepository, times(3)).save(any());
     }
 
     @Test
@@ -258,20 +357,60 @@ class TarjetaServiceImplTest {
                 .bloqueada(false)
                 .build();
 
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
 
-        ApiResponse<Tarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
+        ApiResponse<SaldoTarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
 
         assertThat(resp.getStatus()).isEqualTo("SUCCESS");
         assertThat(resp.getData().getBalance()).isEqualByComparingTo(new BigDecimal("50.00"));
     }
 
+    @Test
+    void obtenerBalance_segundaConsulta_seSirveDesdeCache() {
+        Tarjeta tarjeta = Tarjeta.builder()
+                .id("1234560000000010")
+                .balance(new BigDecimal("50.00"))
+                .activa(true)
+                .bloqueada(false)
+                .build();
+
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
+
+        tarjetaService.obtenerBalance(tarjeta.getId());
+        ApiResponse<SaldoTarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData().getBalance()).isEqualByComparingTo(new BigDecimal("50.00"));
+        verify(tarjetaRepository, times(1)).saldo(tarjeta.getId());
+        verify(tarjetaRepository, never()).findById(any());
+    }
+
+    @Test
+    void recargar_actualizaLaCache() {
+        Tarjeta tarjeta = Tarjeta.builder()
+                .id("1234560000000002")
+                .balance(new BigDecimal("10.00"))
+                .bloqueada(false)
+                .activa(true)
+                .build();
+
+        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(tarjetaRepository.save(any(Tarjeta.class))).thenAnswer(i -> i.getArgument(0));
+
+        tarjetaService.recargarTarjeta(tarjeta.getId(), new BigDecimal("15.50"));
+        ApiResponse<SaldoTarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
+
+        assertThat(resp.getData().getBalance()).isEqualByComparingTo(new BigDecimal("25.50"));
+        verify(tarjetaRepository, times(1)).findById(tarjeta.getId());
+        verify(tarjetaRepository, never()).saldo(any());
+    }
+
     @Test
     void obtenerBalance_fails_whenNotFound() {
         String tarjetaId = "nonexistent";
-        when(tarjetaRepository.findById(tarjetaId)).thenReturn(Optional.empty());
+        when(tarjetaRepository.saldo(tarjetaId)).thenReturn(Optional.empty());
 
-        ApiResponse<Tarjeta> resp = tarjetaService.obtenerBalance(tarjetaId);
+        ApiResponse<SaldoTarjeta> resp = tarjetaService.obtenerBalance(tarjetaId);
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
         assertThat(resp.getMessage()).containsIgnoringCase("Tarjeta no encontrada");
@@ -285,9 +424,9 @@ class TarjetaServiceImplTest {
                 .activa(true)
                 .build();
 
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
 
-        ApiResponse<Tarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
+        ApiResponse<SaldoTarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
         assertThat(resp.getMessage()).containsIgnoringCase("La tarjeta está bloqueada");
@@ -301,9 +440,9 @@ class TarjetaServiceImplTest {
                 .activa(false)
                 .build();
 
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
 
-        ApiResponse<Tarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
+        ApiResponse<SaldoTarjeta> resp = tarjetaService.obtenerBalance(tarjeta.getId());
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
         assertThat(resp.getMessage()).containsIgnoringCase("La tarjeta no está activa");
@@ -1,19 +1,34 @@
 package com.bankinc.service;
 
 import com.bankinc.dto.ApiResponse;
+import com.bankinc.dto.PaginaTransacciones;
+import com.bankinc.dto.SaldoTarjeta;
+import com.bankinc.dto.TransaccionRequest;
+import com.bankinc.entity.MesExpiracionConverter;
+import com.bankinc.entity.Movimiento;
 import com.bankinc.entity.Tarjeta;
 import com.bankinc.entity.Transaccion;
+import com.bankinc.repository.AutorizacionCompra;
+import com.bankinc.repository.GastoDiarioRepository;
 import com.bankinc.repository.TarjetaRepository;
 import com.bankinc.repository.Transaccionrepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -29,6 +44,31 @@ class TransaccionServiceImplTest {
     @Mock
     private TarjetaRepository tarjetaRepository;
 
+    @Mock
+    private GastoDiarioRepository gastoDiarioRepository;
+
+    @Mock
+    private LibroMayor libroMayor;
+
+    @Spy
+    private SerializadorTarjetas serializador = new SerializadorTarjetas(4, new SimpleMeterRegistry());
+
+    @Spy
+    private ReintentoOptimista reintento = new ReintentoOptimista(
+            TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 3, 0, 0);
+
+    @Spy
+    private CacheTarjetas cache = new CacheTarjetas(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Spy
+    private RelojMes reloj = new RelojMes();
+
+    @Spy
+    private MotorMemoria motor = MotorMemoria.deshabilitado();
+
+    @Spy
+    private LecturaPropia lecturaPropia = LecturaPropia.deshabilitada();
+
     @InjectMocks
     private TransaccionServiceImpl transaccionService;
 
@@ -47,75 +87,165 @@ class TransaccionServiceImplTest {
 
     @Test
     void crearTransaccion_success_reduces_balance_and_creates_transaction() {
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
-        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(i -> {
-            Transaccion t = i.getArgument(0);
-            t.setId(1L);
-            return t;
-        });
-        when(tarjetaRepository.save(any(Tarjeta.class))).thenAnswer(i -> i.getArgument(0));
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), eq(new BigDecimal("30.00")), any(), any()))
+                .thenReturn(Optional.of(autorizacion(1L)));
 
         ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("30.00"));
 
         assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData().getId()).isEqualTo(1L);
         assertThat(resp.getData().getMonto()).isEqualByComparingTo(new BigDecimal("30.00"));
-        assertThat(tarjeta.getBalance()).isEqualByComparingTo(new BigDecimal("70.00"));
-        verify(transaccionRepository).save(any());
-        verify(tarjetaRepository).save(any());
+        assertThat(resp.getData().getAnulada()).isFalse();
+        verify(transaccionRepository, never()).save(any());
+        verify(tarjetaRepository, never()).save(any());
     }
 
     @Test
     void crearTransaccion_fails_when_insufficient_balance() {
         tarjeta.setBalance(new BigDecimal("10.00"));
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.of(autorizacion(null)));
 
         ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
-        verify(transaccionRepository, never()).save(any());
+        assertThat(resp.getMessage()).isEqualTo("Fondos insuficientes");
     }
 
     @Test
     void crearTransaccion_fails_when_card_blocked() {
         tarjeta.setBloqueada(true);
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.of(autorizacion(null)));
 
         ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
-        verify(transaccionRepository, never()).save(any());
+        assertThat(resp.getMessage()).isEqualTo("Tarjeta bloqueada");
     }
 
     @Test
     void crearTransaccion_fails_when_card_inactive() {
         tarjeta.setActiva(false);
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.of(autorizacion(null)));
 
         ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
-        verify(transaccionRepository, never()).save(any());
+        assertThat(resp.getMessage()).isEqualTo("Tarjeta no activa");
     }
 
     @Test
     void crearTransaccion_fails_when_card_expired() {
         tarjeta.setFechaExpiracion("01/2020");
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.of(autorizacion(null)));
 
         ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
-        verify(transaccionRepository, never()).save(any());
+        assertThat(resp.getMessage()).isEqualTo("Tarjeta expirada");
+    }
+
+    @Test
+    void crearTransaccion_tarjetaMarcadaExpirada_seRechazaAntesDelSaldo() {
+        tarjeta.setExpirada(true);
+        tarjeta.setBalance(BigDecimal.ZERO);
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.of(autorizacion(null)));
+
+        ApiResponse<Transaccion> primera = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
+        ApiResponse<Transaccion> segunda = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
+
+        assertThat(primera.getMessage()).isEqualTo("Tarjeta expirada");
+        assertThat(segunda.getMessage()).isEqualTo("Tarjeta expirada");
+        verify(transaccionRepository, times(1)).autorizarCompra(any(), any(), any(), any());
+    }
+
+    @Test
+    void crearTransaccion_fails_when_amount_not_positive() {
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.of(autorizacion(null)));
+
+        ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("-5.00"));
+
+        assertThat(resp.getStatus()).isEqualTo("ERROR");
+        assertThat(resp.getMessage()).isEqualTo("El monto de la transaccion debe ser mayor a cero");
     }
 
     @Test
     void crearTransaccion_fails_when_card_not_found() {
-        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.empty());
+        when(transaccionRepository.autorizarCompra(eq(tarjeta.getId()), any(), any(), any()))
+                .thenReturn(Optional.empty());
 
         ApiResponse<Transaccion> resp = transaccionService.crearTransaccion(tarjeta.getId(), new BigDecimal("50.00"));
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
-        verify(transaccionRepository, never()).save(any());
+        assertThat(resp.getMessage()).isEqualTo("Tarjeta no encontrada");
+    }
+
+    @Test
+    void crearTransacciones_applies_rules_per_item_in_order() {
+        Tarjeta bloqueada = Tarjeta.builder()
+                .id("1234560000000004")
+                .balance(new BigDecimal("500.00"))
+                .activa(true)
+                .bloqueada(true)
+                .fechaExpiracion("12/2028")
+                .build();
+        when(tarjetaRepository.findAllById(any())).thenReturn(List.of(tarjeta, bloqueada));
+
+        ApiResponse<List<ApiResponse<Transaccion>>> resp = transaccionService.crearTransacciones(List.of(
+                compra(tarjeta.getId(), "60.00"),
+                compra(bloqueada.getId(), "10.00"),
+                compra(tarjeta.getId(), "50.00"),
+                compra("1234560000000099", "10.00"),
+                compra(tarjeta.getId(), "0"),
+                compra(tarjeta.getId(), "40.00")));
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData()).extracting(ApiResponse::getMessage).containsExactly(
+                "Transaccion realizada correctamente",
+                "Tarjeta bloqueada",
+                "Fondos insuficientes",
+                "Tarjeta no encontrada",
+                "El monto de la transaccion debe ser mayor a cero",
+                "Transaccion realizada correctamente");
+        assertThat(tarjeta.getBalance()).isEqualByComparingTo("0.00");
+        verify(transaccionRepository).saveAll(argThat(nuevas -> nuevas.spliterator().getExactSizeIfKnown() == 2));
+        verify(libroMayor).registrar(argThat((List<LibroMayor.Asiento> asientos) -> asientos.size() == 2
+                && asientos.get(0).secuencia() == 1 && asientos.get(1).secuencia() == 2), any());
+        verify(gastoDiarioRepository).sumarCompras(eq(new String[]{tarjeta.getId()}), any(), any(),
+                eq(new Integer[]{2}), eq(new BigDecimal[]{new BigDecimal("100.00")}));
+    }
+
+    @Test
+    void crearTransacciones_rejects_empty_and_oversized_batches() {
+        assertThat(transaccionService.crearTransacciones(List.of()).getStatus()).isEqualTo("ERROR");
+        List<TransaccionRequest> enorme = Collections.nCopies(
+                TransaccionServiceImpl.MAX_COMPRAS_POR_LOTE + 1, compra(tarjeta.getId(), "1.00"));
+        assertThat(transaccionService.crearTransacciones(enorme).getStatus()).isEqualTo("ERROR");
+        verifyNoInteractions(tarjetaRepository);
+    }
+
+    @Test
+    void crearTransacciones_reports_conflict_for_group_after_retries() {
+        when(tarjetaRepository.findAllById(any())).thenReturn(List.of(tarjeta));
+        when(transaccionRepository.saveAll(any())).thenThrow(new OptimisticLockingFailureException("version"));
+
+        ApiResponse<List<ApiResponse<Transaccion>>> resp = transaccionService.crearTransacciones(List.of(
+                compra(tarjeta.getId(), "10.00"), compra(tarjeta.getId(), "10.00")));
+
+        assertThat(resp.getData()).extracting(ApiResponse::getStatus).containsOnly("ERROR");
+        verify(transaccionRepository, times(3)).saveAll(any());
+    }
+
+    private static TransaccionRequest compra(String cardId, String precio) {
+        TransaccionRequest request = new TransaccionRequest();
+        request.setCardId(cardId);
+        request.setPrice(new BigDecimal(precio));
+        return request;
     }
 
     @Test
@@ -128,9 +258,10 @@ class TransaccionServiceImplTest {
                 .anulada(false)
                 .build();
 
-        when(transaccionRepository.findByIdAndIdTarjeta(tx.getId(), tarjeta.getId())).thenReturn(Optional.of(tx));
+        when(transaccionRepository.findByIdAndIdTarjetaAndFechaTransaccionBetween(eq(tx.getId()), eq(tarjeta.getId()), any(), any()))
+                .thenReturn(Optional.of(tx));
         when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
-        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(i -> i.getArgument(0));
+        when(transaccionRepository.marcarAnulada(tx.getId(), tx.getFechaTransaccion())).thenReturn(1);
         when(tarjetaRepository.save(any(Tarjeta.class))).thenAnswer(i -> i.getArgument(0));
 
         ApiResponse<Transaccion> result = transaccionService.anularTransaccion(tarjeta.getId(), tx.getId());
@@ -138,10 +269,35 @@ class TransaccionServiceImplTest {
         assertThat(result.getStatus()).isEqualTo("SUCCESS");
         assertThat(result.getData().getAnulada()).isTrue();
         assertThat(tarjeta.getBalance()).isEqualByComparingTo(new BigDecimal("120.00"));
-        verify(transaccionRepository).save(any());
+        assertThat(tarjeta.getSecuencia()).isEqualTo(1L);
+        verify(libroMayor).registrar(argThat((LibroMayor.Asiento a) -> a.tipo() == Movimiento.Tipo.ANULACION
+                && a.secuencia() == 1 && a.monto().compareTo(new BigDecimal("20.00")) == 0));
+        verify(transaccionRepository).marcarAnulada(tx.getId(), tx.getFechaTransaccion());
+        verify(transaccionRepository, never()).findByIdAndIdTarjeta(any(), any());
         verify(tarjetaRepository).save(any());
     }
 
+    @Test
+    void anular_fails_when_annulled_concurrently() {
+        Transaccion tx = Transaccion.builder()
+                .id(102L)
+                .idTarjeta(tarjeta.getId())
+                .monto(new BigDecimal("20.00"))
+                .fechaTransaccion(LocalDateTime.now().minusHours(1))
+                .anulada(false)
+                .build();
+
+        when(transaccionRepository.findByIdAndIdTarjetaAndFechaTransaccionBetween(eq(tx.getId()), eq(tarjeta.getId()), any(), any()))
+                .thenReturn(Optional.of(tx));
+        when(tarjetaRepository.findById(tarjeta.getId())).thenReturn(Optional.of(tarjeta));
+        when(transaccionRepository.marcarAnulada(tx.getId(), tx.getFechaTransaccion())).thenReturn(0);
+
+        ApiResponse<Transaccion> resp = transaccionService.anularTransaccion(tarjeta.getId(), tx.getId());
+
+        assertThat(resp.getMessage()).isEqualTo("Transaccion ya anulada");
+        verify(tarjetaRepository, never()).save(any());
+    }
+
     @Test
     void anular_fails_if_more_than_24h() {
         Transaccion tx = Transaccion.builder()
@@ -237,7 +393,7 @@ class TransaccionServiceImplTest {
                 .anulada(false)
                 .build();
 
-        when(transaccionRepository.findById(tx.getId())).thenReturn(Optional.of(tx));
+        when(transaccionRepository.resumen(tx.getId())).thenReturn(Optional.of(tx));
 
         ApiResponse<Transaccion> resp = transaccionService.obtenerTransaccion(tx.getId());
 
@@ -247,11 +403,104 @@ class TransaccionServiceImplTest {
 
     @Test
     void obtenerTransaccion_fails_when_not_found() {
-        when(transaccionRepository.findById(999L)).thenReturn(Optional.empty());
+        when(transaccionRepository.resumen(999L)).thenReturn(Optional.empty());
 
         ApiResponse<Transaccion> resp = transaccionService.obtenerTransaccion(999L);
 
         assertThat(resp.getStatus()).isEqualTo("ERROR");
     }
 
+    @Test
+    void obtenerPagina_primeraPagina_devuelveCursorCuandoHayMas() {
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
+        when(transaccionRepository.primeraPagina(tarjeta.getId(), Limit.of(3)))
+                .thenReturn(List.of(tx(1L, 10), tx(2L, 11), tx(3L, 12)));
+
+        ApiResponse<PaginaTransacciones> resp = transaccionService.obtenerPaginaTransacciones(tarjeta.getId(), null, 2);
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData().getTransacciones()).extracting(Transaccion::getId).containsExactly(1L, 2L);
+        assertThat(resp.getData().getSiguienteCursor()).isNotNull();
+    }
+
+    @Test
+    void obtenerPagina_conCursor_continuaDespuesDelUltimo() {
+        Transaccion ultima = tx(2L, 11);
+        String cursor = CursorTransacciones.despuesDe(ultima).codificar();
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
+        when(transaccionRepository.paginaDespuesDe(tarjeta.getId(), ultima.getFechaTransaccion(), 2L, Limit.of(3)))
+                .thenReturn(List.of(tx(3L, 12)));
+
+        ApiResponse<PaginaTransacciones> resp = transaccionService.obtenerPaginaTransacciones(tarjeta.getId(), cursor, 2);
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData().getTransacciones()).extracting(Transaccion::getId).containsExactly(3L);
+        assertThat(resp.getData().getSiguienteCursor()).isNull();
+    }
+
+    @Test
+    void obtenerPagina_limitaElTamanio() {
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
+        when(transaccionRepository.primeraPagina(tarjeta.getId(), Limit.of(TransaccionServiceImpl.TAMANIO_PAGINA_MAXIMO + 1)))
+                .thenReturn(List.of());
+
+        ApiResponse<PaginaTransacciones> resp = transaccionService.obtenerPaginaTransacciones(tarjeta.getId(), null, 100_000);
+
+        assertThat(resp.getStatus()).isEqualTo("SUCCESS");
+        assertThat(resp.getData().getTransacciones()).isEmpty();
+    }
+
+    @Test
+    void obtenerPagina_fails_conCursorInvalido() {
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.of(SaldoTarjeta.de(tarjeta)));
+
+        ApiResponse<PaginaTransacciones> resp = transaccionService.obtenerPaginaTransacciones(tarjeta.getId(), "%%%", 10);
+
+        assertThat(resp.getStatus()).isEqualTo("ERROR");
+        assertThat(resp.getMessage()).isEqualTo("Cursor invalido");
+    }
+
+    @Test
+    void obtenerPagina_fails_cuandoLaTarjetaNoExiste() {
+        when(tarjetaRepository.saldo(tarjeta.getId())).thenReturn(Optional.empty());
+
+        ApiResponse<PaginaTransacciones> resp = transaccionService.obtenerPaginaTransacciones(tarjeta.getId(), null, 10);
+
+        assertThat(resp.getStatus()).isEqualTo("ERROR");
+        verify(transaccionRepository, never()).primeraPagina(any(), any());
+    }
+
+    @Test
+    void cursor_codificaYDecodificaLaLlave() {
+        CursorTransacciones cursor = new CursorTransacciones(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000), 42L);
+
+        assertThat(CursorTransacciones.decodificar(cursor.codificar())).isEqualTo(cursor);
+        assertThat(CursorTransacciones.decodificar("bm8tZXMtY3Vyc29y")).isNull();
+    }
+
+    private Transaccion tx(Long id, int minuto) {
+        return Transaccion.builder()
+                .id(id)
+                .idTarjeta(tarjeta.getId())
+                .monto(new BigDecimal("1.00"))
+                .fechaTransaccion(LocalDateTime.of(2026, 1, 1, 10, minuto))
+                .anulada(false)
+                .build();
+    }
+
+    private AutorizacionCompra autorizacion(Long idTransaccion) {
+        return new AutorizacionCompra() {
+            public Long getIdTransaccion() { return idTransaccion; }
+            public String getIdProducto() { return tarjeta.getIdProducto(); }
+            public String getNombreTitular() { return tarjeta.getNombreTitular(); }
+            public Boolean getActiva() { return tarjeta.getActiva(); }
+            public Boolean getBloqueada() { return tarjeta.getBloqueada(); }
+            public Integer getMesExpiracion() { return MesExpiracionConverter.aMes(tarjeta.getFechaExpiracion()); }
+            public Boolean getExpirada() { return tarjeta.getExpirada(); }
+            public BigDecimal getBalance() { return tarjeta.getBalance(); }
+            public Long getVersion() { return tarjeta.getVersion(); }
+            public Long getSecuencia() { return tarjeta.getSecuencia(); }
+        };
+    }
+
 }
\ No newline at end of file